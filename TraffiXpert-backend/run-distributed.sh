@@ -0,0 +1,14 @@
+#!/bin/sh
+# Distributed (partitioned) run on this machine: the coordinator starts one worker JVM per
+# partition, repeats the run for each partition count and prints the scaling report.
+#
+#   ./run-distributed.sh --network=path/to/network.json --demand=path/to/demand.json \
+#                        --partitions=1,2,4,8 --minutes=10 [--profile=name] [--worker-heap=512m]
+#
+# Without --network/--demand the bundled intersection is used (too small to scale, but a quick check).
+set -e
+cd "$(dirname "$0")"
+MVN="${MVN:-./mvnw}"
+"$MVN" -q -DskipTests compile
+"$MVN" -q dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+exec java -cp "target/classes:$(cat target/classpath.txt)" com.traffixpert.TraffiXpert.distributed.DistributedRun "$@"
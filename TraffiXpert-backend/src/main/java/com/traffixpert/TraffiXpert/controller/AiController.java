@@ -1,14 +1,28 @@
 package com.traffixpert.TraffiXpert.controller;
 
+import com.traffixpert.TraffiXpert.detection.DetectionPipeline;
+import com.traffixpert.TraffiXpert.detection.UploadBufferPool;
 import com.traffixpert.TraffiXpert.dto.DetectViolationInputDTO; // Import violation DTOs
 import com.traffixpert.TraffiXpert.dto.DetectViolationOutputDTO;
+import com.traffixpert.TraffiXpert.dto.DetectionStatsDTO;
 import com.traffixpert.TraffiXpert.dto.GenerateDailyReportInputDTO;
 import com.traffixpert.TraffiXpert.dto.GenerateDailyReportOutputDTO;
+import com.traffixpert.TraffiXpert.metrics.LogLinearHistogram;
 import com.traffixpert.TraffiXpert.service.ReportService;
 import com.traffixpert.TraffiXpert.service.ViolationService; // Import ViolationService
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/ai")
@@ -26,14 +40,15 @@ public class AiController {
     }
 
     /**
-     * Endpoint to generate the daily traffic report.
+     * Endpoint to generate the daily traffic report for the current simulated day.
+     * The figures come from the server-side history (see /api/reports/daily for the full report);
+     * a posted body is accepted for compatibility but no longer used.
      * Accessed via POST request to /api/ai/generate-report
      */
     @PostMapping("/generate-report")
     public ResponseEntity<GenerateDailyReportOutputDTO> generateDailyReport(
-            @RequestBody GenerateDailyReportInputDTO reportInput) {
+            @RequestBody(required = false) GenerateDailyReportInputDTO reportInput) {
         try {
-            // Assumes reportService.generateReport exists and returns the output DTO
             GenerateDailyReportOutputDTO reportOutput = reportService.generateReport(reportInput);
             return ResponseEntity.ok(reportOutput);
         } catch (Exception e) {
@@ -45,18 +60,109 @@ public class AiController {
     /**
      * Endpoint to detect traffic violations from an image Data URL.
      * Accessed via POST request to /api/ai/detect-violation
+     * @return 200 with the result, 400 for an invalid image, 503 if the detector is overloaded.
      */
     @PostMapping("/detect-violation")
     public ResponseEntity<DetectViolationOutputDTO> detectTrafficViolation(
             @RequestBody DetectViolationInputDTO violationInput) { // Use @RequestBody
         try {
-            // Assumes violationService.detectViolationFromImage exists and returns the output DTO
             DetectViolationOutputDTO result = violationService.detectViolationFromImage(violationInput);
             return ResponseEntity.ok(result); // Return 200 OK with the result
+        } catch (IllegalArgumentException e) {
+             System.err.println("Invalid image for violation detection: " + e.getMessage());
+             return ResponseEntity.badRequest().build(); // Return 400
+        } catch (RejectedExecutionException e) {
+             System.err.println("Violation detection overloaded: " + e.getMessage());
+             return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build(); // Return 503, client may retry
         } catch (Exception e) {
              System.err.println("Error detecting violation: " + e.getMessage()); // Basic logging
              return ResponseEntity.internalServerError().build(); // Return 500
         }
     }
 
+    /**
+     * Endpoint to detect traffic violations from a binary image upload (camera feeds).
+     * The body is streamed into a pooled direct buffer instead of being buffered as base64 JSON.
+     * Accessed via POST request to /api/ai/detect-violation/image with Content-Type image/jpeg,
+     * image/png or application/octet-stream.
+     * @return 200 with the result, 400 for an invalid image, 413 if it is too large,
+     *         503 if the upload buffers or the detector are exhausted.
+     */
+    @PostMapping(value = "/detect-violation/image",
+                 consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<DetectViolationOutputDTO> detectTrafficViolationFromUpload(HttpServletRequest request) {
+        try (InputStream body = request.getInputStream()) {
+            return detectFromStream(body, request.getContentLengthLong());
+        } catch (IOException e) {
+            System.err.println("Error reading image upload: " + e.getMessage());
+            return ResponseEntity.badRequest().build(); // Client aborted or sent a broken body
+        }
+    }
+
+    /**
+     * Multipart variant of the image upload endpoint (browser forms, curl -F image=@frame.jpg).
+     * Accessed via POST request to /api/ai/detect-violation/image with Content-Type multipart/form-data
+     * @param image The "image" form part.
+     */
+    @PostMapping(value = "/detect-violation/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<DetectViolationOutputDTO> detectTrafficViolationFromMultipart(
+            @RequestPart("image") MultipartFile image) {
+        try (InputStream body = image.getInputStream()) {
+            return detectFromStream(body, image.getSize());
+        } catch (IOException e) {
+            System.err.println("Error reading image upload: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private ResponseEntity<DetectViolationOutputDTO> detectFromStream(InputStream body, long contentLength)
+            throws IOException {
+        try {
+            return ResponseEntity.ok(violationService.detectViolationFromStream(body, contentLength));
+        } catch (UploadBufferPool.TooLargeException e) {
+            System.err.println("Rejected image upload: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build(); // Return 413
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid image for violation detection: " + e.getMessage());
+            return ResponseEntity.badRequest().build(); // Return 400
+        } catch (RejectedExecutionException e) {
+            System.err.println("Violation detection overloaded: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build(); // Return 503, client may retry
+        }
+    }
+
+    /**
+     * Endpoint to get detection pipeline throughput and per-stage latency.
+     * Accessed via GET request to /api/ai/detection/stats
+     */
+    @GetMapping("/detection/stats")
+    public DetectionStatsDTO getDetectionStats() {
+        DetectionPipeline pipeline = violationService.getDetectionPipeline();
+        UploadBufferPool uploads = violationService.getUploadBufferPool();
+        Map<String, DetectionStatsDTO.StageLatency> stages = new LinkedHashMap<>();
+        for (DetectionPipeline.Stage stage : DetectionPipeline.Stage.values()) {
+            LogLinearHistogram.Snapshot snapshot = pipeline.getLatency(stage);
+            stages.put(stage.name(), new DetectionStatsDTO.StageLatency(
+                    snapshot.getTotalCount(),
+                    snapshot.valueAt(0.50) / 1000.0, // us -> ms
+                    snapshot.valueAt(0.90) / 1000.0,
+                    snapshot.valueAt(0.99) / 1000.0,
+                    snapshot.getMax() / 1000.0));
+        }
+        return new DetectionStatsDTO(
+                pipeline.getModelName(),
+                pipeline.getRequests(),
+                pipeline.getRejected(),
+                pipeline.getFailed(),
+                pipeline.getBatches(),
+                pipeline.getAverageBatchSize(),
+                pipeline.getQueueDepth(),
+                pipeline.getQueueCapacity(),
+                uploads.getUploads(),
+                uploads.getRejected() + uploads.getTooLarge(),
+                uploads.getBuffersInUse(),
+                uploads.getBufferCount(),
+                stages);
+    }
+
 }
@@ -0,0 +1,106 @@
+package com.traffixpert.TraffiXpert.controller;
+
+import com.traffixpert.TraffiXpert.dto.CameraInputDTO;
+import com.traffixpert.TraffiXpert.dto.CameraStatsDTO;
+import com.traffixpert.TraffiXpert.ingestion.CameraFeed;
+import com.traffixpert.TraffiXpert.ingestion.CameraIngestionService;
+import com.traffixpert.TraffiXpert.ingestion.DirectoryFrameSource;
+import com.traffixpert.TraffiXpert.metrics.LogLinearHistogram;
+import com.traffixpert.TraffiXpert.model.RoadDirection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/cameras") // Base path for camera ingestion endpoints
+@CrossOrigin(origins = "http://localhost:9002") // Allow frontend access
+public class CameraController {
+
+    private final CameraIngestionService ingestionService;
+
+    @Autowired
+    public CameraController(CameraIngestionService ingestionService) {
+        this.ingestionService = ingestionService;
+    }
+
+    /**
+     * Endpoint to get per-camera throughput, lag and detection counts.
+     * Accessed via GET request to /api/cameras
+     * @return A list of CameraStatsDTO objects, by camera id.
+     */
+    @GetMapping
+    public List<CameraStatsDTO> getCameras() {
+        return ingestionService.getFeeds().stream()
+                .map(CameraController::toStatsDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Endpoint to attach a camera that replays a directory of frames.
+     * Accessed via POST request to /api/cameras
+     * @param input Camera id, road, directory (relative to traffixpert.ingestion.frames-root) and replay settings.
+     * @return 201 with the camera's stats, 400 for invalid input or a directory outside the frames root,
+     *         409 if the id is taken.
+     */
+    @PostMapping
+    public ResponseEntity<CameraStatsDTO> addCamera(@RequestBody CameraInputDTO input) {
+        if (input.id() == null || input.id().isBlank() || input.road() == null || input.directory() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            RoadDirection road = RoadDirection.valueOf(input.road().trim().toUpperCase());
+            DirectoryFrameSource source = new DirectoryFrameSource(ingestionService.resolveFramesDirectory(input.directory()),
+                    input.fps() != null ? input.fps() : 10.0,
+                    input.loop() == null || input.loop());
+            CameraFeed feed = ingestionService.addCamera(input.id().trim(), road, source, input.sampleIntervalMs());
+            return ResponseEntity.status(HttpStatus.CREATED).body(toStatsDTO(feed));
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Invalid camera: " + e.getMessage());
+            return ResponseEntity.badRequest().build(); // Unknown road, bad rate, missing, empty or outside directory
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /**
+     * Endpoint to detach a camera.
+     * Accessed via DELETE request to /api/cameras/{id}
+     * @return 204, or 404 if no such camera.
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> removeCamera(@PathVariable String id) {
+        return ingestionService.removeCamera(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    private static CameraStatsDTO toStatsDTO(CameraFeed feed) {
+        LogLinearHistogram.Snapshot lag = feed.getLag();
+        double uptime = Math.max(1e-3, feed.getUptimeSeconds());
+        return new CameraStatsDTO(
+                feed.getId(),
+                feed.getRoad().name(),
+                feed.getSource(),
+                feed.getState().name(),
+                feed.getError(),
+                feed.getFramesRead(),
+                feed.getFramesSkipped(),
+                feed.getFramesDropped(),
+                feed.getDuplicates(),
+                feed.getInferred(),
+                feed.getFailed(),
+                feed.getDetections(),
+                feed.getViolations(),
+                feed.getFramesRead() / uptime,
+                (feed.getInferred() + feed.getDuplicates()) / uptime,
+                lag.valueAt(0.50),
+                lag.valueAt(0.99),
+                lag.getMax(),
+                feed.getLastLagMillis());
+    }
+}
@@ -1,8 +1,11 @@
 package com.traffixpert.TraffiXpert.controller;
 
+import com.traffixpert.TraffiXpert.model.RoadDirection;
 import com.traffixpert.TraffiXpert.model.SignalState;
+import com.traffixpert.TraffiXpert.scheduling.FixedTimestepClock;
 import com.traffixpert.TraffiXpert.service.SimulationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity; // Import ResponseEntity
 import org.springframework.web.bind.annotation.*; // Import GET mapping etc.
 
@@ -14,6 +17,8 @@ import java.util.Map; // Import Map for status response
 @CrossOrigin(origins = "http://localhost:9002") // Allow frontend access
 public class ControlController {
 
+    private static final double MAX_HEADLESS_SECONDS = 3600; // Keeps a single request bounded
+
     private final SimulationService simulationService;
 
     @Autowired
@@ -92,4 +97,101 @@ public class ControlController {
         boolean isRunning = simulationService.isSimulationRunning();
         return ResponseEntity.ok(Map.of("isRunning", isRunning));
     }
-}
\ No newline at end of file
+
+    /**
+     * Endpoint to run the paused simulation headless, as fast as possible.
+     * Accessed via POST request to /api/control/run?seconds=600&fastForward=true
+     * @param seconds Simulated time to run, 1-3600 s of simulation time (the day clock runs clockSpeed times faster).
+     * @param fastForward Whether idle periods are jumped over (default true).
+     * @return Steps, jumps and wall time of the run; 409 if the simulation loop is running, 400 for an invalid duration.
+     */
+    @PostMapping("/run")
+    public ResponseEntity<SimulationService.HeadlessRun> runHeadless(@RequestParam double seconds,
+                                                                     @RequestParam(defaultValue = "true") boolean fastForward) {
+        if (!(seconds >= 1 && seconds <= MAX_HEADLESS_SECONDS)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(simulationService.runHeadless(seconds * 1000.0, fastForward));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /**
+     * Endpoint to retune a simulation stage (see GET /api/stats/stages).
+     * Accessed via POST request to /api/control/stages/{name}?periodMs=100
+     * @param name Stage name: physics, control, stats or map-index.
+     * @param periodMs The new period in milliseconds.
+     * @return The stage and its period; 404 for an unknown stage, 400 for a period below the stage's minimum.
+     */
+    @PostMapping("/stages/{name}")
+    public ResponseEntity<Map<String, Object>> setStagePeriod(@PathVariable String name, @RequestParam long periodMs) {
+        if (simulationService.getStages().stream().noneMatch(stage -> stage.getName().equals(name))) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            simulationService.setStagePeriod(name, periodMs);
+            return ResponseEntity.ok(Map.of("name", name, "periodMs", periodMs));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Endpoint to set how the simulation loop handles falling behind wall time (see GET /api/stats/clock).
+     * Accessed via POST request to /api/control/clock?policy=degrade&maxSubsteps=5&maxLagMs=2000
+     * @param policy skip, slow-motion or degrade (default: unchanged).
+     * @param maxSubsteps Most physics steps per loop iteration (default: unchanged).
+     * @param maxLagMs Most owed time kept before it is dropped (default: unchanged).
+     * @return The resulting settings, or 400 for an unknown policy or invalid limit.
+     */
+    @PostMapping("/clock")
+    public ResponseEntity<Map<String, Object>> configureClock(@RequestParam(required = false) String policy,
+                                                              @RequestParam(required = false) Integer maxSubsteps,
+                                                              @RequestParam(required = false) Long maxLagMs) {
+        FixedTimestepClock clock = simulationService.getClock();
+        FixedTimestepClock.OverrunPolicy selected = policy == null ? clock.getPolicy() : FixedTimestepClock.OverrunPolicy.parse(policy);
+        if (selected == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            clock.configure(selected,
+                    maxSubsteps != null ? maxSubsteps : clock.getMaxSubsteps(),
+                    maxLagMs != null ? maxLagMs : clock.getMaxLagMillis());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(Map.of(
+                "policy", clock.getPolicy().name(),
+                "maxSubsteps", clock.getMaxSubsteps(),
+                "maxLagMs", clock.getMaxLagMillis()));
+    }
+
+    /**
+     * Endpoint to switch an approach between vehicle-by-vehicle and queue (mesoscopic) simulation.
+     * Accessed via POST request to /api/control/roads/{direction}/model?mode=meso
+     * @param direction NORTH, SOUTH, EAST or WEST.
+     * @param mode micro or meso.
+     * @return The approach and its model, or 400 for an unknown approach or mode.
+     */
+    @PostMapping("/roads/{direction}/model")
+    public ResponseEntity<Map<String, String>> setRoadModel(@PathVariable String direction, @RequestParam String mode) {
+        RoadDirection road;
+        try {
+            road = RoadDirection.valueOf(direction.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        boolean mesoscopic;
+        switch (mode.toLowerCase()) {
+            case "meso" -> mesoscopic = true;
+            case "micro" -> mesoscopic = false;
+            default -> {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        simulationService.setRoadMesoscopic(road, mesoscopic);
+        return ResponseEntity.ok(Map.of("road", road.name(), "mode", mode.toLowerCase()));
+    }
+}
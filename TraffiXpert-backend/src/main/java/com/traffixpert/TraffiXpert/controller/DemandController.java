@@ -0,0 +1,110 @@
+package com.traffixpert.TraffiXpert.controller;
+
+import com.traffixpert.TraffiXpert.demand.DemandGenerator;
+import com.traffixpert.TraffiXpert.demand.DemandProfile;
+import com.traffixpert.TraffiXpert.demand.LoadMetrics;
+import com.traffixpert.TraffiXpert.dto.DemandStatusDTO;
+import com.traffixpert.TraffiXpert.service.SimulationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/demand") // Base path for traffic demand endpoints
+@CrossOrigin(origins = "http://localhost:9002") // Allow frontend access
+public class DemandController {
+
+    private final SimulationService simulationService;
+
+    @Autowired
+    public DemandController(SimulationService simulationService) {
+        this.simulationService = simulationService;
+    }
+
+    /**
+     * Endpoint to get the demand state and engine load metrics.
+     * Accessed via GET request to /api/demand/status
+     * @return The current DemandStatusDTO.
+     */
+    @GetMapping("/status")
+    public DemandStatusDTO getStatus() {
+        DemandGenerator demand = simulationService.getDemand();
+        LoadMetrics metrics = simulationService.getLoadMetrics();
+        int vehiclesOnNetwork = simulationService.getRoads().stream()
+                .mapToInt(road -> road.getVehicles().size())
+                .sum();
+        return new DemandStatusDTO(
+                demand.getProfileName(),
+                demand.isSaturating(),
+                demand.getHourOfDay(),
+                demand.getCurrentArrivalRate(),
+                demand.getGenerated(),
+                demand.getReleased(),
+                demand.getDropped(),
+                demand.getBacklogByEntry(),
+                vehiclesOnNetwork,
+                metrics.getThroughputPerMinute(),
+                metrics.getLastTickMillis(),
+                metrics.getAverageTickMillis(),
+                metrics.getMaxTickMillis(),
+                simulationService.getTickBudgetMillis());
+    }
+
+    /**
+     * Endpoint to list the available demand profiles.
+     * Accessed via GET request to /api/demand/profiles
+     * @return Profile names mapped to their descriptions.
+     */
+    @GetMapping("/profiles")
+    public Map<String, String> getProfiles() {
+        List<DemandProfile> profiles = simulationService.getDemand().getProfiles();
+        return profiles.stream().collect(Collectors.toMap(
+                DemandProfile::name, DemandProfile::description, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * Endpoint to switch the active demand profile (e.g. "stress" for a max-load run).
+     * Accessed via POST request to /api/demand/profile/{name}
+     * @param name The profile name.
+     * @return 200 OK, or 404 if no such profile exists.
+     */
+    @PostMapping("/profile/{name}")
+    public ResponseEntity<Void> setProfile(@PathVariable String name) {
+        if (!simulationService.getDemand().setProfile(name)) {
+            return ResponseEntity.notFound().build();
+        }
+        simulationService.getLoadMetrics().resetMax(); // Peak tick time should reflect the new load
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Endpoint to jump the simulated day clock, e.g. to the start of a peak.
+     * Accessed via POST request to /api/demand/clock?hour=17
+     * @param hour Hours since midnight.
+     * @return 200 OK, or 400 if the hour is outside [0, 24).
+     */
+    @PostMapping("/clock")
+    public ResponseEntity<Void> setClock(@RequestParam double hour) {
+        if (hour < 0 || hour >= 24) {
+            return ResponseEntity.badRequest().build();
+        }
+        simulationService.getDemand().setHourOfDay(hour);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Endpoint to drop all vehicles waiting at the entries (e.g. after a stress run).
+     * Accessed via POST request to /api/demand/backlog/clear
+     * @return 200 OK.
+     */
+    @PostMapping("/backlog/clear")
+    public ResponseEntity<Void> clearBacklog() {
+        simulationService.getDemand().clearBacklog();
+        return ResponseEntity.ok().build();
+    }
+}
@@ -2,12 +2,16 @@ package com.traffixpert.TraffiXpert.controller;
 
 // Import the new DTO
 import com.traffixpert.TraffiXpert.dto.EmergencyEventDTO;
+import com.traffixpert.TraffiXpert.dto.PreemptionPlanDTO;
+import com.traffixpert.TraffiXpert.emergency.SignalPreemption;
 import com.traffixpert.TraffiXpert.model.EmergencyEvent;
 import com.traffixpert.TraffiXpert.service.SimulationService;
+import com.traffixpert.TraffiXpert.util.SequencedRingBuffer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.time.format.DateTimeFormatter; // Import Formatter
@@ -31,24 +35,64 @@ public class EmergencyController {
     /**
      * Endpoint to get the log of recent emergency events.
      * MODIFIED: Returns formatted DTO list.
-     * Accessed via GET request to /api/emergency/log
-     * @return A list of EmergencyEventDTO objects.
+     * Accessed via GET request to /api/emergency/log (optionally ?since=<sequence>)
+     * @param since Only return events logged after this sequence number (0 for all retained).
+     * @return A list of EmergencyEventDTO objects, newest first.
      */
     @GetMapping("/log")
-    public List<EmergencyEventDTO> getEmergencyLog() {
-        // Get the raw events from the service
-        List<EmergencyEvent> rawEvents = simulationService.getEmergencyLog();
+    public List<EmergencyEventDTO> getEmergencyLog(@RequestParam(defaultValue = "0") long since) {
+        // Get the raw entries (with their sequence numbers) from the service
+        List<SequencedRingBuffer.Entry<EmergencyEvent>> entries = simulationService.getEmergencyLogSince(since);
 
         // Map and format them into DTOs
-        return rawEvents.stream()
-                .map(event -> new EmergencyEventDTO(
-                        event.getId(),
-                        event.getTime().format(DTO_TIME_FORMATTER), // Format the time here
-                        event.getType(),
-                        event.getClearanceTime()))
+        return entries.stream()
+                .map(entry -> {
+                    EmergencyEvent event = entry.value();
+                    return new EmergencyEventDTO(
+                            entry.sequence(),
+                            event.getId(),
+                            event.getTime().format(DTO_TIME_FORMATTER), // Format the time here
+                            event.getType(),
+                            event.getClearanceTime());
+                })
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Endpoint to get the signal preemption plans of all active emergencies.
+     * Accessed via GET request to /api/emergency/preemption
+     * @return The active plans, most urgent first (empty if no emergency is in progress).
+     */
+    @GetMapping("/preemption")
+    public List<PreemptionPlanDTO> getPreemption() {
+        return simulationService.getEmergencyManager().getActive().stream()
+                .map(this::toPlanDTO)
+                .collect(Collectors.toList());
+    }
+
+    private PreemptionPlanDTO toPlanDTO(SignalPreemption preemption) {
+        List<PreemptionPlanDTO.Intersection> intersections = preemption.getIntersections().stream()
+                .map(step -> new PreemptionPlanDTO.Intersection(
+                        step.getNodeId(),
+                        step.getApproachLinkId(),
+                        step.getSignalGroup(),
+                        step.isControlled(),
+                        step.getEta() / 1000.0))
+                .collect(Collectors.toList());
+        return new PreemptionPlanDTO(
+                preemption.getVehicle().getId(),
+                preemption.getVehicle().getEmergencyType(),
+                preemption.getPriority(),
+                preemption.getRoad().getName().name(),
+                preemption.getPhase().name(),
+                preemption.getEta() / 1000.0,
+                preemption.getLeadTime() / 1000.0,
+                preemption.getQueueAhead(),
+                preemption.getElapsed() / 1000.0,
+                preemption.getPreemptedTime() / 1000.0,
+                intersections);
+    }
+
      // --- We might add POST /api/emergency/trigger later if needed separately from ControlController ---
      // The trigger logic is currently in ControlController's /api/control/emergency/trigger endpoint
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.traffixpert.TraffiXpert.controller;
+
+import com.traffixpert.TraffiXpert.dto.TrafficForecastDTO;
+import com.traffixpert.TraffiXpert.service.ForecastService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/forecast") // Base path for forecast endpoints
+@CrossOrigin(origins = "http://localhost:9002") // Allow frontend access
+public class ForecastController {
+
+    private final ForecastService forecastService;
+
+    @Autowired
+    public ForecastController(ForecastService forecastService) {
+        this.forecastService = forecastService;
+    }
+
+    /**
+     * Endpoint to get the short-term traffic forecast per approach.
+     * Accessed via GET request to /api/forecast?horizon=30
+     * @param horizon Minutes ahead, 5-60 (default 60); one point per 5-minute period.
+     * @return The forecast, or 400 for a horizon out of range.
+     */
+    @GetMapping
+    public ResponseEntity<TrafficForecastDTO> getForecast(@RequestParam(defaultValue = "60") int horizon) {
+        try {
+            return ResponseEntity.ok(forecastService.getForecast(horizon));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid forecast request: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
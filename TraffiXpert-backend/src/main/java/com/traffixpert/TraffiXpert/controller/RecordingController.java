@@ -0,0 +1,81 @@
+package com.traffixpert.TraffiXpert.controller;
+
+import com.traffixpert.TraffiXpert.dto.RecordingStatusDTO;
+import com.traffixpert.TraffiXpert.recording.TrajectoryRecorder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+
+@RestController
+@RequestMapping("/api/recording") // Base path for trajectory recording endpoints
+@CrossOrigin(origins = "http://localhost:9002") // Allow frontend access
+public class RecordingController {
+
+    private final TrajectoryRecorder recorder;
+
+    @Autowired
+    public RecordingController(TrajectoryRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Endpoint to get the recorder state.
+     * Accessed via GET request to /api/recording/status
+     * @return The current RecordingStatusDTO.
+     */
+    @GetMapping("/status")
+    public RecordingStatusDTO getStatus() {
+        Path file = recorder.getCurrentFile();
+        return new RecordingStatusDTO(
+                recorder.isRecording(),
+                file != null ? file.toAbsolutePath().toString() : null,
+                recorder.getFormat().name(),
+                recorder.getSampleIntervalMillis(),
+                recorder.getSamplesRecorded(),
+                recorder.getSamplesDropped(),
+                recorder.getBytesWritten(),
+                recorder.getPendingChunks());
+    }
+
+    /**
+     * Endpoint to start recording trajectories into a new file.
+     * Accessed via POST request to /api/recording/start?format=csv&intervalMs=100
+     * @param format columnar or csv (default: traffixpert.recording.format).
+     * @param intervalMs Optional new sample interval (simulated ms).
+     * @return The status, or 400 for an unknown format / bad interval, 500 if the file can't be created.
+     */
+    @PostMapping("/start")
+    public ResponseEntity<RecordingStatusDTO> start(@RequestParam(required = false) String format,
+                                                    @RequestParam(required = false) Double intervalMs) {
+        TrajectoryRecorder.Format selected;
+        try {
+            selected = format != null ? TrajectoryRecorder.parseFormat(format) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (intervalMs != null) {
+            if (intervalMs <= 0) return ResponseEntity.badRequest().build();
+            recorder.setSampleIntervalMillis(intervalMs);
+        }
+        try {
+            recorder.start(selected);
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+        return ResponseEntity.ok(getStatus());
+    }
+
+    /**
+     * Endpoint to stop recording; the file is flushed and closed in the background.
+     * Accessed via POST request to /api/recording/stop
+     * @return The status after stopping.
+     */
+    @PostMapping("/stop")
+    public RecordingStatusDTO stop() {
+        recorder.stop();
+        return getStatus();
+    }
+}
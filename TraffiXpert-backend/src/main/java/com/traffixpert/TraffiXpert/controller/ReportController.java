@@ -0,0 +1,40 @@
+package com.traffixpert.TraffiXpert.controller;
+
+import com.traffixpert.TraffiXpert.dto.TrafficReportDTO;
+import com.traffixpert.TraffiXpert.service.ReportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/reports") // Base path for report endpoints
+@CrossOrigin(origins = "http://localhost:9002") // Allow frontend access
+public class ReportController {
+
+    private final ReportService reportService;
+
+    @Autowired
+    public ReportController(ReportService reportService) {
+        this.reportService = reportService;
+    }
+
+    /**
+     * Endpoint to get the traffic report of a simulated day, computed from the stored history.
+     * Accessed via GET request to /api/reports/daily?day=0&from=7&to=10
+     * @param day Simulated day (default: the current one).
+     * @param from First hour of day, inclusive (default 0).
+     * @param to Last hour of day, exclusive (default 24).
+     * @return The report, or 400 for an invalid range or a day outside the history.
+     */
+    @GetMapping("/daily")
+    public ResponseEntity<TrafficReportDTO> getDailyReport(@RequestParam(required = false) Long day,
+                                                           @RequestParam(defaultValue = "0") int from,
+                                                           @RequestParam(defaultValue = "24") int to) {
+        try {
+            return ResponseEntity.ok(reportService.getReport(day, from, to));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid report request: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
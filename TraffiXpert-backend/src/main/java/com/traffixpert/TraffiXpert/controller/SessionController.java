@@ -0,0 +1,264 @@
+package com.traffixpert.TraffiXpert.controller;
+
+import com.traffixpert.TraffiXpert.dto.SessionDTO;
+import com.traffixpert.TraffiXpert.dto.SimulationStateDTO;
+import com.traffixpert.TraffiXpert.model.Bounds;
+import com.traffixpert.TraffiXpert.model.SignalState;
+import com.traffixpert.TraffiXpert.service.MapViewService;
+import com.traffixpert.TraffiXpert.service.SimulationService;
+import com.traffixpert.TraffiXpert.session.SessionManager;
+import com.traffixpert.TraffiXpert.session.SimulationSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Isolated simulation sessions: each has its own signals, vehicles, demand and statistics, so
+ * what one analyst does (toggling auto mode, triggering an emergency, a stress profile) doesn't
+ * show up on anyone else's dashboard. The endpoints mirror /api/simulation, /api/stats and
+ * /api/control with the session id in the path; those keep addressing the default simulation.
+ */
+@RestController
+@RequestMapping("/api/sessions")
+@CrossOrigin(origins = "http://localhost:9002")
+public class SessionController {
+
+    private static final double MAX_HEADLESS_SECONDS = 3600; // As /api/control/run
+
+    private final SessionManager sessionManager;
+    private final MapViewService mapViewService;
+
+    @Autowired
+    public SessionController(SessionManager sessionManager, MapViewService mapViewService) {
+        this.sessionManager = sessionManager;
+        this.mapViewService = mapViewService;
+    }
+
+    /**
+     * Endpoint to create a session; it starts running right away.
+     * Accessed via POST request to /api/sessions
+     * @return 201 with the session, or 503 if the server hosts the maximum number of sessions.
+     */
+    @PostMapping
+    public ResponseEntity<SessionDTO> createSession() {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(toDTO(sessionManager.create()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * Endpoint to list the sessions and the shared scheduler.
+     * Accessed via GET request to /api/sessions
+     * @return Limits, worker pool and counters, and the sessions (oldest first).
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> listSessions() {
+        List<SessionDTO> sessions = sessionManager.getSessions().stream().map(this::toDTO).toList();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("sessions", sessions.size());
+        body.put("maxSessions", sessionManager.getMaxSessions());
+        body.put("workers", sessionManager.getWorkerCount());
+        body.put("queuedTicks", sessionManager.getQueuedTicks());
+        body.put("tickMs", sessionManager.getTickMillis());
+        body.put("rounds", sessionManager.getRounds());
+        body.put("idleTimeoutSeconds", sessionManager.getIdleTimeoutMillis() / 1000);
+        body.put("memoryCapBytes", sessionManager.getMaxSessionBytes());
+        body.put("created", sessionManager.getCreated());
+        body.put("evicted", sessionManager.getEvicted());
+        body.put("capPauses", sessionManager.getCapPauses());
+        body.put("list", sessions);
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Endpoint to get one session.
+     * Accessed via GET request to /api/sessions/{id}
+     * @return The session, or 404.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<SessionDTO> getSession(@PathVariable String id) {
+        SimulationSession session = sessionManager.get(id);
+        return session == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(toDTO(session));
+    }
+
+    /**
+     * Endpoint to end a session and free its memory.
+     * Accessed via DELETE request to /api/sessions/{id}
+     * @return 204, or 404.
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteSession(@PathVariable String id) {
+        return sessionManager.delete(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    // --- Per-session views (as /api/simulation/state and /api/stats) ---
+
+    /**
+     * Endpoint to get a session's map state, with the viewport parameters of /api/simulation/state.
+     * Accessed via GET request to /api/sessions/{id}/state?minX=0&minY=0&maxX=400&maxY=400&lod=auto
+     * @return The state; 404 for an unknown session, 400 for invalid parameters.
+     */
+    @GetMapping("/{id}/state")
+    public ResponseEntity<SimulationStateDTO> getState(@PathVariable String id,
+                                                       @RequestParam(required = false) Double minX,
+                                                       @RequestParam(required = false) Double minY,
+                                                       @RequestParam(required = false) Double maxX,
+                                                       @RequestParam(required = false) Double maxY,
+                                                       @RequestParam(defaultValue = "auto") String lod,
+                                                       @RequestParam(required = false) Double tileSize) {
+        SimulationSession session = sessionManager.get(id);
+        if (session == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            Bounds view = SimulationController.parseView(minX, minY, maxX, maxY);
+            return ResponseEntity.ok(mapViewService.getState(session.getSimulation(), view,
+                    MapViewService.parseLevelOfDetail(lod), tileSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Endpoint to get a session's statistics (as /api/stats).
+     * Accessed via GET request to /api/sessions/{id}/stats
+     * @return The stats, or 404.
+     */
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<SimulationService.Stats> getStats(@PathVariable String id) {
+        SimulationSession session = sessionManager.get(id);
+        return session == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(session.getSimulation().getStats());
+    }
+
+    // --- Per-session control (as /api/control) ---
+
+    /**
+     * Endpoint to toggle a session's automatic signal mode.
+     * Accessed via POST request to /api/sessions/{id}/control/mode/toggle
+     * @return 200, or 404.
+     */
+    @PostMapping("/{id}/control/mode/toggle")
+    public ResponseEntity<Void> toggleAutoMode(@PathVariable String id) {
+        return apply(id, SimulationService::toggleAutoMode);
+    }
+
+    /**
+     * Endpoint to set all of a session's signals to RED.
+     * Accessed via POST request to /api/sessions/{id}/control/stop
+     * @return 200, or 404.
+     */
+    @PostMapping("/{id}/control/stop")
+    public ResponseEntity<Void> stopAllTraffic(@PathVariable String id) {
+        return apply(id, simulation -> simulation.setAllSignals(SignalState.RED));
+    }
+
+    /**
+     * Endpoint to trigger an emergency vehicle in a session.
+     * Accessed via POST request to /api/sessions/{id}/control/emergency/trigger
+     * @return 200, or 404.
+     */
+    @PostMapping("/{id}/control/emergency/trigger")
+    public ResponseEntity<Void> triggerEmergency(@PathVariable String id) {
+        return apply(id, SimulationService::triggerEmergency);
+    }
+
+    /**
+     * Endpoint to resume a session, also after it was paused at its memory cap.
+     * Accessed via POST request to /api/sessions/{id}/control/start
+     * @return 200, or 404.
+     */
+    @PostMapping("/{id}/control/start")
+    public ResponseEntity<Void> startSimulation(@PathVariable String id) {
+        SimulationSession session = sessionManager.get(id);
+        if (session == null) {
+            return ResponseEntity.notFound().build();
+        }
+        sessionManager.start(session);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Endpoint to pause a session.
+     * Accessed via POST request to /api/sessions/{id}/control/stop-simulation
+     * @return 200, or 404.
+     */
+    @PostMapping("/{id}/control/stop-simulation")
+    public ResponseEntity<Void> stopSimulation(@PathVariable String id) {
+        return apply(id, SimulationService::stopSimulationLoop);
+    }
+
+    /**
+     * Endpoint to run a paused session headless, as fast as possible (runs on the request thread,
+     * not on the shared workers).
+     * Accessed via POST request to /api/sessions/{id}/control/run?seconds=600&fastForward=true
+     * @return The run; 404 for an unknown session, 409 if it is running, 400 for an invalid duration.
+     */
+    @PostMapping("/{id}/control/run")
+    public ResponseEntity<SimulationService.HeadlessRun> runHeadless(@PathVariable String id,
+                                                                     @RequestParam double seconds,
+                                                                     @RequestParam(defaultValue = "true") boolean fastForward) {
+        SimulationSession session = sessionManager.get(id);
+        if (session == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!(seconds >= 1 && seconds <= MAX_HEADLESS_SECONDS)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(session.getSimulation().runHeadless(seconds * 1000.0, fastForward));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /**
+     * Endpoint to switch a session's demand profile.
+     * Accessed via POST request to /api/sessions/{id}/demand/profile/{name}
+     * @return 200, or 404 for an unknown session or profile.
+     */
+    @PostMapping("/{id}/demand/profile/{name}")
+    public ResponseEntity<Void> setProfile(@PathVariable String id, @PathVariable String name) {
+        SimulationSession session = sessionManager.get(id);
+        if (session == null || !session.getSimulation().getDemand().setProfile(name)) {
+            return ResponseEntity.notFound().build();
+        }
+        session.getSimulation().getLoadMetrics().resetMax();
+        return ResponseEntity.ok().build();
+    }
+
+    /** Runs an action on a session's simulation; 404 if there is no such session. */
+    private ResponseEntity<Void> apply(String id, Consumer<SimulationService> action) {
+        SimulationSession session = sessionManager.get(id);
+        if (session == null) {
+            return ResponseEntity.notFound().build();
+        }
+        action.accept(session.getSimulation());
+        return ResponseEntity.ok().build();
+    }
+
+    private SessionDTO toDTO(SimulationSession session) {
+        SimulationService simulation = session.getSimulation();
+        long ticks = session.getTicks();
+        return new SessionDTO(
+                session.getId(),
+                Instant.ofEpochMilli(session.getCreatedAt()).toString(),
+                (System.currentTimeMillis() - session.getLastAccess()) / 1000,
+                simulation.isSimulationRunning(),
+                session.getPausedReason(),
+                simulation.getSimulatedTime() / 1000.0,
+                ticks,
+                session.getLateRounds(),
+                ticks > 0 ? session.getBusyNanos() / 1000.0 / ticks : 0,
+                session.getEstimatedBytes(),
+                sessionManager.getMaxSessionBytes());
+    }
+}
@@ -1,64 +1,101 @@
 package com.traffixpert.TraffiXpert.controller;
 
 import com.traffixpert.TraffiXpert.dto.SimulationStateDTO;
-import com.traffixpert.TraffiXpert.dto.TrafficSignalDTO;
-import com.traffixpert.TraffiXpert.dto.VehicleDTO;
-import com.traffixpert.TraffiXpert.model.Road;
-import com.traffixpert.TraffiXpert.model.TrafficSignal;
-import com.traffixpert.TraffiXpert.model.Vehicle;
-import com.traffixpert.TraffiXpert.service.SimulationService;
+import com.traffixpert.TraffiXpert.model.Bounds;
+import com.traffixpert.TraffiXpert.service.MapViewService;
+import com.traffixpert.TraffiXpert.service.StateStreamService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-
-import java.util.List;
-import java.util.stream.Collectors;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController // Marks this class as a REST controller
 @RequestMapping("/api/simulation") // Base path for all endpoints in this controller
 @CrossOrigin(origins = "http://localhost:9002") // Allow requests from your Next.js dev server
 public class SimulationController {
 
-    private final SimulationService simulationService;
+    private final MapViewService mapViewService;
+    private final StateStreamService stateStreamService;
 
-    // Constructor Injection: Spring automatically provides the SimulationService instance
+    // Constructor Injection: Spring automatically provides the service instances
     @Autowired
-    public SimulationController(SimulationService simulationService) {
-        this.simulationService = simulationService;
+    public SimulationController(MapViewService mapViewService, StateStreamService stateStreamService) {
+        this.mapViewService = mapViewService;
+        this.stateStreamService = stateStreamService;
     }
 
     /**
-     * Endpoint to get the current state of the simulation (signals and vehicles).
-     * Accessed via GET request to /api/simulation/state
-     * @return SimulationStateDTO containing lists of signals and vehicles.
+     * Endpoint to get the current state of the simulation (signals and vehicles) for a viewport.
+     * Accessed via GET request to /api/simulation/state?minX=0&minY=0&maxX=400&maxY=400&lod=auto
+     * Without a viewport the whole network is returned, as before.
+     * @param minX Viewport left edge (canvas px); the four edges are given together or not at all.
+     * @param minY Viewport top edge.
+     * @param maxX Viewport right edge.
+     * @param maxY Viewport bottom edge.
+     * @param lod Level of detail: auto (default), vehicles or density.
+     * @param tileSize Density tile edge length in px (default: 1/32 of the viewport).
+     * @return SimulationStateDTO with the signals and the vehicles or density tiles in view, or 400 for invalid parameters.
      */
     @GetMapping("/state")
-    public SimulationStateDTO getSimulationState() {
-        // Get current signals and map them to DTOs
-        List<TrafficSignalDTO> signalDTOs = simulationService.getSignals()
-                .stream()
-                .map(signal -> new TrafficSignalDTO(signal.getState())) // Create DTO
-                .collect(Collectors.toList());
+    public ResponseEntity<SimulationStateDTO> getSimulationState(@RequestParam(required = false) Double minX,
+                                                                 @RequestParam(required = false) Double minY,
+                                                                 @RequestParam(required = false) Double maxX,
+                                                                 @RequestParam(required = false) Double maxY,
+                                                                 @RequestParam(defaultValue = "auto") String lod,
+                                                                 @RequestParam(required = false) Double tileSize) {
+        try {
+            Bounds view = parseView(minX, minY, maxX, maxY);
+            return ResponseEntity.ok(mapViewService.getState(view, MapViewService.parseLevelOfDetail(lod), tileSize));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid map state request: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
-        // Get all vehicles from all roads and map them to DTOs
-        List<VehicleDTO> vehicleDTOs = simulationService.getRoads()
-                .stream()
-                .flatMap(road -> road.getVehicles().stream()) // Flatten list of lists
-                .map(vehicle -> new VehicleDTO( // Create DTO
-                        vehicle.getId(),
-                        vehicle.getX(),
-                        vehicle.getY(),
-                        vehicle.getWidth(),
-                        vehicle.getHeight(),
-                        vehicle.getAngle(),
-                        vehicle.getColor(),
-                        vehicle.getType()))
-                .collect(Collectors.toList());
+    /**
+     * Endpoint to stream the state of a viewport as server-sent events ("state" events, same
+     * content as /state), for dashboards that would otherwise poll.
+     * Accessed via GET request to /api/simulation/stream?minX=0&minY=0&maxX=400&maxY=400&interval=200
+     * @param minX Viewport left edge (canvas px); the four edges are given together or not at all.
+     * @param minY Viewport top edge.
+     * @param maxX Viewport right edge.
+     * @param maxY Viewport bottom edge.
+     * @param lod Level of detail: auto (default), vehicles or density.
+     * @param tileSize Density tile edge length in px (default: 1/32 of the viewport).
+     * @param interval Milliseconds between events (default 200, at least 50).
+     * @return The event stream, or 400 for invalid parameters.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamSimulationState(@RequestParam(required = false) Double minX,
+                                                            @RequestParam(required = false) Double minY,
+                                                            @RequestParam(required = false) Double maxX,
+                                                            @RequestParam(required = false) Double maxY,
+                                                            @RequestParam(defaultValue = "auto") String lod,
+                                                            @RequestParam(required = false) Double tileSize,
+                                                            @RequestParam(defaultValue = "200") long interval) {
+        try {
+            Bounds view = parseView(minX, minY, maxX, maxY);
+            return ResponseEntity.ok(stateStreamService.open(view, MapViewService.parseLevelOfDetail(lod), tileSize, interval));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid map stream request: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
-        // Return the combined state in a DTO
-        return new SimulationStateDTO(signalDTOs, vehicleDTOs);
+    /** Viewport from the four optional edge parameters (null if none is given). */
+    static Bounds parseView(Double minX, Double minY, Double maxX, Double maxY) {
+        if (minX == null && minY == null && maxX == null && maxY == null) {
+            return null;
+        }
+        if (minX == null || minY == null || maxX == null || maxY == null) {
+            throw new IllegalArgumentException("Viewport needs minX, minY, maxX and maxY");
+        }
+        return new Bounds(minX, minY, maxX, maxY);
     }
 
      // --- Add other simulation-related endpoints later ---
@@ -1,13 +1,28 @@
 package com.traffixpert.TraffiXpert.controller;
 
+import com.traffixpert.TraffiXpert.dto.PercentileStatsDTO;
+import com.traffixpert.TraffiXpert.dto.StageStatsDTO;
+import com.traffixpert.TraffiXpert.meso.MesoscopicModel;
+import com.traffixpert.TraffiXpert.metrics.LogLinearHistogram;
+import com.traffixpert.TraffiXpert.metrics.TrafficMetrics;
+import com.traffixpert.TraffiXpert.model.Road;
+import com.traffixpert.TraffiXpert.model.RoadDirection;
+import com.traffixpert.TraffiXpert.network.RoadNetwork;
+import com.traffixpert.TraffiXpert.scheduling.FixedTimestepClock;
+import com.traffixpert.TraffiXpert.scheduling.Stage;
 import com.traffixpert.TraffiXpert.service.SimulationService;
+import com.traffixpert.TraffiXpert.service.StateStreamService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity; // Import ResponseEntity
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map; // Import Map
 
 @RestController
@@ -15,11 +30,15 @@ import java.util.Map; // Import Map
 @CrossOrigin(origins = "http://localhost:9002") // Allow frontend access
 public class StatsController {
 
+    private static final int MAX_MESO_LINKS = 50; // Busiest links listed by /meso
+
     private final SimulationService simulationService;
+    private final StateStreamService stateStreamService;
 
     @Autowired
-    public StatsController(SimulationService simulationService) {
+    public StatsController(SimulationService simulationService, StateStreamService stateStreamService) {
         this.simulationService = simulationService;
+        this.stateStreamService = stateStreamService;
     }
 
     /**
@@ -43,4 +62,136 @@ public class StatsController {
         int count = simulationService.getIncidentCount();
         return ResponseEntity.ok(Map.of("incidentCount", count));
     }
-}
\ No newline at end of file
+
+    /**
+     * Endpoint to get the live map streams being served.
+     * Accessed via GET request to /api/stats/streams
+     * @return Open and peak stream counts, events sent, and whether this request ran on a virtual thread.
+     */
+    @GetMapping("/streams")
+    public ResponseEntity<Map<String, Object>> getStreamStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("activeStreams", stateStreamService.getActiveStreams());
+        stats.put("peakStreams", stateStreamService.getPeakStreams());
+        stats.put("eventsSent", stateStreamService.getEventsSent());
+        stats.put("virtualThreads", Thread.currentThread().isVirtual());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Endpoint to get the simulation stages with their cadence and run times.
+     * Accessed via GET request to /api/stats/stages
+     * @return One entry per stage, in execution order.
+     */
+    @GetMapping("/stages")
+    public ResponseEntity<List<StageStatsDTO>> getStageStats() {
+        List<StageStatsDTO> result = new ArrayList<>();
+        for (Stage stage : simulationService.getStages()) {
+            LogLinearHistogram.Snapshot durations = stage.getDurations();
+            result.add(new StageStatsDTO(
+                    stage.getName(),
+                    stage.getPlacement().name(),
+                    stage.getPeriodMillis(),
+                    durations.getTotalCount(),
+                    stage.getOverruns(),
+                    durations.getMean(),
+                    durations.valueAt(0.99),
+                    durations.getMax()));
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Endpoint to get how well the simulation loop keeps up with wall time.
+     * Accessed via GET request to /api/stats/clock
+     * @return Overrun policy and limits, current and peak lag, dropped time, time scale (1 = real time) and step counts.
+     */
+    @GetMapping("/clock")
+    public ResponseEntity<Map<String, Object>> getClockStats() {
+        FixedTimestepClock clock = simulationService.getClock();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("policy", clock.getPolicy().name());
+        stats.put("maxSubsteps", clock.getMaxSubsteps());
+        stats.put("maxLagMs", clock.getMaxLagMillis());
+        stats.put("lagMs", clock.getLagMillis());
+        stats.put("maxObservedLagMs", clock.getMaxObservedLagMillis());
+        stats.put("droppedMs", clock.getDroppedMillis());
+        stats.put("timeScale", clock.getTimeScale());
+        stats.put("degraded", clock.isDegraded());
+        stats.put("stepMs", clock.getStepMillis());
+        stats.put("iterations", clock.getIterations());
+        stats.put("steps", clock.getSteps());
+        stats.put("overruns", clock.getOverruns());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Endpoint to get the state of the hybrid engine: which approaches run mesoscopically and
+     * the busiest mesoscopic links.
+     * Accessed via GET request to /api/stats/meso
+     * @return Approach models, vehicle and trip counts, and up to MAX_MESO_LINKS occupied links.
+     */
+    @GetMapping("/meso")
+    public ResponseEntity<Map<String, Object>> getMesoscopicStats() {
+        MesoscopicModel model = simulationService.getMesoscopicModel();
+        RoadNetwork network = simulationService.getNetwork();
+        Map<String, String> roadModels = new LinkedHashMap<>();
+        for (Road road : simulationService.getRoads()) {
+            roadModels.put(road.getName().name(), road.isMesoscopic() ? "meso" : "micro");
+        }
+        List<Map<String, Object>> links = new ArrayList<>();
+        List<Integer> occupied = model.occupiedLinks();
+        occupied.sort((a, b) -> Integer.compare(model.vehiclesOn(b), model.vehiclesOn(a)));
+        for (int link : occupied.subList(0, Math.min(MAX_MESO_LINKS, occupied.size()))) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", network.linkId(link));
+            entry.put("vehicles", model.vehiclesOn(link));
+            entry.put("storage", model.getStorage(link));
+            entry.put("travelTimeMs", model.travelTime(link));
+            links.add(entry);
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("roads", roadModels);
+        stats.put("vehicles", model.getVehicleCount());
+        stats.put("entered", model.getEntered());
+        stats.put("tripsCompleted", model.getTripsCompleted());
+        stats.put("handedToMicroscopic", model.getHandedToMicroscopic());
+        stats.put("links", links);
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Endpoint to get wait, travel and emergency clearance time percentiles.
+     * Accessed via GET request to /api/stats/percentiles?window=15m
+     * @param window Time window: 1m, 5m, 15m or all (default 15m).
+     * @return p50/p90/p99/max per metric and direction (plus ALL), or 400 for an unknown window.
+     */
+    @GetMapping("/percentiles")
+    public ResponseEntity<PercentileStatsDTO> getPercentiles(@RequestParam(defaultValue = "15m") String window) {
+        TrafficMetrics.Window selected = TrafficMetrics.Window.fromLabel(window);
+        if (selected == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        TrafficMetrics metrics = simulationService.getTrafficMetrics();
+        Map<String, Map<String, PercentileStatsDTO.Summary>> result = new LinkedHashMap<>();
+        for (TrafficMetrics.Metric metric : TrafficMetrics.Metric.values()) {
+            Map<String, PercentileStatsDTO.Summary> byDirection = new LinkedHashMap<>();
+            for (RoadDirection direction : RoadDirection.values()) {
+                byDirection.put(direction.name(), toSummary(metrics.snapshot(metric, direction, selected)));
+            }
+            byDirection.put("ALL", toSummary(metrics.snapshot(metric, null, selected)));
+            result.put(metric.name(), byDirection);
+        }
+        return ResponseEntity.ok(new PercentileStatsDTO(selected.getLabel(), result));
+    }
+
+    private static PercentileStatsDTO.Summary toSummary(LogLinearHistogram.Snapshot snapshot) {
+        return new PercentileStatsDTO.Summary(
+                snapshot.getTotalCount(),
+                snapshot.getMean() / 1000.0,
+                snapshot.valueAt(0.50) / 1000.0,
+                snapshot.valueAt(0.90) / 1000.0,
+                snapshot.valueAt(0.99) / 1000.0,
+                snapshot.getMax() / 1000.0);
+    }
+}
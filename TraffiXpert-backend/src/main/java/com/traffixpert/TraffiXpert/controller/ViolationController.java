@@ -1,16 +1,22 @@
 package com.traffixpert.TraffiXpert.controller;
 
 import com.traffixpert.TraffiXpert.model.Violation;
+import com.traffixpert.TraffiXpert.model.ViolationType;
 import com.traffixpert.TraffiXpert.dto.ViolationDTO; // Import the new DTO
 import com.traffixpert.TraffiXpert.service.SimulationService;
+import com.traffixpert.TraffiXpert.util.SequencedRingBuffer;
+import com.traffixpert.TraffiXpert.violation.ViolationEngine;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.time.format.DateTimeFormatter; // Import Formatter
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors; // Import Collectors
 
 @RestController
@@ -29,24 +35,44 @@ public class ViolationController {
 
     /**
      * Endpoint to get the list of recent violations.
-     * Accessed via GET request to /api/violations
-     * @return A list of ViolationDTO objects with formatted time.
+     * Accessed via GET request to /api/violations (optionally ?since=<sequence>)
+     * @param since Only return violations logged after this sequence number (0 for all retained).
+     * @return A list of ViolationDTO objects with formatted time, newest first.
      */
     @GetMapping
-    public List<ViolationDTO> getRecentViolations() {
-        // Get the raw events from the service
-        List<Violation> rawViolations = simulationService.getViolations();
+    public List<ViolationDTO> getRecentViolations(@RequestParam(defaultValue = "0") long since) {
+        // Get the raw entries (with their sequence numbers) from the service
+        List<SequencedRingBuffer.Entry<Violation>> entries = simulationService.getViolationsSince(since);
 
         // Map and format them into DTOs
-        return rawViolations.stream()
-                .map(violation -> new ViolationDTO( // Map to DTO
-                        violation.getId(),
-                        violation.getTime().format(DTO_TIME_FORMATTER), // Format the time here
-                        violation.getLocation(),
-                        violation.getType(),
-                        violation.getFine()))
+        return entries.stream()
+                .map(entry -> { // Map to DTO
+                    Violation violation = entry.value();
+                    return new ViolationDTO(
+                            entry.sequence(),
+                            violation.getId(),
+                            violation.getTime().format(DTO_TIME_FORMATTER), // Format the time here
+                            violation.getLocation(),
+                            violation.getType(),
+                            violation.getFine());
+                })
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Endpoint to get how many violations of each type the rule engine has detected.
+     * Accessed via GET request to /api/violations/counts
+     * @return Violation label -> count since startup (camera-confirmed violations not included).
+     */
+    @GetMapping("/counts")
+    public Map<String, Long> getRuleViolationCounts() {
+        ViolationEngine engine = simulationService.getViolationEngine();
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (ViolationType type : ViolationType.values()) {
+            counts.put(type.getLabel(), engine.getCount(type));
+        }
+        return counts;
+    }
+
     // --- We might add POST /api/violations/ai/detect later ---
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.traffixpert.TraffiXpert.controller;
+
+import com.traffixpert.TraffiXpert.dto.WhatIfDTO;
+import com.traffixpert.TraffiXpert.service.WhatIfService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/what-if")
+@CrossOrigin(origins = "http://localhost:9002")
+public class WhatIfController {
+
+    private final WhatIfService whatIfService;
+
+    @Autowired
+    public WhatIfController(WhatIfService whatIfService) {
+        this.whatIfService = whatIfService;
+    }
+
+    /**
+     * Endpoint to compare the live run with a changed copy of it, both run ahead headless.
+     * Accessed via POST request to /api/what-if?action=emergency&road=NORTH&minutes=10
+     * @param action toggle-mode, all-red, emergency or profile.
+     * @param road Approach of the emergency (default: random).
+     * @param profile Demand profile to switch to (required for action=profile).
+     * @param minutes Simulated minutes per branch, up to 60 (default 10).
+     * @param seed Random seed for both branches (default: random; returned to repeat a run).
+     * @return Baseline, scenario and their difference; 400 for invalid parameters, 409 while an emergency is in progress,
+     *         503 while too many comparisons are running (client may retry).
+     */
+    @PostMapping
+    public ResponseEntity<WhatIfDTO> compare(@RequestParam String action,
+                                             @RequestParam(required = false) String road,
+                                             @RequestParam(required = false) String profile,
+                                             @RequestParam(defaultValue = "10") double minutes,
+                                             @RequestParam(required = false) Long seed) {
+        WhatIfService.Action parsed = WhatIfService.Action.parse(action);
+        if (parsed == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        String target = parsed == WhatIfService.Action.PROFILE ? profile : road;
+        try {
+            return ResponseEntity.ok(whatIfService.compare(parsed, target, minutes, seed));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid what-if request: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (RejectedExecutionException e) {
+            System.err.println("What-if overloaded: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build(); // Return 503, client may retry
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.traffixpert.TraffiXpert.demand;
+
+import java.util.List;
+
+/**
+ * Contents of a demand file: the available profiles and the simulated day clock.
+ * @param profiles All demand profiles, selectable by name at runtime.
+ * @param defaultProfile Name of the profile active at startup.
+ * @param startHour Time of day the simulation starts at (hours since midnight).
+ * @param clockSpeed Day-clock seconds per simulated second (60 = one day in 24 minutes).
+ */
+public record DemandConfig(
+        List<DemandProfile> profiles,
+        String defaultProfile,
+        double startHour,
+        double clockSpeed
+) {
+    public DemandConfig {
+        profiles = List.copyOf(profiles);
+        if (profiles.isEmpty()) {
+            throw new IllegalArgumentException("Demand file defines no profiles");
+        }
+        if (profiles.stream().noneMatch(p -> p.name().equals(defaultProfile))) {
+            throw new IllegalArgumentException("Unknown default demand profile '" + defaultProfile + "'");
+        }
+    }
+}
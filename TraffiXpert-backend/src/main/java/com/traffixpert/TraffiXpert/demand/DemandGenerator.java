@@ -0,0 +1,376 @@
+package com.traffixpert.TraffiXpert.demand;
+
+import com.traffixpert.TraffiXpert.network.RoadNetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Turns a DemandProfile into vehicle arrivals at the network entries.
+ * Arrivals per entry are Poisson with a rate from the OD matrix row of the entry's origin node,
+ * scaled by the profile's time-of-day factor; each arrival draws its destination in proportion
+ * to the row. Arrivals wait in a per-entry point queue (vehicles held outside the network)
+ * until the road has room, so demand above capacity shows up as a growing backlog instead of
+ * being silently discarded.
+ * All public methods are synchronized: the simulation thread advances and drains the queues,
+ * while controllers switch profiles and read the status.
+ */
+public class DemandGenerator {
+
+    private static final double MS_PER_HOUR = 3_600_000.0;
+    private static final int MAX_BACKLOG_PER_ENTRY = 5000; // Arrivals beyond this are dropped and counted
+    private static final int SATURATION_BACKLOG = 8; // Backlog kept at every entry by saturating profiles
+    private static final double NORMAL_APPROXIMATION_MEAN = 30.0; // Above this mean, sample Poisson via a normal
+
+    private final RoadNetwork network;
+    private final int[] entryLinks; // Simulated entry links, one queue each
+    private final int[] entryByLink; // Queue index per link index, -1 for links that aren't entries
+    private final Map<String, ResolvedProfile> profiles = new LinkedHashMap<>();
+    private final double clockSpeed;
+    private final Random random = new Random();
+
+    private ResolvedProfile active;
+    private double hourOfDay;
+
+    // --- Per-entry point queues of destination node indexes (ring buffers) ---
+    private final int[][] queues;
+    private final int[] queueHead;
+    private final int[] queueSize;
+
+    // --- Counters ---
+    private long generated;
+    private long released;
+    private long dropped;
+
+    /**
+     * Creates a generator for the given entries.
+     * @param network The road network (OD node ids are resolved against it).
+     * @param entryLinks Links on which vehicles enter the simulation.
+     * @param config Demand profiles and clock settings.
+     * @throws IllegalArgumentException If a profile references an unknown node.
+     */
+    public DemandGenerator(RoadNetwork network, int[] entryLinks, DemandConfig config) {
+        this.network = network;
+        this.entryLinks = entryLinks.clone();
+        this.entryByLink = new int[network.linkCount()];
+        Arrays.fill(this.entryByLink, -1);
+        for (int e = 0; e < entryLinks.length; e++) {
+            this.entryByLink[entryLinks[e]] = e;
+        }
+        this.clockSpeed = config.clockSpeed();
+        this.hourOfDay = normalizeHour(config.startHour());
+        for (DemandProfile profile : config.profiles()) {
+            this.profiles.put(profile.name(), resolve(profile));
+        }
+        this.active = this.profiles.get(config.defaultProfile());
+
+        this.queues = new int[entryLinks.length][16];
+        this.queueHead = new int[entryLinks.length];
+        this.queueSize = new int[entryLinks.length];
+    }
+
+    /** Fork: shares the network and resolved profiles, copies the clock and the waiting arrivals. */
+    private DemandGenerator(DemandGenerator source) {
+        this.network = source.network;
+        this.entryLinks = source.entryLinks;
+        this.entryByLink = source.entryByLink;
+        this.profiles.putAll(source.profiles);
+        this.clockSpeed = source.clockSpeed;
+        this.active = source.active;
+        this.hourOfDay = source.hourOfDay;
+        this.queues = new int[source.queues.length][];
+        for (int e = 0; e < queues.length; e++) {
+            this.queues[e] = source.queues[e].clone();
+        }
+        this.queueHead = source.queueHead.clone();
+        this.queueSize = source.queueSize.clone();
+    }
+
+    /**
+     * Generator for a forked simulation: same profile, day clock and waiting arrivals; its
+     * counters start at zero so they describe the fork's run.
+     * @return The fork.
+     */
+    public synchronized DemandGenerator fork() {
+        return new DemandGenerator(this);
+    }
+
+    /**
+     * Restarts the arrival draws from a seed, e.g. so two what-if branches see the same arrivals.
+     * @param seed The seed.
+     */
+    public synchronized void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    /** Resolves OD node ids to indexes and lays each entry's row out as parallel arrays. */
+    private ResolvedProfile resolve(DemandProfile profile) {
+        for (String origin : profile.odMatrix().keySet()) {
+            requireNode(profile, origin);
+        }
+        int[][] destinations = new int[entryLinks.length][];
+        double[][] cumulativeRates = new double[entryLinks.length][];
+        for (int e = 0; e < entryLinks.length; e++) {
+            String originId = network.nodeId(network.linkFrom(entryLinks[e]));
+            Map<String, Double> row = profile.odMatrix().getOrDefault(originId, Map.of());
+            destinations[e] = new int[row.size()];
+            cumulativeRates[e] = new double[row.size()];
+            double total = 0;
+            int i = 0;
+            for (Map.Entry<String, Double> cell : row.entrySet()) {
+                destinations[e][i] = requireNode(profile, cell.getKey());
+                total += cell.getValue();
+                cumulativeRates[e][i] = total;
+                i++;
+            }
+        }
+        return new ResolvedProfile(profile, destinations, cumulativeRates);
+    }
+
+    private int requireNode(DemandProfile profile, String nodeId) {
+        int node = network.nodeIndex(nodeId);
+        if (node < 0) {
+            throw new IllegalArgumentException("Demand profile '" + profile.name() + "' references unknown node '" + nodeId + "'");
+        }
+        return node;
+    }
+
+    /**
+     * Advances the day clock and generates the arrivals of one time step.
+     * @param deltaTime Simulated time step (ms).
+     */
+    public synchronized void advance(double deltaTime) {
+        hourOfDay = normalizeHour(hourOfDay + deltaTime * clockSpeed / MS_PER_HOUR);
+        double factor = active.profile.factorAt(hourOfDay);
+
+        for (int e = 0; e < entryLinks.length; e++) {
+            double[] cumulative = active.cumulativeRates[e];
+            if (cumulative.length == 0) continue;
+            double ratePerHour = cumulative[cumulative.length - 1];
+            if (ratePerHour <= 0) continue;
+
+            int arrivals;
+            if (active.profile.saturate()) {
+                arrivals = Math.max(0, SATURATION_BACKLOG - queueSize[e]);
+            } else {
+                arrivals = samplePoisson(ratePerHour * factor * deltaTime / MS_PER_HOUR);
+            }
+            for (int i = 0; i < arrivals; i++) {
+                generated++;
+                if (queueSize[e] >= MAX_BACKLOG_PER_ENTRY) {
+                    dropped++;
+                    continue;
+                }
+                enqueue(e, pickDestination(e, ratePerHour));
+            }
+        }
+    }
+
+    /**
+     * Draws the time until the next arrival at any entry, for fast-forwarding over idle periods.
+     * Arrivals are Poisson, so the gap is exponential at the current total rate, and a draw that
+     * ends up unused (another event came first) can simply be discarded without bias.
+     * @return Milliseconds until the next arrival, infinity if there is no demand, or NaN for
+     *         saturating profiles (arrivals follow the backlog, not a rate).
+     */
+    public synchronized double sampleArrivalDelay() {
+        if (active.profile.saturate()) return Double.NaN;
+        double ratePerHour = getCurrentArrivalRate();
+        if (ratePerHour <= 0) return Double.POSITIVE_INFINITY;
+        return -Math.log(1.0 - random.nextDouble()) / ratePerHour * MS_PER_HOUR;
+    }
+
+    /**
+     * Advances the day clock over a fast-forward jump, with exactly one arrival at its end or none.
+     * @param deltaTime Simulated time skipped (ms).
+     * @param arrival Whether the jump ends at the arrival drawn by sampleArrivalDelay().
+     */
+    public synchronized void skip(double deltaTime, boolean arrival) {
+        hourOfDay = normalizeHour(hourOfDay + deltaTime * clockSpeed / MS_PER_HOUR);
+        if (!arrival) return;
+        // Entry in proportion to its share of the total rate (the time-of-day factor is common to all)
+        double total = 0;
+        for (double[] cumulative : active.cumulativeRates) {
+            if (cumulative.length > 0) total += cumulative[cumulative.length - 1];
+        }
+        double draw = random.nextDouble() * total;
+        int chosen = -1;
+        for (int e = 0; e < entryLinks.length; e++) {
+            double[] cumulative = active.cumulativeRates[e];
+            if (cumulative.length == 0 || cumulative[cumulative.length - 1] <= 0) continue; // No demand here
+            chosen = e; // The last entry with demand takes a draw left over by rounding
+            if (draw < cumulative[cumulative.length - 1]) break;
+            draw -= cumulative[cumulative.length - 1];
+        }
+        if (chosen < 0) return; // No demand at all (sampleArrivalDelay never schedules an arrival then)
+        generated++;
+        if (queueSize[chosen] >= MAX_BACKLOG_PER_ENTRY) {
+            dropped++;
+        } else {
+            double[] cumulative = active.cumulativeRates[chosen];
+            enqueue(chosen, pickDestination(chosen, cumulative[cumulative.length - 1]));
+        }
+    }
+
+    /**
+     * Simulated time until the day clock reaches the next multiple of a period.
+     * @param periodMinutes Period in minutes of the day clock.
+     * @return Milliseconds of simulated time.
+     */
+    public synchronized double timeToClockBoundary(int periodMinutes) {
+        double minutes = hourOfDay * 60.0;
+        double remainingMinutes = (Math.floor(minutes / periodMinutes) + 1) * periodMinutes - minutes;
+        return remainingMinutes / 60.0 * MS_PER_HOUR / clockSpeed;
+    }
+
+    /** Draws a destination for entry e in proportion to its OD row. */
+    private int pickDestination(int e, double ratePerHour) {
+        double[] cumulative = active.cumulativeRates[e];
+        double draw = random.nextDouble() * ratePerHour;
+        for (int i = 0; i < cumulative.length; i++) {
+            if (draw < cumulative[i]) return active.destinations[e][i];
+        }
+        return active.destinations[e][cumulative.length - 1];
+    }
+
+    /** Poisson sample (Knuth for small means, rounded normal approximation for large ones). */
+    private int samplePoisson(double mean) {
+        if (mean <= 0) return 0;
+        if (mean > NORMAL_APPROXIMATION_MEAN) {
+            return (int) Math.max(0, Math.round(mean + Math.sqrt(mean) * random.nextGaussian()));
+        }
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+
+    private void enqueue(int e, int destination) {
+        int[] queue = queues[e];
+        if (queueSize[e] == queue.length) {
+            // Grow and unwrap the ring
+            int[] grown = new int[queue.length * 2];
+            for (int i = 0; i < queueSize[e]; i++) {
+                grown[i] = queue[(queueHead[e] + i) % queue.length];
+            }
+            queues[e] = grown;
+            queueHead[e] = 0;
+            queue = grown;
+        }
+        queue[(queueHead[e] + queueSize[e]) % queue.length] = destination;
+        queueSize[e]++;
+    }
+
+    /**
+     * Destination of the next vehicle waiting to enter on a link, without removing it.
+     * @param entryLink The entry link index.
+     * @return The destination node index, or -1 if nobody is waiting.
+     */
+    public synchronized int peekDestination(int entryLink) {
+        int e = entryIndex(entryLink);
+        if (e < 0 || queueSize[e] == 0) return -1;
+        return queues[e][queueHead[e]];
+    }
+
+    /**
+     * Removes the next waiting vehicle once it has entered the road.
+     * @param entryLink The entry link index.
+     */
+    public synchronized void release(int entryLink) {
+        int e = entryIndex(entryLink);
+        if (e < 0 || queueSize[e] == 0) return;
+        queueHead[e] = (queueHead[e] + 1) % queues[e].length;
+        queueSize[e]--;
+        released++;
+    }
+
+    private int entryIndex(int entryLink) {
+        return entryLink >= 0 && entryLink < entryByLink.length ? entryByLink[entryLink] : -1;
+    }
+
+    /**
+     * Switches the active profile. Vehicles already waiting keep their destinations.
+     * @param name The profile name.
+     * @return True if the profile exists.
+     */
+    public synchronized boolean setProfile(String name) {
+        ResolvedProfile profile = profiles.get(name);
+        if (profile == null) return false;
+        this.active = profile;
+        System.out.println("Demand profile switched to '" + name + "'.");
+        return true;
+    }
+
+    /**
+     * Moves the day clock, e.g. to jump to a peak.
+     * @param hour Hours since midnight.
+     */
+    public synchronized void setHourOfDay(double hour) {
+        this.hourOfDay = normalizeHour(hour);
+    }
+
+    /** Drops all waiting vehicles (counted as dropped). */
+    public synchronized void clearBacklog() {
+        for (int e = 0; e < entryLinks.length; e++) {
+            dropped += queueSize[e];
+            queueSize[e] = 0;
+            queueHead[e] = 0;
+        }
+    }
+
+    private static double normalizeHour(double hour) {
+        double h = hour % DemandProfile.HOURS_PER_DAY;
+        return h < 0 ? h + DemandProfile.HOURS_PER_DAY : h;
+    }
+
+    // --- Status ---
+    public synchronized String getProfileName() { return active.profile.name(); }
+    public synchronized boolean isSaturating() { return active.profile.saturate(); }
+    public synchronized double getHourOfDay() { return hourOfDay; }
+    public synchronized long getGenerated() { return generated; }
+    public synchronized long getReleased() { return released; }
+    public synchronized long getDropped() { return dropped; }
+    public synchronized boolean hasBacklog(int entryLink) {
+        int e = entryIndex(entryLink);
+        return e >= 0 && queueSize[e] > 0;
+    }
+    public synchronized List<DemandProfile> getProfiles() {
+        List<DemandProfile> list = new ArrayList<>(profiles.size());
+        profiles.values().forEach(p -> list.add(p.profile));
+        return list;
+    }
+
+    /**
+     * Total arrival rate over all entries at the current time of day.
+     * @return Vehicles per hour, or 0 for saturating profiles (demand is unbounded).
+     */
+    public synchronized double getCurrentArrivalRate() {
+        if (active.profile.saturate()) return 0;
+        double factor = active.profile.factorAt(hourOfDay);
+        double total = 0;
+        for (double[] cumulative : active.cumulativeRates) {
+            if (cumulative.length > 0) total += cumulative[cumulative.length - 1] * factor;
+        }
+        return total;
+    }
+
+    /** Waiting vehicles per entry, keyed by the entry's origin node id. */
+    public synchronized Map<String, Integer> getBacklogByEntry() {
+        Map<String, Integer> backlog = new LinkedHashMap<>();
+        for (int e = 0; e < entryLinks.length; e++) {
+            backlog.merge(network.nodeId(network.linkFrom(entryLinks[e])), queueSize[e], Integer::sum);
+        }
+        return backlog;
+    }
+
+    /** A profile with its OD rows resolved per entry (cumulative rates for weighted draws). */
+    private record ResolvedProfile(DemandProfile profile, int[][] destinations, double[][] cumulativeRates) {}
+}
@@ -0,0 +1,110 @@
+package com.traffixpert.TraffiXpert.demand;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads a DemandConfig from a JSON demand file.
+ * Demand files are small, so the tree model is used (unlike NetworkLoader).
+ *
+ * File layout:
+ * <pre>
+ * {
+ *   "defaultProfile": "daily",
+ *   "startHour": 7.0,
+ *   "clockSpeed": 60,
+ *   "profiles": [
+ *     { "name": "daily", "description": "...",
+ *       "hourlyFactors": [0.1, 0.1, ..., 0.2],
+ *       "od": { "N": { "S": 300, "E": 150, "W": 150 }, ... } },
+ *     { "name": "stress", "saturate": true, "od": { ... } }
+ *   ]
+ * }
+ * </pre>
+ * "hourlyFactors" defaults to a flat 1.0 over the day.
+ */
+public final class DemandLoader {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private DemandLoader() {
+        // Utility class
+    }
+
+    /**
+     * Reads a demand file.
+     * @param input The JSON stream (not closed by this method).
+     * @return The parsed configuration.
+     * @throws IOException If the stream cannot be read or the JSON is malformed.
+     */
+    public static DemandConfig load(InputStream input) throws IOException {
+        JsonNode root = MAPPER.readTree(input);
+        if (root == null || !root.isObject()) {
+            throw new IOException("Demand file must contain a JSON object");
+        }
+
+        List<DemandProfile> profiles = new ArrayList<>();
+        for (JsonNode profileNode : root.path("profiles")) {
+            profiles.add(readProfile(profileNode));
+        }
+        String defaultProfile = root.path("defaultProfile").asText(profiles.isEmpty() ? "" : profiles.get(0).name());
+
+        try {
+            return new DemandConfig(
+                    profiles,
+                    defaultProfile,
+                    root.path("startHour").asDouble(7.0),
+                    root.path("clockSpeed").asDouble(60.0));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static DemandProfile readProfile(JsonNode node) throws IOException {
+        String name = node.path("name").asText(null);
+        if (name == null) {
+            throw new IOException("Demand profile without a name");
+        }
+
+        double[] factors = new double[DemandProfile.HOURS_PER_DAY];
+        JsonNode factorNode = node.get("hourlyFactors");
+        if (factorNode == null) {
+            Arrays.fill(factors, 1.0);
+        } else {
+            if (!factorNode.isArray() || factorNode.size() != DemandProfile.HOURS_PER_DAY) {
+                throw new IOException("Profile '" + name + "' needs " + DemandProfile.HOURS_PER_DAY + " hourly factors");
+            }
+            for (int i = 0; i < factors.length; i++) {
+                factors[i] = factorNode.get(i).asDouble();
+            }
+        }
+
+        Map<String, Map<String, Double>> od = new HashMap<>();
+        for (Map.Entry<String, JsonNode> origin : node.path("od").properties()) {
+            Map<String, Double> row = new HashMap<>();
+            for (Map.Entry<String, JsonNode> destination : origin.getValue().properties()) {
+                double rate = destination.getValue().asDouble();
+                if (rate < 0) {
+                    throw new IOException("Negative demand " + origin.getKey() + " -> " + destination.getKey() + " in profile '" + name + "'");
+                }
+                row.put(destination.getKey(), rate);
+            }
+            od.put(origin.getKey(), row);
+        }
+
+        return new DemandProfile(
+                name,
+                node.path("description").asText(""),
+                factors,
+                od,
+                node.path("saturate").asBoolean(false));
+    }
+}
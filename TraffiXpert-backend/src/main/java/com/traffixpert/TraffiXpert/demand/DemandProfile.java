@@ -0,0 +1,45 @@
+package com.traffixpert.TraffiXpert.demand;
+
+import java.util.Map;
+
+/**
+ * A named traffic demand scenario.
+ * The OD matrix gives vehicles per hour between boundary nodes (origin id -> destination id -> rate)
+ * at a time-of-day factor of 1.0; the hourly factors scale it over the day.
+ * A saturating profile ignores the rates' magnitude and keeps every entry backlogged,
+ * so vehicles enter as fast as the entry lanes can take them (stress testing).
+ * @param name Profile name used to select it.
+ * @param description Human readable description.
+ * @param hourlyFactors 24 demand multipliers, one per hour of the day (linearly interpolated).
+ * @param odMatrix Vehicles per hour per origin-destination pair.
+ * @param saturate Whether entries are kept permanently backlogged.
+ */
+public record DemandProfile(
+        String name,
+        String description,
+        double[] hourlyFactors,
+        Map<String, Map<String, Double>> odMatrix,
+        boolean saturate
+) {
+    public static final int HOURS_PER_DAY = 24;
+
+    public DemandProfile {
+        if (hourlyFactors.length != HOURS_PER_DAY) {
+            throw new IllegalArgumentException("Profile '" + name + "' needs " + HOURS_PER_DAY + " hourly factors, got " + hourlyFactors.length);
+        }
+        hourlyFactors = hourlyFactors.clone();
+        odMatrix = Map.copyOf(odMatrix);
+    }
+
+    /**
+     * Demand multiplier at a time of day.
+     * @param hourOfDay Hours since midnight, in [0, 24).
+     * @return The interpolated factor.
+     */
+    public double factorAt(double hourOfDay) {
+        int hour = (int) Math.floor(hourOfDay) % HOURS_PER_DAY;
+        double fraction = hourOfDay - Math.floor(hourOfDay);
+        double next = hourlyFactors[(hour + 1) % HOURS_PER_DAY];
+        return hourlyFactors[hour] + (next - hourlyFactors[hour]) * fraction;
+    }
+}
@@ -0,0 +1,65 @@
+package com.traffixpert.TraffiXpert.demand;
+
+/**
+ * Engine load figures for capacity testing: how long a simulation tick takes
+ * and how many vehicles complete their trip per minute of simulated time.
+ * Written by the simulation thread, read by controllers; methods are synchronized.
+ */
+public class LoadMetrics {
+
+    private static final int WINDOW_SECONDS = 60; // Throughput window
+    private static final double TICK_SMOOTHING = 0.05; // EWMA weight of the latest tick time
+
+    // --- Tick timing (ns) ---
+    private long lastTickNanos;
+    private double averageTickNanos;
+    private long maxTickNanos;
+    private long tickCount;
+
+    // --- Throughput: exits per simulated second, ring over the last minute ---
+    private final int[] exitsPerSecond = new int[WINDOW_SECONDS];
+    private double simulatedMillis;
+    private long currentSecond;
+
+    /** Records the wall-clock duration of one simulation tick. */
+    public synchronized void recordTick(long nanos) {
+        lastTickNanos = nanos;
+        averageTickNanos = tickCount == 0 ? nanos : averageTickNanos + TICK_SMOOTHING * (nanos - averageTickNanos);
+        maxTickNanos = Math.max(maxTickNanos, nanos);
+        tickCount++;
+    }
+
+    /** Advances simulated time, clearing throughput slots that fall out of the window. */
+    public synchronized void advance(double deltaTime) {
+        simulatedMillis += deltaTime;
+        long second = (long) (simulatedMillis / 1000.0);
+        // Clear every slot skipped since the last call (at most the whole window)
+        for (long s = currentSecond + 1; s <= second && s <= currentSecond + WINDOW_SECONDS; s++) {
+            exitsPerSecond[(int) (s % WINDOW_SECONDS)] = 0;
+        }
+        currentSecond = second;
+    }
+
+    /** Records a vehicle leaving the network. */
+    public synchronized void recordExit() {
+        exitsPerSecond[(int) (currentSecond % WINDOW_SECONDS)]++;
+    }
+
+    /** Completed trips per simulated minute (extrapolated during the first minute). */
+    public synchronized double getThroughputPerMinute() {
+        long total = 0;
+        for (int count : exitsPerSecond) total += count;
+        double windowSeconds = Math.min(WINDOW_SECONDS, simulatedMillis / 1000.0);
+        return windowSeconds <= 0 ? 0 : total * 60.0 / windowSeconds;
+    }
+
+    /** Resets the peak tick time, e.g. before a new stress run. */
+    public synchronized void resetMax() {
+        maxTickNanos = lastTickNanos;
+    }
+
+    public synchronized double getLastTickMillis() { return lastTickNanos / 1_000_000.0; }
+    public synchronized double getAverageTickMillis() { return averageTickNanos / 1_000_000.0; }
+    public synchronized double getMaxTickMillis() { return maxTickNanos / 1_000_000.0; }
+    public synchronized long getTickCount() { return tickCount; }
+}
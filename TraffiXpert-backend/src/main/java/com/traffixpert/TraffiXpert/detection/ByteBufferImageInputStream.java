@@ -0,0 +1,53 @@
+package com.traffixpert.TraffiXpert.detection;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Seekable ImageInputStream over the readable bytes of a (typically direct) ByteBuffer.
+ * Image readers read straight out of the buffer: unlike ImageIO's stream wrappers there is no
+ * cache file or growing in-memory cache behind it. Uses absolute gets, so the buffer's own
+ * position is left untouched.
+ */
+public class ByteBufferImageInputStream extends ImageInputStreamImpl {
+
+    private final ByteBuffer buffer;
+    private final int start;
+    private final int length;
+
+    /**
+     * @param buffer Buffer whose bytes between position and limit hold the encoded image.
+     */
+    public ByteBufferImageInputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.start = buffer.position();
+        this.length = buffer.remaining();
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos >= length) return -1;
+        return buffer.get(start + (int) streamPos++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int count) throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (count == 0) return 0;
+        int available = length - (int) Math.min(streamPos, length);
+        if (available == 0) return -1;
+        int n = Math.min(count, available);
+        buffer.get(start + (int) streamPos, bytes, offset, n);
+        streamPos += n;
+        return n;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+}
@@ -0,0 +1,26 @@
+package com.traffixpert.TraffiXpert.detection;
+
+import java.util.List;
+
+/**
+ * A violation detection model running on the CPU.
+ * Inputs are preprocessed by the pipeline into fixed-size tensors so a model can be swapped
+ * (e.g. for an exported ONNX network) without touching decoding or batching.
+ * Implementations are called from a single batching thread and need not be thread-safe.
+ */
+public interface DetectionModel {
+
+    /** Name reported in the detection stats. */
+    String getName();
+
+    /** Width and height (px) of the square input tensors. */
+    int getInputSize();
+
+    /**
+     * Runs inference on a batch.
+     * @param batch Input tensors, each in CHW layout: 3 planes (R, G, B) of inputSize x inputSize
+     *              values in [0, 1].
+     * @return One result per input, in the same order.
+     */
+    List<DetectionResult> infer(List<float[]> batch);
+}
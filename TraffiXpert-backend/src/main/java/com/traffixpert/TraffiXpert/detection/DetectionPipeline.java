@@ -0,0 +1,253 @@
+package com.traffixpert.TraffiXpert.detection;
+
+import com.traffixpert.TraffiXpert.metrics.LogLinearHistogram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local violation detection with micro-batching.
+ *
+ * Stages: decode + preprocess (on the request thread, so decoding scales with the web pool),
+ * queue (bounded; a full queue rejects the request instead of piling up latency), inference
+ * (one batching thread collects up to maxBatchSize requests, waiting at most maxBatchWait for
+ * the batch to fill, and runs the model once per batch). Requests that timed out while queued
+ * are dropped from the batch instead of being inferred. Each stage's latency is tracked in
+ * a LogLinearHistogram (microseconds) for the stats endpoint.
+ */
+@Component
+public class DetectionPipeline {
+
+    public enum Stage { DECODE, QUEUE, INFERENCE, TOTAL }
+
+    private final DetectionModel model;
+    private final ArrayBlockingQueue<Pending> queue;
+    private final int maxBatchSize;
+    private final long maxBatchWaitNanos;
+    private final long timeoutMillis;
+    private Thread batcher;
+    private volatile boolean running;
+
+    // --- Metrics ---
+    private final LogLinearHistogram[] latency = new LogLinearHistogram[Stage.values().length];
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedItems = new AtomicLong();
+
+    /**
+     * @param queueCapacity Maximum requests waiting for inference (traffixpert.detection.queue-capacity).
+     * @param maxBatchSize Maximum images per model call (traffixpert.detection.max-batch-size).
+     * @param maxBatchWaitMillis How long a batch may wait to fill up (traffixpert.detection.max-batch-wait-ms).
+     * @param timeoutMillis How long a request waits for its result (traffixpert.detection.timeout-ms).
+     */
+    @Autowired
+    public DetectionPipeline(@Value("${traffixpert.detection.queue-capacity:64}") int queueCapacity,
+                             @Value("${traffixpert.detection.max-batch-size:8}") int maxBatchSize,
+                             @Value("${traffixpert.detection.max-batch-wait-ms:5}") long maxBatchWaitMillis,
+                             @Value("${traffixpert.detection.timeout-ms:5000}") long timeoutMillis) {
+        this(new HeuristicDetectionModel(), queueCapacity, maxBatchSize, maxBatchWaitMillis, timeoutMillis);
+    }
+
+    /** Creates a pipeline around a specific model. */
+    public DetectionPipeline(DetectionModel model, int queueCapacity, int maxBatchSize,
+                             long maxBatchWaitMillis, long timeoutMillis) {
+        this.model = model;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxBatchWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxBatchWaitMillis));
+        this.timeoutMillis = timeoutMillis;
+        for (int i = 0; i < latency.length; i++) {
+            latency[i] = new LogLinearHistogram();
+        }
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        batcher = new Thread(this::runBatches, "detection-batcher");
+        batcher.setDaemon(true);
+        batcher.start();
+        System.out.println("Detection pipeline started with model '" + model.getName() + "'.");
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (batcher != null) {
+            batcher.interrupt();
+        }
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(new RejectedExecutionException("Detection pipeline stopped"));
+        }
+    }
+
+    /**
+     * Runs detection on an encoded image. Blocks until the result is ready.
+     * @param image Encoded image bytes (PNG, JPEG, ...).
+     * @return The detection result.
+     * @throws IllegalArgumentException If the image can't be decoded.
+     * @throws RejectedExecutionException If the queue is full or the request timed out (overloaded).
+     */
+    public DetectionResult detect(InputStream image) {
+        // Explicit memory cache: ImageIO would otherwise spill non-file streams to a temp file
+        try (ImageInputStream input = new MemoryCacheImageInputStream(image)) {
+            return detect(prepare(input));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read image: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stage 1: decodes (subsampled to roughly the model's input size) and preprocesses an image
+     * on the caller's thread. The source can be released as soon as this returns.
+     * @param image Encoded image.
+     * @return The model input, ready for detect(Prepared).
+     * @throws IllegalArgumentException If the image can't be decoded.
+     */
+    public Prepared prepare(ImageInputStream image) {
+        long start = System.nanoTime();
+        requests.incrementAndGet();
+        float[] tensor;
+        try {
+            BufferedImage decoded = ImagePreprocessor.decode(image, model.getInputSize());
+            tensor = ImagePreprocessor.toTensor(decoded, model.getInputSize());
+        } catch (IllegalArgumentException e) {
+            failed.incrementAndGet();
+            throw e;
+        }
+        long decoded = System.nanoTime();
+        record(Stage.DECODE, decoded - start);
+        return new Prepared(tensor, start, decoded);
+    }
+
+    /**
+     * Stages 2 and 3: queues a prepared image for batched inference and waits for the result.
+     * @param prepared Output of prepare().
+     * @return The detection result.
+     * @throws RejectedExecutionException If the queue is full or the request timed out (overloaded).
+     */
+    public DetectionResult detect(Prepared prepared) {
+        long start = prepared.startNanos;
+        long decoded = prepared.decodedNanos;
+        float[] tensor = prepared.tensor;
+
+        // --- Stage 2: hand off to the batcher (bounded) ---
+        Pending pending = new Pending(tensor, decoded, new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Detection queue full (" + queue.size() + " waiting)");
+        }
+        try {
+            DetectionResult result = pending.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            record(Stage.TOTAL, System.nanoTime() - start);
+            return result;
+        } catch (TimeoutException e) {
+            pending.result.cancel(false);
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Detection timed out after " + timeoutMillis + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for detection");
+        } catch (ExecutionException e) {
+            failed.incrementAndGet();
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
+
+    /** Batching loop: one model call per batch of queued requests. */
+    private void runBatches() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        List<float[]> inputs = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxBatchWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                break; // Stopping
+            }
+            // Callers that timed out cancelled their future; nobody waits for those results
+            batch.removeIf(pending -> pending.result.isCancelled());
+            if (batch.isEmpty()) continue;
+
+            // --- Stage 3: inference ---
+            long inferenceStart = System.nanoTime();
+            inputs.clear();
+            for (Pending pending : batch) {
+                record(Stage.QUEUE, inferenceStart - pending.enqueuedNanos);
+                inputs.add(pending.tensor);
+            }
+            try {
+                List<DetectionResult> results = model.infer(inputs);
+                record(Stage.INFERENCE, System.nanoTime() - inferenceStart);
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).result.complete(results.get(i));
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Detection model failed on a batch of " + batch.size() + ": " + e.getMessage());
+                batch.forEach(pending -> pending.result.completeExceptionally(e));
+            }
+            batches.incrementAndGet();
+            batchedItems.addAndGet(batch.size());
+            batch.clear();
+        }
+    }
+
+    private void record(Stage stage, long nanos) {
+        latency[stage.ordinal()].record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    // --- Stats ---
+    public String getModelName() { return model.getName(); }
+    public int getInputSize() { return model.getInputSize(); }
+    public long getRequests() { return requests.get(); }
+    public long getRejected() { return rejected.get(); }
+    public long getFailed() { return failed.get(); }
+    public long getBatches() { return batches.get(); }
+    public double getAverageBatchSize() {
+        long count = batches.get();
+        return count == 0 ? 0 : (double) batchedItems.get() / count;
+    }
+    public int getQueueDepth() { return queue.size(); }
+    public int getQueueCapacity() { return queue.size() + queue.remainingCapacity(); }
+
+    /** Latency snapshot of one stage (microseconds). */
+    public LogLinearHistogram.Snapshot getLatency(Stage stage) {
+        LogLinearHistogram.Snapshot snapshot = new LogLinearHistogram.Snapshot();
+        latency[stage.ordinal()].addTo(snapshot);
+        return snapshot;
+    }
+
+    /** A decoded and preprocessed image (see prepare). */
+    public record Prepared(float[] tensor, long startNanos, long decodedNanos) {}
+
+    /** A request waiting for inference. */
+    private record Pending(float[] tensor, long enqueuedNanos, CompletableFuture<DetectionResult> result) {}
+}
@@ -0,0 +1,9 @@
+package com.traffixpert.TraffiXpert.detection;
+
+/**
+ * Output of a detection model for one image.
+ * @param hasViolation Whether a violation was detected.
+ * @param violationType Violation type (e.g. "Red Light"), null if none.
+ * @param confidence Model confidence in [0, 1] for the reported outcome.
+ */
+public record DetectionResult(boolean hasViolation, String violationType, double confidence) {}
@@ -0,0 +1,147 @@
+package com.traffixpert.TraffiXpert.detection;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.Iterator;
+
+/**
+ * Turns uploaded images into model input tensors.
+ * Data URLs are decoded as a stream straight from the request string: the base64 payload is
+ * read character by character through a wrapping decoder into the image reader, so neither a
+ * substring of the payload nor the decoded byte array is ever materialized.
+ */
+public final class ImagePreprocessor {
+
+    private static final int SUBSAMPLING_HEADROOM = 2; // Decode at >= 2x the tensor size for the 2x2 sampling
+
+    private ImagePreprocessor() {}
+
+    /**
+     * Opens the payload of a base64 data URL ("data:image/png;base64,....") as a byte stream.
+     * @param dataUrl The data URL.
+     * @return The decoded image bytes as a stream.
+     * @throws IllegalArgumentException If it isn't a base64 data URL.
+     */
+    public static InputStream openDataUrl(CharSequence dataUrl) {
+        if (dataUrl == null || dataUrl.length() < 5 || !"data:".contentEquals(dataUrl.subSequence(0, 5))) {
+            throw new IllegalArgumentException("Expected a data URL");
+        }
+        int comma = -1;
+        int headerLimit = Math.min(dataUrl.length(), 256); // Media type + parameters are short
+        for (int i = 5; i < headerLimit; i++) {
+            if (dataUrl.charAt(i) == ',') {
+                comma = i;
+                break;
+            }
+        }
+        if (comma < 0 || !dataUrl.subSequence(5, comma).toString().endsWith(";base64")) {
+            throw new IllegalArgumentException("Expected a base64 data URL");
+        }
+        // MIME decoder: tolerates line breaks some clients insert into long payloads
+        return Base64.getMimeDecoder().wrap(new CharSequenceInputStream(dataUrl, comma + 1));
+    }
+
+    /**
+     * Decodes an image (PNG, JPEG, BMP, GIF), subsampled while decoding so the raster is only
+     * about twice the target size: a 12 MP camera frame then needs a few hundred KB of heap
+     * instead of ~48 MB for the full-resolution image.
+     * @param input The encoded image.
+     * @param targetSize Size the image will be resized to afterwards.
+     * @return The decoded (subsampled) image.
+     * @throws IllegalArgumentException If the format isn't recognized or the data is corrupt.
+     */
+    public static BufferedImage decode(ImageInputStream input, int targetSize) {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IllegalArgumentException("Unsupported image format");
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(input, true, true); // Forward-only, skip metadata
+            int width = reader.getWidth(0); // Header only
+            int height = reader.getHeight(0);
+            ImageReadParam param = reader.getDefaultReadParam();
+            int period = Math.max(1, Math.min(width, height) / (SUBSAMPLING_HEADROOM * targetSize));
+            if (period > 1) {
+                param.setSourceSubsampling(period, period, 0, 0);
+            }
+            return reader.read(0, param);
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Could not decode image: " + e.getMessage(), e);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Resizes an image into a CHW float tensor (R, G, B planes, values in [0, 1]).
+     * Each output pixel averages a 2x2 grid of samples from its source area.
+     * @param image The image.
+     * @param size Output width and height.
+     * @return The tensor (3 * size * size values).
+     */
+    public static float[] toTensor(BufferedImage image, int size) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int plane = size * size;
+        float[] tensor = new float[3 * plane];
+        for (int ty = 0; ty < size; ty++) {
+            for (int tx = 0; tx < size; tx++) {
+                int r = 0, g = 0, b = 0;
+                for (int sy = 0; sy < 2; sy++) {
+                    int y = Math.min(height - 1, (int) ((ty + 0.25 + sy * 0.5) * height / size));
+                    for (int sx = 0; sx < 2; sx++) {
+                        int x = Math.min(width - 1, (int) ((tx + 0.25 + sx * 0.5) * width / size));
+                        int rgb = image.getRGB(x, y);
+                        r += (rgb >> 16) & 0xFF;
+                        g += (rgb >> 8) & 0xFF;
+                        b += rgb & 0xFF;
+                    }
+                }
+                int i = ty * size + tx;
+                tensor[i] = r / (4 * 255f);
+                tensor[plane + i] = g / (4 * 255f);
+                tensor[2 * plane + i] = b / (4 * 255f);
+            }
+        }
+        return tensor;
+    }
+
+    /** Reads the (ASCII) characters of a CharSequence as bytes, without copying it. */
+    private static final class CharSequenceInputStream extends InputStream {
+        private final CharSequence chars;
+        private int position;
+
+        CharSequenceInputStream(CharSequence chars, int start) {
+            this.chars = chars;
+            this.position = start;
+        }
+
+        @Override
+        public int read() {
+            return position < chars.length() ? chars.charAt(position++) & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            int remaining = chars.length() - position;
+            if (remaining <= 0) return -1;
+            int count = Math.min(length, remaining);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = (byte) chars.charAt(position++);
+            }
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return chars.length() - position;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.traffixpert.TraffiXpert.detection;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed set of direct buffers that streamed image uploads are read into.
+ *
+ * An upload borrows one buffer for as long as it takes to receive and decode the image, then
+ * gives it back. Direct buffers live outside the heap and are allocated once (lazily, on first
+ * use), so the heap cost of an upload is a small constant no matter how big the image is or how
+ * many cameras upload at once; the number of buffers bounds the memory in use. When all buffers
+ * are taken an upload waits up to acquireTimeout and is then rejected (HTTP 503) rather than
+ * queueing unbounded request bodies.
+ */
+@Component
+public class UploadBufferPool {
+
+    private static final int TRANSFER_SIZE = 16 * 1024; // Socket -> direct buffer copy chunk
+
+    private final ArrayBlockingQueue<Slot> free;
+    private final int bufferCount;
+    private final int maxBytes;
+    private final long acquireTimeoutMillis;
+
+    // --- Metrics ---
+    private final AtomicLong uploads = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong tooLarge = new AtomicLong();
+
+    /**
+     * @param bufferCount Concurrent uploads held in memory (traffixpert.detection.upload.buffers).
+     * @param maxBytes Largest accepted image (traffixpert.detection.upload.max-bytes).
+     * @param acquireTimeoutMillis How long an upload waits for a free buffer (traffixpert.detection.upload.acquire-timeout-ms).
+     */
+    @Autowired
+    public UploadBufferPool(@Value("${traffixpert.detection.upload.buffers:4}") int bufferCount,
+                            @Value("${traffixpert.detection.upload.max-bytes:8388608}") int maxBytes,
+                            @Value("${traffixpert.detection.upload.acquire-timeout-ms:1000}") long acquireTimeoutMillis) {
+        this.bufferCount = Math.max(1, bufferCount);
+        this.maxBytes = Math.max(1, maxBytes);
+        this.acquireTimeoutMillis = Math.max(0, acquireTimeoutMillis);
+        this.free = new ArrayBlockingQueue<>(this.bufferCount);
+        for (int i = 0; i < this.bufferCount; i++) {
+            free.add(new Slot());
+        }
+    }
+
+    /**
+     * Receives an upload into a pooled buffer. The caller must close the returned Upload
+     * (try-with-resources) to give the buffer back.
+     * @param body The request body.
+     * @param contentLength Declared size in bytes, or -1 if unknown (chunked transfer).
+     * @return The received upload.
+     * @throws TooLargeException If the image is larger than maxBytes.
+     * @throws RejectedExecutionException If no buffer became free in time.
+     * @throws IOException If reading the body fails.
+     */
+    public Upload receive(InputStream body, long contentLength) throws IOException {
+        if (contentLength > maxBytes) {
+            tooLarge.incrementAndGet();
+            throw new TooLargeException(contentLength, maxBytes);
+        }
+        Slot slot;
+        try {
+            slot = free.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for an upload buffer");
+        }
+        if (slot == null) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("All " + bufferCount + " upload buffers in use");
+        }
+        try {
+            slot.fill(body);
+        } catch (IOException | RuntimeException e) {
+            release(slot);
+            if (e instanceof TooLargeException) tooLarge.incrementAndGet();
+            throw e;
+        }
+        uploads.incrementAndGet();
+        return new Upload(slot);
+    }
+
+    private void release(Slot slot) {
+        slot.buffer.clear();
+        free.offer(slot);
+    }
+
+    // --- Stats ---
+    public long getUploads() { return uploads.get(); }
+    public long getRejected() { return rejected.get(); }
+    public long getTooLarge() { return tooLarge.get(); }
+    public int getBufferCount() { return bufferCount; }
+    public int getBuffersInUse() { return bufferCount - free.size(); }
+    public int getMaxBytes() { return maxBytes; }
+
+    /** A received image, backed by a pooled buffer until closed. */
+    public final class Upload implements AutoCloseable {
+        private Slot slot;
+
+        private Upload(Slot slot) {
+            this.slot = slot;
+        }
+
+        /** @return Size of the image in bytes. */
+        public int size() {
+            return slot.buffer.remaining();
+        }
+
+        /** @return A stream reading the image straight from the buffer (valid until close). */
+        public ImageInputStream open() {
+            return new ByteBufferImageInputStream(slot.buffer);
+        }
+
+        @Override
+        public void close() {
+            if (slot != null) {
+                release(slot);
+                slot = null;
+            }
+        }
+    }
+
+    /** Thrown when an upload exceeds the configured maximum size (HTTP 413). */
+    public static class TooLargeException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        public TooLargeException(long size, int maxBytes) {
+            super("Image too large: " + (size >= 0 ? size + " bytes" : "more than " + maxBytes + " bytes")
+                    + " (max " + maxBytes + ")");
+        }
+    }
+
+    /** A direct buffer plus the small heap array used to copy into it; both are reused. */
+    private final class Slot {
+        private ByteBuffer buffer;
+        private final byte[] transfer = new byte[TRANSFER_SIZE];
+
+        /** Reads the whole body into the buffer and flips it for reading. */
+        void fill(InputStream body) throws IOException {
+            if (buffer == null) {
+                buffer = ByteBuffer.allocateDirect(maxBytes); // Once per slot, on first use
+            }
+            buffer.clear();
+            int n;
+            while ((n = body.read(transfer, 0, Math.min(TRANSFER_SIZE, Math.max(1, buffer.remaining())))) > 0) {
+                if (n > buffer.remaining()) {
+                    throw new TooLargeException(-1, maxBytes);
+                }
+                buffer.put(transfer, 0, n);
+            }
+            buffer.flip();
+        }
+    }
+}
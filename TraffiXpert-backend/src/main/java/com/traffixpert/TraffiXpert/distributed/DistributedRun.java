@@ -0,0 +1,360 @@
+package com.traffixpert.TraffiXpert.distributed;
+
+import com.traffixpert.TraffiXpert.demand.DemandConfig;
+import com.traffixpert.TraffiXpert.demand.DemandLoader;
+import com.traffixpert.TraffiXpert.demand.DemandProfile;
+import com.traffixpert.TraffiXpert.distributed.PartitionProtocol.Done;
+import com.traffixpert.TraffiXpert.distributed.PartitionProtocol.Handover;
+import com.traffixpert.TraffiXpert.distributed.PartitionProtocol.Ready;
+import com.traffixpert.TraffiXpert.distributed.PartitionProtocol.Setup;
+import com.traffixpert.TraffiXpert.distributed.PartitionProtocol.WorkerCounters;
+import com.traffixpert.TraffiXpert.network.NetworkLoader;
+import com.traffixpert.TraffiXpert.network.RoadNetwork;
+import com.traffixpert.TraffiXpert.service.SimulationService;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordinator of a distributed run: the network is split into regions (NetworkPartitioning) and
+ * each region is simulated in its own worker JVM (PartitionWorker), all on this machine and
+ * connected over loopback TCP (PartitionProtocol).
+ *
+ * The coordinator is the barrier: it opens a window of simulated time on every worker, waits
+ * until all of them are done, hands the vehicles that crossed a region border to their new
+ * region and forwards the room left on the cut links, then opens the next window. Windows are
+ * as long as the lookahead allows (the shortest free-flow time of a cut link, see PartitionWorker),
+ * in whole steps and at most MAX_WINDOW_MS. A partition count whose lookahead is shorter than
+ * one step is refused before anything runs.
+ *
+ * The same run is repeated for each partition count, and the report shows how it scales:
+ * speedup and efficiency against the first count, load balance (mean / slowest worker's CPU
+ * time), traffic between regions and heap per worker. The run is mesoscopic throughout: signals
+ * and the microscopic intersection stay with the interactive (single-process) simulation.
+ *
+ * Usage (see run-distributed.sh):
+ *   DistributedRun --network=grid.json --demand=demand.json [--profile=name] [--partitions=1,2,4]
+ *                  [--minutes=10] [--step-ms=50] [--seed=1] [--worker-heap=512m]
+ * File locations are paths, or Spring resource locations (classpath:..., file:...).
+ */
+public final class DistributedRun {
+
+    private static final double MAX_WINDOW_MS = 1000; // Barrier at least every simulated second (progress, room updates)
+    private static final long CONNECT_TIMEOUT_MS = 60_000; // Workers start a JVM and load the network first
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    /** Outcome of a run with one partition count. */
+    record Result(int partitions, int cutLinks, double lookahead, double windowMillis, long windows,
+                  double wallMillis, double meanBusyMillis, double maxBusyMillis, long handovers, long bytes,
+                  long tripsCompleted, long vehiclesOnNetwork, long released, long backlog, long maxHeapBytes) {}
+
+    private final String networkLocation;
+    private final String demandLocation;
+    private final String profile;
+    private final double durationMillis;
+    private final double stepMillis;
+    private final long seed;
+    private final String workerHeap;
+    private final RoadNetwork network;
+
+    /**
+     * @throws IOException If a file can't be read.
+     * @throws IllegalArgumentException For an unknown profile or invalid times.
+     */
+    DistributedRun(String networkLocation, String demandLocation, String profile, double minutes,
+                   double stepMillis, long seed, String workerHeap) throws IOException {
+        if (!(minutes > 0) || !(stepMillis > 0)) {
+            throw new IllegalArgumentException("Minutes and step must be positive");
+        }
+        this.networkLocation = networkLocation;
+        this.demandLocation = demandLocation;
+        this.profile = profile;
+        this.stepMillis = stepMillis;
+        this.durationMillis = Math.ceil(minutes * 60_000.0 / stepMillis) * stepMillis; // Whole steps
+        this.seed = seed;
+        this.workerHeap = workerHeap;
+        DefaultResourceLoader resources = new DefaultResourceLoader();
+        try (InputStream networkInput = resources.getResource(networkLocation).getInputStream();
+             InputStream demandInput = resources.getResource(demandLocation).getInputStream()) {
+            this.network = NetworkLoader.load(networkInput);
+            DemandConfig demand = DemandLoader.load(demandInput); // Checked here rather than failing in every worker
+            if (profile != null && demand.profiles().stream().map(DemandProfile::name).noneMatch(profile::equals)) {
+                throw new IllegalArgumentException("Unknown demand profile: " + profile);
+            }
+        }
+    }
+
+    /**
+     * Runs the scenario on a number of worker JVMs.
+     * @param partitions Number of regions (and workers).
+     * @return The run's figures.
+     * @throws IOException If a worker fails or can't be reached.
+     */
+    Result run(int partitions) throws IOException {
+        NetworkPartitioning partitioning = partition(partitions);
+        long windowSteps = (long) Math.max(1, Math.min(MAX_WINDOW_MS, partitioning.getLookahead()) / stepMillis);
+        double windowMillis = windowSteps * stepMillis;
+
+        // Cut links each region feeds: it gets their room with every window
+        int[][] fedLinks = new int[partitions][];
+        for (int p = 0; p < partitions; p++) {
+            final int feeder = p;
+            fedLinks[p] = Arrays.stream(partitioning.getCutLinks()).filter(link -> partitioning.feeder(link) == feeder).toArray();
+        }
+        int[] room = new int[network.linkCount()];
+
+        List<Process> processes = new ArrayList<>();
+        List<Socket> sockets = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(0, partitions, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout((int) CONNECT_TIMEOUT_MS);
+            for (int p = 0; p < partitions; p++) {
+                processes.add(startWorker(server.getLocalPort()));
+            }
+            DataInputStream[] in = new DataInputStream[partitions];
+            DataOutputStream[] out = new DataOutputStream[partitions];
+            CountingInputStream[] received = new CountingInputStream[partitions];
+            for (int p = 0; p < partitions; p++) {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                received[p] = new CountingInputStream(socket.getInputStream());
+                in[p] = new DataInputStream(new BufferedInputStream(received[p], BUFFER_BYTES));
+                out[p] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_BYTES));
+                PartitionProtocol.writeSetup(out[p], new Setup(p, partitions, networkLocation, demandLocation,
+                        profile, stepMillis, seed)); // Connection order decides the region
+            }
+            for (int p = 0; p < partitions; p++) {
+                Ready ready = PartitionProtocol.readReady(in[p]);
+                for (int i = 0; i < ready.roomLinks().length; i++) {
+                    room[ready.roomLinks()[i]] = ready.room()[i];
+                }
+            }
+
+            // --- Windows ---
+            List<List<Handover>> inbox = new ArrayList<>();
+            for (int p = 0; p < partitions; p++) {
+                inbox.add(new ArrayList<>());
+            }
+            WorkerCounters[] counters = new WorkerCounters[partitions];
+            long handovers = 0;
+            long windows = 0;
+            long start = System.nanoTime();
+            for (double time = 0; time < durationMillis - 1e-6; time += windowMillis) {
+                double end = Math.min(time + windowMillis, durationMillis);
+                for (int p = 0; p < partitions; p++) {
+                    int[] fed = fedLinks[p];
+                    int[] fedRoom = new int[fed.length];
+                    for (int i = 0; i < fed.length; i++) {
+                        fedRoom[i] = room[fed[i]];
+                    }
+                    PartitionProtocol.writeWindow(out[p], end, inbox.get(p), fed, fedRoom);
+                    inbox.get(p).clear();
+                }
+                // Barrier: every region has finished the window before anything crosses
+                for (int p = 0; p < partitions; p++) {
+                    Done done = PartitionProtocol.readDone(in[p]);
+                    for (Handover handover : done.handovers()) {
+                        inbox.get(partitioning.owner(handover.link())).add(handover);
+                    }
+                    handovers += done.handovers().size();
+                    for (int i = 0; i < done.roomLinks().length; i++) {
+                        room[done.roomLinks()[i]] = done.room()[i];
+                    }
+                    counters[p] = done.counters();
+                }
+                windows++;
+            }
+            double wallMillis = (System.nanoTime() - start) / 1_000_000.0;
+
+            long bytes = 0;
+            long maxHeap = 0;
+            for (int p = 0; p < partitions; p++) {
+                PartitionProtocol.writeStop(out[p]);
+            }
+            for (int p = 0; p < partitions; p++) {
+                maxHeap = Math.max(maxHeap, PartitionProtocol.readBye(in[p]));
+                bytes += out[p].size() + received[p].getCount();
+            }
+            long inTransit = inbox.stream().mapToLong(List::size).sum(); // Crossed in the last window
+            return summarize(partitioning, windowMillis, windows, wallMillis, handovers, bytes, counters, inTransit, maxHeap);
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            for (Process process : processes) {
+                try {
+                    if (!process.waitFor(10, TimeUnit.SECONDS)) process.destroyForcibly();
+                } catch (InterruptedException e) {
+                    process.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /** Starts a worker JVM on this machine's JDK and classpath; its output goes to this console. */
+    private Process startWorker(int port) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (workerHeap != null) command.add("-Xmx" + workerHeap);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(PartitionWorker.class.getName());
+        command.add(InetAddress.getLoopbackAddress().getHostAddress());
+        command.add(Integer.toString(port));
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    private static Result summarize(NetworkPartitioning partitioning, double windowMillis, long windows, double wallMillis,
+                                    long handovers, long bytes, WorkerCounters[] counters, long inTransit, long maxHeap) {
+        long maxBusy = 0, totalBusy = 0, trips = 0, onNetwork = inTransit, released = 0, backlog = 0;
+        for (WorkerCounters c : counters) {
+            maxBusy = Math.max(maxBusy, c.busyNanos());
+            totalBusy += c.busyNanos();
+            trips += c.tripsCompleted();
+            onNetwork += c.vehicles();
+            released += c.released();
+            backlog += c.backlog();
+        }
+        return new Result(counters.length, partitioning.getCutLinkCount(), partitioning.getLookahead(), windowMillis,
+                windows, wallMillis, totalBusy / 1e6 / counters.length, maxBusy / 1e6, handovers, bytes,
+                trips, onNetwork, released, backlog, maxHeap);
+    }
+
+    /**
+     * Prints the scaling table: speedup and efficiency are against the first run
+     * (efficiency = first wall time x first partitions / (wall time x partitions)).
+     */
+    private static void report(List<Result> results) {
+        Result base = results.get(0);
+        System.out.println();
+        System.out.println(String.format("%10s %9s %10s %8s %8s %8s %8s %7s %8s %8s %8s %9s %9s %10s %8s",
+                "partitions", "cut links", "window ms", "windows", "wall ms", "busy ms", "speedup", "effic.", "balance",
+                "handover", "KB sent", "released", "trips", "on network", "heap MB"));
+        for (Result r : results) {
+            double speedup = base.wallMillis() / r.wallMillis();
+            double efficiency = speedup * base.partitions() / r.partitions();
+            System.out.println(String.format("%10d %9d %10.0f %8d %8.0f %8.0f %8.2f %6.0f%% %8.2f %8d %8d %9d %9d %10d %8.1f",
+                    r.partitions(), r.cutLinks(), r.windowMillis(), r.windows(), r.wallMillis(), r.maxBusyMillis(),
+                    speedup, efficiency * 100,
+                    r.maxBusyMillis() > 0 ? r.meanBusyMillis() / r.maxBusyMillis() : 1.0, r.handovers(), r.bytes() / 1024,
+                    r.released(), r.tripsCompleted(), r.vehiclesOnNetwork(), r.maxHeapBytes() / (1024.0 * 1024.0)));
+        }
+        System.out.println("busy = slowest worker's CPU time; balance = mean / slowest busy time;"
+                + " heap = largest worker's live heap at the end.");
+        System.out.println("Regions draw their own arrivals, so traffic figures vary slightly between partition counts.");
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (results.stream().anyMatch(r -> r.partitions() > cores)) {
+            System.out.println("Only " + cores + " core(s) here: runs with more partitions than cores share them,"
+                    + " so wall time can't scale there (busy CPU time still shows the work per region).");
+        }
+    }
+
+    /** Counts the bytes read from a worker. */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        long getCount() { return count; }
+    }
+
+    /**
+     * Splits the network, refusing splits whose lookahead is shorter than one step: a window
+     * can't be shorter than a step, so vehicles crossing such a cut link would arrive late.
+     * @param partitions Number of regions.
+     * @return The partitioning.
+     * @throws IllegalArgumentException For an invalid count, or a cut link shorter than one step.
+     */
+    NetworkPartitioning partition(int partitions) {
+        NetworkPartitioning partitioning = new NetworkPartitioning(network, partitions);
+        if (partitioning.getLookahead() < stepMillis) {
+            throw new IllegalArgumentException(partitions + " partitions cut a link with a free-flow time of "
+                    + Math.round(partitioning.getLookahead()) + " ms, shorter than one step (" + stepMillis
+                    + " ms); use a smaller --step-ms or fewer partitions");
+        }
+        return partitioning;
+    }
+
+    /** Paths become file: locations; classpath:/file:/URL locations are kept. */
+    private static String location(String value) {
+        if (value.startsWith("classpath:") || value.contains("://") || value.startsWith("file:")) return value;
+        return "file:" + Path.of(value).toAbsolutePath();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                System.err.println("Usage: DistributedRun --network=<file> --demand=<file> [--profile=<name>] [--partitions=1,2,4]"
+                        + " [--minutes=10] [--step-ms=50] [--seed=1] [--worker-heap=512m]");
+                System.exit(2);
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        DistributedRun run = new DistributedRun(
+                location(options.getOrDefault("network", "classpath:" + SimulationService.DEFAULT_NETWORK_FILE)),
+                location(options.getOrDefault("demand", "classpath:" + SimulationService.DEFAULT_DEMAND_FILE)),
+                options.get("profile"),
+                Double.parseDouble(options.getOrDefault("minutes", "10")),
+                Double.parseDouble(options.getOrDefault("step-ms", "50")),
+                Long.parseLong(options.getOrDefault("seed", "1")),
+                options.get("worker-heap"));
+        int[] counts = Arrays.stream(options.getOrDefault("partitions", "1,2,4").split(","))
+                .map(String::trim).mapToInt(Integer::parseInt).toArray();
+        try {
+            for (int partitions : counts) {
+                run.partition(partitions); // Before any run: refuse the whole comparison, not its last count
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Can't run: " + e.getMessage());
+            System.exit(2);
+        }
+
+        System.out.println("Distributed run of '" + run.network.getName() + "' (" + run.network.nodeCount() + " nodes, "
+                + run.network.linkCount() + " links): " + run.durationMillis / 60_000 + " simulated minutes in "
+                + run.stepMillis + " ms steps, partitions " + Arrays.toString(counts) + ".");
+        List<Result> results = new ArrayList<>();
+        for (int partitions : counts) {
+            Result result = run.run(partitions);
+            System.out.println(partitions + " partition(s): " + Math.round(result.wallMillis()) + " ms wall, "
+                    + result.windows() + " windows of " + Math.round(result.windowMillis()) + " ms, "
+                    + result.handovers() + " vehicles handed over.");
+            results.add(result);
+        }
+        report(results);
+    }
+}
@@ -0,0 +1,152 @@
+package com.traffixpert.TraffiXpert.distributed;
+
+import com.traffixpert.TraffiXpert.network.RoadNetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits a road network into regions for a distributed run, one region per partition process.
+ *
+ * Nodes are split by recursive coordinate bisection: the node set is cut across its longer
+ * side at the point that divides the work in proportion to the partitions on either side,
+ * until there is one set per partition. Work is counted in links, and a link belongs to the
+ * region of the node it ends at, so every link feeding a node is simulated where that node is.
+ * Links that start in another region are cut links: vehicles cross to their owner as they
+ * enter them (see PartitionWorker).
+ *
+ * The partitioning only depends on the network, so the coordinator and every worker compute the
+ * same one independently and only partition indexes need to be agreed on.
+ */
+public final class NetworkPartitioning {
+
+    private final RoadNetwork network;
+    private final int partitions;
+    private final int[] nodePartition;
+    private final int[][] ownLinks; // Per partition
+    private final int[] cutLinks;
+    private final double lookahead; // Shortest free-flow time of a cut link (ms)
+
+    /**
+     * @param network The road network.
+     * @param partitions Number of regions, at least 1 and at most the node count.
+     * @throws IllegalArgumentException For an invalid partition count.
+     */
+    public NetworkPartitioning(RoadNetwork network, int partitions) {
+        if (partitions < 1 || partitions > network.nodeCount()) {
+            throw new IllegalArgumentException("Partitions must be in [1, " + network.nodeCount() + "], got " + partitions);
+        }
+        this.network = network;
+        this.partitions = partitions;
+        this.nodePartition = new int[network.nodeCount()];
+        Integer[] nodes = new Integer[network.nodeCount()];
+        for (int node = 0; node < nodes.length; node++) {
+            nodes[node] = node;
+        }
+        bisect(nodes, 0, nodes.length, 0, partitions);
+
+        List<List<Integer>> owned = new ArrayList<>();
+        for (int p = 0; p < partitions; p++) {
+            owned.add(new ArrayList<>());
+        }
+        List<Integer> cut = new ArrayList<>();
+        double shortest = Double.POSITIVE_INFINITY;
+        for (int link = 0; link < network.linkCount(); link++) {
+            owned.get(owner(link)).add(link);
+            if (isCut(link)) {
+                cut.add(link);
+                shortest = Math.min(shortest, network.linkLength(link) / network.linkSpeedLimit(link));
+            }
+        }
+        this.ownLinks = new int[partitions][];
+        for (int p = 0; p < partitions; p++) {
+            this.ownLinks[p] = owned.get(p).stream().mapToInt(Integer::intValue).toArray();
+        }
+        this.cutLinks = cut.stream().mapToInt(Integer::intValue).toArray();
+        this.lookahead = shortest;
+    }
+
+    /** Assigns nodes[from, to) to partitions [first, first + count). */
+    private void bisect(Integer[] nodes, int from, int to, int first, int count) {
+        if (count == 1) {
+            for (int i = from; i < to; i++) {
+                nodePartition[nodes[i]] = first;
+            }
+            return;
+        }
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            int node = nodes[i];
+            minX = Math.min(minX, network.nodeX(node));
+            maxX = Math.max(maxX, network.nodeX(node));
+            minY = Math.min(minY, network.nodeY(node));
+            maxY = Math.max(maxY, network.nodeY(node));
+            total += weight(node);
+        }
+        boolean alongX = maxX - minX >= maxY - minY;
+        // Ties broken by index, so every process sorts (and cuts) identically
+        Arrays.sort(nodes, from, to, (a, b) -> {
+            int byCoordinate = alongX ? Double.compare(network.nodeX(a), network.nodeX(b))
+                    : Double.compare(network.nodeY(a), network.nodeY(b));
+            return byCoordinate != 0 ? byCoordinate : Integer.compare(a, b);
+        });
+
+        int leftCount = count / 2;
+        double target = (double) total * leftCount / count;
+        int split = from;
+        long sum = 0;
+        // Each side keeps at least as many nodes as partitions
+        while (split < to - (count - leftCount) && (split < from + leftCount || sum + weight(nodes[split]) / 2.0 <= target)) {
+            sum += weight(nodes[split]);
+            split++;
+        }
+        bisect(nodes, from, split, first, leftCount);
+        bisect(nodes, split, to, first + leftCount, count - leftCount);
+    }
+
+    /** Work at a node: the links ending there (at least 1, so link-less nodes still spread evenly). */
+    private int weight(int node) {
+        return Math.max(1, network.inEnd(node) - network.inStart(node));
+    }
+
+    /**
+     * @param link A link.
+     * @return The partition that simulates it (the one owning its end node).
+     */
+    public int owner(int link) {
+        return nodePartition[network.linkTo(link)];
+    }
+
+    /**
+     * @param link A cut link.
+     * @return The partition whose vehicles enter it (the one owning its start node).
+     */
+    public int feeder(int link) {
+        return nodePartition[network.linkFrom(link)];
+    }
+
+    /** @return True if a link starts in another region than the one that simulates it. */
+    public boolean isCut(int link) {
+        return feeder(link) != owner(link);
+    }
+
+    /**
+     * @param partition A partition.
+     * @return The links it simulates.
+     */
+    public int[] ownLinks(int partition) {
+        return ownLinks[partition].clone();
+    }
+
+    // --- Getters ---
+    public RoadNetwork getNetwork() { return network; }
+    public int getPartitions() { return partitions; }
+    public int getCutLinkCount() { return cutLinks.length; }
+    public int[] getCutLinks() { return cutLinks.clone(); }
+    public int getLinkCount(int partition) { return ownLinks[partition].length; }
+    /** @return The shortest free-flow time of a cut link (ms), infinite without cut links. */
+    public double getLookahead() { return lookahead; }
+}
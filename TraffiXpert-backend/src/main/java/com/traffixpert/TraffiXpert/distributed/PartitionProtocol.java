@@ -0,0 +1,251 @@
+package com.traffixpert.TraffiXpert.distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary protocol between the coordinator (DistributedRun) and the partition workers, over one
+ * TCP connection per worker.
+ *
+ * Every message is a type byte followed by its fields; counts, link indexes and routes are
+ * unsigned LEB128 varints (a link index on a 15k-link network takes 2 bytes), times are doubles.
+ *
+ *   SETUP  (coordinator to worker): "TXDP" + version, partition, partitions, network and demand
+ *          locations, profile ("" for the file's default), step (ms), seed
+ *   READY  (worker to coordinator): links owned, entries owned, room on its inbound cut links
+ *   WINDOW (coordinator to worker): end of the window (simulated ms), the vehicles handed to the
+ *          worker during the previous window, room on the cut links it feeds
+ *   DONE   (worker to coordinator): the vehicles it handed to other regions during the window,
+ *          room on its inbound cut links, counters
+ *   STOP   (coordinator to worker): end of the run
+ *   BYE    (worker to coordinator): the worker's live heap after a full GC, then it exits
+ *
+ * Room is a list of (link, free storage) pairs; a handover is a vehicle's remaining route
+ * (starting with the cut link it enters), the time it entered it and its trip clocks.
+ */
+final class PartitionProtocol {
+
+    private static final byte[] MAGIC = {'T', 'X', 'D', 'P'};
+    private static final int VERSION = 1;
+
+    // --- Message types ---
+    static final int SETUP = 1;
+    static final int READY = 2;
+    static final int WINDOW = 3;
+    static final int DONE = 4;
+    static final int STOP = 5;
+    static final int BYE = 6;
+
+    private PartitionProtocol() {}
+
+    /** Run settings a worker needs to build its region. */
+    record Setup(int partition, int partitions, String networkLocation, String demandLocation,
+                 String profile, double stepMillis, long seed) {}
+
+    /** A vehicle crossing into another region. */
+    record Handover(int[] route, double entryTime, double travelTime, double waitTime) {
+        int link() { return route[0]; }
+    }
+
+    /** Counters a worker reports with every DONE. */
+    record WorkerCounters(int vehicles, long entered, long tripsCompleted, long released, int backlog,
+                          long handedOver, long busyNanos) {}
+
+    /** Contents of a READY message. */
+    record Ready(int links, int entries, int[] roomLinks, int[] room) {}
+
+    /** Contents of a WINDOW message. */
+    record Window(double end, List<Handover> handovers, int[] roomLinks, int[] room) {}
+
+    /** Contents of a DONE message. */
+    record Done(List<Handover> handovers, int[] roomLinks, int[] room, WorkerCounters counters) {}
+
+    // --- Messages ---
+
+    static void writeSetup(DataOutputStream out, Setup setup) throws IOException {
+        out.writeByte(SETUP);
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        writeVarInt(out, setup.partition());
+        writeVarInt(out, setup.partitions());
+        out.writeUTF(setup.networkLocation());
+        out.writeUTF(setup.demandLocation());
+        out.writeUTF(setup.profile() == null ? "" : setup.profile());
+        out.writeDouble(setup.stepMillis());
+        out.writeLong(setup.seed());
+        out.flush();
+    }
+
+    static Setup readSetup(DataInputStream in) throws IOException {
+        expectType(in, SETUP);
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        int version = in.readUnsignedByte();
+        if (!Arrays.equals(magic, MAGIC) || version != VERSION) {
+            throw new IOException("Not a partition coordinator (or version " + version + " instead of " + VERSION + ")");
+        }
+        int partition = readVarInt(in);
+        int partitions = readVarInt(in);
+        String network = in.readUTF();
+        String demand = in.readUTF();
+        String profile = in.readUTF();
+        return new Setup(partition, partitions, network, demand, profile.isEmpty() ? null : profile,
+                in.readDouble(), in.readLong());
+    }
+
+    static void writeReady(DataOutputStream out, int links, int entries, int[] roomLinks, int[] room) throws IOException {
+        out.writeByte(READY);
+        writeVarInt(out, links);
+        writeVarInt(out, entries);
+        writeRoom(out, roomLinks, room);
+        out.flush();
+    }
+
+    static Ready readReady(DataInputStream in) throws IOException {
+        expectType(in, READY);
+        int links = readVarInt(in);
+        int entries = readVarInt(in);
+        int[][] room = readRoom(in);
+        return new Ready(links, entries, room[0], room[1]);
+    }
+
+    /**
+     * Writes a WINDOW message.
+     * @param roomLinks Cut links the worker feeds; room[i] is the free storage on roomLinks[i].
+     */
+    static void writeWindow(DataOutputStream out, double end, List<Handover> handovers,
+                            int[] roomLinks, int[] room) throws IOException {
+        out.writeByte(WINDOW);
+        out.writeDouble(end);
+        writeHandovers(out, handovers);
+        writeRoom(out, roomLinks, room);
+        out.flush();
+    }
+
+    /** Reads a WINDOW message whose type byte was already read. */
+    static Window readWindowBody(DataInputStream in) throws IOException {
+        double end = in.readDouble();
+        List<Handover> handovers = readHandovers(in);
+        int[][] room = readRoom(in);
+        return new Window(end, handovers, room[0], room[1]);
+    }
+
+    static void writeDone(DataOutputStream out, List<Handover> handovers, int[] roomLinks, int[] room,
+                          WorkerCounters counters) throws IOException {
+        out.writeByte(DONE);
+        writeHandovers(out, handovers);
+        writeRoom(out, roomLinks, room);
+        writeVarInt(out, counters.vehicles());
+        out.writeLong(counters.entered());
+        out.writeLong(counters.tripsCompleted());
+        out.writeLong(counters.released());
+        writeVarInt(out, counters.backlog());
+        out.writeLong(counters.handedOver());
+        out.writeLong(counters.busyNanos());
+        out.flush();
+    }
+
+    static Done readDone(DataInputStream in) throws IOException {
+        expectType(in, DONE);
+        List<Handover> handovers = readHandovers(in);
+        int[][] room = readRoom(in);
+        WorkerCounters counters = new WorkerCounters(readVarInt(in), in.readLong(), in.readLong(), in.readLong(),
+                readVarInt(in), in.readLong(), in.readLong());
+        return new Done(handovers, room[0], room[1], counters);
+    }
+
+    static void writeStop(DataOutputStream out) throws IOException {
+        out.writeByte(STOP);
+        out.flush();
+    }
+
+    static void writeBye(DataOutputStream out, long liveHeapBytes) throws IOException {
+        out.writeByte(BYE);
+        out.writeLong(liveHeapBytes);
+        out.flush();
+    }
+
+    static long readBye(DataInputStream in) throws IOException {
+        expectType(in, BYE);
+        return in.readLong();
+    }
+
+    static void expectType(DataInputStream in, int type) throws IOException {
+        int actual = in.readUnsignedByte();
+        if (actual != type) {
+            throw new IOException("Expected message " + type + ", got " + actual);
+        }
+    }
+
+    // --- Fields ---
+
+    private static void writeHandovers(DataOutputStream out, List<Handover> handovers) throws IOException {
+        writeVarInt(out, handovers.size());
+        for (Handover handover : handovers) {
+            writeVarInt(out, handover.route().length);
+            for (int link : handover.route()) {
+                writeVarInt(out, link);
+            }
+            out.writeDouble(handover.entryTime());
+            out.writeDouble(handover.travelTime());
+            out.writeDouble(handover.waitTime());
+        }
+    }
+
+    private static List<Handover> readHandovers(DataInputStream in) throws IOException {
+        int count = readVarInt(in);
+        List<Handover> handovers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int[] route = new int[readVarInt(in)];
+            for (int j = 0; j < route.length; j++) {
+                route[j] = readVarInt(in);
+            }
+            handovers.add(new Handover(route, in.readDouble(), in.readDouble(), in.readDouble()));
+        }
+        return handovers;
+    }
+
+    private static void writeRoom(DataOutputStream out, int[] links, int[] room) throws IOException {
+        writeVarInt(out, links.length);
+        for (int i = 0; i < links.length; i++) {
+            writeVarInt(out, links[i]);
+            writeVarInt(out, Math.max(0, room[i]));
+        }
+    }
+
+    /** @return {links, room}. */
+    private static int[][] readRoom(DataInputStream in) throws IOException {
+        int count = readVarInt(in);
+        int[] links = new int[count];
+        int[] room = new int[count];
+        for (int i = 0; i < count; i++) {
+            links[i] = readVarInt(in);
+            room[i] = readVarInt(in);
+        }
+        return new int[][] { links, room };
+    }
+
+    // --- Varint helpers ---
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,242 @@
+package com.traffixpert.TraffiXpert.distributed;
+
+import com.traffixpert.TraffiXpert.demand.DemandConfig;
+import com.traffixpert.TraffiXpert.demand.DemandGenerator;
+import com.traffixpert.TraffiXpert.demand.DemandLoader;
+import com.traffixpert.TraffiXpert.distributed.PartitionProtocol.Handover;
+import com.traffixpert.TraffiXpert.distributed.PartitionProtocol.Setup;
+import com.traffixpert.TraffiXpert.distributed.PartitionProtocol.Window;
+import com.traffixpert.TraffiXpert.distributed.PartitionProtocol.WorkerCounters;
+import com.traffixpert.TraffiXpert.meso.MesoVehicle;
+import com.traffixpert.TraffiXpert.meso.MesoscopicModel;
+import com.traffixpert.TraffiXpert.network.NetworkLoader;
+import com.traffixpert.TraffiXpert.network.RoadNetwork;
+import com.traffixpert.TraffiXpert.network.RoutePlanner;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One region of a distributed run, in its own JVM (started by DistributedRun).
+ *
+ * The worker loads the network and demand files itself, computes the same NetworkPartitioning
+ * as the coordinator and simulates the links of its region in a MesoscopicModel that holds
+ * queues for those links only; demand enters on the region's own entry links. Links of other
+ * regions are the model's boundary: a vehicle moving onto one is taken off the model and sent
+ * to the coordinator, which passes it on to the owning region at the next barrier.
+ *
+ * Time advances in windows set by the coordinator (conservative synchronization): the worker
+ * first admits the vehicles handed to it during the previous window, at the time they crossed,
+ * then runs the window's steps without waiting for anyone. That is exact as long as a window is
+ * no longer than the lookahead (the shortest free-flow time of a cut link), since a vehicle that
+ * crossed during a window cannot reach the end of its cut link before the window is over. Room on
+ * cut links fed by the region is known as of the last barrier and counted down as vehicles are
+ * sent; arrivals on a full cut link are forced in, so no vehicle is ever lost.
+ *
+ * Usage: java -cp ... com.traffixpert.TraffiXpert.distributed.PartitionWorker host port
+ */
+public final class PartitionWorker {
+
+    private static final double RECOST_INTERVAL_MS = 60000; // As SimulationService
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final Setup setup;
+    private final RoadNetwork network;
+    private final NetworkPartitioning partitioning;
+    private final RoutePlanner routePlanner;
+    private final DemandGenerator demand;
+    private final MesoscopicModel model;
+    private final int[] entryLinks; // Demand entries in this region
+    private final int[] inboundCutLinks; // Cut links this region simulates (room reported to their feeders)
+    private final int[] remoteRoom; // Free storage left on the cut links this region feeds, by link
+
+    private final List<Handover> outbox = new ArrayList<>(); // Vehicles sent to other regions this window
+    private double simulatedTime; // ms
+    private double recostTimer = RECOST_INTERVAL_MS;
+    private long handedOver;
+    private long busyNanos; // CPU time spent on windows (not wall time: partitions may share cores)
+
+    /**
+     * Builds the region.
+     * @param setup Settings from the coordinator.
+     * @throws IOException If a file can't be read.
+     */
+    PartitionWorker(Setup setup) throws IOException {
+        this.setup = setup;
+        DefaultResourceLoader resources = new DefaultResourceLoader();
+        try (InputStream networkInput = resources.getResource(setup.networkLocation()).getInputStream();
+             InputStream demandInput = resources.getResource(setup.demandLocation()).getInputStream()) {
+            this.network = NetworkLoader.load(networkInput);
+            DemandConfig demandConfig = DemandLoader.load(demandInput);
+            this.partitioning = new NetworkPartitioning(network, setup.partitions());
+            this.routePlanner = new RoutePlanner(network);
+
+            // Same entries as SimulationService (first link out of every boundary node), this region's only
+            List<Integer> entries = new ArrayList<>();
+            for (int node : routePlanner.getTerminalNodes()) {
+                if (network.outStart(node) == network.outEnd(node)) continue;
+                int link = network.outLink(network.outStart(node));
+                if (partitioning.owner(link) == setup.partition()) entries.add(link);
+            }
+            this.entryLinks = entries.stream().mapToInt(Integer::intValue).toArray();
+            this.demand = new DemandGenerator(network, entryLinks, demandConfig);
+            if (setup.profile() != null && !demand.setProfile(setup.profile())) {
+                throw new IllegalArgumentException("Unknown demand profile: " + setup.profile());
+            }
+            this.demand.setSeed(setup.seed() * 31 + setup.partition()); // Regions draw independent arrivals
+        }
+
+        this.model = new MesoscopicModel(network, new RegionBoundary(), partitioning.ownLinks(setup.partition()));
+        List<Integer> inbound = new ArrayList<>();
+        for (int link : partitioning.getCutLinks()) {
+            if (partitioning.owner(link) == setup.partition()) inbound.add(link);
+        }
+        this.inboundCutLinks = inbound.stream().mapToInt(Integer::intValue).toArray();
+        this.remoteRoom = new int[network.linkCount()];
+    }
+
+    /**
+     * Runs one window: admits the vehicles handed over during the previous one, then steps up to its end.
+     * @param window The WINDOW message.
+     */
+    void runWindow(Window window) {
+        long start = THREADS.getCurrentThreadCpuTime();
+        for (Handover handover : window.handovers()) {
+            MesoVehicle vehicle = new MesoVehicle(handover.route(), 0, handover.travelTime(), handover.waitTime());
+            // At the time it crossed: it can't have reached the end of the cut link yet (lookahead)
+            model.enter(vehicle, handover.entryTime(), network.linkLength(handover.link()), true);
+        }
+        for (int i = 0; i < window.roomLinks().length; i++) {
+            remoteRoom[window.roomLinks()[i]] = window.room()[i];
+        }
+        double step = setup.stepMillis();
+        while (simulatedTime + step <= window.end() + 1e-6) {
+            step(step);
+        }
+        busyNanos += THREADS.getCurrentThreadCpuTime() - start;
+    }
+
+    /** One step: arrivals on the region's entries, then the queue model (as SimulationService.advanceMesoscopic). */
+    private void step(double deltaTime) {
+        demand.advance(deltaTime);
+        double now = simulatedTime + deltaTime;
+        for (int link : entryLinks) {
+            int destination;
+            while ((destination = demand.peekDestination(link)) >= 0 && model.hasRoom(link)) {
+                demand.release(link);
+                int[] route = routePlanner.route(link, destination);
+                if (route.length == 0) continue; // Unreachable destination, nothing to simulate
+                model.enter(new MesoVehicle(route, 0, null), now, network.linkLength(link), false);
+            }
+        }
+        model.advance(deltaTime, now);
+        simulatedTime = now;
+
+        // Route costs follow the speeds observed in this region (other regions' links keep free-flow costs)
+        recostTimer -= deltaTime;
+        if (recostTimer <= 0) {
+            routePlanner.recost();
+            recostTimer = RECOST_INTERVAL_MS;
+        }
+    }
+
+    /** @return Free storage on the region's inbound cut links, parallel to inboundCutLinks. */
+    private int[] inboundRoom() {
+        int[] room = new int[inboundCutLinks.length];
+        for (int i = 0; i < room.length; i++) {
+            room[i] = model.getStorage(inboundCutLinks[i]) - model.vehiclesOn(inboundCutLinks[i]);
+        }
+        return room;
+    }
+
+    private WorkerCounters counters() {
+        int backlog = demand.getBacklogByEntry().values().stream().mapToInt(Integer::intValue).sum();
+        return new WorkerCounters(model.getVehicleCount(), model.getEntered(), model.getTripsCompleted(),
+                demand.getReleased(), backlog, handedOver, busyNanos);
+    }
+
+    /** Connects the region's queue model to the other regions. */
+    private final class RegionBoundary implements MesoscopicModel.Boundary {
+        @Override
+        public boolean mayLeave(int link) {
+            return true; // No signals modelled in a distributed run: links discharge at saturation flow
+        }
+
+        @Override
+        public boolean canEnterMicroscopic(int link) {
+            return remoteRoom[link] > 0; // A link of another region: room as of the last barrier
+        }
+
+        @Override
+        public void enterMicroscopic(MesoVehicle vehicle, int link) {
+            outbox.add(new Handover(vehicle.remainingRoute(), vehicle.getLinkEntryTime(),
+                    vehicle.getTravelTime(), vehicle.getWaitTime()));
+            remoteRoom[link]--;
+            handedOver++;
+        }
+
+        @Override
+        public void onLeave(MesoVehicle vehicle, int link, double timeOnLink, double delay) {
+            if (timeOnLink > 0) {
+                routePlanner.observeLinkSpeed(link, network.linkLength(link) / timeOnLink);
+            }
+        }
+    }
+
+    /**
+     * Connects to the coordinator and serves windows until it says STOP.
+     * @param args Coordinator host and port.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: PartitionWorker <coordinator host> <port>");
+            System.exit(2);
+        }
+        try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+            socket.setTcpNoDelay(true); // Small barrier messages must not wait for Nagle
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_BYTES));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_BYTES));
+
+            Setup setup = PartitionProtocol.readSetup(in);
+            long start = System.nanoTime();
+            PartitionWorker worker = new PartitionWorker(setup);
+            System.out.println("Partition " + setup.partition() + "/" + setup.partitions() + ": "
+                    + worker.partitioning.getLinkCount(setup.partition()) + " links, " + worker.entryLinks.length
+                    + " entries, " + worker.inboundCutLinks.length + " inbound cut links, ready in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms.");
+            PartitionProtocol.writeReady(out, worker.partitioning.getLinkCount(setup.partition()), worker.entryLinks.length,
+                    worker.inboundCutLinks, worker.inboundRoom());
+
+            while (true) {
+                int type = in.readUnsignedByte();
+                if (type == PartitionProtocol.STOP) {
+                    System.gc(); // Live heap of the region (network, routing, queues, vehicles) for the report
+                    Runtime runtime = Runtime.getRuntime();
+                    PartitionProtocol.writeBye(out, runtime.totalMemory() - runtime.freeMemory());
+                    break;
+                }
+                if (type != PartitionProtocol.WINDOW) {
+                    throw new IOException("Unexpected message " + type);
+                }
+                worker.runWindow(PartitionProtocol.readWindowBody(in));
+                PartitionProtocol.writeDone(out, worker.outbox, worker.inboundCutLinks, worker.inboundRoom(), worker.counters());
+                worker.outbox.clear();
+            }
+        } catch (EOFException e) {
+            System.err.println("Partition worker: coordinator went away.");
+            System.exit(1);
+        }
+    }
+}
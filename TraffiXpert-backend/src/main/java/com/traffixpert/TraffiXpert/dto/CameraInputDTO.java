@@ -0,0 +1,11 @@
+package com.traffixpert.TraffiXpert.dto;
+
+// Camera to attach to the ingestion service (frames replayed from a local directory)
+public record CameraInputDTO(
+        String id,
+        String road, // NORTH, SOUTH, EAST or WEST: approach the camera watches
+        String directory, // Directory of image frames (inside traffixpert.ingestion.frames-root), replayed in file name order
+        Double fps, // Replay rate (default 10)
+        Boolean loop, // Start over after the last frame (default true)
+        Double sampleIntervalMs // Minimum time between detected frames (default: traffixpert.ingestion.sample-interval-ms)
+) {}
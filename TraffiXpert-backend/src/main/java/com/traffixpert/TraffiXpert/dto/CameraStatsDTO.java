@@ -0,0 +1,24 @@
+package com.traffixpert.TraffiXpert.dto;
+
+// Throughput, lag and detection counts of one camera feed
+public record CameraStatsDTO(
+        String id,
+        String road,
+        String source,
+        String state, // RUNNING, FINISHED, FAILED or STOPPED
+        String error, // Why the feed failed (null otherwise)
+        long framesRead,
+        long framesSkipped, // Not sampled (arrived within the sample interval)
+        long framesDropped, // Workers or detector overloaded
+        long duplicates, // Same scene as the previous frame, not sent to the detector
+        long inferred,
+        long failed, // Undecodable frames
+        long detections, // Frames flagged by the model
+        long violations, // Confirmed and added to the violation log
+        double inputFps, // Frames read per second since attached
+        double processedFps, // Frames inferred or deduplicated per second
+        double lagP50Ms, // Capture until processed
+        double lagP99Ms,
+        double lagMaxMs,
+        long lastLagMs
+) {}
@@ -0,0 +1,21 @@
+package com.traffixpert.TraffiXpert.dto;
+
+import java.util.Map;
+
+// Demand and engine load figures, used to find the throughput limit of the simulation
+public record DemandStatusDTO(
+        String profile, // Active demand profile
+        boolean saturating, // True for the stress profile (entries always backlogged)
+        double hourOfDay, // Simulated time of day (hours since midnight)
+        double arrivalRatePerHour, // Current total arrival rate over all entries (0 when saturating)
+        long generated, // Vehicles generated since startup
+        long spawned, // Vehicles that entered the network
+        long dropped, // Arrivals discarded because an entry backlog was full
+        Map<String, Integer> backlogByEntry, // Vehicles waiting outside the network, per entry node
+        int vehiclesOnNetwork, // Vehicles currently simulated
+        double throughputPerMinute, // Completed trips per simulated minute
+        double lastTickMs, // Duration of the last simulation tick
+        double avgTickMs, // Smoothed tick duration
+        double maxTickMs, // Worst tick duration since the last reset
+        long tickBudgetMs // Tick interval; ticks slower than this mean the engine is saturated
+) {}
@@ -0,0 +1,10 @@
+package com.traffixpert.TraffiXpert.dto;
+
+// Vehicles aggregated over one square tile of the map, for zoomed-out views
+public record DensityTileDTO(
+        double x, // Top-left corner (canvas px)
+        double y,
+        int vehicles,
+        double meanSpeed, // px/ms
+        int stopped // Vehicles standing (queued) in the tile
+) {}
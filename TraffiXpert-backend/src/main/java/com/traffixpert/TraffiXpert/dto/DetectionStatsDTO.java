@@ -0,0 +1,29 @@
+package com.traffixpert.TraffiXpert.dto;
+
+import java.util.Map;
+
+// Throughput, queueing and per-stage latency of the violation detection pipeline
+public record DetectionStatsDTO(
+        String model,
+        long requests,
+        long rejected, // Queue full or timed out (HTTP 503)
+        long failed, // Undecodable images or model errors
+        long batches,
+        double avgBatchSize,
+        int queueDepth,
+        int queueCapacity,
+        long uploads, // Binary uploads received (/detect-violation/image)
+        long uploadsRejected, // No free upload buffer (503) or too large (413)
+        int uploadBuffersInUse,
+        int uploadBuffers,
+        Map<String, StageLatency> stages // DECODE, QUEUE, INFERENCE (per batch), TOTAL
+) {
+    // Latencies in milliseconds
+    public record StageLatency(
+            long count,
+            double p50,
+            double p90,
+            double p99,
+            double max
+    ) {}
+}
@@ -0,0 +1,19 @@
+package com.traffixpert.TraffiXpert.dto;
+
+import java.util.Map;
+
+// Streaming percentiles of per-vehicle wait, travel and emergency clearance times
+public record PercentileStatsDTO(
+        String window, // 1m, 5m, 15m or all (simulated time)
+        Map<String, Map<String, Summary>> metrics // metric (WAIT, TRAVEL, CLEARANCE) -> direction (NORTH..WEST, ALL) -> summary
+) {
+    // All times in seconds; percentiles are accurate to ~3%
+    public record Summary(
+            long count,
+            double mean,
+            double p50,
+            double p90,
+            double p99,
+            double max
+    ) {}
+}
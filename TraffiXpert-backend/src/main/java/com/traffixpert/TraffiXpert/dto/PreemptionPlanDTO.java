@@ -0,0 +1,26 @@
+package com.traffixpert.TraffiXpert.dto;
+
+import java.util.List;
+
+// Signal preemption request of one active emergency vehicle, as planned along its route
+public record PreemptionPlanDTO(
+        long vehicleId,
+        String emergencyType,
+        int priority, // Conflict priority, higher wins (Firetruck 3, Ambulance 2, Police Car 1)
+        String approach, // Road the vehicle is on
+        String phase, // PENDING, BLOCKED (another approach has priority), CLEARING, HOLDING or CLEARED
+        double etaSeconds, // Predicted time until it reaches the stop line
+        double leadTimeSeconds, // Time needed to clear the approach before it arrives
+        int queueAhead, // Vehicles between it and the stop line
+        double elapsedSeconds, // Since the emergency was triggered
+        double preemptedSeconds, // How long the signals have been cleared or held for this vehicle
+        List<Intersection> intersections // Signalized intersections along the route
+) {
+    public record Intersection(
+            String nodeId,
+            String approachLinkId,
+            int signalGroup,
+            boolean controlled, // Signals simulated (and preempted) here
+            double etaSeconds
+    ) {}
+}
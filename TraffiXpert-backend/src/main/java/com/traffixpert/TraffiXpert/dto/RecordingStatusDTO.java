@@ -0,0 +1,13 @@
+package com.traffixpert.TraffiXpert.dto;
+
+// State of the trajectory recorder
+public record RecordingStatusDTO(
+        boolean recording,
+        String file, // File being written (null when stopped)
+        String format, // COLUMNAR or CSV
+        double sampleIntervalMs, // Simulated time between samples of a vehicle
+        long samplesRecorded, // Since startup
+        long samplesDropped, // Discarded because the writer fell behind
+        long bytesWritten, // Since startup
+        int pendingChunks // Chunks waiting for the writer
+) {}
@@ -0,0 +1,16 @@
+package com.traffixpert.TraffiXpert.dto;
+
+// One hosted simulation session (see /api/sessions)
+public record SessionDTO(
+        String id,
+        String createdAt, // ISO-8601
+        long idleSeconds, // Since the last API call; evicted after the idle timeout
+        boolean running,
+        String pausedReason, // Set when the manager paused it (memory cap), else null
+        double simulatedSeconds,
+        long ticks, // Loop iterations run by the shared workers
+        long lateRounds, // Scheduling rounds it missed because its previous tick was still queued or running
+        double meanTickMicros,
+        long estimatedBytes, // Heap estimate checked against the cap
+        long memoryCapBytes
+) {}
@@ -1,9 +1,17 @@
 package com.traffixpert.TraffiXpert.dto;
 
+import com.traffixpert.TraffiXpert.model.Bounds;
+
 import java.util.List;
 
-// Represents the overall state needed for the live map
+// Represents the overall state needed for the live map, limited to the requested viewport
 public record SimulationStateDTO(
         List<TrafficSignalDTO> signals, // List of signal states
-        List<VehicleDTO> vehicles // Flattened list of all vehicles
+        List<VehicleDTO> vehicles, // Vehicles inside the viewport (empty at the DENSITY level of detail)
+        String lod, // Level of detail served: VEHICLES or DENSITY
+        Bounds view, // Viewport the state was computed for (canvas px)
+        int vehiclesInView, // All vehicles inside the viewport, also when not listed
+        boolean truncated, // True if vehicles was cut off at the response limit
+        double tileSize, // Tile edge length (px) at the DENSITY level, 0 otherwise
+        List<DensityTileDTO> tiles // Non-empty tiles at the DENSITY level
 ) {}
@@ -0,0 +1,13 @@
+package com.traffixpert.TraffiXpert.dto;
+
+// Cadence and run-time profile of one simulation stage (physics, control, stats, ...)
+public record StageStatsDTO(
+        String name,
+        String placement, // TICK, SIMULATION (simulation thread) or BACKGROUND (own thread)
+        long periodMs,
+        long runs,
+        long overruns, // Runs that took longer than the period
+        double meanMicros,
+        double p99Micros,
+        double maxMicros
+) {}
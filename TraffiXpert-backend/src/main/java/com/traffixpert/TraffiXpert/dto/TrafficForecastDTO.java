@@ -0,0 +1,18 @@
+package com.traffixpert.TraffiXpert.dto;
+
+import java.util.List;
+
+// Short-term traffic forecast per approach, from the online models trained on the simulation
+public record TrafficForecastDTO(
+        String issuedAt, // Simulated time of day the forecast starts from ("HH:mm"), null before the first bin closed
+        int binMinutes, // Length of each forecast period
+        long binsObserved, // Training periods seen so far
+        boolean seasonal, // True once a full simulated day has been seen (time-of-day pattern learned)
+        List<ApproachForecast> approaches // N, S, E, W
+) {
+    public record ApproachForecast(String direction, List<ForecastPoint> points) {}
+
+    // One period ending minutesAhead after issuedAt; vehicles is the count in that period, with an 80% interval
+    public record ForecastPoint(int minutesAhead, double vehicles, double lower, double upper,
+                                double vehiclesPerHour, double waitSeconds, String congestion) {}
+}
@@ -0,0 +1,32 @@
+package com.traffixpert.TraffiXpert.dto;
+
+import java.util.List;
+
+// Server-side traffic report over one simulated day (or a range of its hours), built from the stored history
+public record TrafficReportDTO(
+        long day, // Simulated day (0 = first day since startup)
+        int fromHour, // Inclusive, hours of day
+        int toHour, // Exclusive
+        boolean complete, // False while the range includes the hour in progress
+        long totalVehicles,
+        double avgWaitSeconds,
+        double avgTravelSeconds,
+        List<HourlyVolume> hourlyVolumes, // Hours with data, in order
+        List<PeakPeriod> peakPeriods, // Busiest 15-minute periods, busiest first
+        List<ApproachStats> approaches, // Worst (highest average wait) first
+        List<ViolationHotspot> violationHotspots, // Approach + type, most violations first
+        ClearanceStats emergencyClearance,
+        String summary,
+        List<String> recommendations
+) {
+    public record HourlyVolume(String hour, long vehicles, double avgWaitSeconds) {}
+
+    public record PeakPeriod(String start, String end, long vehicles, double vehiclesPerHour) {}
+
+    public record ApproachStats(String direction, long vehicles, double avgWaitSeconds, double avgTravelSeconds) {}
+
+    public record ViolationHotspot(String direction, String type, long count) {}
+
+    // Emergency vehicles: trigger until leaving the network (seconds)
+    public record ClearanceStats(long count, double p50, double p90, double p99, double max) {}
+}
@@ -2,6 +2,7 @@ package com.traffixpert.TraffiXpert.dto;
 
 // DTO for sending Violation data to the frontend
 public record ViolationDTO(
+        long sequence, // Log sequence number; pass the highest seen as ?since= to get only newer entries
         String id,
         String time, // Formatted time string
         String location,
@@ -0,0 +1,29 @@
+package com.traffixpert.TraffiXpert.dto;
+
+import java.util.Map;
+
+// Outcome of a what-if run: the live state forked twice, one branch changed, both run ahead
+public record WhatIfDTO(
+        String action, // toggle-mode, all-red, emergency or profile
+        String target, // Road of an emergency or name of a profile, else null
+        double minutes, // Simulated time both branches ran
+        long seed, // Random seed shared by both branches (pass it again to repeat the run)
+        double forkMicros, // Time to fork the live simulation
+        double wallMillis, // Time for the whole comparison
+        Branch baseline, // Unchanged
+        Branch scenario, // With the action applied
+        Map<String, Double> delta // scenario - baseline, per Branch field
+) {
+    // Figures of one branch over its run (times in seconds)
+    public record Branch(
+            long vehiclesServed, // Crossed the intersection
+            double throughputPerHour,
+            double meanWait,
+            double p95Wait,
+            double meanTravel,
+            int vehiclesOnNetwork, // At the end: approaches and mesoscopic links
+            int queuedArrivals, // At the end: waiting at the entries
+            long violations,
+            long emergenciesCleared
+    ) {}
+}
@@ -0,0 +1,219 @@
+package com.traffixpert.TraffiXpert.emergency;
+
+import com.traffixpert.TraffiXpert.model.SignalState;
+import com.traffixpert.TraffiXpert.model.TrafficSignal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Tracks all active emergencies and arbitrates their signal preemption requests.
+ * Emergencies are registered from request threads and removed when their vehicle exits; both
+ * go through a ConcurrentHashMap keyed by vehicle id, so triggering never blocks the tick.
+ * Everything else (signal state machine, per-vehicle phases) runs on the simulation thread.
+ *
+ * Conflict resolution: requests on the same approach share one green. Between approaches the
+ * highest priority wins (ties: earliest ETA). The approach being served keeps the signals
+ * while it still has a requesting vehicle, unless a strictly higher priority vehicle needs
+ * another approach, in which case the served approach goes through yellow and is switched.
+ */
+public class EmergencyManager {
+
+    private enum Stage { IDLE, CLEARING, HOLDING, RESTORING }
+
+    private final ConcurrentHashMap<Long, SignalPreemption> active = new ConcurrentHashMap<>();
+
+    // --- Signal state machine (simulation thread only) ---
+    private Stage stage = Stage.IDLE;
+    private int servedSignal = -1;
+    private double stageTimer;
+
+    /**
+     * Conflict priority of an emergency vehicle type.
+     * Firetrucks first (heaviest, hardest to stop), then ambulances, then police.
+     * @param emergencyType The vehicle's emergency type.
+     * @return Priority, higher wins.
+     */
+    public static int priorityOf(String emergencyType) {
+        if (emergencyType == null) return 1;
+        switch (emergencyType) {
+            case "Firetruck": return 3;
+            case "Ambulance": return 2;
+            default: return 1;
+        }
+    }
+
+    /** Adds an emergency; safe to call from any thread. */
+    public void register(SignalPreemption preemption) {
+        active.put(preemption.getVehicle().getId(), preemption);
+    }
+
+    /**
+     * Removes the emergency of a vehicle that left the network.
+     * @param vehicleId The exiting vehicle.
+     * @return Its preemption, or null if the vehicle wasn't an active emergency.
+     */
+    public SignalPreemption onVehicleExit(long vehicleId) {
+        SignalPreemption preemption = active.remove(vehicleId);
+        if (preemption != null) {
+            preemption.markCleared();
+        }
+        return preemption;
+    }
+
+    /**
+     * Advances all preemptions and drives the signals. Simulation thread only.
+     * @param deltaTime Time step (ms).
+     * @param signals Signals of the controlled intersection, indexed like the roads.
+     * @param ownsResumedPhase Whether a signal is green in the phase that resumes after preemption
+     *                         (that approach then keeps its green instead of going yellow).
+     * @return True while the signals are overridden.
+     */
+    public boolean update(double deltaTime, List<TrafficSignal> signals, IntPredicate ownsResumedPhase) {
+        if (active.isEmpty() && stage == Stage.IDLE) return false;
+
+        // --- Refresh estimates and pick the winning request ---
+        SignalPreemption winner = null;
+        int servedTopPriority = -1; // Best priority still requesting on the served approach
+        for (SignalPreemption preemption : active.values()) {
+            int index = preemption.getSignalIndex();
+            preemption.update(deltaTime, hasConflictingGreen(signals, index));
+            if (!preemption.isRequesting()) continue;
+            if (winner == null || preemption.getPriority() > winner.getPriority()
+                    || (preemption.getPriority() == winner.getPriority() && preemption.getEta() < winner.getEta())) {
+                winner = preemption;
+            }
+            if (index == servedSignal) {
+                servedTopPriority = Math.max(servedTopPriority, preemption.getPriority());
+            }
+        }
+        int target = winner == null ? -1 : winner.getSignalIndex();
+        boolean serving = stage == Stage.CLEARING || stage == Stage.HOLDING;
+        if (serving && servedTopPriority >= 0 && winner.getPriority() <= servedTopPriority) {
+            target = servedSignal; // Don't switch away for an equal or lower priority request
+        }
+
+        // --- Signal state machine ---
+        switch (stage) {
+            case IDLE:
+            case RESTORING:
+                if (target >= 0) {
+                    startClearing(signals, target);
+                } else if (stage == Stage.RESTORING) {
+                    stageTimer -= deltaTime;
+                    if (stageTimer <= 0) stage = Stage.IDLE;
+                }
+                break;
+            case CLEARING:
+                if (target < 0) {
+                    startRestoring(signals, ownsResumedPhase);
+                } else if (target != servedSignal) {
+                    startClearing(signals, target);
+                } else {
+                    stageTimer -= deltaTime;
+                    if (stageTimer <= 0) holdGreen(signals, target);
+                }
+                break;
+            case HOLDING:
+                if (target < 0) {
+                    startRestoring(signals, ownsResumedPhase);
+                } else if (target != servedSignal) {
+                    startClearing(signals, target);
+                } else if (signals.get(target).getState() != SignalState.GREEN) {
+                    holdGreen(signals, target); // Re-assert in case the signals were changed manually
+                }
+                break;
+        }
+
+        // --- Per-vehicle phases for the API ---
+        for (SignalPreemption preemption : active.values()) {
+            if (!preemption.isRequesting()) {
+                if (preemption.getPhase() != SignalPreemption.Phase.CLEARED) {
+                    preemption.setPhase(SignalPreemption.Phase.PENDING);
+                }
+            } else if (preemption.getSignalIndex() == servedSignal && stage == Stage.HOLDING) {
+                preemption.setPhase(SignalPreemption.Phase.HOLDING);
+            } else if (preemption.getSignalIndex() == servedSignal && stage == Stage.CLEARING) {
+                preemption.setPhase(SignalPreemption.Phase.CLEARING);
+            } else {
+                preemption.setPhase(SignalPreemption.Phase.BLOCKED);
+            }
+        }
+        return stage != Stage.IDLE;
+    }
+
+    private static boolean hasConflictingGreen(List<TrafficSignal> signals, int index) {
+        for (int i = 0; i < signals.size(); i++) {
+            if (i != index && signals.get(i).getState() != SignalState.RED) return true;
+        }
+        return false;
+    }
+
+    /** Conflicting greens go yellow; if nothing conflicts, the target gets green right away. */
+    private void startClearing(List<TrafficSignal> signals, int target) {
+        servedSignal = target;
+        boolean conflicting = false;
+        for (int i = 0; i < signals.size(); i++) {
+            if (i == target) continue;
+            SignalState state = signals.get(i).getState();
+            if (state == SignalState.GREEN) {
+                signals.get(i).setState(SignalState.YELLOW);
+                conflicting = true;
+            } else if (state == SignalState.YELLOW) {
+                conflicting = true; // Already clearing
+            }
+        }
+        if (conflicting) {
+            stage = Stage.CLEARING;
+            stageTimer = SignalPreemption.YELLOW_TIME;
+            System.out.println("Preemption: clearing conflicting approaches for signal " + target + ".");
+        } else {
+            holdGreen(signals, target);
+        }
+    }
+
+    private void holdGreen(List<TrafficSignal> signals, int target) {
+        for (int i = 0; i < signals.size(); i++) {
+            signals.get(i).setState(i == target ? SignalState.GREEN : SignalState.RED);
+        }
+        if (stage != Stage.HOLDING) {
+            System.out.println("Preemption: signal " + target + " held green.");
+        }
+        stage = Stage.HOLDING;
+    }
+
+    /** Ends the override: the served approach goes yellow unless it owns the resumed phase. */
+    private void startRestoring(List<TrafficSignal> signals, IntPredicate ownsResumedPhase) {
+        boolean yellow = false;
+        for (int i = 0; i < signals.size(); i++) {
+            SignalState state = signals.get(i).getState();
+            if (state == SignalState.GREEN && !ownsResumedPhase.test(i)) {
+                signals.get(i).setState(SignalState.YELLOW);
+                yellow = true;
+            } else if (state == SignalState.YELLOW) {
+                yellow = true;
+            }
+        }
+        servedSignal = -1;
+        if (yellow) {
+            stage = Stage.RESTORING;
+            stageTimer = SignalPreemption.YELLOW_TIME;
+        } else {
+            stage = Stage.IDLE;
+        }
+    }
+
+    // --- Getters ---
+    public boolean hasActiveEmergencies() { return !active.isEmpty(); }
+    public int getActiveCount() { return active.size(); }
+    /** Active preemptions, most urgent first (priority, then ETA). */
+    public List<SignalPreemption> getActive() {
+        List<SignalPreemption> list = new ArrayList<>(active.values());
+        list.sort((a, b) -> a.getPriority() != b.getPriority()
+                ? Integer.compare(b.getPriority(), a.getPriority())
+                : Double.compare(a.getEta(), b.getEta()));
+        return list;
+    }
+}
@@ -0,0 +1,200 @@
+package com.traffixpert.TraffiXpert.emergency;
+
+import com.traffixpert.TraffiXpert.model.EmergencyEvent;
+import com.traffixpert.TraffiXpert.model.Road;
+import com.traffixpert.TraffiXpert.model.Vehicle;
+import com.traffixpert.TraffiXpert.network.RoadNetwork;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Route-aware preemption request of one emergency vehicle.
+ * The vehicle's ETA at each signalized intersection on its route is predicted from its distance
+ * and desired speed. It asks for the signals only when the ETA drops below the time needed to
+ * clear the way: a yellow for conflicting greens plus the discharge time of the queue ahead.
+ * The EmergencyManager decides which request gets the signals and drives them.
+ *
+ * Phases: PENDING (not yet within the lead time) -> BLOCKED (requesting, another approach
+ * has priority) -> CLEARING (conflicting signals yellow) -> HOLDING (approach green)
+ * -> CLEARED (junction passed, or timed out).
+ * Only updated from the simulation thread.
+ */
+public class SignalPreemption {
+
+    public enum Phase { PENDING, BLOCKED, CLEARING, HOLDING, CLEARED }
+
+    static final double YELLOW_TIME = 2000.0; // Same as the auto-mode yellow (ms)
+    private static final double STARTUP_LOST_TIME = 2000.0; // Until a stopped queue starts moving (ms)
+    private static final double DISCHARGE_HEADWAY = 2000.0; // Per queued vehicle crossing the stop line (ms)
+    private static final double CLEAR_DISTANCE = 40.0; // Past the stop line before the junction counts as cleared (px)
+    private static final double FALLBACK_MARGIN = 15000.0; // Give up this long after the predicted arrival (ms)
+
+    private final Vehicle vehicle;
+    private final Road road;
+    private final int signalIndex; // Signal of the vehicle's approach
+    private final int priority; // Higher wins conflicts
+    private final EmergencyEvent event; // Log entry, gets the clearance time on exit
+    private final double startTime; // Simulated trigger time (ms), for the clearance time
+    private final List<Step> intersections; // Signalized intersections along the route
+
+    private Phase phase = Phase.PENDING;
+    private double elapsed; // Since the emergency was triggered (ms)
+    private double preemptedTime; // Time this vehicle held or cleared the signals (ms)
+    private final double deadline; // Fallback end of the preemption (ms since trigger)
+    private double eta; // Predicted time until the vehicle reaches the stop line (ms)
+    private double leadTime; // Time needed to clear the way before it arrives (ms)
+    private int queueAhead;
+
+    /**
+     * Creates the preemption request for an emergency vehicle that just entered the network.
+     * @param vehicle The emergency vehicle.
+     * @param road The road it entered on.
+     * @param signalIndex Index of the road's signal.
+     * @param priority Conflict priority (see EmergencyManager.priorityOf).
+     * @param event The emergency log entry for this vehicle.
+     * @param network The road network (for the downstream intersections on the route).
+     * @param focusNode The intersection whose signals the simulation controls.
+     * @param startTime Simulated time of the trigger (ms).
+     */
+    public SignalPreemption(Vehicle vehicle, Road road, int signalIndex, int priority, EmergencyEvent event,
+                            RoadNetwork network, int focusNode, double startTime) {
+        this.vehicle = vehicle;
+        this.road = road;
+        this.signalIndex = signalIndex;
+        this.priority = priority;
+        this.event = event;
+        this.startTime = startTime;
+
+        List<Step> steps = new ArrayList<>();
+        int[] route = vehicle.getRoute();
+        if (route.length == 0) {
+            route = new int[] { road.getLinkIndex() };
+        }
+        double sinceLast = 0; // Route distance since the previous signalized intersection
+        for (int k = 0; k < route.length; k++) {
+            int link = route[k];
+            if (k > 0) sinceLast += network.linkLength(link);
+            int node = network.linkTo(link);
+            if (network.isSignalized(node)) {
+                steps.add(new Step(network.nodeId(node), network.linkId(link), network.linkSignalGroup(link), node == focusNode, sinceLast));
+                sinceLast = 0;
+            }
+        }
+        this.intersections = Collections.unmodifiableList(steps);
+        updateEstimates(false);
+        this.deadline = this.eta + this.leadTime + FALLBACK_MARGIN;
+    }
+
+    /**
+     * Advances time and refreshes the ETA and lead time.
+     * @param deltaTime Time step (ms).
+     * @param conflictingGreen Whether another approach currently shows green or yellow.
+     */
+    void update(double deltaTime, boolean conflictingGreen) {
+        elapsed += deltaTime;
+        if (phase == Phase.CLEARING || phase == Phase.HOLDING) {
+            preemptedTime += deltaTime;
+        }
+        if (phase == Phase.CLEARED) return;
+        updateEstimates(conflictingGreen);
+
+        if (hasClearedJunction()) {
+            phase = Phase.CLEARED;
+        } else if (elapsed > deadline) {
+            // Fallback: the vehicle got stuck, stop claiming the signals
+            System.out.println("Preemption for vehicle " + vehicle.getId() + " timed out.");
+            phase = Phase.CLEARED;
+        }
+    }
+
+    /** Whether this vehicle currently needs the signals (within the lead time, or already served). */
+    boolean isRequesting() {
+        if (phase == Phase.CLEARED) return false;
+        return phase == Phase.CLEARING || phase == Phase.HOLDING || eta <= leadTime;
+    }
+
+    void setPhase(Phase phase) {
+        if (this.phase != Phase.CLEARED) {
+            this.phase = phase;
+        }
+    }
+
+    /** Marks the vehicle as gone (it left the network). */
+    void markCleared() {
+        this.phase = Phase.CLEARED;
+    }
+
+    private boolean hasClearedJunction() {
+        return vehicle.hasTurned() || vehicle.getPathPosition() >= road.getStopLinePosition() + CLEAR_DISTANCE;
+    }
+
+    /**
+     * Recomputes the ETA at the stop line and the lead time needed to clear the approach.
+     * @param conflictingGreen Whether another approach currently shows green or yellow.
+     */
+    private void updateEstimates(boolean conflictingGreen) {
+        double distance = Math.max(0, road.getStopLinePosition() - vehicle.getPathPosition());
+        eta = distance / vehicle.getDesiredSpeed();
+
+        queueAhead = 0;
+        for (Vehicle other : road.getVehicles()) {
+            if (other != vehicle && !other.hasPassedStopLine() && other.getPathPosition() > vehicle.getPathPosition()) {
+                queueAhead++;
+            }
+        }
+        leadTime = (conflictingGreen ? YELLOW_TIME : 0)
+                + (queueAhead > 0 ? STARTUP_LOST_TIME + queueAhead * DISCHARGE_HEADWAY : 0);
+
+        // Downstream ETAs: free-flow travel along the route links after the current one
+        double downstream = eta;
+        double speed = vehicle.getDesiredSpeed();
+        for (int i = 0; i < intersections.size(); i++) {
+            Step step = intersections.get(i);
+            if (i > 0) {
+                downstream += step.distanceFromPrevious / speed;
+            }
+            step.eta = downstream;
+        }
+    }
+
+    // --- Getters ---
+    public Vehicle getVehicle() { return vehicle; }
+    public Road getRoad() { return road; }
+    public int getSignalIndex() { return signalIndex; }
+    public int getPriority() { return priority; }
+    public EmergencyEvent getEvent() { return event; }
+    public double getStartTime() { return startTime; }
+    public Phase getPhase() { return phase; }
+    public double getEta() { return eta; }
+    public double getLeadTime() { return leadTime; }
+    public int getQueueAhead() { return queueAhead; }
+    public double getElapsed() { return elapsed; }
+    public double getPreemptedTime() { return preemptedTime; }
+    public List<Step> getIntersections() { return intersections; }
+
+    /** A signalized intersection on the emergency vehicle's route. */
+    public static final class Step {
+        private final String nodeId;
+        private final String approachLinkId;
+        private final int signalGroup;
+        private final boolean controlled; // Signals simulated (and preempted) by this service
+        private final double distanceFromPrevious; // Route distance from the previous intersection (px)
+        private double eta;
+
+        Step(String nodeId, String approachLinkId, int signalGroup, boolean controlled, double distanceFromPrevious) {
+            this.nodeId = nodeId;
+            this.approachLinkId = approachLinkId;
+            this.signalGroup = signalGroup;
+            this.controlled = controlled;
+            this.distanceFromPrevious = distanceFromPrevious;
+        }
+
+        public String getNodeId() { return nodeId; }
+        public String getApproachLinkId() { return approachLinkId; }
+        public int getSignalGroup() { return signalGroup; }
+        public boolean isControlled() { return controlled; }
+        public double getEta() { return eta; }
+    }
+}
@@ -0,0 +1,81 @@
+package com.traffixpert.TraffiXpert.forecast;
+
+/**
+ * Additive Holt-Winters exponential smoothing with a damped trend, for one series.
+ *
+ * State is a level, a trend and one seasonal offset per season slot (e.g. per 5-minute bin of
+ * the day). Each observation updates the three in O(1); a forecast h steps ahead is
+ * level + (phi + phi^2 + ... + phi^h) * trend + season[slot + h]. Damping keeps long horizons
+ * from extrapolating a short-lived trend. With no seasonal slots (period 1, gamma 0) this is
+ * plain damped Holt smoothing.
+ *
+ * Also tracks an exponentially weighted mean squared one-step error for prediction intervals.
+ * Not thread-safe: one thread updates, readers use published forecasts (see TrafficForecaster).
+ */
+public class HoltWinters {
+
+    private final double alpha; // Level smoothing
+    private final double beta; // Trend smoothing
+    private final double gamma; // Seasonal smoothing
+    private final double phi; // Trend damping (0-1]
+    private final double[] season;
+    private double level;
+    private double trend;
+    private double squaredError; // EWMA of one-step-ahead squared errors
+    private long observations;
+
+    /**
+     * @param period Number of season slots (1 for no seasonality).
+     * @param alpha Level smoothing factor (0-1).
+     * @param beta Trend smoothing factor (0-1).
+     * @param gamma Seasonal smoothing factor (0-1), ignored for period 1.
+     * @param phi Trend damping factor (0-1].
+     */
+    public HoltWinters(int period, double alpha, double beta, double gamma, double phi) {
+        this.season = new double[Math.max(1, period)];
+        this.alpha = alpha;
+        this.beta = beta;
+        this.gamma = period > 1 ? gamma : 0;
+        this.phi = phi;
+    }
+
+    /**
+     * Adds an observation.
+     * @param value The observed value.
+     * @param slot Season slot the observation belongs to (e.g. bin of the day).
+     */
+    public void observe(double value, int slot) {
+        int s = Math.floorMod(slot, season.length);
+        if (observations == 0) {
+            level = value - season[s];
+            observations = 1;
+            return;
+        }
+        double predicted = level + phi * trend + season[s];
+        double error = value - predicted;
+        squaredError = observations == 1 ? error * error : 0.9 * squaredError + 0.1 * error * error;
+
+        double previousLevel = level;
+        level = alpha * (value - season[s]) + (1 - alpha) * (previousLevel + phi * trend);
+        trend = beta * (level - previousLevel) + (1 - beta) * phi * trend;
+        season[s] = gamma * (value - level) + (1 - gamma) * season[s];
+        observations++;
+    }
+
+    /**
+     * Forecast for h steps after the last observation.
+     * @param steps Horizon (>= 1).
+     * @param slot Season slot of the forecast step.
+     * @return The forecast value (not clamped).
+     */
+    public double forecast(int steps, int slot) {
+        double damping = phi == 1 ? steps : phi * (1 - Math.pow(phi, steps)) / (1 - phi);
+        return level + damping * trend + season[Math.floorMod(slot, season.length)];
+    }
+
+    /** @return Root of the smoothed one-step squared error (0 until two observations). */
+    public double getStandardError() { return Math.sqrt(squaredError); }
+    public long getObservations() { return observations; }
+    public double getLevel() { return level; }
+    public double getTrend() { return trend; }
+}
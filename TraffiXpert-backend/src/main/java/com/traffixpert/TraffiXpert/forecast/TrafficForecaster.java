@@ -0,0 +1,153 @@
+package com.traffixpert.TraffiXpert.forecast;
+
+import com.traffixpert.TraffiXpert.model.RoadDirection;
+
+import java.util.Arrays;
+
+/**
+ * Short-term forecasts of traffic per approach, trained online from the simulation.
+ *
+ * Vehicle exits are counted in BIN_MINUTES bins of the simulated day clock. When a bin closes,
+ * each approach's models take one O(1) update: an additive Holt-Winters model of vehicles per
+ * bin and one of the mean wait per vehicle, both with a daily season (one slot per bin of the
+ * day) and a damped trend. Until a full simulated day has been seen the seasonal terms are
+ * still learning and the forecast leans on level and trend.
+ *
+ * After every update the forecasts for 1..MAX_STEPS bins ahead are computed once and published
+ * as an immutable Forecast, so queries from web threads are a volatile read. Training happens
+ * on the simulation thread only (advance and recordExit are both called from update()).
+ */
+public class TrafficForecaster {
+
+    public static final int BIN_MINUTES = 5;
+    public static final int BINS_PER_DAY = 24 * 60 / BIN_MINUTES;
+    public static final int MAX_HORIZON_MINUTES = 60;
+    public static final int MAX_STEPS = MAX_HORIZON_MINUTES / BIN_MINUTES;
+
+    private static final double Z_80 = 1.2816; // Two-sided 80% prediction interval
+
+    // --- Smoothing parameters (vehicles per bin are noisy, so the level reacts moderately) ---
+    private static final double ALPHA = 0.3;
+    private static final double BETA = 0.05;
+    private static final double GAMMA = 0.2;
+    private static final double PHI = 0.9;
+
+    // --- Congestion thresholds on the forecast mean wait (same bands as the daily report) ---
+    private static final double MODERATE_WAIT_SECONDS = 20.0;
+    private static final double HIGH_WAIT_SECONDS = 45.0;
+    private static final double SEVERE_WAIT_SECONDS = 90.0;
+
+    /** Congestion level of an approach, from its forecast mean wait per vehicle. */
+    public enum CongestionLevel {
+        LOW, MODERATE, HIGH, SEVERE;
+
+        public static CongestionLevel fromWait(double waitSeconds) {
+            if (waitSeconds < MODERATE_WAIT_SECONDS) return LOW;
+            if (waitSeconds < HIGH_WAIT_SECONDS) return MODERATE;
+            if (waitSeconds < SEVERE_WAIT_SECONDS) return HIGH;
+            return SEVERE;
+        }
+    }
+
+    private static final int DIRECTIONS = RoadDirection.values().length;
+
+    private final HoltWinters[] volumeModels = new HoltWinters[DIRECTIONS]; // Vehicles per bin
+    private final HoltWinters[] waitModels = new HoltWinters[DIRECTIONS]; // Mean wait (s) of vehicles exiting in a bin
+
+    // --- Current bin (simulation thread) ---
+    private int currentBin = -1; // Bin of the day being counted
+    private final int[] binVehicles = new int[DIRECTIONS];
+    private final double[] binWaitSum = new double[DIRECTIONS]; // ms
+    private long binsObserved;
+
+    private volatile Forecast latest = Forecast.EMPTY;
+
+    public TrafficForecaster() {
+        for (int d = 0; d < DIRECTIONS; d++) {
+            volumeModels[d] = new HoltWinters(BINS_PER_DAY, ALPHA, BETA, GAMMA, PHI);
+            waitModels[d] = new HoltWinters(BINS_PER_DAY, ALPHA, BETA, GAMMA, PHI);
+        }
+    }
+
+    /**
+     * Follows the simulated day clock (once per tick); closes the current bin when it moves on.
+     * @param hourOfDay Current simulated hours since midnight, in [0, 24).
+     */
+    public void advance(double hourOfDay) {
+        int bin = Math.min(BINS_PER_DAY - 1, Math.max(0, (int) (hourOfDay * 60 / BIN_MINUTES)));
+        if (bin == currentBin) return;
+        if (currentBin >= 0 && bin == (currentBin + 1) % BINS_PER_DAY) {
+            closeBin(currentBin);
+        }
+        // Otherwise the clock was set (setHourOfDay): the partial bin isn't a full observation, drop it
+        currentBin = bin;
+        Arrays.fill(binVehicles, 0);
+        Arrays.fill(binWaitSum, 0);
+    }
+
+    /**
+     * Counts a vehicle leaving the network on an approach.
+     * @param direction The approach.
+     * @param waitMillis Time the vehicle spent waiting.
+     */
+    public void recordExit(RoadDirection direction, double waitMillis) {
+        binVehicles[direction.ordinal()]++;
+        binWaitSum[direction.ordinal()] += waitMillis;
+    }
+
+    /** One O(1) update per model, then publishes the new forecasts. */
+    private void closeBin(int bin) {
+        for (int d = 0; d < DIRECTIONS; d++) {
+            volumeModels[d].observe(binVehicles[d], bin);
+            if (binVehicles[d] > 0) { // No exits, no wait sample; the wait model keeps its state
+                waitModels[d].observe(binWaitSum[d] / binVehicles[d] / 1000.0, bin);
+            }
+        }
+        binsObserved++;
+        latest = buildForecast(bin);
+    }
+
+    private Forecast buildForecast(int lastBin) {
+        double[][] vehicles = new double[DIRECTIONS][MAX_STEPS];
+        double[][] lower = new double[DIRECTIONS][MAX_STEPS];
+        double[][] upper = new double[DIRECTIONS][MAX_STEPS];
+        double[][] wait = new double[DIRECTIONS][MAX_STEPS];
+        for (int d = 0; d < DIRECTIONS; d++) {
+            HoltWinters volume = volumeModels[d];
+            double error = volume.getStandardError();
+            for (int h = 1; h <= MAX_STEPS; h++) {
+                int slot = lastBin + h;
+                double mean = Math.max(0, volume.forecast(h, slot));
+                // Error grows with the horizon as level uncertainty accumulates (simple smoothing approximation)
+                double spread = Z_80 * error * Math.sqrt(1 + (h - 1) * ALPHA * ALPHA);
+                vehicles[d][h - 1] = mean;
+                lower[d][h - 1] = Math.max(0, mean - spread);
+                upper[d][h - 1] = mean + spread;
+                wait[d][h - 1] = waitModels[d].getObservations() == 0 ? 0 : Math.max(0, waitModels[d].forecast(h, slot));
+            }
+        }
+        int issuedMinuteOfDay = ((lastBin + 1) % BINS_PER_DAY) * BIN_MINUTES; // End of the bin just closed
+        return new Forecast(issuedMinuteOfDay, binsObserved, vehicles, lower, upper, wait);
+    }
+
+    /** @return The forecasts published after the last closed bin (EMPTY before the first). */
+    public Forecast getForecast() { return latest; }
+
+    /**
+     * Immutable forecasts for every approach and for 1..MAX_STEPS bins ahead.
+     * Arrays are indexed [direction ordinal][step - 1] and must not be modified.
+     */
+    public record Forecast(int issuedMinuteOfDay, long binsObserved, double[][] vehicles,
+                           double[][] lower, double[][] upper, double[][] waitSeconds) {
+
+        static final Forecast EMPTY = new Forecast(-1, 0, new double[DIRECTIONS][MAX_STEPS],
+                new double[DIRECTIONS][MAX_STEPS], new double[DIRECTIONS][MAX_STEPS], new double[DIRECTIONS][MAX_STEPS]);
+
+        /** @return True once the seasonal terms have seen every bin of a day. */
+        public boolean isSeasonal() { return binsObserved >= BINS_PER_DAY; }
+
+        public CongestionLevel congestion(RoadDirection direction, int step) {
+            return CongestionLevel.fromWait(waitSeconds[direction.ordinal()][step - 1]);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.traffixpert.TraffiXpert.history;
+
+import com.traffixpert.TraffiXpert.model.RoadDirection;
+import com.traffixpert.TraffiXpert.model.ViolationType;
+
+import java.util.Arrays;
+
+/**
+ * Partial aggregate of one simulated hour: the building block reports are merged from.
+ * Immutable; TrafficHistory caches one per hour and rebuilds it only when that hour's
+ * revision changes, so once an hour is over its aggregate is computed exactly once.
+ */
+public final class HourAggregate {
+
+    public static final int QUARTERS = 4; // 15-minute periods per hour
+
+    private final long hour; // Absolute simulated hour (day * 24 + hour of day)
+    private final long revision;
+    private final int activeMinutes; // Minutes with any recorded data
+    private final int[] vehicles;
+    private final double[] waitSum;
+    private final double[] travelSum;
+    private final int[] quarterVehicles;
+    private final int[] violations;
+    private final float[] clearances; // Sorted ascending
+
+    HourAggregate(long hour, long revision, MinuteRecord[] minutes) {
+        this.hour = hour;
+        this.revision = revision;
+        this.vehicles = new int[MinuteRecord.DIRECTIONS];
+        this.waitSum = new double[MinuteRecord.DIRECTIONS];
+        this.travelSum = new double[MinuteRecord.DIRECTIONS];
+        this.quarterVehicles = new int[QUARTERS];
+        this.violations = new int[MinuteRecord.VIOLATION_TYPES * MinuteRecord.DIRECTIONS];
+        int active = 0;
+        int clearanceCount = 0;
+        for (MinuteRecord record : minutes) {
+            if (record != null) clearanceCount += record.clearanceCount;
+        }
+        float[] allClearances = new float[clearanceCount];
+        int c = 0;
+        for (int m = 0; m < minutes.length; m++) {
+            MinuteRecord record = minutes[m];
+            if (record == null) continue;
+            active++;
+            for (int d = 0; d < MinuteRecord.DIRECTIONS; d++) {
+                vehicles[d] += record.vehicles[d];
+                waitSum[d] += record.waitSum[d];
+                travelSum[d] += record.travelSum[d];
+                quarterVehicles[m * QUARTERS / minutes.length] += record.vehicles[d];
+            }
+            for (int i = 0; i < violations.length; i++) {
+                violations[i] += record.violations[i];
+            }
+            System.arraycopy(record.clearances, 0, allClearances, c, record.clearanceCount);
+            c += record.clearanceCount;
+        }
+        Arrays.sort(allClearances);
+        this.activeMinutes = active;
+        this.clearances = allClearances;
+    }
+
+    public long getHour() { return hour; }
+    public int getHourOfDay() { return (int) (hour % TrafficHistory.HOURS_PER_DAY); }
+    public long getRevision() { return revision; }
+    public int getActiveMinutes() { return activeMinutes; }
+    public int getVehicles(RoadDirection direction) { return vehicles[direction.ordinal()]; }
+    public double getWaitSum(RoadDirection direction) { return waitSum[direction.ordinal()]; }
+    public double getTravelSum(RoadDirection direction) { return travelSum[direction.ordinal()]; }
+    public int getQuarterVehicles(int quarter) { return quarterVehicles[quarter]; }
+
+    public int getViolations(ViolationType type, RoadDirection direction) {
+        return violations[type.ordinal() * MinuteRecord.DIRECTIONS + direction.ordinal()];
+    }
+
+    public int getTotalVehicles() {
+        int total = 0;
+        for (int v : vehicles) total += v;
+        return total;
+    }
+
+    public double getTotalWaitSum() {
+        double total = 0;
+        for (double w : waitSum) total += w;
+        return total;
+    }
+
+    /** @return Emergency clearance times of this hour in seconds, sorted (a copy). */
+    public float[] getClearances() { return clearances.clone(); }
+    public int getClearanceCount() { return clearances.length; }
+}
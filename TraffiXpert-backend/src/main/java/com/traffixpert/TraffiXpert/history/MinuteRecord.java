@@ -0,0 +1,40 @@
+package com.traffixpert.TraffiXpert.history;
+
+import com.traffixpert.TraffiXpert.model.RoadDirection;
+import com.traffixpert.TraffiXpert.model.ViolationType;
+
+import java.util.Arrays;
+
+/**
+ * Raw counters of one simulated minute. Slots of the history ring are reused, so a record is
+ * cleared when it is claimed for a new minute. Guarded by the owning TrafficHistory.
+ */
+final class MinuteRecord {
+
+    static final int DIRECTIONS = RoadDirection.values().length;
+    static final int VIOLATION_TYPES = ViolationType.values().length;
+
+    long minute = -1; // Absolute minute this record holds, -1 = never used
+    final int[] vehicles = new int[DIRECTIONS]; // Exits per entry direction
+    final double[] waitSum = new double[DIRECTIONS]; // ms
+    final double[] travelSum = new double[DIRECTIONS]; // ms
+    final int[] violations = new int[VIOLATION_TYPES * DIRECTIONS]; // [type * DIRECTIONS + direction]
+    float[] clearances = new float[0]; // Emergency clearance times (s); rare, grown on demand
+    int clearanceCount;
+
+    void reset(long minute) {
+        this.minute = minute;
+        Arrays.fill(vehicles, 0);
+        Arrays.fill(waitSum, 0);
+        Arrays.fill(travelSum, 0);
+        Arrays.fill(violations, 0);
+        clearanceCount = 0;
+    }
+
+    void addClearance(float seconds) {
+        if (clearanceCount == clearances.length) {
+            clearances = Arrays.copyOf(clearances, Math.max(4, clearances.length * 2));
+        }
+        clearances[clearanceCount++] = seconds;
+    }
+}
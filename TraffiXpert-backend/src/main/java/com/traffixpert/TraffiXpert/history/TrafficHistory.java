@@ -0,0 +1,143 @@
+package com.traffixpert.TraffiXpert.history;
+
+import com.traffixpert.TraffiXpert.model.RoadDirection;
+import com.traffixpert.TraffiXpert.model.ViolationType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-minute traffic history over the simulated day clock (DemandGenerator.getHourOfDay),
+ * kept for RETENTION_DAYS days: vehicle exits with wait and travel time per approach,
+ * violations per approach and type, and emergency clearance times.
+ *
+ * Minutes live in a fixed ring of reusable records, so memory is bounded (a few MB at most). Every write bumps
+ * a revision for its hour; aggregateHour() caches one HourAggregate per hour and only rebuilds it
+ * when the revision moved. Past hours therefore cost one aggregation ever, and a report over a
+ * day merges at most 24 cached aggregates plus a rebuild of the hour in progress.
+ *
+ * The simulated clock wraps at midnight; a wrap (or a jump backwards via setHourOfDay) starts a
+ * new day. Writes come from the simulation thread and camera workers, reads from web threads;
+ * the ring is guarded by this object, which is cheap at these rates (tens of writes per second).
+ */
+public class TrafficHistory {
+
+    public static final int MINUTES_PER_HOUR = 60;
+    public static final int HOURS_PER_DAY = 24;
+    public static final int MINUTES_PER_DAY = MINUTES_PER_HOUR * HOURS_PER_DAY;
+    public static final int RETENTION_DAYS = 7;
+    private static final int RETENTION_HOURS = RETENTION_DAYS * HOURS_PER_DAY;
+
+    private final MinuteRecord[] minutes = new MinuteRecord[RETENTION_DAYS * MINUTES_PER_DAY]; // ~250 bytes each once used
+    private final long[] hourRevisions = new long[RETENTION_HOURS]; // Indexed by hour % RETENTION_HOURS
+    private long revisionCounter;
+    private final Map<Long, HourAggregate> hourCache = new ConcurrentHashMap<>();
+
+    // --- Clock (simulation thread) ---
+    private long day;
+    private int lastMinuteOfDay = -1;
+    private volatile long currentMinute; // Absolute minute: day * MINUTES_PER_DAY + minute of day
+
+    /**
+     * Follows the simulated day clock (simulation thread, once per tick).
+     * @param hourOfDay Current simulated hours since midnight, in [0, 24).
+     */
+    public void advance(double hourOfDay) {
+        int minuteOfDay = Math.min(MINUTES_PER_DAY - 1, Math.max(0, (int) (hourOfDay * MINUTES_PER_HOUR)));
+        if (minuteOfDay == lastMinuteOfDay) return;
+        boolean newDay = minuteOfDay < lastMinuteOfDay; // Midnight (or the clock was set back)
+        if (newDay) day++;
+        lastMinuteOfDay = minuteOfDay;
+        currentMinute = day * MINUTES_PER_DAY + minuteOfDay;
+        if (newDay) evictExpired();
+    }
+
+    // --- Recording ---
+
+    /** Records a vehicle leaving the network. */
+    public synchronized void recordExit(RoadDirection direction, double waitMillis, double travelMillis) {
+        MinuteRecord record = claim();
+        int d = direction.ordinal();
+        record.vehicles[d]++;
+        record.waitSum[d] += waitMillis;
+        record.travelSum[d] += travelMillis;
+    }
+
+    /** Records a violation on an approach. */
+    public synchronized void recordViolation(RoadDirection direction, ViolationType type) {
+        claim().violations[type.ordinal() * MinuteRecord.DIRECTIONS + direction.ordinal()]++;
+    }
+
+    /** Records the clearance time of an emergency vehicle that left the network. */
+    public synchronized void recordClearance(double seconds) {
+        claim().addClearance((float) seconds);
+    }
+
+    /** Record of the current minute (cleared if its slot held an older minute); bumps the hour's revision. */
+    private MinuteRecord claim() {
+        long minute = currentMinute;
+        int slot = (int) (minute % minutes.length);
+        MinuteRecord record = minutes[slot];
+        if (record == null) {
+            record = minutes[slot] = new MinuteRecord(); // Allocated on first use of the slot
+        }
+        if (record.minute != minute) {
+            record.reset(minute);
+        }
+        hourRevisions[(int) ((minute / MINUTES_PER_HOUR) % RETENTION_HOURS)] = ++revisionCounter;
+        return record;
+    }
+
+    // --- Queries ---
+
+    /**
+     * Aggregate of one hour, from the cache unless data was recorded in that hour since.
+     * @param hour Absolute hour (day * 24 + hour of day).
+     * @return The aggregate (empty for hours without data or outside the retention period).
+     */
+    public HourAggregate aggregateHour(long hour) {
+        long revision = getHourRevision(hour);
+        HourAggregate cached = hourCache.get(hour);
+        if (cached != null && cached.getRevision() == revision) {
+            return cached;
+        }
+        HourAggregate aggregate;
+        synchronized (this) {
+            revision = getHourRevision(hour); // Consistent with the records read below
+            MinuteRecord[] hourMinutes = new MinuteRecord[MINUTES_PER_HOUR];
+            if (isRetained(hour)) {
+                for (int m = 0; m < MINUTES_PER_HOUR; m++) {
+                    long minute = hour * MINUTES_PER_HOUR + m;
+                    MinuteRecord record = minutes[(int) (minute % minutes.length)];
+                    hourMinutes[m] = record != null && record.minute == minute ? record : null;
+                }
+            }
+            aggregate = new HourAggregate(hour, revision, hourMinutes);
+        }
+        hourCache.put(hour, aggregate);
+        return aggregate;
+    }
+
+    /**
+     * Revision of an hour's data; changes whenever something is recorded in that hour.
+     * @param hour Absolute hour.
+     * @return The revision, 0 for hours outside the retention period.
+     */
+    public synchronized long getHourRevision(long hour) {
+        return isRetained(hour) ? hourRevisions[(int) (hour % RETENTION_HOURS)] : 0;
+    }
+
+    private boolean isRetained(long hour) {
+        long currentHour = currentMinute / MINUTES_PER_HOUR;
+        return hour >= 0 && hour <= currentHour && currentHour - hour < RETENTION_HOURS;
+    }
+
+    private void evictExpired() {
+        long oldest = currentMinute / MINUTES_PER_HOUR - RETENTION_HOURS;
+        hourCache.keySet().removeIf(hour -> hour <= oldest);
+    }
+
+    public long getCurrentDay() { return currentMinute / MINUTES_PER_DAY; }
+    public long getCurrentMinute() { return currentMinute; }
+    public long getOldestRetainedDay() { return Math.max(0, getCurrentDay() - RETENTION_DAYS + 1); }
+}
@@ -0,0 +1,196 @@
+package com.traffixpert.TraffiXpert.ingestion;
+
+import com.traffixpert.TraffiXpert.detection.DetectionResult;
+import com.traffixpert.TraffiXpert.metrics.LogLinearHistogram;
+import com.traffixpert.TraffiXpert.model.RoadDirection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+
+/**
+ * One camera attached to the ingestion service: a reader thread pulling frames from its
+ * FrameSource, plus the per-camera sampling, deduplication and confirmation state and metrics.
+ *
+ * The reader only samples: it forwards at most one frame per sampleInterval to the worker pool
+ * (via the dispatch callback) and counts the rest as skipped, so a camera that delivers faster
+ * than detection can keep up never builds a backlog. Workers call back into isDuplicate /
+ * confirm, which are synchronized because frames of one camera may be processed in parallel.
+ */
+public class CameraFeed {
+
+    public enum State { RUNNING, FINISHED, FAILED, STOPPED }
+
+    private final String id;
+    private final RoadDirection road;
+    private final FrameSource source;
+    private final long sampleIntervalNanos;
+    private final double duplicateThreshold;
+    private final int confirmFrames;
+    private final int confirmWindowMask;
+    private final long cooldownNanos;
+    private final long startedNanos = System.nanoTime();
+    private Thread reader;
+    private volatile State state = State.RUNNING;
+    private volatile String error;
+
+    // --- Worker-side state (guarded by this) ---
+    private float[] lastSignature;
+    private int recentResults; // Bit i set = (i+1)-th most recent inferred frame was a violation
+    private long lastConfirmedNanos;
+    private boolean hasConfirmed;
+
+    // --- Metrics ---
+    private final AtomicLong framesRead = new AtomicLong();
+    private final AtomicLong framesSkipped = new AtomicLong(); // Sampling
+    private final AtomicLong framesDropped = new AtomicLong(); // Workers or detector overloaded
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong inferred = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong detections = new AtomicLong(); // Frames the model flagged
+    private final AtomicLong violations = new AtomicLong(); // Confirmed and logged
+    private final LogLinearHistogram lag = new LogLinearHistogram(); // Capture -> processed, ms
+    private volatile long lastLagMillis;
+
+    /**
+     * @param id Camera id.
+     * @param road Approach the camera watches; confirmed violations are logged for this road.
+     * @param source Where frames come from.
+     * @param sampleIntervalMillis Minimum time between frames sent to detection.
+     * @param duplicateThreshold Frames whose signature differs from the previous one by less than this are skipped.
+     * @param confirmFrames Violations needed within the confirmation window to log one.
+     * @param confirmWindow Number of most recent inferred frames considered for confirmation (1..31).
+     * @param cooldownMillis Minimum time between two confirmed violations of this camera.
+     */
+    public CameraFeed(String id, RoadDirection road, FrameSource source, double sampleIntervalMillis,
+                      double duplicateThreshold, int confirmFrames, int confirmWindow, long cooldownMillis) {
+        this.id = id;
+        this.road = road;
+        this.source = source;
+        this.sampleIntervalNanos = (long) (Math.max(0, sampleIntervalMillis) * 1_000_000);
+        this.duplicateThreshold = duplicateThreshold;
+        int window = Math.max(1, Math.min(31, confirmWindow));
+        this.confirmFrames = Math.max(1, Math.min(window, confirmFrames));
+        this.confirmWindowMask = (1 << window) - 1;
+        this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, cooldownMillis));
+    }
+
+    /**
+     * Starts the reader thread.
+     * @param dispatch Hands a sampled frame to the worker pool; returns false if it was rejected.
+     */
+    synchronized void start(BiPredicate<CameraFeed, Frame> dispatch) {
+        reader = new Thread(() -> readFrames(dispatch), "camera-" + id);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /** Stops the reader thread and closes the source. */
+    synchronized void stop() {
+        if (state == State.RUNNING) {
+            state = State.STOPPED;
+        }
+        if (reader != null) {
+            reader.interrupt();
+        }
+    }
+
+    private void readFrames(BiPredicate<CameraFeed, Frame> dispatch) {
+        long lastSampled = 0;
+        boolean sampledAny = false;
+        try (source) {
+            Frame frame;
+            while (state == State.RUNNING && (frame = source.next()) != null) {
+                framesRead.incrementAndGet();
+                if (sampledAny && frame.capturedNanos() - lastSampled < sampleIntervalNanos) {
+                    framesSkipped.incrementAndGet();
+                    continue;
+                }
+                lastSampled = frame.capturedNanos();
+                sampledAny = true;
+                if (!dispatch.test(this, frame)) {
+                    framesDropped.incrementAndGet();
+                }
+            }
+            if (state == State.RUNNING) {
+                state = State.FINISHED;
+                System.out.println("Camera " + id + " finished: " + source.describe());
+            }
+        } catch (InterruptedException e) {
+            // Stopped
+        } catch (Exception e) {
+            if (state == State.RUNNING) {
+                state = State.FAILED;
+                error = e.getMessage();
+                System.err.println("Camera " + id + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Checks a frame's signature against the previous frame sent to detection, and remembers it if new.
+     * @return True if the frame shows the same scene and should be skipped.
+     */
+    synchronized boolean isDuplicate(float[] signature) {
+        if (lastSignature != null && FrameSignature.distance(signature, lastSignature) < duplicateThreshold) {
+            duplicates.incrementAndGet();
+            return true;
+        }
+        lastSignature = signature;
+        return false;
+    }
+
+    /**
+     * Adds an inference result to the confirmation window. A single positive frame is not logged:
+     * confirmFrames of the last confirmWindow frames must agree, and after a confirmed violation
+     * the camera stays quiet for the cooldown so one incident is logged once.
+     * @return True if this result confirms a violation.
+     */
+    synchronized boolean confirm(DetectionResult result, long nowNanos) {
+        inferred.incrementAndGet();
+        recentResults = ((recentResults << 1) | (result.hasViolation() ? 1 : 0)) & confirmWindowMask;
+        if (!result.hasViolation()) return false;
+        detections.incrementAndGet();
+        if (Integer.bitCount(recentResults) < confirmFrames) return false;
+        if (hasConfirmed && nowNanos - lastConfirmedNanos < cooldownNanos) return false;
+        hasConfirmed = true;
+        lastConfirmedNanos = nowNanos;
+        recentResults = 0; // The next incident needs its own confirming frames
+        violations.incrementAndGet();
+        return true;
+    }
+
+    /** Records how long a frame took from capture until it was fully processed. */
+    void recordLag(Frame frame, long nowNanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nowNanos - frame.capturedNanos());
+        lag.record(millis);
+        lastLagMillis = millis;
+    }
+
+    void recordDropped() { framesDropped.incrementAndGet(); }
+    void recordFailed() { failed.incrementAndGet(); }
+
+    // --- Getters ---
+    public String getId() { return id; }
+    public RoadDirection getRoad() { return road; }
+    public String getSource() { return source.describe(); }
+    public State getState() { return state; }
+    public String getError() { return error; }
+    public long getFramesRead() { return framesRead.get(); }
+    public long getFramesSkipped() { return framesSkipped.get(); }
+    public long getFramesDropped() { return framesDropped.get(); }
+    public long getDuplicates() { return duplicates.get(); }
+    public long getInferred() { return inferred.get(); }
+    public long getFailed() { return failed.get(); }
+    public long getDetections() { return detections.get(); }
+    public long getViolations() { return violations.get(); }
+    public long getLastLagMillis() { return lastLagMillis; }
+    public double getUptimeSeconds() { return (System.nanoTime() - startedNanos) / 1e9; }
+
+    /** Capture-to-processed lag snapshot (milliseconds). */
+    public LogLinearHistogram.Snapshot getLag() {
+        LogLinearHistogram.Snapshot snapshot = new LogLinearHistogram.Snapshot();
+        lag.addTo(snapshot);
+        return snapshot;
+    }
+}
@@ -0,0 +1,202 @@
+package com.traffixpert.TraffiXpert.ingestion;
+
+import com.traffixpert.TraffiXpert.detection.ByteBufferImageInputStream;
+import com.traffixpert.TraffiXpert.detection.DetectionPipeline;
+import com.traffixpert.TraffiXpert.detection.DetectionResult;
+import com.traffixpert.TraffiXpert.model.RoadDirection;
+import com.traffixpert.TraffiXpert.model.ViolationType;
+import com.traffixpert.TraffiXpert.service.SimulationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Continuous violation detection on camera feeds.
+ *
+ * Each camera (CameraFeed) reads and samples its frames on its own thread and hands them to a
+ * shared, bounded worker pool. A worker decodes the frame (DetectionPipeline.prepare), drops it
+ * if its thumbnail matches the camera's previous frame (FrameSignature), otherwise runs it through the
+ * batched detector and feeds the result into the camera's confirmation window. Confirmed
+ * violations are logged via SimulationService.addViolation for the road the camera watches.
+ * When the workers fall behind, new frames are dropped (and counted per camera) instead of
+ * queueing up lag.
+ *
+ * Tuned by traffixpert.ingestion.* properties; cameras are attached via /api/cameras.
+ */
+@Service
+public class CameraIngestionService {
+
+    private final DetectionPipeline detectionPipeline;
+    private final SimulationService simulationService;
+    private final Map<String, CameraFeed> feeds = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor workers;
+    private final double defaultSampleIntervalMillis;
+    private final double duplicateThreshold;
+    private final int confirmFrames;
+    private final int confirmWindow;
+    private final long cooldownMillis;
+    private final Path framesRoot; // Absolute and normalized; camera directories must lie inside it
+
+    /**
+     * @param workerCount Frames decoded / detected in parallel (traffixpert.ingestion.workers).
+     * @param queueCapacity Sampled frames waiting for a worker (traffixpert.ingestion.queue-capacity).
+     * @param sampleIntervalMillis Default minimum time between detected frames of a camera (traffixpert.ingestion.sample-interval-ms).
+     * @param duplicateThreshold Largest thumbnail cell difference still treated as the same scene (traffixpert.ingestion.duplicate-threshold).
+     * @param confirmFrames Positive frames needed to confirm a violation (traffixpert.ingestion.confirm-frames)...
+     * @param confirmWindow ...within this many most recent inferred frames (traffixpert.ingestion.confirm-window).
+     * @param cooldownMillis Minimum time between two violations of one camera (traffixpert.ingestion.cooldown-ms).
+     * @param framesRoot Directory that camera frame directories are resolved against (traffixpert.ingestion.frames-root).
+     */
+    @Autowired
+    public CameraIngestionService(DetectionPipeline detectionPipeline,
+                                  SimulationService simulationService,
+                                  @Value("${traffixpert.ingestion.workers:2}") int workerCount,
+                                  @Value("${traffixpert.ingestion.queue-capacity:32}") int queueCapacity,
+                                  @Value("${traffixpert.ingestion.sample-interval-ms:500}") double sampleIntervalMillis,
+                                  @Value("${traffixpert.ingestion.duplicate-threshold:0.08}") double duplicateThreshold,
+                                  @Value("${traffixpert.ingestion.confirm-frames:2}") int confirmFrames,
+                                  @Value("${traffixpert.ingestion.confirm-window:3}") int confirmWindow,
+                                  @Value("${traffixpert.ingestion.cooldown-ms:5000}") long cooldownMillis,
+                                  @Value("${traffixpert.ingestion.frames-root:frames}") String framesRoot) {
+        this.detectionPipeline = detectionPipeline;
+        this.simulationService = simulationService;
+        this.defaultSampleIntervalMillis = sampleIntervalMillis;
+        this.duplicateThreshold = duplicateThreshold;
+        this.confirmFrames = confirmFrames;
+        this.confirmWindow = confirmWindow;
+        this.cooldownMillis = cooldownMillis;
+        this.framesRoot = Paths.get(framesRoot).toAbsolutePath().normalize();
+        AtomicInteger threadCount = new AtomicInteger();
+        int poolSize = Math.max(1, workerCount);
+        this.workers = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "camera-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Resolves a camera's frame directory against the frames root. Relative paths are taken from
+     * the root; anything that ends up outside it (absolute paths elsewhere, "..", symbolic links
+     * pointing out) is refused, so API clients can't make the server list arbitrary directories.
+     * @param directory Directory as given by the client.
+     * @return The directory's real path, inside the frames root.
+     * @throws IllegalArgumentException If it lies outside the frames root.
+     * @throws IOException If it doesn't exist.
+     */
+    public Path resolveFramesDirectory(String directory) throws IOException {
+        Path resolved = framesRoot.resolve(directory).normalize();
+        if (!resolved.startsWith(framesRoot)) {
+            throw new IllegalArgumentException("Directory is outside the frames root " + framesRoot);
+        }
+        Path real = resolved.toRealPath(); // Follows links, which normalize() can't see through
+        if (!real.startsWith(framesRoot.toRealPath())) {
+            throw new IllegalArgumentException("Directory links outside the frames root " + framesRoot);
+        }
+        return real;
+    }
+
+    /**
+     * Attaches a camera and starts reading from it.
+     * @param id Unique camera id.
+     * @param road Approach the camera watches.
+     * @param source Frame source; closed when the camera is removed or finishes.
+     * @param sampleIntervalMillis Minimum time between detected frames, or null for the default.
+     * @return The new feed.
+     * @throws IllegalStateException If a camera with this id is already attached.
+     */
+    public CameraFeed addCamera(String id, RoadDirection road, FrameSource source, Double sampleIntervalMillis) {
+        CameraFeed feed = new CameraFeed(id, road, source,
+                sampleIntervalMillis != null ? sampleIntervalMillis : defaultSampleIntervalMillis,
+                duplicateThreshold, confirmFrames, confirmWindow, cooldownMillis);
+        if (feeds.putIfAbsent(id, feed) != null) {
+            source.close();
+            throw new IllegalStateException("Camera '" + id + "' already exists");
+        }
+        feed.start(this::dispatch);
+        System.out.println("Camera " + id + " attached (" + road + "): " + source.describe());
+        return feed;
+    }
+
+    /**
+     * Stops and detaches a camera. Frames already handed to workers are still processed.
+     * @return False if no such camera.
+     */
+    public boolean removeCamera(String id) {
+        CameraFeed feed = feeds.remove(id);
+        if (feed == null) return false;
+        feed.stop();
+        System.out.println("Camera " + id + " removed.");
+        return true;
+    }
+
+    /** @return All attached cameras, by id. */
+    public List<CameraFeed> getFeeds() {
+        List<CameraFeed> list = new ArrayList<>(feeds.values());
+        list.sort((a, b) -> a.getId().compareTo(b.getId()));
+        return list;
+    }
+
+    public CameraFeed getFeed(String id) { return feeds.get(id); }
+    public int getWorkerCount() { return workers.getMaximumPoolSize(); }
+    public int getQueuedFrames() { return workers.getQueue().size(); }
+
+    /** Reader thread -> worker pool; false (frame dropped) when the queue is full. */
+    private boolean dispatch(CameraFeed feed, Frame frame) {
+        try {
+            workers.execute(() -> process(feed, frame));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /** Worker: decode, deduplicate, detect, confirm. */
+    private void process(CameraFeed feed, Frame frame) {
+        try {
+            DetectionPipeline.Prepared prepared =
+                    detectionPipeline.prepare(new ByteBufferImageInputStream(ByteBuffer.wrap(frame.data())));
+            if (feed.isDuplicate(FrameSignature.of(prepared.tensor(), detectionPipeline.getInputSize()))) {
+                feed.recordLag(frame, System.nanoTime());
+                return;
+            }
+            DetectionResult result = detectionPipeline.detect(prepared);
+            long now = System.nanoTime();
+            feed.recordLag(frame, now);
+            if (feed.confirm(result, now)) {
+                ViolationType type = ViolationType.fromLabel(result.violationType());
+                simulationService.addViolation(feed.getRoad().name(), type != null ? type : ViolationType.RED_LIGHT);
+                System.out.printf("Camera %s confirmed %s violation (confidence %.2f)%n",
+                        feed.getId(), result.violationType(), result.confidence());
+            }
+        } catch (RejectedExecutionException e) {
+            feed.recordDropped(); // Detector overloaded
+        } catch (RuntimeException e) {
+            feed.recordFailed();
+            System.err.println("Camera " + feed.getId() + " frame " + frame.sequence() + " failed: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        feeds.values().forEach(CameraFeed::stop);
+        feeds.clear();
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,81 @@
+package com.traffixpert.TraffiXpert.ingestion;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Replays the image files of a directory (in file name order) as a camera feed at a fixed
+ * frame rate, optionally looping. Meant for testing the ingestion path with recorded footage
+ * exported as numbered frames (frame-0001.jpg, ...).
+ */
+public class DirectoryFrameSource implements FrameSource {
+
+    private static final List<String> EXTENSIONS = List.of(".jpg", ".jpeg", ".png", ".bmp", ".gif");
+
+    private final Path directory;
+    private final List<Path> files;
+    private final long frameIntervalNanos;
+    private final boolean loop;
+    private int index;
+    private long sequence;
+    private long nextFrameNanos;
+
+    /**
+     * @param directory Directory containing the frames.
+     * @param framesPerSecond Replay rate.
+     * @param loop Start over after the last frame instead of ending the feed.
+     * @throws IOException If the directory can't be listed.
+     * @throws IllegalArgumentException If it contains no image files or the rate isn't positive.
+     */
+    public DirectoryFrameSource(Path directory, double framesPerSecond, boolean loop) throws IOException {
+        if (!(framesPerSecond > 0)) {
+            throw new IllegalArgumentException("Frame rate must be positive");
+        }
+        try (Stream<Path> listing = Files.list(directory)) {
+            this.files = listing.filter(Files::isRegularFile)
+                    .filter(DirectoryFrameSource::isImage)
+                    .sorted()
+                    .toList();
+        }
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("No image files in " + directory);
+        }
+        this.directory = directory;
+        this.frameIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / framesPerSecond);
+        this.loop = loop;
+        this.nextFrameNanos = System.nanoTime();
+    }
+
+    private static boolean isImage(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return EXTENSIONS.stream().anyMatch(name::endsWith);
+    }
+
+    @Override
+    public Frame next() throws IOException, InterruptedException {
+        if (index >= files.size()) {
+            if (!loop) return null;
+            index = 0;
+        }
+        // Pace against a fixed schedule so read time doesn't accumulate as drift
+        long wait = nextFrameNanos - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        } else if (-wait > 10 * frameIntervalNanos) {
+            nextFrameNanos = System.nanoTime(); // Fell far behind (e.g. paused): don't burst to catch up
+        }
+        nextFrameNanos += frameIntervalNanos;
+        byte[] data = Files.readAllBytes(files.get(index++));
+        return new Frame(++sequence, System.nanoTime(), data);
+    }
+
+    @Override
+    public String describe() {
+        return directory.toAbsolutePath() + " (" + files.size() + " frames" + (loop ? ", looping" : "") + ")";
+    }
+}
@@ -0,0 +1,9 @@
+package com.traffixpert.TraffiXpert.ingestion;
+
+/**
+ * One encoded frame read from a camera source.
+ * @param sequence Position of the frame in its source (starting at 1).
+ * @param capturedNanos System.nanoTime() when the frame was read; lag is measured from here.
+ * @param data Encoded image bytes (PNG, JPEG, ...).
+ */
+public record Frame(long sequence, long capturedNanos, byte[] data) {}
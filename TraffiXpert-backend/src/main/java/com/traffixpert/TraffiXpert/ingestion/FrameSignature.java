@@ -0,0 +1,54 @@
+package com.traffixpert.TraffiXpert.ingestion;
+
+/**
+ * Compact colour thumbnail of a frame, used to skip frames that show the same scene as the
+ * previous one before they reach the detector.
+ *
+ * A fixed junction camera changes in small places: a signal lamp switching colour or a car
+ * entering covers a few percent of the picture. Whole-image hashes (e.g. an 8x8 average hash)
+ * barely move for such changes, so the thumbnail keeps a GRID x GRID grid of per-channel cell
+ * means and two frames are compared by their largest cell difference. Sensor noise and
+ * compression artefacts average out within a cell; a lamp or vehicle does not.
+ */
+public final class FrameSignature {
+
+    static final int GRID = 32;
+
+    private FrameSignature() {}
+
+    /**
+     * @param tensor CHW tensor (R, G, B planes) as produced by ImagePreprocessor.toTensor.
+     * @param size Width and height of the tensor (at least GRID).
+     * @return Cell means, GRID * GRID per channel.
+     */
+    public static float[] of(float[] tensor, int size) {
+        int plane = size * size;
+        int cells = GRID * GRID;
+        float[] signature = new float[3 * cells];
+        int[] counts = new int[cells];
+        for (int y = 0; y < size; y++) {
+            int row = Math.min(GRID - 1, y * GRID / size) * GRID;
+            for (int x = 0; x < size; x++) {
+                int cell = row + Math.min(GRID - 1, x * GRID / size);
+                int i = y * size + x;
+                signature[cell] += tensor[i];
+                signature[cells + cell] += tensor[plane + i];
+                signature[2 * cells + cell] += tensor[2 * plane + i];
+                counts[cell]++;
+            }
+        }
+        for (int c = 0; c < signature.length; c++) {
+            signature[c] /= Math.max(1, counts[c % cells]);
+        }
+        return signature;
+    }
+
+    /** @return Largest per-cell, per-channel difference between two signatures (0 = identical, 1 = black vs white). */
+    public static float distance(float[] a, float[] b) {
+        float max = 0;
+        for (int i = 0; i < a.length; i++) {
+            max = Math.max(max, Math.abs(a[i] - b[i]));
+        }
+        return max;
+    }
+}
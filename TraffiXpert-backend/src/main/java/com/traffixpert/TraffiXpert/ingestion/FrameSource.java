@@ -0,0 +1,24 @@
+package com.traffixpert.TraffiXpert.ingestion;
+
+import java.io.IOException;
+
+/**
+ * A continuous stream of frames from one camera. Implementations pace themselves (next() blocks
+ * until the next frame is due), so a CameraFeed reads them on a dedicated thread.
+ */
+public interface FrameSource extends AutoCloseable {
+
+    /**
+     * Waits for and returns the next frame.
+     * @return The frame, or null when the source is exhausted.
+     * @throws IOException If the frame can't be read.
+     * @throws InterruptedException If the feed is being stopped.
+     */
+    Frame next() throws IOException, InterruptedException;
+
+    /** @return Human-readable origin, e.g. the directory being replayed. */
+    String describe();
+
+    @Override
+    default void close() {}
+}
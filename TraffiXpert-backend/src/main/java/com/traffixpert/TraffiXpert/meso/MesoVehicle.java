@@ -0,0 +1,104 @@
+package com.traffixpert.TraffiXpert.meso;
+
+import com.traffixpert.TraffiXpert.model.Vehicle;
+
+/**
+ * A vehicle while it is on mesoscopic links: just its route, its place on it and its clocks.
+ * Vehicles that came from a microscopic road keep their Vehicle (identity, driver, colour)
+ * so they can be put back on a road unchanged; vehicles that entered on a mesoscopic link
+ * get one when they first reach a microscopic road.
+ */
+public final class MesoVehicle {
+
+    private final int[] route; // Network links from the entry link to the destination
+    private int routeIndex; // Link the vehicle is on
+    private final Vehicle vehicle; // Microscopic state to restore, or null
+
+    // --- Timing on the current link (simulated ms) ---
+    private double linkEntryTime;
+    private double readyTime; // Earliest time it can reach the end of the link
+
+    // --- Trip clocks accumulated on mesoscopic links (ms) ---
+    private double travelTime;
+    private double waitTime; // Time beyond the free-flow travel time
+
+    /**
+     * @param route Links from the current link to the destination.
+     * @param routeIndex Index of the current link in the route.
+     * @param vehicle The microscopic vehicle to restore later, or null.
+     */
+    public MesoVehicle(int[] route, int routeIndex, Vehicle vehicle) {
+        this.route = route;
+        this.routeIndex = routeIndex;
+        this.vehicle = vehicle;
+    }
+
+    /**
+     * A vehicle handed over from another partition's model (see distributed.PartitionWorker),
+     * with the trip clocks it accumulated there.
+     * @param route Links from the current link to the destination.
+     * @param routeIndex Index of the current link in the route.
+     * @param travelTime Time spent on mesoscopic links so far (ms).
+     * @param waitTime Part of that beyond the free-flow travel times (ms).
+     */
+    public MesoVehicle(int[] route, int routeIndex, double travelTime, double waitTime) {
+        this(route, routeIndex, null);
+        this.travelTime = travelTime;
+        this.waitTime = waitTime;
+    }
+
+    /**
+     * Copy for a forked model: same route (shared, never modified), place and clocks.
+     * @param vehicle The copy of the microscopic vehicle, or null.
+     */
+    MesoVehicle copy(Vehicle vehicle) {
+        MesoVehicle copy = new MesoVehicle(route, routeIndex, vehicle);
+        copy.linkEntryTime = linkEntryTime;
+        copy.readyTime = readyTime;
+        copy.travelTime = travelTime;
+        copy.waitTime = waitTime;
+        return copy;
+    }
+
+    /** Puts the vehicle on the next link of its route. */
+    void enterLink(int index, double now, double readyTime) {
+        this.routeIndex = index;
+        this.linkEntryTime = now;
+        this.readyTime = readyTime;
+    }
+
+    /** Books the time spent on the current link, split into travel and delay. */
+    void leaveLink(double now, double freeFlowTime) {
+        double onLink = now - linkEntryTime;
+        travelTime += onLink;
+        waitTime += Math.max(0, onLink - freeFlowTime);
+    }
+
+    /**
+     * Remaining route from the current link on, e.g. to build a microscopic vehicle.
+     * @return Link indices starting with the current link.
+     */
+    public int[] remainingRoute() {
+        int[] rest = new int[route.length - routeIndex];
+        System.arraycopy(route, routeIndex, rest, 0, rest.length);
+        return rest;
+    }
+
+    /** @return Distance left to the end of the current link at a given time, driving at the given speed (px). */
+    public double remainingDistance(double now, double speed) {
+        return Math.max(0, readyTime - now) * speed;
+    }
+
+    /** @return The link after the current one, or -1 if the current link ends at the destination. */
+    public int nextLink() {
+        return routeIndex + 1 < route.length ? route[routeIndex + 1] : -1;
+    }
+
+    public int getLink() { return route[routeIndex]; }
+    public int getRouteIndex() { return routeIndex; }
+    public Vehicle getVehicle() { return vehicle; }
+    public double getLinkEntryTime() { return linkEntryTime; }
+    public double getReadyTime() { return readyTime; }
+    public double getTravelTime() { return travelTime; }
+    public double getWaitTime() { return waitTime; }
+}
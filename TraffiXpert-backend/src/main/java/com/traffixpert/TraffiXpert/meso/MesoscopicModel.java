@@ -0,0 +1,455 @@
+package com.traffixpert.TraffiXpert.meso;
+
+import com.traffixpert.TraffiXpert.model.Vehicle;
+import com.traffixpert.TraffiXpert.network.RoadNetwork;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Mesoscopic (queue) model for the links that are not simulated vehicle by vehicle.
+ *
+ * Each link is a FIFO queue with three parameters from the network file: a travel time,
+ * a storage capacity and an outflow capacity. A vehicle entering a link gets the earliest time
+ * it can reach the end, from a speed-density relation (free-flow speed, slowing down linearly as
+ * the link fills up); it leaves once that time has passed, it is at the head of the queue, the
+ * link's outflow capacity allows it (saturation flow per lane) and the next link has room.
+ * Full links block the links feeding them, so queues spill back upstream. The cost per tick
+ * is one check per link plus one per vehicle that actually moves, whatever the number of
+ * vehicles on the links.
+ *
+ * Links can be switched to microscopic, i.e. owned by a Road: vehicles heading there are
+ * handed to the Boundary, which places them on the road or refuses while it has no room.
+ *
+ * A model can also cover just part of the network, e.g. one region of a partitioned run
+ * (see distributed.PartitionWorker): links outside it are treated like microscopic links, so
+ * vehicles heading there are handed to the Boundary, and they get no queue at all.
+ *
+ * A model can be forked for what-if runs (see fork): the fork shares the link queues, and each
+ * side copies a queue the first time it changes it. Outflow capacity is therefore kept as a
+ * credit plus the time it was last used, so links that merely accrue capacity are never written.
+ *
+ * All public methods are synchronized: the simulation thread advances the model, controllers
+ * read its state.
+ */
+public class MesoscopicModel {
+
+    public static final double SATURATION_FLOW = 0.0005; // Vehicles per ms per lane (1800 veh/h)
+    public static final double JAM_SPACING = 22.0; // Road length per queued vehicle (px)
+    private static final double MIN_SPEED_RATIO = 0.1; // Speed on a full link, as a share of free flow
+
+    /** The microscopic side of the model. */
+    public interface Boundary {
+        /**
+         * Whether vehicles may leave a link, e.g. its signal shows green.
+         * @param link The link.
+         * @return True if the end of the link is open.
+         */
+        boolean mayLeave(int link);
+
+        /**
+         * Whether the microscopic road of a link can take a vehicle at its start now.
+         * @param link The microscopic link.
+         * @return False if the road has no room yet (the vehicle waits at the end of its link).
+         */
+        boolean canEnterMicroscopic(int link);
+
+        /**
+         * Hands a vehicle to the microscopic road of a link (after canEnterMicroscopic).
+         * @param vehicle The vehicle, already off its mesoscopic link (clocks complete).
+         * @param link The microscopic link.
+         */
+        void enterMicroscopic(MesoVehicle vehicle, int link);
+
+        /**
+         * Called after a vehicle has left a mesoscopic link, e.g. to record the intersection it passed.
+         * @param vehicle The vehicle (its clocks include the link).
+         * @param link The link it left.
+         * @param timeOnLink Time it spent on the link (ms).
+         * @param delay Part of that beyond the free-flow travel time (ms).
+         */
+        void onLeave(MesoVehicle vehicle, int link, double timeOnLink, double delay);
+    }
+
+    private final Boundary boundary;
+    private final UnaryOperator<Vehicle> vehicleCopier; // Copies queued microscopic vehicles to this side's roads; null if not forkable
+    private final LinkQueue[] links; // Queues owned by another model are shared with a fork: see writable(); null outside the model
+    private final int[] ownLinks; // Links this model simulates (all, unless it covers one region)
+    private final boolean[] microscopic;
+    private Object owner = new Object(); // Tags the queues this model may change in place
+
+    // --- Counters ---
+    private int vehicles;
+    private long entered;
+    private long tripsCompleted;
+    private long handedToMicroscopic;
+    private long moves;
+
+    /**
+     * @param network The road network; every link gets a queue.
+     * @param boundary Receives vehicles for microscopic links.
+     * @param vehicleCopier Copies the microscopic vehicle a queued vehicle will be restored as, for
+     *                      this model's roads, when a queue shared with a fork is copied (each side
+     *                      must own its vehicles); see fork.
+     */
+    public MesoscopicModel(RoadNetwork network, Boundary boundary, UnaryOperator<Vehicle> vehicleCopier) {
+        this(network, boundary, IntStream.range(0, network.linkCount()).toArray(), vehicleCopier);
+    }
+
+    /**
+     * Model for part of the network. Every other link is permanently microscopic: vehicles
+     * heading there go to the boundary, and the link holds no queue (so a region's memory and
+     * tick cost grow with the region, not the network). Such a model holds no microscopic
+     * vehicles and can't be forked.
+     * @param network The road network.
+     * @param boundary Receives vehicles for microscopic links and links outside the model.
+     * @param ownLinks Links that get a queue.
+     */
+    public MesoscopicModel(RoadNetwork network, Boundary boundary, int[] ownLinks) {
+        this(network, boundary, ownLinks, null);
+    }
+
+    private MesoscopicModel(RoadNetwork network, Boundary boundary, int[] ownLinks, UnaryOperator<Vehicle> vehicleCopier) {
+        this.boundary = boundary;
+        this.vehicleCopier = vehicleCopier;
+        this.links = new LinkQueue[network.linkCount()];
+        this.microscopic = new boolean[network.linkCount()];
+        this.ownLinks = ownLinks.clone();
+        Arrays.fill(microscopic, true);
+        for (int link : this.ownLinks) {
+            links[link] = new LinkQueue(network, link, owner);
+            microscopic[link] = false;
+        }
+    }
+
+    /** Fork: shares all queues of the source; counters start at zero. */
+    private MesoscopicModel(MesoscopicModel source, Boundary boundary, UnaryOperator<Vehicle> vehicleCopier) {
+        this.boundary = boundary;
+        this.vehicleCopier = vehicleCopier;
+        this.links = source.links.clone();
+        this.ownLinks = source.ownLinks;
+        this.microscopic = source.microscopic.clone();
+        this.vehicles = source.vehicles;
+    }
+
+    /**
+     * Forks the model for a what-if branch. The fork shares every link queue with this model;
+     * from now on whichever side first changes a queue copies it (with its vehicles) and keeps
+     * the copy, while the shared original is never changed again. A fork is one pointer array
+     * copy, however large the network, and each side later copies only the links it touches.
+     * @param boundary The fork's microscopic side.
+     * @param vehicleCopier Copies queued microscopic vehicles to the fork's roads.
+     * @return The fork, in the same state as this model.
+     * @throws IllegalStateException For a model built without a vehicle copier (part of the network).
+     */
+    public synchronized MesoscopicModel fork(Boundary boundary, UnaryOperator<Vehicle> vehicleCopier) {
+        if (this.vehicleCopier == null || vehicleCopier == null) {
+            throw new IllegalStateException("Forking needs a vehicle copier on both sides");
+        }
+        this.owner = new Object(); // Every queue is shared now: copy before the next change
+        return new MesoscopicModel(this, boundary, vehicleCopier);
+    }
+
+    /** The queue of a link, copied first if it is shared with a fork. */
+    private LinkQueue writable(int link) {
+        LinkQueue queue = links[link];
+        if (queue.owner != owner) {
+            queue = queue.copy(owner, vehicleCopier);
+            links[link] = queue;
+        }
+        return queue;
+    }
+
+    /**
+     * Marks a link as simulated microscopically (or hands it back to this model).
+     * A link must be empty here before it is made microscopic (see drain).
+     * @param link The link.
+     * @param isMicroscopic True if a Road simulates it.
+     * @throws IllegalArgumentException If the link is outside the model.
+     */
+    public synchronized void setMicroscopic(int link, boolean isMicroscopic) {
+        if (links[link] == null) {
+            throw new IllegalArgumentException("Link " + link + " is outside this model");
+        }
+        microscopic[link] = isMicroscopic;
+    }
+
+    public synchronized boolean isMicroscopic(int link) {
+        return microscopic[link];
+    }
+
+    /**
+     * Whether a vehicle can enter a link now (storage left).
+     * @param link The link.
+     * @return True if there is room.
+     */
+    public synchronized boolean hasRoom(int link) {
+        return links[link].hasRoom();
+    }
+
+    /**
+     * Puts a vehicle on a link.
+     * @param vehicle The vehicle; its route index must point at the link.
+     * @param now Simulated time (ms).
+     * @param remainingLength Distance left to drive on the link (px), e.g. less than the link
+     *                        length for a vehicle coming off a microscopic road part-way along it.
+     * @param force Whether to enter even if the link is full (the vehicle has nowhere else to go).
+     * @return False if the link is full and force is false.
+     */
+    public synchronized boolean enter(MesoVehicle vehicle, double now, double remainingLength, boolean force) {
+        if (!force && !links[vehicle.getLink()].hasRoom()) return false;
+        writable(vehicle.getLink()).admit(vehicle, vehicle.getRouteIndex(), now, remainingLength);
+        vehicles++;
+        entered++;
+        return true;
+    }
+
+    /**
+     * Moves vehicles between links for one time step: every link releases its ready head
+     * vehicles while its outflow capacity and the next link allow.
+     * @param deltaTime Time step (ms).
+     * @param now Simulated time at the end of the step (ms).
+     */
+    public synchronized void advance(double deltaTime, double now) {
+        for (int link : ownLinks) {
+            LinkQueue queue = links[link];
+            if (queue.vehicles.isEmpty()) continue;
+            if (microscopic[link]) {
+                // Left over from switching the link back to microscopic: enter the road as it makes room
+                if (!boundary.canEnterMicroscopic(link)) continue;
+                queue = writable(link);
+                while (!queue.vehicles.isEmpty() && boundary.canEnterMicroscopic(link)) {
+                    MesoVehicle vehicle = queue.vehicles.pollFirst();
+                    vehicles--;
+                    vehicle.leaveLink(now, queue.freeFlowTime);
+                    vehicle.enterLink(vehicle.getRouteIndex(), now, now); // Enters the road at the same link
+                    boundary.enterMicroscopic(vehicle, link);
+                    handedToMicroscopic++;
+                }
+                continue;
+            }
+            if (!queue.canRelease(now) || !boundary.mayLeave(link)) continue;
+            queue = writable(link);
+            while (queue.canRelease(now) && boundary.mayLeave(link)) {
+                MesoVehicle vehicle = queue.vehicles.peekFirst();
+                int next = vehicle.nextLink();
+                if (next < 0) {
+                    release(queue, vehicle, now);
+                    tripsCompleted++;
+                } else if (microscopic[next]) {
+                    if (!boundary.canEnterMicroscopic(next)) break; // Road full, wait at the end of the link
+                    release(queue, vehicle, now);
+                    vehicle.enterLink(vehicle.getRouteIndex() + 1, now, now);
+                    boundary.enterMicroscopic(vehicle, next);
+                    handedToMicroscopic++;
+                } else {
+                    if (!links[next].hasRoom()) break; // Spillback
+                    release(queue, vehicle, now);
+                    LinkQueue target = writable(next);
+                    target.admit(vehicle, vehicle.getRouteIndex() + 1, now, target.length);
+                    vehicles++;
+                }
+                moves++;
+            }
+        }
+    }
+
+    /** Takes the head vehicle off a link and books its time there. */
+    private void release(LinkQueue queue, MesoVehicle vehicle, double now) {
+        queue.vehicles.pollFirst();
+        queue.useCapacity(now);
+        vehicles--;
+        double timeOnLink = now - vehicle.getLinkEntryTime();
+        vehicle.leaveLink(now, queue.freeFlowTime);
+        boundary.onLeave(vehicle, queue.link, timeOnLink, Math.max(0, timeOnLink - queue.freeFlowTime));
+    }
+
+    /**
+     * Earliest time a vehicle can leave its link, for fast-forwarding over idle periods: the head
+     * of a link leaves once it has reached the end and the outflow capacity has built up again.
+     * Heads that are already due but held back (red signal, full next link or road) wait for
+     * another event, so they don't count; one that could leave right away gives now.
+     * The scan stops at the first release before the horizon, since a busy network has one on
+     * almost every link and the caller only needs to know that it can't jump.
+     * @param now Simulated time of the last advance (ms).
+     * @param horizon Simulated time (ms) below which any release will do.
+     * @return Simulated time (ms), or infinity if no vehicle is on its way anywhere.
+     */
+    public synchronized double nextReleaseTime(double now, double horizon) {
+        double next = Double.POSITIVE_INFINITY;
+        for (int link : ownLinks) {
+            LinkQueue queue = links[link];
+            MesoVehicle head = queue.vehicles.peekFirst();
+            if (head == null) continue;
+            if (microscopic[link]) {
+                if (boundary.canEnterMicroscopic(link)) return now;
+                continue; // Waits for the road to make room
+            }
+            double release = Math.max(head.getReadyTime(), queue.creditTime(1));
+            if (release > now) {
+                next = Math.min(next, release);
+                if (next < horizon) return next;
+                continue;
+            }
+            if (!boundary.mayLeave(link)) continue; // Waits for the signal
+            int target = head.nextLink();
+            if (target < 0) return now;
+            if (microscopic[target] ? boundary.canEnterMicroscopic(target) : links[target].hasRoom()) return now;
+        }
+        return next;
+    }
+
+    /**
+     * Removes every vehicle from a link, front first, e.g. to put them back on a microscopic road.
+     * Their time on the link so far is booked; the remaining distance is (readyTime - now) at
+     * free-flow speed, or 0 for vehicles already waiting at the end.
+     * @param link The link.
+     * @param now Simulated time (ms).
+     * @return The vehicles, the one closest to the end of the link first.
+     */
+    public synchronized List<MesoVehicle> drain(int link, double now) {
+        LinkQueue queue = writable(link);
+        List<MesoVehicle> drained = new ArrayList<>(queue.vehicles);
+        vehicles -= drained.size();
+        queue.vehicles.clear();
+        for (MesoVehicle vehicle : drained) {
+            double readyTime = vehicle.getReadyTime();
+            vehicle.leaveLink(now, queue.freeFlowTime);
+            vehicle.enterLink(vehicle.getRouteIndex(), now, readyTime);
+        }
+        return drained;
+    }
+
+    /**
+     * Links currently holding vehicles.
+     * @return Link indices.
+     */
+    public synchronized List<Integer> occupiedLinks() {
+        List<Integer> occupied = new ArrayList<>();
+        for (int link : ownLinks) {
+            if (!links[link].vehicles.isEmpty()) occupied.add(link);
+        }
+        return occupied;
+    }
+
+    /**
+     * Vehicles on a link.
+     * @param link The link.
+     * @return The count (0 outside the model).
+     */
+    public synchronized int vehiclesOn(int link) {
+        return links[link] == null ? 0 : links[link].vehicles.size();
+    }
+
+    /**
+     * Current travel time estimate for a vehicle entering a link.
+     * @param link The link.
+     * @return Milliseconds.
+     */
+    public synchronized double travelTime(int link) {
+        return links[link].travelTime(links[link].length);
+    }
+
+    public synchronized int getStorage(int link) { return links[link].storage; }
+    public synchronized boolean isEmpty() { return vehicles == 0; }
+
+    // --- Counters ---
+    public synchronized int getVehicleCount() { return vehicles; }
+    public synchronized long getEntered() { return entered; }
+    public synchronized long getTripsCompleted() { return tripsCompleted; }
+    public synchronized long getHandedToMicroscopic() { return handedToMicroscopic; }
+    public synchronized long getMoves() { return moves; }
+
+    /** One link: its FIFO of vehicles and the parameters of the queue model. */
+    private static final class LinkQueue {
+        final Object owner; // Model allowed to change it in place
+        final int link;
+        final double length; // px
+        final double freeFlowSpeed; // px/ms
+        final double freeFlowTime; // ms
+        final int storage; // Vehicles the link holds when jammed
+        final double flowRate; // Vehicles per ms
+        final double maxCapacity; // Burst: one vehicle per lane at once
+        final ArrayDeque<MesoVehicle> vehicles;
+        double capacity; // Outflow credit (vehicles) at capacityTime
+        double capacityTime; // Simulated time the credit was last used (ms)
+
+        LinkQueue(RoadNetwork network, int link, Object owner) {
+            this.owner = owner;
+            this.link = link;
+            this.length = network.linkLength(link);
+            this.freeFlowSpeed = network.linkSpeedLimit(link);
+            this.freeFlowTime = length / freeFlowSpeed;
+            int lanes = network.linkLanes(link);
+            this.storage = Math.max(1, (int) (length * lanes / JAM_SPACING));
+            this.flowRate = lanes * SATURATION_FLOW;
+            this.maxCapacity = lanes;
+            this.capacity = maxCapacity;
+            this.vehicles = new ArrayDeque<>();
+        }
+
+        private LinkQueue(LinkQueue source, Object owner, UnaryOperator<Vehicle> vehicleCopier) {
+            this.owner = owner;
+            this.link = source.link;
+            this.length = source.length;
+            this.freeFlowSpeed = source.freeFlowSpeed;
+            this.freeFlowTime = source.freeFlowTime;
+            this.storage = source.storage;
+            this.flowRate = source.flowRate;
+            this.maxCapacity = source.maxCapacity;
+            this.capacity = source.capacity;
+            this.capacityTime = source.capacityTime;
+            this.vehicles = new ArrayDeque<>(Math.max(source.vehicles.size(), 4));
+            for (MesoVehicle vehicle : source.vehicles) {
+                Vehicle micro = vehicle.getVehicle();
+                this.vehicles.addLast(vehicle.copy(micro == null ? null : vehicleCopier.apply(micro)));
+            }
+        }
+
+        /** Copy with its own vehicles, for the model tagged by owner. */
+        LinkQueue copy(Object owner, UnaryOperator<Vehicle> vehicleCopier) {
+            return new LinkQueue(this, owner, vehicleCopier);
+        }
+
+        boolean hasRoom() {
+            return vehicles.size() < storage;
+        }
+
+        /** Speed-density relation: free flow on an empty link, slower as it fills. */
+        double travelTime(double distance) {
+            double occupancy = Math.min(1.0, (double) vehicles.size() / storage);
+            double speed = freeFlowSpeed * Math.max(MIN_SPEED_RATIO, 1.0 - occupancy);
+            return distance / speed;
+        }
+
+        void admit(MesoVehicle vehicle, int routeIndex, double now, double distance) {
+            double readyTime = now + travelTime(Math.max(0, Math.min(distance, length)));
+            vehicle.enterLink(routeIndex, now, readyTime);
+            vehicles.addLast(vehicle);
+        }
+
+        /** Outflow credit at a time: the last credit plus the flow since, up to one vehicle per lane. */
+        double capacityAt(double now) {
+            return Math.min(maxCapacity, capacity + (now - capacityTime) * flowRate);
+        }
+
+        /** Time the outflow credit reaches a number of vehicles (at most maxCapacity). */
+        double creditTime(double credit) {
+            return capacity >= credit ? capacityTime : capacityTime + (credit - capacity) / flowRate;
+        }
+
+        void useCapacity(double now) {
+            capacity = capacityAt(now) - 1;
+            capacityTime = now;
+        }
+
+        boolean canRelease(double now) {
+            MesoVehicle head = vehicles.peekFirst();
+            return head != null && head.getReadyTime() <= now && capacityAt(now) >= 1;
+        }
+    }
+}
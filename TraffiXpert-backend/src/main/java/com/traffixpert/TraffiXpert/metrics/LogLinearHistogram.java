@@ -0,0 +1,120 @@
+package com.traffixpert.TraffiXpert.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size histogram of non-negative durations with bounded relative error, in the style
+ * of an HDR histogram: values below SUB_BUCKETS are counted exactly, above that every power of two
+ * is split into SUB_BUCKETS linear sub-buckets, so any reported percentile is within ~3% of the
+ * true value. Memory is constant (BUCKET_COUNT longs) no matter how many values are recorded.
+ * Values above MAX_TRACKABLE are counted in the last bucket; the exact maximum is kept separately.
+ * The unit is up to the caller: simulation figures use ms, request latencies use microseconds.
+ *
+ * Counters are atomic, so one thread can record while others take snapshots.
+ */
+public class LogLinearHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // 32 per power of two (~3% error)
+    private static final int MAX_EXPONENT = 27; // Largest tracked power of two: 2^27 ms is ~37 hours (~2 min in us)
+    static final long MAX_TRACKABLE = (1L << (MAX_EXPONENT + 1)) - 1;
+    static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong(); // Of the recorded (unclamped) values, for the mean
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one value.
+     * @param duration Duration in the histogram's unit; negative values count as 0.
+     */
+    public void record(long duration) {
+        long value = Math.max(0, duration);
+        counts.incrementAndGet(bucketIndex(Math.min(value, MAX_TRACKABLE)));
+        totalCount.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /** Clears all counts, e.g. when a time window slot is reused. */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Adds this histogram's counts to a snapshot (used to merge windows and directions).
+     * @param snapshot The snapshot to add into.
+     */
+    public void addTo(Snapshot snapshot) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot.counts[i] += counts.get(i);
+        }
+        snapshot.totalCount += totalCount.get();
+        snapshot.sum += sum.get();
+        snapshot.max = Math.max(snapshot.max, max.get());
+    }
+
+    public long getTotalCount() { return totalCount.get(); }
+
+    // --- Bucket layout ---
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BUCKET_BITS
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket) << shift;
+    }
+
+    static long bucketWidth(int index) {
+        if (index < SUB_BUCKETS) return 1;
+        return 1L << ((index - SUB_BUCKETS) / SUB_BUCKETS);
+    }
+
+    /**
+     * Merged, immutable-by-convention copy of one or more histograms that answers quantile queries.
+     * Not thread-safe; create one per query.
+     */
+    public static final class Snapshot {
+        private final long[] counts = new long[BUCKET_COUNT];
+        private long totalCount;
+        private long sum;
+        private long max;
+
+        /**
+         * Value at a quantile (midpoint of the bucket holding that rank, capped at the maximum).
+         * @param quantile Between 0 and 1, e.g. 0.99.
+         * @return The value, or 0 if the snapshot is empty.
+         */
+        public double valueAt(double quantile) {
+            if (totalCount == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * totalCount));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    double midpoint = bucketLowerBound(i) + (bucketWidth(i) - 1) / 2.0;
+                    return Math.min(midpoint, max);
+                }
+            }
+            return max;
+        }
+
+        public long getTotalCount() { return totalCount; }
+        public long getMax() { return max; }
+        public double getMean() { return totalCount == 0 ? 0 : (double) sum / totalCount; }
+    }
+}
@@ -0,0 +1,99 @@
+package com.traffixpert.TraffiXpert.metrics;
+
+import com.traffixpert.TraffiXpert.model.RoadDirection;
+
+/**
+ * Streaming distributions of per-vehicle figures, per approach direction and time window.
+ * Each (metric, direction) pair is a WindowedHistogram of one-minute slots, so memory is fixed
+ * (about 1 MB in total) however long the simulation runs. Directions are merged at query time.
+ */
+public class TrafficMetrics {
+
+    public enum Metric {
+        WAIT, // Total time a vehicle stood still during its trip
+        TRAVEL, // Time from entering to leaving the network
+        CLEARANCE // Emergency vehicles: time from trigger to leaving the network
+    }
+
+    /** Query windows over simulated time. */
+    public enum Window {
+        LAST_1M("1m", 1),
+        LAST_5M("5m", 5),
+        LAST_15M("15m", 15),
+        ALL("all", 0);
+
+        private final String label;
+        private final int slots; // One-minute slots, 0 = all time
+
+        Window(String label, int slots) {
+            this.label = label;
+            this.slots = slots;
+        }
+
+        public String getLabel() { return label; }
+
+        /**
+         * Parses a window label such as "5m".
+         * @return The window, or null if unknown.
+         */
+        public static Window fromLabel(String label) {
+            for (Window window : values()) {
+                if (window.label.equalsIgnoreCase(label)) return window;
+            }
+            return null;
+        }
+    }
+
+    private static final double SLOT_MILLIS = 60_000; // One simulated minute per slot
+    private static final int SLOT_COUNT = 15; // Longest windowed query (LAST_15M)
+
+    private final WindowedHistogram[][] histograms; // [metric][direction]
+
+    public TrafficMetrics() {
+        histograms = new WindowedHistogram[Metric.values().length][RoadDirection.values().length];
+        for (WindowedHistogram[] byDirection : histograms) {
+            for (int d = 0; d < byDirection.length; d++) {
+                byDirection[d] = new WindowedHistogram(SLOT_COUNT, SLOT_MILLIS);
+            }
+        }
+    }
+
+    /** Advances simulated time (simulation thread). */
+    public void advance(double deltaTime) {
+        for (WindowedHistogram[] byDirection : histograms) {
+            for (WindowedHistogram histogram : byDirection) {
+                histogram.advance(deltaTime);
+            }
+        }
+    }
+
+    /**
+     * Records one value (simulation thread).
+     * @param metric What was measured.
+     * @param direction Approach the vehicle entered on.
+     * @param millis The value in ms.
+     */
+    public void record(Metric metric, RoadDirection direction, double millis) {
+        histograms[metric.ordinal()][direction.ordinal()].record(Math.round(millis));
+    }
+
+    /**
+     * Snapshot of one metric over a window.
+     * @param metric The metric.
+     * @param direction The approach, or null for all directions merged.
+     * @param window The time window.
+     * @return A snapshot for percentile queries.
+     */
+    public LogLinearHistogram.Snapshot snapshot(Metric metric, RoadDirection direction, Window window) {
+        LogLinearHistogram.Snapshot snapshot = new LogLinearHistogram.Snapshot();
+        WindowedHistogram[] byDirection = histograms[metric.ordinal()];
+        if (direction != null) {
+            byDirection[direction.ordinal()].addTo(snapshot, window.slots);
+        } else {
+            for (WindowedHistogram histogram : byDirection) {
+                histogram.addTo(snapshot, window.slots);
+            }
+        }
+        return snapshot;
+    }
+}
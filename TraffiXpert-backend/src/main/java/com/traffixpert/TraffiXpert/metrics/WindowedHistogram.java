@@ -0,0 +1,63 @@
+package com.traffixpert.TraffiXpert.metrics;
+
+/**
+ * A LogLinearHistogram per slot of simulated time, kept in a ring, plus an all-time histogram.
+ * Queries merge the most recent slots, so "last N minutes" percentiles cost no more memory than
+ * the ring itself. Recording and advancing happen on the simulation thread; snapshots may be
+ * taken from any thread (a slot being reset concurrently just reads as partially empty).
+ */
+public class WindowedHistogram {
+
+    private final LogLinearHistogram[] slots;
+    private final LogLinearHistogram allTime = new LogLinearHistogram();
+    private final double slotMillis;
+    private double simulatedMillis;
+    private long currentSlot;
+
+    /**
+     * @param slotCount Number of slots in the ring (longest window, in slots).
+     * @param slotMillis Simulated time covered by one slot (ms).
+     */
+    public WindowedHistogram(int slotCount, double slotMillis) {
+        this.slots = new LogLinearHistogram[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            this.slots[i] = new LogLinearHistogram();
+        }
+        this.slotMillis = slotMillis;
+    }
+
+    /** Advances simulated time, resetting the slots that are reused. */
+    public void advance(double deltaTime) {
+        simulatedMillis += deltaTime;
+        long slot = (long) (simulatedMillis / slotMillis);
+        // Reset every slot entered since the last call (at most the whole ring)
+        for (long s = currentSlot + 1; s <= slot && s <= currentSlot + slots.length; s++) {
+            slots[(int) (s % slots.length)].reset();
+        }
+        currentSlot = slot;
+    }
+
+    /** Records a value into the current slot and the all-time histogram. */
+    public void record(long millis) {
+        slots[(int) (currentSlot % slots.length)].record(millis);
+        allTime.record(millis);
+    }
+
+    /**
+     * Adds the most recent slots to a snapshot.
+     * @param snapshot The snapshot to add into.
+     * @param slotCount Number of slots including the current (partial) one; 0 for all time.
+     */
+    public void addTo(LogLinearHistogram.Snapshot snapshot, int slotCount) {
+        if (slotCount <= 0) {
+            allTime.addTo(snapshot);
+            return;
+        }
+        int count = (int) Math.min(Math.min(slotCount, slots.length), currentSlot + 1);
+        for (int k = 0; k < count; k++) {
+            slots[(int) ((currentSlot - k) % slots.length)].addTo(snapshot);
+        }
+    }
+
+    public int getSlotCount() { return slots.length; }
+}
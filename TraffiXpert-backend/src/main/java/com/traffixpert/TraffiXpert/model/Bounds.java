@@ -0,0 +1,17 @@
+package com.traffixpert.TraffiXpert.model; // Adjust package name if needed
+
+/**
+ * Axis-aligned rectangle in canvas coordinates (px).
+ * Vehicles leaving it are removed from the simulation.
+ */
+public record Bounds(
+        double minX,
+        double minY,
+        double maxX,
+        double maxY
+) {
+
+    public boolean contains(double x, double y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+}
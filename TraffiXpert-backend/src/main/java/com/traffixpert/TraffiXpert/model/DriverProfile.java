@@ -0,0 +1,43 @@
+package com.traffixpert.TraffiXpert.model; // Adjust package name if needed
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Car-following parameters for the Intelligent Driver Model (IDM).
+ * Units match the rest of the simulation: distances in pixels, time in milliseconds.
+ *
+ * @param desiredSpeed            v0 - speed the driver wants on a free road (px/ms).
+ * @param desiredSpeedSpread      Random +/- variation applied to v0 per vehicle (px/ms).
+ * @param timeHeadway             T - desired time gap to the leader (ms).
+ * @param minimumGap              s0 - bumper-to-bumper gap kept when stopped (px).
+ * @param maxAcceleration         a - maximum acceleration (px/ms^2).
+ * @param comfortableDeceleration b - comfortable braking deceleration (px/ms^2).
+ */
+public record DriverProfile(
+        double desiredSpeed,
+        double desiredSpeedSpread,
+        double timeHeadway,
+        double minimumGap,
+        double maxAcceleration,
+        double comfortableDeceleration
+) {
+
+    // Defaults keep the old speed range (0.05 - 0.07 px/ms) for normal cars
+    public static final DriverProfile NORMAL_DEFAULT =
+            new DriverProfile(0.06, 0.01, 600.0, 8.0, 0.00008, 0.00015);
+    public static final DriverProfile EMERGENCY_DEFAULT =
+            new DriverProfile(0.1, 0.0, 400.0, 6.0, 0.00015, 0.0002);
+
+    // Default profile per vehicle type; each simulation holds its own immutable map (see SimulationService.getDriverProfiles)
+    public static final Map<VehicleType, DriverProfile> DEFAULTS = Collections.unmodifiableMap(new EnumMap<>(Map.of(
+            VehicleType.NORMAL, NORMAL_DEFAULT,
+            VehicleType.EMERGENCY, EMERGENCY_DEFAULT)));
+
+    public DriverProfile {
+        if (desiredSpeed <= 0 || timeHeadway < 0 || minimumGap < 0 || maxAcceleration <= 0 || comfortableDeceleration <= 0) {
+            throw new IllegalArgumentException("Invalid driver profile parameters");
+        }
+    }
+}
@@ -7,7 +7,7 @@ public class EmergencyEvent {
     private String id;
     private LocalTime time; // Changed from String
     private String type; // e.g., "Ambulance"
-    private double clearanceTime; // Changed from number to double
+    private volatile double clearanceTime; // Set by the simulation thread when the vehicle exits, read by the API
 
     // Constructor
     public EmergencyEvent(String id, LocalTime time, String type, double clearanceTime) {
@@ -0,0 +1,66 @@
+package com.traffixpert.TraffiXpert.model; // Adjust package name if needed
+
+/**
+ * Intelligent Driver Model (IDM) kernel.
+ * Works on plain arrays (structure-of-arrays) so a whole lane is evaluated in one tight loop
+ * that the JIT can unroll and vectorize. The acceleration exponent (delta) is fixed at 4.
+ */
+public final class IntelligentDriverModel {
+
+    // Smallest gap used in the interaction term, avoids division by zero
+    private static final double MIN_EFFECTIVE_GAP = 0.01;
+
+    private IntelligentDriverModel() {
+        // Utility class
+    }
+
+    /**
+     * Computes IDM accelerations for n vehicles.
+     * Pass Double.POSITIVE_INFINITY as gap for a vehicle with a free road ahead.
+     * @param n Number of vehicles to evaluate.
+     * @param speed Current speed v (px/ms).
+     * @param gap Bumper-to-bumper gap s to the leader or obstacle (px).
+     * @param approachRate Closing speed dv = v - vLeader (px/ms).
+     * @param desiredSpeed v0 per vehicle (px/ms).
+     * @param timeHeadway T per vehicle (ms).
+     * @param minimumGap s0 per vehicle (px).
+     * @param maxAcceleration a per vehicle (px/ms^2).
+     * @param comfortableDeceleration b per vehicle (px/ms^2).
+     * @param out Output accelerations (px/ms^2).
+     */
+    public static void computeAccelerations(int n, double[] speed, double[] gap, double[] approachRate,
+                                            double[] desiredSpeed, double[] timeHeadway, double[] minimumGap,
+                                            double[] maxAcceleration, double[] comfortableDeceleration,
+                                            double[] out) {
+        for (int i = 0; i < n; i++) {
+            double v = speed[i];
+            double a = maxAcceleration[i];
+            double ratio = v / desiredSpeed[i];
+            double ratio2 = ratio * ratio;
+            double dynamicGap = v * timeHeadway[i] + v * approachRate[i] / (2.0 * Math.sqrt(a * comfortableDeceleration[i]));
+            double desiredGap = minimumGap[i] + Math.max(0.0, dynamicGap);
+            double interaction = desiredGap / Math.max(gap[i], MIN_EFFECTIVE_GAP);
+            out[i] = a * (1.0 - ratio2 * ratio2 - interaction * interaction);
+        }
+    }
+
+    /**
+     * Computes the IDM acceleration for a single vehicle.
+     * Used for one-off evaluations (e.g. gap checks) outside the lane loop.
+     * @param v Current speed (px/ms).
+     * @param gap Gap to the leader (px), or Double.POSITIVE_INFINITY if free.
+     * @param approachRate Closing speed to the leader (px/ms).
+     * @param profile The driver's profile.
+     * @param desiredSpeed The driver's individual desired speed (px/ms).
+     * @return The acceleration (px/ms^2).
+     */
+    public static double acceleration(double v, double gap, double approachRate, DriverProfile profile, double desiredSpeed) {
+        double a = profile.maxAcceleration();
+        double ratio = v / desiredSpeed;
+        double ratio2 = ratio * ratio;
+        double dynamicGap = v * profile.timeHeadway() + v * approachRate / (2.0 * Math.sqrt(a * profile.comfortableDeceleration()));
+        double desiredGap = profile.minimumGap() + Math.max(0.0, dynamicGap);
+        double interaction = desiredGap / Math.max(gap, MIN_EFFECTIVE_GAP);
+        return a * (1.0 - ratio2 * ratio2 - interaction * interaction);
+    }
+}
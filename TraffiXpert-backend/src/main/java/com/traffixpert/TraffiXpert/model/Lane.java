@@ -0,0 +1,92 @@
+package com.traffixpert.TraffiXpert.model; // Adjust package name if needed
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A single lane of a Road.
+ * Lanes are numbered from the median (index 0) towards the kerb (index laneCount - 1).
+ * Traffic keeps left, so left turns use the kerb lane and right turns the median lane.
+ * Vehicles are kept sorted by path position (index 0 closest to spawn) so neighbours
+ * in this or an adjacent lane can be found with a binary search.
+ * Not thread-safe on its own: the owning Road guards all access with its lock.
+ */
+public class Lane {
+
+    private final int index;
+    private final double coordinate; // Lateral coordinate (x for N/S roads, y for E/W roads)
+    private final Set<TurnDirection> allowedTurns;
+    private final List<Vehicle> vehicles = new ArrayList<>();
+
+    public Lane(int index, double coordinate, Set<TurnDirection> allowedTurns) {
+        this.index = index;
+        this.coordinate = coordinate;
+        this.allowedTurns = allowedTurns.isEmpty()
+                ? EnumSet.noneOf(TurnDirection.class)
+                : EnumSet.copyOf(allowedTurns);
+    }
+
+    /**
+     * Builds the default turn assignment for a lane.
+     * Single-lane roads allow every movement; otherwise the kerb lane takes left turns,
+     * the median lane takes right turns (dedicated from three lanes up) and the rest go straight.
+     * @param index Lane index from the median.
+     * @param laneCount Number of lanes on the road.
+     * @return The set of turns allowed from this lane.
+     */
+    public static Set<TurnDirection> defaultTurns(int index, int laneCount) {
+        if (laneCount == 1) {
+            return EnumSet.allOf(TurnDirection.class);
+        }
+        EnumSet<TurnDirection> turns = EnumSet.noneOf(TurnDirection.class);
+        if (index == laneCount - 1) {
+            turns.add(TurnDirection.LEFT);
+            turns.add(TurnDirection.STRAIGHT);
+        } else if (index == 0) {
+            turns.add(TurnDirection.RIGHT);
+            if (laneCount == 2) turns.add(TurnDirection.STRAIGHT);
+        } else {
+            turns.add(TurnDirection.STRAIGHT);
+        }
+        return turns;
+    }
+
+    public boolean allows(TurnDirection turn) {
+        return allowedTurns.contains(turn);
+    }
+
+    /**
+     * Finds the insertion point for a path position.
+     * @param pathPosition Position along the road (px).
+     * @return Index of the first vehicle strictly ahead of the position.
+     */
+    public int indexAhead(double pathPosition) {
+        int low = 0;
+        int high = vehicles.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (vehicles.get(mid).getPathPosition() <= pathPosition) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Inserts a vehicle keeping the list sorted by path position. */
+    public void insertSorted(Vehicle vehicle) {
+        vehicles.add(indexAhead(vehicle.getPathPosition()), vehicle);
+    }
+
+    // --- Getters ---
+    public int getIndex() { return index; }
+    public double getCoordinate() { return coordinate; }
+    public Set<TurnDirection> getAllowedTurns() { return Collections.unmodifiableSet(allowedTurns); }
+
+    /** Live, mutable list of vehicles. Only use while holding the owning Road's lock. */
+    List<Vehicle> vehicles() { return vehicles; }
+}
@@ -1,141 +1,749 @@
 package com.traffixpert.TraffiXpert.model; // Adjust package name if needed
 
+import com.traffixpert.TraffiXpert.demand.DemandGenerator;
 import com.traffixpert.TraffiXpert.service.SimulationService;
+import com.traffixpert.TraffiXpert.violation.ViolationEngine;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections; // Import Collections
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class Road {
 
     private RoadDirection name;
-    private List<Vehicle> vehicles; // Use synchronized list
-    private double spawnTimer;
+    private final List<Lane> lanes; // Ordered by lane index (median first); also used as the road lock
     private double startX;
     private double startY;
     private double angle;
-    private double stopLine;
+    private double stopLinePosition; // Distance from the start point to the stop line along the road (px)
     private RoadDirection direction;
     private SimulationService simulation; // Reference to the main simulation
+    private final Map<VehicleType, DriverProfile> driverProfiles; // The simulation's (immutable), or the defaults
+    private final Bounds bounds; // Vehicles leaving this area exit the simulation
+    private final int linkIndex; // Network link simulated by this road
+    private volatile boolean mesoscopic; // Approach handed to the queue model: no arrivals, only draining
 
-    private static final int MAX_VEHICLES_PER_ROAD = 10;
-    private static final double BASE_SPAWN_TIME = 4000.0;
-    private static final double RANDOM_SPAWN_TIME = 4000.0;
 
-    public Road(RoadDirection name, SimulationService simulation) {
-        this.name = name;
+    // --- Lane change model (MOBIL) ---
+    private static final double POLITENESS = 0.3;
+    private static final double LANE_CHANGE_THRESHOLD = 0.00001; // Minimum advantage (px/ms^2)
+    private static final double SAFE_DECELERATION = 0.0003; // Max braking imposed on the new follower (px/ms^2)
+    private static final double MANDATORY_BIAS = 0.0002; // Extra incentive to reach a lane serving the turn
+    private static final double NO_LANE_CHANGE_ZONE = 30.0; // Solid line before the stop line (px)
+    private static final double YIELD_DISTANCE = 150.0; // Vehicles this close ahead of an emergency vehicle yield (px)
+    private static final double YIELD_BIAS = 0.0005; // Incentive to leave the emergency vehicle's lane
+
+    // --- Reusable structure-of-arrays buffers for the car-following pass ---
+    private double[] laneSpeed = new double[0];
+    private double[] laneGap = new double[0];
+    private double[] laneApproachRate = new double[0];
+    private double[] laneDesiredSpeed = new double[0];
+    private double[] laneTimeHeadway = new double[0];
+    private double[] laneMinimumGap = new double[0];
+    private double[] laneMaxAcceleration = new double[0];
+    private double[] laneComfortableDeceleration = new double[0];
+    private double[] laneAcceleration = new double[0];
+    private Vehicle[] laneSnapshot = new Vehicle[0];
+
+    // Lazily computed turn points (path position where the heading changes), indexed by TurnDirection
+    private final double[] turnPositions = new double[TurnDirection.values().length];
+
+    /**
+     * Creates a road from its network geometry.
+     * @param simulation The owning simulation (may be null for standalone use).
+     * @param geometry Layout of the road, built from the network file.
+     */
+    public Road(SimulationService simulation, RoadGeometry geometry) {
+        this.name = geometry.name();
         this.simulation = simulation;
-        // Use synchronized list for basic thread safety during add/remove/iterate
-        this.vehicles = Collections.synchronizedList(new ArrayList<>());
-        this.spawnTimer = ThreadLocalRandom.current().nextDouble(BASE_SPAWN_TIME);
+        this.driverProfiles = simulation != null ? simulation.getDriverProfiles() : DriverProfile.DEFAULTS;
+        this.startX = geometry.startX();
+        this.startY = geometry.startY();
+        this.angle = geometry.angle();
+        this.stopLinePosition = geometry.stopLinePosition();
+        this.direction = headingName(this.angle);
+        this.bounds = geometry.bounds();
+        this.linkIndex = geometry.linkIndex();
 
-        switch (name) {
-            case NORTH: this.startX = 215; this.startY = -20; this.angle = 180; this.stopLine = 160; this.direction = RoadDirection.SOUTH; break;
-            case SOUTH: this.startX = 175; this.startY = 420; this.angle = 0; this.stopLine = 240; this.direction = RoadDirection.NORTH; break;
-            case EAST: this.startX = 420; this.startY = 215; this.angle = -90; this.stopLine = 240; this.direction = RoadDirection.WEST; break;
-            case WEST: this.startX = -20; this.startY = 175; this.angle = 90; this.stopLine = 160; this.direction = RoadDirection.EAST; break;
-            default: throw new IllegalArgumentException("Invalid road name: " + name);
+        List<Lane> laneList = new ArrayList<>(geometry.laneCount());
+        for (int i = 0; i < geometry.laneCount(); i++) {
+            laneList.add(new Lane(i, geometry.laneCoordinates()[i], geometry.laneTurns().get(i)));
         }
+        this.lanes = Collections.unmodifiableList(laneList);
+
+        // Turn points: distance along the road to the target lane of the outgoing road
+        Arrays.fill(this.turnPositions, Double.NaN);
+        geometry.turnTargets().forEach((turn, target) -> this.turnPositions[turn.ordinal()] = distanceAlongAxis(target));
     }
 
     public void update(double deltaTime, SignalState signal) {
-        // Handle spawning
-        this.spawnTimer -= deltaTime;
-        if (this.spawnTimer <= 0) {
-            // Use synchronized block for size check and add
-            synchronized (this.vehicles) {
-                 if (this.vehicles.size() < MAX_VEHICLES_PER_ROAD) {
-                    // Add new vehicle at the beginning of the list (closest to spawn point)
-                    this.vehicles.add(0, new Vehicle(this, VehicleType.NORMAL));
-                 }
+        // Handle spawning: release vehicles waiting at the entry while there is room
+        if (this.simulation != null && !this.mesoscopic) {
+            synchronized (this.lanes) {
+                spawnFromDemand(this.simulation.getDemand());
             }
-            // Reset spawn timer with random interval
-            this.spawnTimer = BASE_SPAWN_TIME + ThreadLocalRandom.current().nextDouble(RANDOM_SPAWN_TIME);
         }
 
-        // --- Use synchronized block for iteration and getting sublist ---
-        synchronized (this.vehicles) {
-             // Iterate from back to front (farthest from spawn to closest)
-             for (int i = this.vehicles.size() - 1; i >= 0; i--) {
-                 // Check bounds just in case list was modified unexpectedly (though synchronized helps)
-                 if (i >= this.vehicles.size()) continue;
+        synchronized (this.lanes) {
+            // --- Lane changes first, so the car-following pass sees the new neighbours ---
+            if (this.lanes.size() > 1) {
+                for (Lane lane : this.lanes) {
+                    evaluateLaneChanges(lane);
+                }
+            }
 
-                 Vehicle vehicle = this.vehicles.get(i);
-                 // Get vehicles physically in front (those later in the list)
-                 // Create subList within the synchronized block
-                 List<Vehicle> vehiclesInFront = (i + 1 < this.vehicles.size())
-                     ? new ArrayList<>(this.vehicles.subList(i + 1, this.vehicles.size())) // Create a safe copy
-                     : Collections.emptyList(); // Handle edge case
+            // --- Car-following pass (IDM), one lane at a time ---
+            for (Lane lane : this.lanes) {
+                updateLane(lane, deltaTime, signal);
+            }
 
-                 // Update vehicle (pass the safe copy of vehicles in front)
-                 vehicle.update(deltaTime, signal, vehiclesInFront);
-             }
+            // --- Live link speed for route re-costing (vehicles still on the approach) ---
+            if (this.simulation != null) {
+                double speedSum = 0;
+                int approaching = 0;
+                for (Lane lane : this.lanes) {
+                    for (Vehicle v : lane.vehicles()) {
+                        if (!v.hasPassedStopLine()) {
+                            speedSum += v.getSpeed();
+                            approaching++;
+                        }
+                    }
+                }
+                if (approaching > 0) {
+                    this.simulation.getRoutePlanner().observeLinkSpeed(this.linkIndex, speedSum / approaching);
+                }
+            }
         }
-        // --- End Modification ---
 
 
         // --- Remove vehicles that are off-screen and notify SimulationService ---
-        // Use synchronized block for iterator and removal
-        synchronized (this.vehicles) {
-             Iterator<Vehicle> iterator = this.vehicles.iterator();
-             while (iterator.hasNext()) {
-                 Vehicle v = iterator.next();
-                 // Define screen bounds
-                 if (v.getX() < -30 || v.getX() > 430 || v.getY() < -30 || v.getY() > 430) {
-                     long exitedVehicleId = v.getId(); // Get ID before removing
-                     iterator.remove(); // Remove from list
+        synchronized (this.lanes) {
+            for (Lane lane : this.lanes) {
+                Iterator<Vehicle> iterator = lane.vehicles().iterator();
+                while (iterator.hasNext()) {
+                    Vehicle v = iterator.next();
+                    // Network bounds (the canvas for the default intersection)
+                    if (!this.bounds.contains(v.getX(), v.getY())) {
+                        iterator.remove(); // Remove from list
+
+                        // --- Notify simulation service about the exit, passing the vehicle ---
+                        if (this.simulation != null) {
+                            this.simulation.recordVehicleExit(v);
+                            // Note: incrementTotalVehicleCount is now called inside recordVehicleExit in SimulationService
+                        }
+                        // --- End Notification ---
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the IDM over all vehicles of one lane using the structure-of-arrays buffers.
+     * Must be called while holding the road lock.
+     */
+    private void updateLane(Lane lane, double deltaTime, SignalState signal) {
+        List<Vehicle> vehicles = lane.vehicles();
+        int n = vehicles.size();
+        ensureLaneCapacity(n);
+
+        // Gather: list is ordered from closest-to-spawn (index 0) to farthest
+        for (int i = 0; i < n; i++) {
+            Vehicle vehicle = vehicles.get(i);
+            DriverProfile profile = vehicle.getProfile();
+            double speed = vehicle.getSpeed();
+            laneSpeed[i] = speed;
+            laneDesiredSpeed[i] = vehicle.getDesiredSpeed();
+            laneTimeHeadway[i] = profile.timeHeadway();
+            laneMinimumGap[i] = profile.minimumGap();
+            laneMaxAcceleration[i] = profile.maxAcceleration();
+            laneComfortableDeceleration[i] = profile.comfortableDeceleration();
+
+            // Stop line acts as a stationary obstacle when the vehicle has to stop
+            double gap = vehicle.stopLineGap(signal);
+            double approachRate = speed;
+
+            Vehicle leader = findLeader(vehicles, i);
+            if (leader != null) {
+                double leaderGap = leader.getPathPosition() - vehicle.getPathPosition() - leader.getHeight();
+                if (leaderGap < gap) {
+                    gap = leaderGap;
+                    approachRate = speed - leader.getSpeed();
+                }
+            }
+            laneGap[i] = gap;
+            laneApproachRate[i] = (gap == Double.POSITIVE_INFINITY) ? 0 : approachRate;
+        }
+
+        IntelligentDriverModel.computeAccelerations(n, laneSpeed, laneGap, laneApproachRate,
+                laneDesiredSpeed, laneTimeHeadway, laneMinimumGap, laneMaxAcceleration,
+                laneComfortableDeceleration, laneAcceleration);
+
+        // Apply: all accelerations come from the same snapshot, so order doesn't matter
+        ViolationEngine violationEngine = this.simulation != null ? this.simulation.getViolationEngine() : null;
+        for (int i = 0; i < n; i++) {
+            Vehicle vehicle = vehicles.get(i);
+            boolean wasPastStopLine = vehicle.hasPassedStopLine();
+            vehicle.update(deltaTime, signal, laneAcceleration[i]);
+            if (violationEngine != null) {
+                violationEngine.evaluate(this, vehicle, signal, wasPastStopLine, deltaTime);
+            }
+        }
+    }
+
+    /**
+     * Finds the vehicle this one follows.
+     * Vehicles ahead that turned off onto a different path are skipped.
+     * Must be called while holding the road lock.
+     * @param vehicles The lane's vehicles.
+     * @param index Index of the follower in the lane.
+     * @return The leader, or null if the road ahead is free.
+     */
+    private static Vehicle findLeader(List<Vehicle> vehicles, int index) {
+        Vehicle follower = vehicles.get(index);
+        for (int j = index + 1; j < vehicles.size(); j++) {
+            Vehicle candidate = vehicles.get(j);
+            boolean samePath = candidate.hasTurned()
+                    ? candidate.getTurn() == follower.getTurn()
+                    : !follower.hasTurned();
+            if (samePath) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    // --- Lane Changing (MOBIL) ---
+
+    /**
+     * Evaluates a lane change to the neighbouring lanes for every vehicle of a lane.
+     * Changes are applied immediately so later vehicles see the updated lanes.
+     * Must be called while holding the road lock.
+     */
+    private void evaluateLaneChanges(Lane lane) {
+        List<Vehicle> vehicles = lane.vehicles();
+        int n = vehicles.size();
+        if (n == 0) return;
+        if (laneSnapshot.length < n) {
+            laneSnapshot = new Vehicle[Math.max(n, laneSnapshot.length * 2)];
+        }
+        Vehicle[] snapshot = vehicles.toArray(laneSnapshot);
+        double emergencyPosition = Double.NEGATIVE_INFINITY; // Nearest emergency vehicle behind, if any
+
+        for (int i = 0; i < n; i++) {
+            Vehicle vehicle = snapshot[i];
+            snapshot[i] = null; // Don't keep references around
+            if (vehicle.getType() == VehicleType.EMERGENCY) {
+                emergencyPosition = vehicle.getPathPosition();
+                continue;
+            }
+            if (vehicle.getLane() != lane || !mayChangeLane(vehicle)) continue;
+            // Corridor clearing: move out of the way of an emergency vehicle coming up behind
+            boolean yielding = vehicle.getPathPosition() - emergencyPosition < YIELD_DISTANCE;
+
+            Lane best = null;
+            double bestIncentive = LANE_CHANGE_THRESHOLD;
+            for (int offset = -1; offset <= 1; offset += 2) {
+                int targetIndex = lane.getIndex() + offset;
+                if (targetIndex < 0 || targetIndex >= this.lanes.size()) continue;
+                Lane target = this.lanes.get(targetIndex);
+                double incentive = laneChangeIncentive(vehicle, lane, target) + (yielding ? YIELD_BIAS : 0.0);
+                if (incentive > bestIncentive) {
+                    bestIncentive = incentive;
+                    best = target;
+                }
+            }
+
+            if (best != null) {
+                vehicles.remove(vehicle);
+                best.insertSorted(vehicle);
+                moveToLane(vehicle, best);
+                vehicle.markLaneChange();
+            }
+        }
+    }
+
+    /** Lane changes are only allowed before the solid line ahead of the stop line. */
+    private boolean mayChangeLane(Vehicle vehicle) {
+        return vehicle.getType() == VehicleType.NORMAL
+                && !vehicle.hasPassedStopLine()
+                && vehicle.getLaneChangeCooldown() <= 0
+                && vehicle.getPathPosition() < this.stopLinePosition - NO_LANE_CHANGE_ZONE;
+    }
+
+    /**
+     * MOBIL incentive for moving a vehicle from one lane to another.
+     * @return The net advantage (px/ms^2), or Double.NEGATIVE_INFINITY if the change is unsafe or not allowed.
+     */
+    private double laneChangeIncentive(Vehicle vehicle, Lane current, Lane target) {
+        // Turn lane discipline: never leave a lane serving the turn for one that doesn't,
+        // and push vehicles in the wrong lane towards one that does
+        TurnDirection turn = vehicle.getTurn();
+        int currentDistance = distanceToTurnLane(current.getIndex(), turn);
+        int targetDistance = distanceToTurnLane(target.getIndex(), turn);
+        if (targetDistance > currentDistance) return Double.NEGATIVE_INFINITY;
+        double bias = targetDistance < currentDistance ? MANDATORY_BIAS : 0.0;
+
+        double position = vehicle.getPathPosition();
+        List<Vehicle> targetVehicles = target.vehicles();
+        int ahead = target.indexAhead(position);
+        Vehicle newLeader = ahead < targetVehicles.size() ? targetVehicles.get(ahead) : null;
+        Vehicle newFollower = ahead > 0 ? targetVehicles.get(ahead - 1) : null;
+
+        // Physical space in the target lane
+        if (newLeader != null && newLeader.getPathPosition() - position - newLeader.getHeight() < vehicle.getProfile().minimumGap()) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (newFollower != null && position - newFollower.getPathPosition() - vehicle.getHeight() < newFollower.getProfile().minimumGap()) {
+            return Double.NEGATIVE_INFINITY;
+        }
 
-                     // --- Notify simulation service about the exit, passing the ID ---
-                     if (this.simulation != null) {
-                         this.simulation.recordVehicleExit(exitedVehicleId);
-                         // Note: incrementTotalVehicleCount is now called inside recordVehicleExit in SimulationService
-                     }
-                     // --- End Notification ---
-                 }
-             }
+        // Never cut in front of an approaching emergency vehicle
+        if (newFollower != null && newFollower.getType() == VehicleType.EMERGENCY
+                && position - newFollower.getPathPosition() < YIELD_DISTANCE) {
+            return Double.NEGATIVE_INFINITY;
         }
+
+        // Safety criterion: the new follower must not brake harder than SAFE_DECELERATION
+        double newFollowerBefore = 0;
+        double newFollowerAfter = 0;
+        if (newFollower != null) {
+            newFollowerBefore = accelerationBehind(newFollower, newLeader);
+            newFollowerAfter = accelerationBehind(newFollower, vehicle);
+            if (newFollowerAfter < -SAFE_DECELERATION) return Double.NEGATIVE_INFINITY;
+        }
+
+        List<Vehicle> currentVehicles = current.vehicles();
+        int index = current.indexAhead(position) - 1;
+        if (index < 0 || currentVehicles.get(index) != vehicle) {
+            index = currentVehicles.indexOf(vehicle); // Tie on position, fall back to a scan
+        }
+        Vehicle oldLeader = index + 1 < currentVehicles.size() ? currentVehicles.get(index + 1) : null;
+        Vehicle oldFollower = index > 0 ? currentVehicles.get(index - 1) : null;
+
+        double ownGain = accelerationBehind(vehicle, newLeader) - accelerationBehind(vehicle, oldLeader);
+        double othersGain = newFollowerAfter - newFollowerBefore;
+        if (oldFollower != null) {
+            othersGain += accelerationBehind(oldFollower, oldLeader) - accelerationBehind(oldFollower, vehicle);
+        }
+        return ownGain + POLITENESS * othersGain + bias;
     }
 
+    /** Number of lanes between a lane and the nearest lane that serves the turn. */
+    private int distanceToTurnLane(int laneIndex, TurnDirection turn) {
+        int best = Integer.MAX_VALUE;
+        for (Lane lane : this.lanes) {
+            if (lane.allows(turn)) {
+                best = Math.min(best, Math.abs(lane.getIndex() - laneIndex));
+            }
+        }
+        return best;
+    }
+
+    /** IDM acceleration of a follower behind a given leader (null = free road). */
+    private static double accelerationBehind(Vehicle follower, Vehicle leader) {
+        if (leader == null) {
+            return IntelligentDriverModel.acceleration(follower.getSpeed(), Double.POSITIVE_INFINITY, 0,
+                    follower.getProfile(), follower.getDesiredSpeed());
+        }
+        double gap = leader.getPathPosition() - follower.getPathPosition() - leader.getHeight();
+        return IntelligentDriverModel.acceleration(follower.getSpeed(), gap, follower.getSpeed() - leader.getSpeed(),
+                follower.getProfile(), follower.getDesiredSpeed());
+    }
+
+    /** Assigns a vehicle to a lane and moves it onto the lane's lateral coordinate. */
+    private void moveToLane(Vehicle vehicle, Lane lane) {
+        vehicle.setLane(lane);
+        if (isVertical()) {
+            vehicle.setX(lane.getCoordinate());
+        } else {
+            vehicle.setY(lane.getCoordinate());
+        }
+    }
+
+    // --- Spawning ---
 
     /**
-     * Adds a vehicle to the front of the road's vehicle list (closest to spawn).
+     * Moves vehicles from the entry queue onto the road, at most one per lane per step.
+     * Vehicles stay queued (outside the network) while no lane has entry space.
+     * Must be called while holding the road lock.
+     */
+    private void spawnFromDemand(DemandGenerator demand) {
+        for (int spawned = 0; spawned < this.lanes.size(); spawned++) {
+            int destination = demand.peekDestination(this.linkIndex);
+            if (destination < 0 || !anyEntrySpace()) return;
+            Vehicle newVehicle = new Vehicle(this, VehicleType.NORMAL, this.simulation.planRoute(this, destination));
+            Lane lane = chooseEntryLane(newVehicle, true);
+            if (lane == null) return;
+            demand.release(this.linkIndex);
+            // Add new vehicle at the beginning of the lane (closest to spawn point)
+            placeInLane(newVehicle, lane);
+            matchEntrySpeed(newVehicle, lane);
+            lane.vehicles().add(0, newVehicle);
+        }
+    }
+
+    /**
+     * Puts a vehicle entering the road into its lane, noting when the lane doesn't serve its turn
+     * (it will try to change lanes, but isn't to blame if it can't; see ViolationEngine).
+     * Must be called while holding the road lock.
+     */
+    private void placeInLane(Vehicle vehicle, Lane lane) {
+        if (!lane.allows(vehicle.getTurn())) {
+            vehicle.markPlacedOutsideTurnLane();
+        }
+        moveToLane(vehicle, lane);
+    }
+
+    /** Whether at least one lane can take a new vehicle. Must be called while holding the road lock. */
+    private boolean anyEntrySpace() {
+        for (Lane lane : this.lanes) {
+            if (hasEntrySpace(lane)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Picks the entry lane for a new vehicle: a lane serving its turn with the most room,
+     * otherwise any lane with room (the vehicle will change lanes later).
+     * Must be called while holding the road lock.
+     * @param vehicle The vehicle to place.
+     * @param requireEntrySpace Whether the last vehicle must have cleared the entry.
+     * @return The chosen lane, or null if every lane is full.
+     */
+    private Lane chooseEntryLane(Vehicle vehicle, boolean requireEntrySpace) {
+        Lane best = null;
+        boolean bestServesTurn = false;
+        double bestRoom = Double.NEGATIVE_INFINITY;
+        for (Lane lane : this.lanes) {
+            List<Vehicle> vehicles = lane.vehicles();
+            if (requireEntrySpace && !hasEntrySpace(lane)) continue;
+            boolean servesTurn = lane.allows(vehicle.getTurn());
+            double room = vehicles.isEmpty() ? Double.MAX_VALUE : vehicles.get(0).getPathPosition();
+            if ((servesTurn && !bestServesTurn) || (servesTurn == bestServesTurn && room > bestRoom)) {
+                best = lane;
+                bestServesTurn = servesTurn;
+                bestRoom = room;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Checks that the last spawned vehicle in a lane has moved far enough for a new one to enter.
+     * Must be called while holding the road lock.
+     */
+    private boolean hasEntrySpace(Lane lane) {
+        List<Vehicle> vehicles = lane.vehicles();
+        if (vehicles.isEmpty()) return true;
+        Vehicle last = vehicles.get(0);
+        return last.getPathPosition() - last.getHeight() >= driverProfiles.get(VehicleType.NORMAL).minimumGap();
+    }
+
+    /**
+     * Lowers a new vehicle's entry speed to the vehicle ahead when it enters within its desired headway.
+     * Must be called while holding the road lock.
+     */
+    private void matchEntrySpeed(Vehicle newVehicle, Lane lane) {
+        List<Vehicle> vehicles = lane.vehicles();
+        if (vehicles.isEmpty()) return;
+        Vehicle last = vehicles.get(0);
+        double gap = last.getPathPosition() - last.getHeight();
+        DriverProfile profile = newVehicle.getProfile();
+        if (gap < profile.minimumGap() + newVehicle.getSpeed() * profile.timeHeadway()) {
+            newVehicle.setSpeed(Math.min(newVehicle.getSpeed(), last.getSpeed()));
+        }
+    }
+
+    /** Grows the car-following buffers when a lane holds more vehicles than before. */
+    private void ensureLaneCapacity(int n) {
+        if (laneSpeed.length >= n) return;
+        int capacity = Math.max(n, laneSpeed.length * 2);
+        laneSpeed = new double[capacity];
+        laneGap = new double[capacity];
+        laneApproachRate = new double[capacity];
+        laneDesiredSpeed = new double[capacity];
+        laneTimeHeadway = new double[capacity];
+        laneMinimumGap = new double[capacity];
+        laneMaxAcceleration = new double[capacity];
+        laneComfortableDeceleration = new double[capacity];
+        laneAcceleration = new double[capacity];
+    }
+
+
+    /**
+     * Adds a vehicle to the front of a lane (closest to spawn).
      * Used for explicitly adding vehicles like emergency vehicles.
      * @param vehicle The vehicle to add.
+     * @return True if the vehicle was added, false if the road is full.
      */
-    public void addVehicleToFront(Vehicle vehicle) {
-         // Use synchronized block
-         synchronized (this.vehicles) {
-            if (this.vehicles.size() < MAX_VEHICLES_PER_ROAD) {
-                 this.vehicles.add(0, vehicle); // Add at the beginning
-            } else {
-                 System.out.println("Could not add emergency vehicle to road " + this.name + ", road is full.");
+    public boolean addVehicleToFront(Vehicle vehicle) {
+        synchronized (this.lanes) {
+            Lane lane = chooseEntryLane(vehicle, false);
+            if (lane != null) {
+                placeInLane(vehicle, lane);
+                lane.vehicles().add(0, vehicle); // Add at the beginning
+                return true;
             }
-         }
+            System.out.println("Could not add emergency vehicle to road " + this.name + ", road is full.");
+            return false;
+        }
+    }
+
+    // --- Mesoscopic boundary ---
+
+    /**
+     * Whether a vehicle could enter at the start of the road now.
+     * @return True if some lane has entry space.
+     */
+    public boolean canAdmit() {
+        synchronized (this.lanes) {
+            return anyEntrySpace();
+        }
+    }
+
+    /**
+     * Places a vehicle on the approach, behind the vehicles already there: in a lane serving its
+     * turn if one has room, moved back to keep the minimum gap to the last vehicle of the lane.
+     * Used for vehicles coming from the mesoscopic model.
+     * @param vehicle The vehicle (built for this road).
+     * @param pathPosition Where it should be (px from the start); 0 = entering at the start.
+     * @param speed Its speed (px/ms), lowered to the vehicle ahead when following closely.
+     * @return False if no lane has room behind its last vehicle.
+     */
+    public boolean admit(Vehicle vehicle, double pathPosition, double speed) {
+        synchronized (this.lanes) {
+            Lane best = null;
+            boolean bestServesTurn = false;
+            double bestPosition = Double.NEGATIVE_INFINITY;
+            double spacing = vehicle.getHeight() + vehicle.getProfile().minimumGap();
+            for (Lane lane : this.lanes) {
+                List<Vehicle> vehicles = lane.vehicles();
+                double position = vehicles.isEmpty()
+                        ? pathPosition
+                        : Math.min(pathPosition, vehicles.get(0).getPathPosition() - spacing);
+                if (position < 0) continue;
+                boolean servesTurn = lane.allows(vehicle.getTurn());
+                if ((servesTurn && !bestServesTurn) || (servesTurn == bestServesTurn && position > bestPosition)) {
+                    best = lane;
+                    bestServesTurn = servesTurn;
+                    bestPosition = position;
+                }
+            }
+            if (best == null) return false;
+            vehicle.placeAt(bestPosition, Math.min(speed, vehicle.getDesiredSpeed()));
+            placeInLane(vehicle, best);
+            matchEntrySpeed(vehicle, best);
+            best.vehicles().add(0, vehicle);
+            return true;
+        }
+    }
+
+    /**
+     * Takes the vehicles that haven't reached the stop line off the road, to hand the approach
+     * to the mesoscopic model. Emergency vehicles stay (they are always simulated in detail),
+     * as do vehicles past the stop line, which finish crossing here.
+     * @return The removed vehicles, the one closest to the stop line first.
+     */
+    public List<Vehicle> removeApproaching() {
+        synchronized (this.lanes) {
+            List<Vehicle> removed = new ArrayList<>();
+            for (Lane lane : this.lanes) {
+                Iterator<Vehicle> iterator = lane.vehicles().iterator();
+                while (iterator.hasNext()) {
+                    Vehicle v = iterator.next();
+                    if (!v.hasPassedStopLine() && v.getType() != VehicleType.EMERGENCY) {
+                        iterator.remove();
+                        removed.add(v);
+                    }
+                }
+            }
+            removed.sort((a, b) -> Double.compare(b.getPathPosition(), a.getPathPosition()));
+            return removed;
+        }
+    }
+
+    public boolean isMesoscopic() { return mesoscopic; }
+    public void setMesoscopic(boolean mesoscopic) { this.mesoscopic = mesoscopic; }
+
+    // --- Forking ---
+
+    /**
+     * Fills this road with copies of another road's vehicles, lane by lane in the same order,
+     * and takes over its model (micro or meso). Used to fork a simulation; both roads must be
+     * built from the same geometry.
+     * @param source The road to copy.
+     */
+    public void copyStateFrom(Road source) {
+        synchronized (source.lanes) {
+            synchronized (this.lanes) {
+                for (int i = 0; i < this.lanes.size(); i++) {
+                    Lane lane = this.lanes.get(i);
+                    for (Vehicle vehicle : source.lanes.get(i).vehicles()) {
+                        Vehicle copy = new Vehicle(vehicle, this);
+                        copy.setLane(lane);
+                        lane.vehicles().add(copy);
+                    }
+                }
+                this.mesoscopic = source.mesoscopic;
+            }
+        }
+    }
+
+    // --- Turning Geometry ---
+
+    /**
+     * Heading after taking a turn at the intersection (traffic keeps left).
+     * @param turn The turn direction.
+     * @return The new angle in degrees (0-359).
+     */
+    public double getTurnAngle(TurnDirection turn) {
+        double delta = switch (turn) {
+            case LEFT -> -90;
+            case RIGHT -> 90;
+            case STRAIGHT -> 0;
+        };
+        return ((this.angle + delta) % 360 + 360) % 360;
+    }
+
+    /**
+     * Path position at which a turning vehicle switches heading, i.e. where it reaches the
+     * target lane of the outgoing road (kerb lane for left turns, median lane for right turns).
+     * @param turn The turn direction (LEFT or RIGHT).
+     * @return Distance from the start point (px), or NaN if the turn isn't available here.
+     */
+    public double getTurnPosition(TurnDirection turn) {
+        return this.turnPositions[turn.ordinal()];
+    }
+
+    /**
+     * Whether the intersection has an outgoing road for the given turn.
+     * @param turn The turn direction.
+     * @return true if vehicles on this road can make the turn.
+     */
+    public boolean supportsTurn(TurnDirection turn) {
+        return turn == TurnDirection.STRAIGHT || !Double.isNaN(this.turnPositions[turn.ordinal()]);
+    }
+
+    /** Distance from the start point to a coordinate on this road's axis of travel. */
+    private double distanceAlongAxis(double coordinate) {
+        double heading = ((this.angle % 360) + 360) % 360;
+        if (heading == 0) return this.startY - coordinate;   // Moving up
+        if (heading == 180) return coordinate - this.startY; // Moving down
+        if (heading == 90) return coordinate - this.startX;  // Moving right
+        return this.startX - coordinate;                     // Moving left
+    }
+
+    /** Compass name of the direction of travel for a heading. */
+    private static RoadDirection headingName(double angle) {
+        double heading = ((angle % 360) + 360) % 360;
+        if (heading == 0) return RoadDirection.NORTH;
+        if (heading == 180) return RoadDirection.SOUTH;
+        if (heading == 90) return RoadDirection.EAST;
+        return RoadDirection.WEST;
+    }
+
+    private boolean isVertical() {
+        double heading = ((this.angle % 360) + 360) % 360;
+        return heading == 0 || heading == 180;
     }
 
     // --- Getters ---
     public RoadDirection getName() { return name; }
 
-    // --- MODIFIED: Return copy within synchronized block ---
     /**
-     * Returns a copy of the current list of vehicles on this road.
-     * This is thread-safe for reading the list state at a point in time.
+     * Returns a copy of the current vehicles on all lanes of this road.
+     * This is thread-safe for reading the road state at a point in time.
      * @return A new List containing the vehicles.
      */
     public List<Vehicle> getVehicles() {
-        synchronized (this.vehicles) {
-             return new ArrayList<>(this.vehicles); // Return a copy
+        synchronized (this.lanes) {
+            List<Vehicle> all = new ArrayList<>();
+            for (Lane lane : this.lanes) {
+                all.addAll(lane.vehicles());
+            }
+            return all; // Return a copy
+        }
+    }
+
+    /**
+     * Runs an action on every vehicle of this road under the road lock, without copying the lists.
+     * The action must not add or remove vehicles.
+     * @param action The action.
+     */
+    public void forEachVehicle(Consumer<Vehicle> action) {
+        synchronized (this.lanes) {
+            for (Lane lane : this.lanes) {
+                lane.vehicles().forEach(action);
+            }
         }
     }
-    // --- End Modification ---
 
-    public double getSpawnTimer() { return spawnTimer; }
+    /**
+     * Whether nothing on this road will move or enter until the next external event: every vehicle
+     * is at rest and no waiting arrival could enter (no backlog, or no room at the entry).
+     * @param hasBacklog Whether arrivals are waiting to enter this road.
+     * @return True if idle.
+     */
+    public boolean isIdle(boolean hasBacklog) {
+        synchronized (this.lanes) {
+            if (hasBacklog && anyEntrySpace()) return false;
+            for (Lane lane : this.lanes) {
+                for (Vehicle v : lane.vehicles()) {
+                    if (!v.isAtRest()) return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Shortest time until a vehicle may change lanes again, the only thing a vehicle at rest
+     * can still do on its own.
+     * @return Milliseconds, or infinity if no cooldown is running (or the road has one lane).
+     */
+    public double nextLaneChangeDelay() {
+        if (this.lanes.size() < 2) return Double.POSITIVE_INFINITY;
+        synchronized (this.lanes) {
+            double next = Double.POSITIVE_INFINITY;
+            for (Lane lane : this.lanes) {
+                for (Vehicle v : lane.vehicles()) {
+                    if (v.getLaneChangeCooldown() > 0) next = Math.min(next, v.getLaneChangeCooldown());
+                }
+            }
+            return next;
+        }
+    }
+
+    /**
+     * Skips time for an idle road (see isIdle): vehicles keep their positions and only
+     * accumulate wait and travel time.
+     * @param deltaTime Time skipped (ms).
+     */
+    public void skipIdle(double deltaTime) {
+        forEachVehicle(v -> v.idle(deltaTime));
+    }
+
+    public List<Lane> getLanes() { return lanes; }
     public double getStartX() { return startX; }
     public double getStartY() { return startY; }
     public double getAngle() { return angle; }
-    public double getStopLine() { return stopLine; }
+    public double getStopLine() { // Stop line coordinate on the axis of travel
+        double heading = ((this.angle % 360) + 360) % 360;
+        if (heading == 0) return this.startY - this.stopLinePosition;
+        if (heading == 180) return this.startY + this.stopLinePosition;
+        if (heading == 90) return this.startX + this.stopLinePosition;
+        return this.startX - this.stopLinePosition;
+    }
+    public double getStopLinePosition() { return stopLinePosition; }
     public RoadDirection getDirection() { return direction; }
     public SimulationService getSimulation() { return simulation; } // Needed by Vehicle
-}
\ No newline at end of file
+    /** Driver profile for new vehicles of a type on this road. */
+    public DriverProfile getDriverProfile(VehicleType type) { return driverProfiles.get(type); }
+    public Bounds getBounds() { return bounds; }
+    public int getLinkIndex() { return linkIndex; }
+}
@@ -0,0 +1,48 @@
+package com.traffixpert.TraffiXpert.model; // Adjust package name if needed
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Everything a Road needs to know about its layout on the canvas.
+ * Built from the road network file (see network.IntersectionLayout) instead of hard-coded coordinates.
+ *
+ * @param name             Approach the road comes from (NORTH road carries southbound traffic).
+ * @param startX           Spawn point x (px).
+ * @param startY           Spawn point y (px).
+ * @param angle            Heading in degrees (0 = up, 90 = right).
+ * @param stopLinePosition Distance from the spawn point to the stop line (px).
+ * @param laneCoordinates  Lateral coordinate per lane, median lane first (x for vertical roads, y for horizontal).
+ * @param laneTurns        Turns allowed from each lane, median lane first.
+ * @param turnTargets      Lateral coordinate of the target lane on the outgoing road, per available turn.
+ * @param bounds           Area outside of which vehicles leave the simulation.
+ * @param linkIndex        Index of the network link this road simulates.
+ */
+public record RoadGeometry(
+        RoadDirection name,
+        double startX,
+        double startY,
+        double angle,
+        double stopLinePosition,
+        double[] laneCoordinates,
+        List<Set<TurnDirection>> laneTurns,
+        Map<TurnDirection, Double> turnTargets,
+        Bounds bounds,
+        int linkIndex
+) {
+
+    public RoadGeometry {
+        if (laneCoordinates.length == 0 || laneCoordinates.length != laneTurns.size()) {
+            throw new IllegalArgumentException("Road " + name + " needs one turn set per lane");
+        }
+        double normalized = ((angle % 360) + 360) % 360;
+        if (normalized % 90 != 0) {
+            throw new IllegalArgumentException("Road " + name + " must be axis-aligned, angle was " + angle);
+        }
+    }
+
+    public int laneCount() {
+        return laneCoordinates.length;
+    }
+}
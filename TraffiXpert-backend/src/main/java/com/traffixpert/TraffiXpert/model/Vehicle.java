@@ -1,15 +1,16 @@
 package com.traffixpert.TraffiXpert.model; // Adjust package name if needed
 
+import com.traffixpert.TraffiXpert.network.IntersectionLayout;
 import com.traffixpert.TraffiXpert.service.SimulationService; // Placeholder - We'll create this later
 
-import java.util.List;
+import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class Vehicle {
 
     // --- Static Members ---
-    private static final double VEHICLE_WIDTH = 10.0;
+    public static final double VEHICLE_WIDTH = 10.0; // Public: the network layout uses it for lane placement
     private static final double VEHICLE_HEIGHT = 16.0;
     private static final VehicleColor[] CAR_COLORS = {
             VehicleColor.BLUE, VehicleColor.RED, VehicleColor.PURPLE,
@@ -17,6 +18,17 @@ public class Vehicle {
             VehicleColor.GREEN
     };
     private static final AtomicLong vehicleIdCounter = new AtomicLong(0); // Thread-safe counter
+    // Below this speed (px/ms) a vehicle counts as stopped for wait time purposes
+    private static final double STOPPED_SPEED_THRESHOLD = 0.005;
+    // At rest: stopped, braking, and would halt within this distance (px) at the current deceleration
+    private static final double REST_STOPPING_DISTANCE = 0.5;
+    // Distance to the stop line (px) at which a driver decides whether to run a red light
+    private static final double RED_LIGHT_DECISION_DISTANCE = 40.0;
+    private static final double RED_LIGHT_VIOLATION_CHANCE = 0.01; // 1% of drivers run a red light
+    private static final double SPEEDER_CHANCE = 0.03; // 3% of drivers ignore the speed limit...
+    private static final double SPEEDER_FACTOR = 1.3; // ...and want to go this much faster
+    // Minimum time between two lane changes of the same vehicle (ms)
+    private static final double LANE_CHANGE_COOLDOWN = 2000.0;
 
     // --- Instance Members ---
     private long id; // Use long for potentially many vehicles
@@ -24,26 +36,53 @@ public class Vehicle {
     private double y;
     private final double width = VEHICLE_WIDTH; // Final as it doesn't change
     private final double height = VEHICLE_HEIGHT; // Final as it doesn't change
-    private double speed;
+    private double speed; // Current speed (px/ms), driven by the car-following model
+    private double acceleration; // Last applied acceleration (px/ms^2)
+    private double pathPosition; // Distance travelled from the road's start point (px)
+    private DriverProfile profile; // IDM parameters for this driver
+    private double desiredSpeed; // Individual desired speed (profile v0 +/- spread)
     private double angle; // In degrees
     private Road road; // We'll define Road class later
+    private Lane lane; // Current lane on the road
+    private double laneChangeCooldown; // Time left before another lane change is allowed (ms)
     private boolean isMoving;
     private VehicleColor color;
     private VehicleType type;
     private double waitTime;
+    private double totalWaitTime; // Time stood still over the whole trip (ms), not reset when moving
+    private double travelTime; // Time since entering the network (ms)
     private TurnDirection turn;
+    private int[] route; // Network links from the spawn link to the destination (empty if unrouted)
     // --- NEW: Simplified Turning State ---
     private boolean hasPassedStopLine = false;
     private boolean hasTurned = false; // Flag to ensure turn happens only once
+    // --- Red light / dilemma zone decisions (made once per approach) ---
+    private boolean redLightDecisionMade = false;
+    private boolean runsRedLight = false;
+    private boolean committedToCross = false; // Too close to stop when the light turned yellow
     private String emergencyType; // Optional: Store specific type if needed
+    // --- Violation rule state (see ViolationEngine) ---
+    private double overSpeedTime; // Continuous time above the speed limit (ms)
+    private int reportedViolations; // Bit per ViolationType already reported for this vehicle
+    private boolean placedOutsideTurnLane; // Entered in a lane not serving its turn (no room in one that does)
 
 
     /**
-     * Constructor for Vehicle.
+     * Constructor for Vehicle with a trip to a random destination.
      * @param road The Road this vehicle starts on.
      * @param type The type of vehicle (NORMAL or EMERGENCY).
      */
     public Vehicle(Road road, VehicleType type) {
+        this(road, type, road.getSimulation() != null ? road.getSimulation().planRoute(road) : new int[0]);
+    }
+
+    /**
+     * Constructor for Vehicle with a planned route.
+     * @param road The Road this vehicle starts on.
+     * @param type The type of vehicle (NORMAL or EMERGENCY).
+     * @param route Network links from the road's link to the destination (empty for a random turn).
+     */
+    public Vehicle(Road road, VehicleType type, int[] route) {
         this.id = vehicleIdCounter.getAndIncrement();
         this.road = road;
         this.type = type;
@@ -52,33 +91,100 @@ public class Vehicle {
         this.y = road.getStartY();
         this.angle = road.getAngle();
 
-        // Speed based on type
+        // Car-following parameters based on type; desired speed varies per driver
+        Random random = randomFor(road);
+        this.profile = road.getDriverProfile(type);
+        double spread = this.profile.desiredSpeedSpread();
+        this.desiredSpeed = spread > 0
+                ? this.profile.desiredSpeed() - spread + random.nextDouble(2 * spread)
+                : this.profile.desiredSpeed();
+        if (type == VehicleType.NORMAL && random.nextDouble() < SPEEDER_CHANCE) {
+            this.desiredSpeed *= SPEEDER_FACTOR;
+        }
+        this.speed = this.desiredSpeed; // Vehicles enter the canvas at cruising speed
+        this.acceleration = 0;
+        this.pathPosition = 0;
+
         if (type == VehicleType.EMERGENCY) {
-            this.speed = 0.1;
             // Default color/type if specific type isn't provided via other constructor
             this.color = VehicleColor.WHITE;
             this.emergencyType = "Ambulance";
         } else {
-            // Equivalent to 0.05 + Math.random() * 0.02
-            this.speed = 0.05 + ThreadLocalRandom.current().nextDouble(0.02);
             // Select random color
-            this.color = CAR_COLORS[ThreadLocalRandom.current().nextInt(CAR_COLORS.length)];
+            this.color = CAR_COLORS[random.nextInt(CAR_COLORS.length)];
         }
 
         this.isMoving = true;
         this.waitTime = 0;
 
-        // Determine turn direction based on random number (using original probabilities)
-        double rand = ThreadLocalRandom.current().nextDouble();
-        if (rand < 0.5) this.turn = TurnDirection.STRAIGHT;
-        else if (rand < 0.75) this.turn = TurnDirection.LEFT;
-        else this.turn = TurnDirection.RIGHT;
+        // The turn at the intersection follows from the route's second link
+        SimulationService simService = road.getSimulation();
+        this.route = route;
+        TurnDirection routedTurn = this.route.length > 1 && simService != null
+                ? IntersectionLayout.turnBetween(simService.getNetwork(), this.route[0], this.route[1])
+                : null;
+        if (routedTurn != null) {
+            this.turn = routedTurn;
+        } else {
+            // No route (standalone road or unreachable destination): original random probabilities
+            double rand = random.nextDouble();
+            if (rand < 0.5) this.turn = TurnDirection.STRAIGHT;
+            else if (rand < 0.75) this.turn = TurnDirection.LEFT;
+            else this.turn = TurnDirection.RIGHT;
+        }
+        if (!road.supportsTurn(this.turn)) {
+            this.turn = TurnDirection.STRAIGHT; // No outgoing road for this turn (e.g. T-junction)
+        }
 
         // Reset turning state flags
         this.hasPassedStopLine = false;
         this.hasTurned = false;
     }
 
+    /**
+     * Copy of a vehicle on another road, for a forked simulation (see SimulationService.fork).
+     * Same id, driver, position and trip state; the route array is shared, it is never modified.
+     * The lane is left unset for the road to assign.
+     * @param source The vehicle to copy.
+     * @param road The road of the copy (the fork's road for the same link).
+     */
+    public Vehicle(Vehicle source, Road road) {
+        this.id = source.id;
+        this.road = road;
+        this.x = source.x;
+        this.y = source.y;
+        this.speed = source.speed;
+        this.acceleration = source.acceleration;
+        this.pathPosition = source.pathPosition;
+        this.profile = source.profile;
+        this.desiredSpeed = source.desiredSpeed;
+        this.angle = source.angle;
+        this.laneChangeCooldown = source.laneChangeCooldown;
+        this.isMoving = source.isMoving;
+        this.color = source.color;
+        this.type = source.type;
+        this.waitTime = source.waitTime;
+        this.totalWaitTime = source.totalWaitTime;
+        this.travelTime = source.travelTime;
+        this.turn = source.turn;
+        this.route = source.route;
+        this.hasPassedStopLine = source.hasPassedStopLine;
+        this.hasTurned = source.hasTurned;
+        this.redLightDecisionMade = source.redLightDecisionMade;
+        this.runsRedLight = source.runsRedLight;
+        this.committedToCross = source.committedToCross;
+        this.emergencyType = source.emergencyType;
+        this.overSpeedTime = source.overSpeedTime;
+        this.reportedViolations = source.reportedViolations;
+        this.placedOutsideTurnLane = source.placedOutsideTurnLane;
+    }
+
+    /** Random source: the simulation's (seedable for what-if runs), or a thread-local one for standalone roads. */
+    private static Random randomFor(Road road) {
+        SimulationService simulation = road.getSimulation();
+        return simulation != null ? simulation.getRandom() : ThreadLocalRandom.current();
+    }
+
      // *** Overloaded constructor that takes the specific emergency type ***
      public Vehicle(Road road, VehicleType type, String emergencyType) {
          this(road, type); // Call the main constructor
@@ -102,129 +208,155 @@ public class Vehicle {
 
 
     /**
-     * Updates the vehicle's position and state based on traffic signals and other vehicles.
-     * Includes NEW instant turning logic based on position.
-     * @param deltaTime Time elapsed since last update.
+     * Returns the gap (px) to the stop line if this vehicle has to treat it as a stationary obstacle,
+     * or Double.POSITIVE_INFINITY if it may drive through.
+     * Also makes the one-time red light and dilemma zone decisions for this approach.
      * @param signal The current state of the traffic signal for this vehicle's road.
-     * @param vehiclesInFront A list of vehicles ahead of this one in the same lane.
+     * @return Effective gap to the stop line, including the minimum gap so the vehicle stops at the line.
      */
-    public void update(double deltaTime, SignalState signal, List<Vehicle> vehiclesInFront) {
-        double stopPosition = this.road.getStopLine();
-        boolean isStoppedByCar = false;
-
-        // Check for collision with vehicles in front
-        for (Vehicle frontVehicle : vehiclesInFront) {
-            double distance = Math.hypot(this.x - frontVehicle.getX(), this.y - frontVehicle.getY());
-            // Stop if too close to the vehicle in front (using 1.5 times height as buffer)
-            // Using original simpler distance check
-            if (distance < this.height * 1.5) {
-                isStoppedByCar = true;
-                break;
+    public double stopLineGap(SignalState signal) {
+        if (this.hasPassedStopLine || this.type == VehicleType.EMERGENCY || signal == SignalState.GREEN || this.committedToCross) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double distance = this.road.getStopLinePosition() - this.pathPosition;
+        if (distance < 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        if (signal == SignalState.RED) {
+            // Decide once, when close to the line, whether this driver runs the red light
+            if (!this.redLightDecisionMade && distance < RED_LIGHT_DECISION_DISTANCE) {
+                this.redLightDecisionMade = true;
+                this.runsRedLight = this.type == VehicleType.NORMAL
+                        && randomFor(this.road).nextDouble() < RED_LIGHT_VIOLATION_CHANCE;
+            }
+            if (this.runsRedLight) {
+                return Double.POSITIVE_INFINITY;
+            }
+        } else if (signal == SignalState.YELLOW) {
+            // Dilemma zone: keep going if stopping would need more than twice the comfortable braking
+            double requiredDeceleration = this.speed * this.speed / (2.0 * Math.max(distance, 0.01));
+            if (requiredDeceleration > 2.0 * this.profile.comfortableDeceleration()) {
+                this.committedToCross = true;
+                return Double.POSITIVE_INFINITY;
             }
         }
+        // Offset by the minimum gap so the IDM equilibrium puts the vehicle right at the line
+        return distance + this.profile.minimumGap();
+    }
 
-        RoadDirection direction = this.road.getDirection(); // The direction the road ENTERS the intersection from (e.g., NORTH means car moves SOUTH)
-        double potentialX = this.x + Math.sin(Math.toRadians(this.angle)) * this.speed * deltaTime;
-        double potentialY = this.y - Math.cos(Math.toRadians(this.angle)) * this.speed * deltaTime;
-
-        // --- Stop Line Checks ---
-        // Check if the vehicle is *about* to cross the stop line in this update
-        boolean isApproachingStopLine = false;
-        switch (this.road.getName()) { // Use road's origin name for approach check
-            case NORTH: isApproachingStopLine = this.y < stopPosition && potentialY >= stopPosition; break; // Moving South
-            case SOUTH: isApproachingStopLine = this.y > stopPosition && potentialY <= stopPosition; break; // Moving North
-            case EAST:  isApproachingStopLine = this.x > stopPosition && potentialX <= stopPosition; break; // Moving West
-            case WEST:  isApproachingStopLine = this.x < stopPosition && potentialX >= stopPosition; break; // Moving East
+    /**
+     * Advances the vehicle by one step using the acceleration from the car-following model.
+     * Handles stop line crossing, wait time and turning. Violations are judged afterwards by the ViolationEngine.
+     * @param deltaTime Time elapsed since last update (ms).
+     * @param signal The current state of the traffic signal for this vehicle's road.
+     * @param acceleration The acceleration computed by the IDM for this step (px/ms^2).
+     */
+    public void update(double deltaTime, SignalState signal, double acceleration) {
+        this.acceleration = acceleration;
+        if (this.laneChangeCooldown > 0) {
+            this.laneChangeCooldown -= deltaTime;
         }
-        // Check if the vehicle has *already* crossed the stop line
-        if (!this.hasPassedStopLine) { // Only update if not already marked as passed
-             switch (this.road.getName()) { // Use road's origin name
-                 case NORTH: this.hasPassedStopLine = this.y >= stopPosition; break; // Moving South
-                 case SOUTH: this.hasPassedStopLine = this.y <= stopPosition; break; // Moving North
-                 case EAST:  this.hasPassedStopLine = this.x <= stopPosition; break; // Moving West
-                 case WEST:  this.hasPassedStopLine = this.x >= stopPosition; break; // Moving East
-             }
+
+        // --- Ballistic integration (never drive backwards) ---
+        double newSpeed = this.speed + acceleration * deltaTime;
+        double distance;
+        if (newSpeed < 0) {
+            // Vehicle comes to a halt within this step
+            distance = acceleration < 0 ? (this.speed * this.speed) / (-2.0 * acceleration) : 0;
+            newSpeed = 0;
+        } else {
+            distance = (this.speed + newSpeed) * 0.5 * deltaTime;
         }
-        // --- End Stop Line Checks ---
-
-
-        // --- Determine Movement State (Stop/Go/Violate - KEEPING LATEST WORKING VERSION) ---
-         boolean shouldViolate = false;
-         // Check conditions for potentially violating a RED light BEFORE passing the line
-         if (!this.hasPassedStopLine && isApproachingStopLine && signal == SignalState.RED && this.type == VehicleType.NORMAL) {
-             if (ThreadLocalRandom.current().nextDouble() < 0.01) { // 1% violation chance
-                  shouldViolate = true;
-                  SimulationService simService = this.road.getSimulation();
-                  if (simService != null) {
-                      System.out.println("VIOLATION TRIGGERED for vehicle " + this.getId() + " on " + this.road.getName().name());
-                      simService.addViolation(this.road.getName().name());
-                  }
-             }
-         }
+        this.speed = newSpeed;
+        this.isMoving = this.speed > STOPPED_SPEED_THRESHOLD;
 
-         // Decide if the car should be moving based on all factors
-         if (isStoppedByCar) {
-             this.isMoving = false; // Stop if too close to car in front
-         } else if (!this.hasPassedStopLine && isApproachingStopLine && signal != SignalState.GREEN && this.type != VehicleType.EMERGENCY && !shouldViolate) {
-              // Stop if approaching Red/Yellow, not emergency, AND not violating
-             this.isMoving = false;
-         } else {
-             // Otherwise, move (Green light, past stop line, emergency, OR violating)
-             this.isMoving = true;
-         }
-        // --- End Movement State ---
+        // --- Update Position ---
+        this.x += Math.sin(Math.toRadians(this.angle)) * distance;
+        this.y -= Math.cos(Math.toRadians(this.angle)) * distance;
+        this.pathPosition += distance;
+        // --- End Update Position ---
+
+        // --- Stop Line Crossing ---
+        if (!this.hasPassedStopLine && this.pathPosition >= this.road.getStopLinePosition()) {
+            this.hasPassedStopLine = true;
+        }
+        // --- End Stop Line Crossing ---
 
 
         // --- Update Wait Time ---
+        this.travelTime += deltaTime;
         if (!this.isMoving) {
             this.waitTime += deltaTime;
+            this.totalWaitTime += deltaTime;
         } else {
             this.waitTime = 0; // Reset wait time when moving
         }
         // --- End Wait Time ---
 
 
-        // --- Update Position ---
-        if (this.isMoving) {
-            // Need to convert angle to radians for Math.sin/cos
-            this.x = potentialX;
-            this.y = potentialY;
-        }
-        // --- End Update Position ---
+         // --- Turning Logic (instantaneous, once the target lane of the outgoing road is reached) ---
+         if (this.hasPassedStopLine && !this.hasTurned && this.turn != TurnDirection.STRAIGHT
+                 && this.pathPosition >= this.road.getTurnPosition(this.turn)) {
+             this.angle = this.road.getTurnAngle(this.turn);
+             this.hasTurned = true;
+         }
+         // --- End Turning Logic ---
+    }
 
+    /**
+     * Whether the vehicle stays where it is until something else changes (its signal, its
+     * leader): stopped, and the car-following model is not pulling it forward. A queued vehicle
+     * creeps up to its equilibrium gap ever more slowly; once it would halt within
+     * REST_STOPPING_DISTANCE it counts as at rest.
+     * @return True if at rest.
+     */
+    public boolean isAtRest() {
+        if (this.isMoving || this.acceleration > 0) return false;
+        return this.speed == 0 || (this.acceleration < 0
+                && this.speed * this.speed / (-2.0 * this.acceleration) <= REST_STOPPING_DISTANCE);
+    }
 
-         // --- NEW Turning Logic (Instantaneous based on position) ---
-         if (this.hasPassedStopLine && !this.hasTurned && this.turn != TurnDirection.STRAIGHT) {
-             boolean turnExecuted = false;
-             // Determine current road origin (where the car came FROM)
-             RoadDirection origin = this.road.getName();
+    /**
+     * Puts the vehicle at a point of its road's approach, e.g. when it comes back from the
+     * mesoscopic model. The lateral position is set by the road (lane).
+     * @param pathPosition Distance from the road's start point (px), before the stop line.
+     * @param speed Speed (px/ms).
+     */
+    public void placeAt(double pathPosition, double speed) {
+        this.pathPosition = pathPosition;
+        this.angle = this.road.getAngle();
+        this.x = this.road.getStartX() + Math.sin(Math.toRadians(this.angle)) * pathPosition;
+        this.y = this.road.getStartY() - Math.cos(Math.toRadians(this.angle)) * pathPosition;
+        setSpeed(speed);
+        this.acceleration = 0;
+        this.isMoving = this.speed > STOPPED_SPEED_THRESHOLD;
+        this.hasPassedStopLine = false;
+        this.hasTurned = false;
+    }
 
-             switch (origin) {
-                 case NORTH: // Moving South (angle initially 180)
-                     if (this.turn == TurnDirection.LEFT && this.y >= 185) { this.angle = 90; turnExecuted = true; } // Turn East
-                     else if (this.turn == TurnDirection.RIGHT && this.y >= 215) { this.angle = 270; turnExecuted = true; } // Turn West (-90 becomes 270)
-                     break;
-                 case SOUTH: // Moving North (angle initially 0)
-                     if (this.turn == TurnDirection.LEFT && this.y <= 215) { this.angle = 270; turnExecuted = true; } // Turn West (-90 becomes 270)
-                     else if (this.turn == TurnDirection.RIGHT && this.y <= 185) { this.angle = 90; turnExecuted = true; } // Turn East
-                     break;
-                 case EAST: // Moving West (angle initially -90 or 270)
-                     if (this.turn == TurnDirection.LEFT && this.x <= 185) { this.angle = 0; turnExecuted = true; } // Turn South
-                     else if (this.turn == TurnDirection.RIGHT && this.x <= 215) { this.angle = 180; turnExecuted = true; } // Turn North
-                     break;
-                 case WEST: // Moving East (angle initially 90)
-                     if (this.turn == TurnDirection.LEFT && this.x >= 215) { this.angle = 180; turnExecuted = true; } // Turn North
-                     else if (this.turn == TurnDirection.RIGHT && this.x >= 185) { this.angle = 0; turnExecuted = true; } // Turn South
-                     break;
-             }
+    /**
+     * Adds the time spent on mesoscopic links to the trip clocks.
+     * @param travel Time on the links (ms).
+     * @param wait Delay beyond free-flow travel (ms), counted as standing time.
+     */
+    public void addMesoscopicTime(double travel, double wait) {
+        this.travelTime += travel;
+        this.totalWaitTime += wait;
+    }
 
-             if (turnExecuted) {
-                 this.hasTurned = true;
-                 // Ensure angle is within 0-359 if needed, although the direct assignments should be fine
-                 this.angle = (this.angle + 360) % 360;
-             }
-         }
-         // --- End NEW Turning Logic ---
+    /**
+     * Lets time pass for a vehicle at rest without integrating its motion (fast-forward).
+     * Accumulates the same clocks as update() does for a stopped vehicle.
+     * @param deltaTime Time skipped (ms).
+     */
+    public void idle(double deltaTime) {
+        if (this.laneChangeCooldown > 0) {
+            this.laneChangeCooldown -= deltaTime;
+        }
+        this.travelTime += deltaTime;
+        this.waitTime += deltaTime;
+        this.totalWaitTime += deltaTime;
     }
 
 
@@ -235,13 +367,24 @@ public class Vehicle {
     public double getWidth() { return width; }
     public double getHeight() { return height; }
     public double getSpeed() { return speed; }
+    public double getAcceleration() { return acceleration; }
+    public double getPathPosition() { return pathPosition; }
+    public DriverProfile getProfile() { return profile; }
+    public double getDesiredSpeed() { return desiredSpeed; }
+    public boolean hasPassedStopLine() { return hasPassedStopLine; }
+    public boolean hasTurned() { return hasTurned; }
     public double getAngle() { return angle; }
     public Road getRoad() { return road; }
+    public Lane getLane() { return lane; }
+    public double getLaneChangeCooldown() { return laneChangeCooldown; }
     public boolean isMoving() { return isMoving; }
     public VehicleColor getColor() { return color; }
     public VehicleType getType() { return type; }
     public double getWaitTime() { return waitTime; }
+    public double getTotalWaitTime() { return totalWaitTime; }
+    public double getTravelTime() { return travelTime; }
     public TurnDirection getTurn() { return turn; }
+    public int[] getRoute() { return route.clone(); }
     public String getEmergencyType() { return emergencyType; } // Getter for specific type
 
     // --- Setters (Add if needed, e.g., for position adjustments or state changes) ---
@@ -249,6 +392,47 @@ public class Vehicle {
      public void setY(double y) { this.y = y; }
      public void setAngle(double angle) { this.angle = angle; }
      public void setMoving(boolean moving) { isMoving = moving; }
+     public void setSpeed(double speed) { this.speed = Math.max(0, speed); }
+     public void setLane(Lane lane) { this.lane = lane; }
+
+    /**
+     * Adds to the continuous time spent above the speed limit.
+     * @param deltaTime Step length (ms).
+     * @return The accumulated time (ms).
+     */
+    public double addOverSpeedTime(double deltaTime) {
+        this.overSpeedTime += deltaTime;
+        return this.overSpeedTime;
+    }
+
+    /** Back under the speed limit. */
+    public void resetOverSpeedTime() { this.overSpeedTime = 0; }
+
+    /**
+     * Marks a violation as reported for this vehicle.
+     * @return False if it had already been reported.
+     */
+    public boolean markViolation(ViolationType type) {
+        int bit = 1 << type.ordinal();
+        if ((this.reportedViolations & bit) != 0) return false;
+        this.reportedViolations |= bit;
+        return true;
+    }
+
+    /**
+     * Whether the simulator put the vehicle in a lane that doesn't serve its turn when it entered
+     * the road (Road fills other lanes when the turn lanes have no room). Such a vehicle never
+     * chose its lane, so crossing in it isn't an illegal turn.
+     */
+    public boolean isPlacedOutsideTurnLane() { return placedOutsideTurnLane; }
+
+    /** Records that the vehicle entered the road in a lane not serving its turn. */
+    public void markPlacedOutsideTurnLane() { this.placedOutsideTurnLane = true; }
+
+    /** Records a lane change and starts the cooldown before the next one. */
+    public void markLaneChange() {
+        this.laneChangeCooldown = LANE_CHANGE_COOLDOWN;
+    }
 
     // No setter for final fields like width, height
     // No setter for ID
@@ -0,0 +1,35 @@
+package com.traffixpert.TraffiXpert.model;
+
+/**
+ * Traffic rule violations with their display label and INR fine.
+ */
+public enum ViolationType {
+    RED_LIGHT("Red Light", "₹1000"),
+    ILLEGAL_LANE_CHANGE("Illegal Lane Change", "₹1500"),
+    SPEEDING("Speeding", "₹2000"),
+    STOP_SIGN("Stop Sign", "₹500"),
+    ILLEGAL_TURN("Illegal Turn", "₹1500");
+
+    private final String label;
+    private final String fine;
+
+    ViolationType(String label, String fine) {
+        this.label = label;
+        this.fine = fine;
+    }
+
+    public String getLabel() { return label; }
+    public String getFine() { return fine; }
+
+    /**
+     * Looks up a type by its label (e.g. "Red Light", as reported by the detection model).
+     * @param label The label.
+     * @return The type, or null if unknown.
+     */
+    public static ViolationType fromLabel(String label) {
+        for (ViolationType type : values()) {
+            if (type.label.equalsIgnoreCase(label)) return type;
+        }
+        return null;
+    }
+}
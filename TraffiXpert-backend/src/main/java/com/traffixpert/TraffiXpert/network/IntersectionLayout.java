@@ -0,0 +1,123 @@
+package com.traffixpert.TraffiXpert.network;
+
+import com.traffixpert.TraffiXpert.model.Lane;
+import com.traffixpert.TraffiXpert.model.RoadGeometry;
+import com.traffixpert.TraffiXpert.model.TurnDirection;
+import com.traffixpert.TraffiXpert.model.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns network links into canvas geometry for the microscopic Road model.
+ * Traffic keeps left: lanes are laid out to the left of the link centre line,
+ * median lane first.
+ */
+public final class IntersectionLayout {
+
+    private IntersectionLayout() {
+        // Utility class
+    }
+
+    /**
+     * Builds the geometry of every signalized approach into a node, ordered by signal group index.
+     * @param network The road network.
+     * @param node The intersection node.
+     * @return One RoadGeometry per approach link.
+     */
+    public static List<RoadGeometry> approachesOf(RoadNetwork network, int node) {
+        List<Integer> approachLinks = new ArrayList<>();
+        for (int i = network.inStart(node); i < network.inEnd(node); i++) {
+            int link = network.inLink(i);
+            if (network.linkApproach(link) != null && network.linkSignalGroup(link) >= 0) {
+                approachLinks.add(link);
+            }
+        }
+        approachLinks.sort(Comparator.comparingInt(network::linkSignalGroup));
+
+        List<RoadGeometry> geometries = new ArrayList<>(approachLinks.size());
+        for (int link : approachLinks) {
+            geometries.add(geometryFor(network, link));
+        }
+        return geometries;
+    }
+
+    /**
+     * Builds the geometry of one approach link.
+     * @param network The road network.
+     * @param link The approach link (must be axis-aligned).
+     * @return The geometry used to construct a Road.
+     */
+    public static RoadGeometry geometryFor(RoadNetwork network, int link) {
+        int from = network.linkFrom(link);
+        int lanes = network.linkLanes(link);
+        double angle = network.linkAngle(link);
+
+        double[] laneCoordinates = new double[lanes];
+        List<Set<TurnDirection>> laneTurns = new ArrayList<>(lanes);
+        for (int lane = 0; lane < lanes; lane++) {
+            laneCoordinates[lane] = laneCoordinate(network, link, lane);
+            Set<TurnDirection> configured = network.laneTurns(link, lane);
+            laneTurns.add(configured != null ? configured : Lane.defaultTurns(lane, lanes));
+        }
+
+        // Target lane of each outgoing movement: kerb lane for left turns, median lane for right turns
+        Map<TurnDirection, Double> turnTargets = new EnumMap<>(TurnDirection.class);
+        int to = network.linkTo(link);
+        for (int i = network.outStart(to); i < network.outEnd(to); i++) {
+            int outgoing = network.outLink(i);
+            TurnDirection turn = turnBetween(network, link, outgoing);
+            if (turn == null || turn == TurnDirection.STRAIGHT) continue;
+            int targetLane = turn == TurnDirection.LEFT ? network.linkLanes(outgoing) - 1 : 0;
+            turnTargets.put(turn, laneCoordinate(network, outgoing, targetLane));
+        }
+
+        return new RoadGeometry(
+                network.linkApproach(link),
+                network.nodeX(from),
+                network.nodeY(from),
+                angle,
+                network.linkLength(link) - network.linkStopLineOffset(link),
+                laneCoordinates,
+                laneTurns,
+                turnTargets,
+                network.getBounds(),
+                link);
+    }
+
+    /**
+     * Classifies the movement from one link onto the next by their heading difference.
+     * @param network The road network.
+     * @param inLink The incoming link.
+     * @param outLink The outgoing link (must start where inLink ends).
+     * @return The turn, or null for U-turns.
+     */
+    public static TurnDirection turnBetween(RoadNetwork network, int inLink, int outLink) {
+        double delta = ((network.linkAngle(outLink) - network.linkAngle(inLink)) % 360 + 360) % 360;
+        if (delta < 45 || delta > 315) return TurnDirection.STRAIGHT;
+        if (delta >= 45 && delta <= 135) return TurnDirection.RIGHT;
+        if (delta >= 225 && delta <= 315) return TurnDirection.LEFT;
+        return null;
+    }
+
+    /**
+     * Lateral canvas coordinate of a lane (x for vertical links, y for horizontal links).
+     * The vehicle half-width is subtracted because vehicle positions are their top-left corner.
+     */
+    private static double laneCoordinate(RoadNetwork network, int link, int lane) {
+        int from = network.linkFrom(link);
+        double offset = (lane + 0.5) * network.linkLaneWidth(link);
+        // Left-hand normal of the heading
+        double normal = Math.toRadians(network.linkAngle(link) - 90);
+        double normalX = Math.round(Math.sin(normal));
+        double normalY = Math.round(-Math.cos(normal));
+        boolean vertical = normalY == 0;
+        return vertical
+                ? network.nodeX(from) + normalX * offset - Vehicle.VEHICLE_WIDTH / 2.0
+                : network.nodeY(from) + normalY * offset - Vehicle.VEHICLE_WIDTH / 2.0;
+    }
+}
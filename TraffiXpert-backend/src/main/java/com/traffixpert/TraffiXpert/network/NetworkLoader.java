@@ -0,0 +1,351 @@
+package com.traffixpert.TraffiXpert.network;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.traffixpert.TraffiXpert.model.Bounds;
+import com.traffixpert.TraffiXpert.model.RoadDirection;
+import com.traffixpert.TraffiXpert.model.TurnDirection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads a RoadNetwork from a JSON network file.
+ * The file is read token by token with Jackson's streaming parser (no tree model in memory),
+ * and ids are resolved to dense indexes once at the end, so large networks load quickly.
+ *
+ * File layout:
+ * <pre>
+ * {
+ *   "name": "...",
+ *   "bounds": { "minX": -30, "minY": -30, "maxX": 430, "maxY": 430 },
+ *   "focusNode": "C",
+ *   "nodes": [ { "id": "C", "x": 200, "y": 200, "signalized": true }, ... ],
+ *   "links": [ { "id": "N-C", "from": "N", "to": "C", "lanes": 2, "laneWidth": 20,
+ *                "speedLimit": 0.07, "stopLineOffset": 40, "approach": "NORTH",
+ *                "laneTurns": [["RIGHT", "STRAIGHT"], ["LEFT", "STRAIGHT"]] }, ... ],
+ *   "signalGroups": [ { "node": "C", "index": 0, "links": ["N-C"] }, ... ]
+ * }
+ * </pre>
+ * Only "id", "from" and "to" are required on links; "length" defaults to the distance between the nodes.
+ */
+public final class NetworkLoader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // --- Defaults for optional link attributes ---
+    private static final int DEFAULT_LANES = 1;
+    private static final double DEFAULT_LANE_WIDTH = 20.0; // px
+    private static final double DEFAULT_SPEED_LIMIT = 0.07; // px/ms
+
+    private NetworkLoader() {
+        // Utility class
+    }
+
+    // --- Parse-time holders, compacted into arrays by build() ---
+    private static final class NodeSpec {
+        String id;
+        double x;
+        double y;
+        boolean signalized;
+    }
+
+    private static final class LinkSpec {
+        String id;
+        String from;
+        String to;
+        double length = Double.NaN;
+        int lanes = DEFAULT_LANES;
+        double laneWidth = DEFAULT_LANE_WIDTH;
+        double speedLimit = DEFAULT_SPEED_LIMIT;
+        double stopLineOffset = 0;
+        String approach; // Resolved to RoadDirection once the id is known (see readLink)
+        List<List<String>> laneTurns;
+    }
+
+    private static final class SignalGroupSpec {
+        String node;
+        int index;
+        List<String> links = new ArrayList<>();
+    }
+
+    /**
+     * Parses a network file.
+     * @param input The JSON stream (closed by this method).
+     * @return The compact network.
+     * @throws IOException If the file can't be read or is malformed.
+     */
+    public static RoadNetwork load(InputStream input) throws IOException {
+        String name = "network";
+        Bounds bounds = null;
+        String focusNode = null;
+        List<NodeSpec> nodes = new ArrayList<>();
+        List<LinkSpec> links = new ArrayList<>();
+        List<SignalGroupSpec> groups = new ArrayList<>();
+
+        try (JsonParser parser = JSON_FACTORY.createParser(input)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "name" -> name = parser.getValueAsString();
+                    case "focusNode" -> focusNode = parser.getValueAsString();
+                    case "bounds" -> bounds = readBounds(parser);
+                    case "nodes" -> {
+                        expect(parser, value, JsonToken.START_ARRAY);
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            nodes.add(readNode(parser));
+                        }
+                    }
+                    case "links" -> {
+                        expect(parser, value, JsonToken.START_ARRAY);
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            links.add(readLink(parser));
+                        }
+                    }
+                    case "signalGroups" -> {
+                        expect(parser, value, JsonToken.START_ARRAY);
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            groups.add(readSignalGroup(parser));
+                        }
+                    }
+                    default -> parser.skipChildren(); // Unknown section
+                }
+            }
+        }
+        return build(name, bounds, focusNode, nodes, links, groups);
+    }
+
+    private static Bounds readBounds(JsonParser parser) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+        double minX = 0, minY = 0, maxX = 0, maxY = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "minX" -> minX = parser.getDoubleValue();
+                case "minY" -> minY = parser.getDoubleValue();
+                case "maxX" -> maxX = parser.getDoubleValue();
+                case "maxY" -> maxY = parser.getDoubleValue();
+                default -> parser.skipChildren();
+            }
+        }
+        return new Bounds(minX, minY, maxX, maxY);
+    }
+
+    private static NodeSpec readNode(JsonParser parser) throws IOException {
+        NodeSpec node = new NodeSpec();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> node.id = parser.getValueAsString();
+                case "x" -> node.x = parser.getDoubleValue();
+                case "y" -> node.y = parser.getDoubleValue();
+                case "signalized" -> node.signalized = parser.getBooleanValue();
+                default -> parser.skipChildren();
+            }
+        }
+        if (node.id == null) throw new IOException("Node without id at " + parser.currentLocation());
+        if (!Double.isFinite(node.x) || !Double.isFinite(node.y)) {
+            throw new IOException("Node " + node.id + " has an invalid position (" + node.x + ", " + node.y + ")");
+        }
+        return node;
+    }
+
+    private static LinkSpec readLink(JsonParser parser) throws IOException {
+        LinkSpec link = new LinkSpec();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> link.id = parser.getValueAsString();
+                case "from" -> link.from = parser.getValueAsString();
+                case "to" -> link.to = parser.getValueAsString();
+                case "length" -> link.length = parser.getDoubleValue();
+                case "lanes" -> link.lanes = parser.getIntValue();
+                case "laneWidth" -> link.laneWidth = parser.getDoubleValue();
+                case "speedLimit" -> link.speedLimit = parser.getDoubleValue();
+                case "stopLineOffset" -> link.stopLineOffset = parser.getDoubleValue();
+                case "approach" -> link.approach = parser.getValueAsString();
+                case "laneTurns" -> {
+                    expect(parser, value, JsonToken.START_ARRAY);
+                    link.laneTurns = new ArrayList<>();
+                    while (parser.nextToken() == JsonToken.START_ARRAY) {
+                        List<String> turns = new ArrayList<>();
+                        while (parser.nextToken() == JsonToken.VALUE_STRING) {
+                            turns.add(parser.getText());
+                        }
+                        link.laneTurns.add(turns);
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        if (link.id == null || link.from == null || link.to == null) {
+            throw new IOException("Link needs id, from and to at " + parser.currentLocation());
+        }
+        if (link.lanes < 1) throw new IOException("Link " + link.id + " needs at least one lane");
+        // Routing and the car-following model divide by these
+        if (!(link.speedLimit > 0) || Double.isInfinite(link.speedLimit)) {
+            throw new IOException("Link " + link.id + " needs a positive speedLimit, got " + link.speedLimit);
+        }
+        if (!Double.isNaN(link.length) && !(link.length > 0 && Double.isFinite(link.length))) {
+            throw new IOException("Link " + link.id + " needs a positive length, got " + link.length);
+        }
+        if (!(link.laneWidth > 0) || Double.isInfinite(link.laneWidth)) {
+            throw new IOException("Link " + link.id + " needs a positive laneWidth, got " + link.laneWidth);
+        }
+        if (link.laneTurns != null && link.laneTurns.size() != link.lanes) {
+            throw new IOException("Link " + link.id + " has " + link.lanes + " lanes but " + link.laneTurns.size() + " laneTurns entries");
+        }
+        return link;
+    }
+
+    /** Resolves an enum constant of a link attribute, failing with the link's id. */
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String name, LinkSpec link, String field) throws IOException {
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IOException("Link " + link.id + " has an invalid " + field + ": " + name, e);
+        }
+    }
+
+    private static SignalGroupSpec readSignalGroup(JsonParser parser) throws IOException {
+        SignalGroupSpec group = new SignalGroupSpec();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "node" -> group.node = parser.getValueAsString();
+                case "index" -> group.index = parser.getIntValue();
+                case "links" -> {
+                    expect(parser, value, JsonToken.START_ARRAY);
+                    while (parser.nextToken() == JsonToken.VALUE_STRING) {
+                        group.links.add(parser.getText());
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return group;
+    }
+
+    /** Resolves ids to indexes and packs everything into the array-based RoadNetwork. */
+    private static RoadNetwork build(String name, Bounds bounds, String focusNodeId,
+                                     List<NodeSpec> nodes, List<LinkSpec> links, List<SignalGroupSpec> groups) throws IOException {
+        int nodeCount = nodes.size();
+        String[] nodeIds = new String[nodeCount];
+        double[] nodeX = new double[nodeCount];
+        double[] nodeY = new double[nodeCount];
+        boolean[] signalized = new boolean[nodeCount];
+        Map<String, Integer> nodeIndex = new HashMap<>(nodeCount * 2);
+        for (int i = 0; i < nodeCount; i++) {
+            NodeSpec node = nodes.get(i);
+            if (nodeIndex.put(node.id, i) != null) throw new IOException("Duplicate node id: " + node.id);
+            nodeIds[i] = node.id;
+            nodeX[i] = node.x;
+            nodeY[i] = node.y;
+            signalized[i] = node.signalized;
+        }
+
+        int linkCount = links.size();
+        String[] linkIds = new String[linkCount];
+        int[] linkFrom = new int[linkCount];
+        int[] linkTo = new int[linkCount];
+        double[] linkLength = new double[linkCount];
+        int[] linkLanes = new int[linkCount];
+        double[] linkLaneWidth = new double[linkCount];
+        double[] linkSpeedLimit = new double[linkCount];
+        double[] linkStopLineOffset = new double[linkCount];
+        RoadDirection[] linkApproach = new RoadDirection[linkCount];
+        int[] linkSignalGroup = new int[linkCount];
+        int[] laneTurnOffsets = new int[linkCount];
+        Map<String, Integer> linkIndex = new HashMap<>(linkCount * 2);
+
+        int totalLanes = 0;
+        for (LinkSpec link : links) totalLanes += link.lanes;
+        byte[] laneTurnMasks = new byte[totalLanes];
+
+        int laneCursor = 0;
+        for (int i = 0; i < linkCount; i++) {
+            LinkSpec link = links.get(i);
+            if (linkIndex.put(link.id, i) != null) throw new IOException("Duplicate link id: " + link.id);
+            Integer from = nodeIndex.get(link.from);
+            Integer to = nodeIndex.get(link.to);
+            if (from == null || to == null) throw new IOException("Link " + link.id + " references an unknown node");
+            linkIds[i] = link.id;
+            linkFrom[i] = from;
+            linkTo[i] = to;
+            linkLength[i] = Double.isNaN(link.length)
+                    ? Math.hypot(nodeX[to] - nodeX[from], nodeY[to] - nodeY[from])
+                    : link.length;
+            if (!(linkLength[i] > 0)) {
+                throw new IOException("Link " + link.id + " has zero length (its nodes coincide and no length is given)");
+            }
+            linkLanes[i] = link.lanes;
+            linkLaneWidth[i] = link.laneWidth;
+            linkSpeedLimit[i] = link.speedLimit;
+            linkStopLineOffset[i] = link.stopLineOffset;
+            linkApproach[i] = link.approach == null ? null : enumValue(RoadDirection.class, link.approach, link, "approach");
+            linkSignalGroup[i] = -1;
+            laneTurnOffsets[i] = laneCursor;
+            if (link.laneTurns != null) {
+                for (int lane = 0; lane < link.lanes; lane++) {
+                    byte mask = 0;
+                    for (String turn : link.laneTurns.get(lane)) {
+                        mask |= (byte) (1 << enumValue(TurnDirection.class, turn, link, "lane turn").ordinal());
+                    }
+                    laneTurnMasks[laneCursor + lane] = mask;
+                }
+            }
+            laneCursor += link.lanes;
+        }
+
+        for (SignalGroupSpec group : groups) {
+            for (String linkId : group.links) {
+                Integer link = linkIndex.get(linkId);
+                if (link == null) throw new IOException("Signal group " + group.index + " references unknown link " + linkId);
+                if (group.node != null && !group.node.equals(nodeIds[linkTo[link]])) {
+                    throw new IOException("Link " + linkId + " doesn't enter node " + group.node);
+                }
+                linkSignalGroup[link] = group.index;
+            }
+        }
+
+        if (bounds == null) {
+            bounds = new Bounds(
+                    Arrays.stream(nodeX).min().orElse(0), Arrays.stream(nodeY).min().orElse(0),
+                    Arrays.stream(nodeX).max().orElse(0), Arrays.stream(nodeY).max().orElse(0));
+        }
+        int focusNode = -1;
+        if (focusNodeId != null) {
+            Integer index = nodeIndex.get(focusNodeId);
+            if (index == null) throw new IOException("Unknown focus node: " + focusNodeId);
+            focusNode = index;
+        } else {
+            // Default to the first signalized node
+            for (int i = 0; i < nodeCount && focusNode < 0; i++) {
+                if (signalized[i]) focusNode = i;
+            }
+        }
+
+        return new RoadNetwork(name, bounds, focusNode, nodeIds, nodeX, nodeY, signalized,
+                linkIds, linkFrom, linkTo, linkLength, linkLanes, linkLaneWidth, linkSpeedLimit,
+                linkStopLineOffset, linkApproach, linkSignalGroup, laneTurnOffsets, laneTurnMasks,
+                nodeIndex, linkIndex);
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but found " + actual + " at " + parser.currentLocation());
+        }
+    }
+}
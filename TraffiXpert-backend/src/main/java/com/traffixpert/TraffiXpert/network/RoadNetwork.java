@@ -0,0 +1,176 @@
+package com.traffixpert.TraffiXpert.network;
+
+import com.traffixpert.TraffiXpert.model.Bounds;
+import com.traffixpert.TraffiXpert.model.RoadDirection;
+import com.traffixpert.TraffiXpert.model.TurnDirection;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, index-based road network.
+ * Nodes (intersections and boundary points) and directed links (roads) are stored as parallel
+ * primitive arrays, with out/in adjacency in compressed sparse row (CSR) form, so a city-scale
+ * network with tens of thousands of links stays compact and cache friendly.
+ * Instances are built by NetworkLoader.
+ */
+public final class RoadNetwork {
+
+    private final String name;
+    private final Bounds bounds;
+    private final int focusNode;
+
+    // --- Nodes ---
+    private final String[] nodeIds;
+    private final double[] nodeX;
+    private final double[] nodeY;
+    private final boolean[] signalized;
+
+    // --- Links ---
+    private final String[] linkIds;
+    private final int[] linkFrom;
+    private final int[] linkTo;
+    private final double[] linkLength;
+    private final int[] linkLanes;
+    private final double[] linkLaneWidth;
+    private final double[] linkSpeedLimit;
+    private final double[] linkStopLineOffset;
+    private final RoadDirection[] linkApproach; // null for links that aren't named approaches
+    private final int[] linkSignalGroup; // -1 if the link isn't controlled by a signal
+    private final int[] laneTurnOffsets; // CSR offsets into laneTurnMasks, one entry per lane
+    private final byte[] laneTurnMasks; // Bit per TurnDirection ordinal, 0 = network default
+
+    // --- Adjacency (CSR) ---
+    private final int[] outOffsets;
+    private final int[] outLinks;
+    private final int[] inOffsets;
+    private final int[] inLinks;
+
+    // --- Lookups by id ---
+    private final Map<String, Integer> nodeIndex;
+    private final Map<String, Integer> linkIndex;
+
+    RoadNetwork(String name, Bounds bounds, int focusNode,
+                String[] nodeIds, double[] nodeX, double[] nodeY, boolean[] signalized,
+                String[] linkIds, int[] linkFrom, int[] linkTo, double[] linkLength, int[] linkLanes,
+                double[] linkLaneWidth, double[] linkSpeedLimit, double[] linkStopLineOffset,
+                RoadDirection[] linkApproach, int[] linkSignalGroup, int[] laneTurnOffsets, byte[] laneTurnMasks,
+                Map<String, Integer> nodeIndex, Map<String, Integer> linkIndex) {
+        this.name = name;
+        this.bounds = bounds;
+        this.focusNode = focusNode;
+        this.nodeIds = nodeIds;
+        this.nodeX = nodeX;
+        this.nodeY = nodeY;
+        this.signalized = signalized;
+        this.linkIds = linkIds;
+        this.linkFrom = linkFrom;
+        this.linkTo = linkTo;
+        this.linkLength = linkLength;
+        this.linkLanes = linkLanes;
+        this.linkLaneWidth = linkLaneWidth;
+        this.linkSpeedLimit = linkSpeedLimit;
+        this.linkStopLineOffset = linkStopLineOffset;
+        this.linkApproach = linkApproach;
+        this.linkSignalGroup = linkSignalGroup;
+        this.laneTurnOffsets = laneTurnOffsets;
+        this.laneTurnMasks = laneTurnMasks;
+        this.nodeIndex = Collections.unmodifiableMap(nodeIndex);
+        this.linkIndex = Collections.unmodifiableMap(linkIndex);
+
+        int nodeCount = nodeIds.length;
+        this.outOffsets = new int[nodeCount + 1];
+        this.inOffsets = new int[nodeCount + 1];
+        this.outLinks = new int[linkIds.length];
+        this.inLinks = new int[linkIds.length];
+        buildAdjacency(linkFrom, outOffsets, outLinks);
+        buildAdjacency(linkTo, inOffsets, inLinks);
+    }
+
+    /** Counting sort of links by endpoint into CSR arrays. */
+    private static void buildAdjacency(int[] endpoint, int[] offsets, int[] links) {
+        for (int node : endpoint) {
+            offsets[node + 1]++;
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        int[] cursor = offsets.clone();
+        for (int link = 0; link < endpoint.length; link++) {
+            links[cursor[endpoint[link]]++] = link;
+        }
+    }
+
+    // --- Network ---
+    public String getName() { return name; }
+    public Bounds getBounds() { return bounds; }
+    public int getFocusNode() { return focusNode; }
+    public int nodeCount() { return nodeIds.length; }
+    public int linkCount() { return linkIds.length; }
+
+    // --- Nodes ---
+    public String nodeId(int node) { return nodeIds[node]; }
+    public double nodeX(int node) { return nodeX[node]; }
+    public double nodeY(int node) { return nodeY[node]; }
+    public boolean isSignalized(int node) { return signalized[node]; }
+
+    /** @return Node index for an id, or -1 if unknown. */
+    public int nodeIndex(String id) {
+        return nodeIndex.getOrDefault(id, -1);
+    }
+
+    // --- Links ---
+    public String linkId(int link) { return linkIds[link]; }
+    public int linkFrom(int link) { return linkFrom[link]; }
+    public int linkTo(int link) { return linkTo[link]; }
+    public double linkLength(int link) { return linkLength[link]; }
+    public int linkLanes(int link) { return linkLanes[link]; }
+    public double linkLaneWidth(int link) { return linkLaneWidth[link]; }
+    public double linkSpeedLimit(int link) { return linkSpeedLimit[link]; }
+    public double linkStopLineOffset(int link) { return linkStopLineOffset[link]; }
+    public RoadDirection linkApproach(int link) { return linkApproach[link]; }
+    public int linkSignalGroup(int link) { return linkSignalGroup[link]; }
+
+    /** @return Link index for an id, or -1 if unknown. */
+    public int linkIndex(String id) {
+        return linkIndex.getOrDefault(id, -1);
+    }
+
+    /**
+     * Heading of a link in degrees (0 = up, 90 = right), from its end node coordinates.
+     * @param link The link index.
+     * @return Angle in [0, 360).
+     */
+    public double linkAngle(int link) {
+        double dx = nodeX[linkTo[link]] - nodeX[linkFrom[link]];
+        double dy = nodeY[linkTo[link]] - nodeY[linkFrom[link]];
+        double angle = Math.toDegrees(Math.atan2(dx, -dy));
+        return ((angle % 360) + 360) % 360;
+    }
+
+    /**
+     * Turns allowed from a lane, as configured in the network file.
+     * @param link The link index.
+     * @param lane Lane index from the median.
+     * @return The configured turns, or null if the file didn't specify any for this link.
+     */
+    public Set<TurnDirection> laneTurns(int link, int lane) {
+        int mask = laneTurnMasks[laneTurnOffsets[link] + lane];
+        if (mask == 0) return null;
+        EnumSet<TurnDirection> turns = EnumSet.noneOf(TurnDirection.class);
+        for (TurnDirection turn : TurnDirection.values()) {
+            if ((mask & (1 << turn.ordinal())) != 0) turns.add(turn);
+        }
+        return turns;
+    }
+
+    // --- Adjacency ---
+    public int outStart(int node) { return outOffsets[node]; }
+    public int outEnd(int node) { return outOffsets[node + 1]; }
+    public int outLink(int position) { return outLinks[position]; }
+    public int inStart(int node) { return inOffsets[node]; }
+    public int inEnd(int node) { return inOffsets[node + 1]; }
+    public int inLink(int position) { return inLinks[position]; }
+}
@@ -0,0 +1,329 @@
+package com.traffixpert.TraffiXpert.network;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shortest-travel-time routing over a RoadNetwork.
+ * Uses A* on the CSR adjacency arrays with primitive search state from a small pool (requests
+ * run on short-lived virtual threads, so per-thread state would be allocated per request), and
+ * caches routes per origin-destination pair so repeated trips cost a single map lookup.
+ * Link costs start at free-flow travel time and can be re-costed from observed link speeds;
+ * re-costing swaps in a new cost array together with a new, empty cache, and a search stores its
+ * route in the cache of the costs it searched, so no route from old costs survives a recost.
+ * A planner can be forked for a what-if simulation; the fork shares the cost array (never changed
+ * in place) and the search state pool, and starts with an empty cache.
+ * Thread-safe: routes may be requested from any thread.
+ */
+public class RoutePlanner {
+
+    private static final int MAX_CACHED_ROUTES = 100_000;
+    private static final double MIN_OBSERVED_SPEED = 0.005; // px/ms, floor for congested links
+    private static final double SPEED_SMOOTHING = 0.2; // EWMA weight of a new speed observation
+    private static final int[] NO_ROUTE = new int[0];
+    private static final int POOLED_SEARCH_STATES = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private final RoadNetwork network;
+    private final double maxSpeed; // Fastest speed limit
+    private final double heuristicScale; // Shortest link length / straight-line distance (at most 1)
+    private final int[] terminalNodes; // Nodes where trips start and end (network boundary)
+
+    private volatile Costs costs; // Link costs and the routes computed with them, swapped together
+    private final double[] observedSpeed; // Smoothed live speed per link (px/ms), NaN if never observed
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    private final BlockingQueue<SearchState> searchStates; // Idle search states; extra ones are dropped
+
+    /** Travel time per link (ms, never changed in place) and the route cache valid for it. */
+    private record Costs(double[] linkCost, ConcurrentHashMap<Long, int[]> routes) {
+        Costs(double[] linkCost) {
+            this(linkCost, new ConcurrentHashMap<>());
+        }
+    }
+
+    public RoutePlanner(RoadNetwork network) {
+        this.network = network;
+        int links = network.linkCount();
+        double fastest = 0;
+        double scale = 1.0;
+        double[] cost = new double[links];
+        for (int link = 0; link < links; link++) {
+            fastest = Math.max(fastest, network.linkSpeedLimit(link));
+            cost[link] = network.linkLength(link) / network.linkSpeedLimit(link);
+            int from = network.linkFrom(link);
+            int to = network.linkTo(link);
+            double straight = Math.hypot(network.nodeX(to) - network.nodeX(from), network.nodeY(to) - network.nodeY(from));
+            if (straight > 0) scale = Math.min(scale, network.linkLength(link) / straight);
+        }
+        this.maxSpeed = fastest;
+        this.heuristicScale = scale;
+        this.costs = new Costs(cost);
+        this.observedSpeed = new double[links];
+        Arrays.fill(this.observedSpeed, Double.NaN);
+        this.terminalNodes = findTerminalNodes(network);
+        this.searchStates = new ArrayBlockingQueue<>(POOLED_SEARCH_STATES);
+    }
+
+    /** Fork: shares the immutable parts and the search state pool, copies the speed observations. */
+    private RoutePlanner(RoutePlanner source) {
+        this.network = source.network;
+        this.maxSpeed = source.maxSpeed;
+        this.heuristicScale = source.heuristicScale;
+        this.terminalNodes = source.terminalNodes;
+        this.costs = new Costs(source.costs.linkCost());
+        this.observedSpeed = source.observedSpeed.clone();
+        this.searchStates = source.searchStates;
+    }
+
+    /**
+     * Planner for a forked simulation: same link costs and speed observations from here on
+     * independent. Its cache starts empty; routes it computes are the ones cached here, since
+     * both search the same cost array until one of them re-costs.
+     * @return The fork.
+     */
+    public RoutePlanner fork() {
+        return new RoutePlanner(this);
+    }
+
+    /** Boundary nodes: connected to at most one other node. */
+    private static int[] findTerminalNodes(RoadNetwork network) {
+        List<Integer> terminals = new ArrayList<>();
+        for (int node = 0; node < network.nodeCount(); node++) {
+            Set<Integer> neighbours = new HashSet<>();
+            for (int i = network.outStart(node); i < network.outEnd(node); i++) {
+                neighbours.add(network.linkTo(network.outLink(i)));
+            }
+            for (int i = network.inStart(node); i < network.inEnd(node); i++) {
+                neighbours.add(network.linkFrom(network.inLink(i)));
+            }
+            if (neighbours.size() <= 1) terminals.add(node);
+        }
+        return terminals.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Route for a vehicle that is already on a link.
+     * @param currentLink The link the vehicle is on (first element of the route).
+     * @param destination Destination node.
+     * @return Link sequence starting with currentLink, or an empty array if unreachable.
+     */
+    public int[] route(int currentLink, int destination) {
+        long key = ((long) currentLink << 32) | (destination & 0xffffffffL);
+        Costs current = this.costs; // One snapshot: the route is cached only with the costs it was found with
+        int[] cached = current.routes().get(key);
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return cached;
+        }
+        cacheMisses.incrementAndGet();
+
+        int[] tail = search(current.linkCost(), network.linkTo(currentLink), destination, network.linkFrom(currentLink));
+        int[] route;
+        if (tail == null) {
+            route = NO_ROUTE;
+        } else {
+            route = new int[tail.length + 1];
+            route[0] = currentLink;
+            System.arraycopy(tail, 0, route, 1, tail.length);
+        }
+        if (current.routes().size() >= MAX_CACHED_ROUTES) {
+            current.routes().clear(); // Simple bound; hot pairs are recomputed on the next request
+        }
+        current.routes().put(key, route); // Dropped with the costs if a recost happened meanwhile
+        return route;
+    }
+
+    /**
+     * A* from origin to destination over link travel times.
+     * @param cost Travel time per link (ms).
+     * @param avoidNode Node the first link must not lead back to (no immediate U-turns), or -1.
+     * @return The link sequence, or null if unreachable.
+     */
+    private int[] search(double[] cost, int origin, int destination, int avoidNode) {
+        if (origin == destination) return new int[0];
+        SearchState state = searchStates.poll();
+        if (state == null) state = new SearchState(network.nodeCount());
+        try {
+            return search(state, cost, origin, destination, avoidNode);
+        } finally {
+            searchStates.offer(state); // Kept for the next search unless the pool is full
+        }
+    }
+
+    private int[] search(SearchState state, double[] cost, int origin, int destination, int avoidNode) {
+        int generation = state.nextGeneration();
+        double targetX = network.nodeX(destination);
+        double targetY = network.nodeY(destination);
+
+        state.open(origin, 0.0, generation);
+        state.push(origin, heuristic(origin, targetX, targetY));
+
+        while (state.heapSize > 0) {
+            int node = state.pop();
+            if (state.closed[node] == generation) continue; // Stale heap entry
+            state.closed[node] = generation;
+            if (node == destination) {
+                return state.path(network, origin, destination);
+            }
+            double base = state.distance[node];
+            for (int i = network.outStart(node); i < network.outEnd(node); i++) {
+                int link = network.outLink(i);
+                int next = network.linkTo(link);
+                if (node == origin && next == avoidNode) continue;
+                if (state.closed[next] == generation) continue;
+                double candidate = base + cost[link];
+                if (state.seen[next] != generation || candidate < state.distance[next]) {
+                    state.open(next, candidate, generation);
+                    state.parentLink[next] = link;
+                    state.push(next, candidate + heuristic(next, targetX, targetY));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lower bound of the travel time to the target: the straight line at the fastest speed limit,
+     * shortened by heuristicScale because a link may be declared shorter than the distance
+     * between its nodes. Link costs never drop below length / speed limit, so it stays admissible.
+     */
+    private double heuristic(int node, double targetX, double targetY) {
+        return Math.hypot(network.nodeX(node) - targetX, network.nodeY(node) - targetY) * heuristicScale / maxSpeed;
+    }
+
+    /**
+     * Feeds a live speed observation for a link (e.g. mean speed of the vehicles on it).
+     * Called from the simulation thread; only takes effect at the next recost().
+     * @param link The link index.
+     * @param speed Observed speed (px/ms).
+     */
+    public void observeLinkSpeed(int link, double speed) {
+        double previous = observedSpeed[link];
+        observedSpeed[link] = Double.isNaN(previous) ? speed : previous + SPEED_SMOOTHING * (speed - previous);
+    }
+
+    /**
+     * Recomputes link travel times from the smoothed observed speeds and drops cached routes.
+     * Links without observations keep their free-flow travel time.
+     */
+    public void recost() {
+        double[] cost = new double[network.linkCount()];
+        for (int link = 0; link < cost.length; link++) {
+            double speed = observedSpeed[link];
+            double freeFlow = network.linkSpeedLimit(link);
+            double effective = Double.isNaN(speed) ? freeFlow : Math.min(freeFlow, Math.max(speed, MIN_OBSERVED_SPEED));
+            cost[link] = network.linkLength(link) / effective;
+        }
+        this.costs = new Costs(cost); // Routes being searched with the old costs land in the old cache
+    }
+
+    /**
+     * Current travel time estimate for a link.
+     * @param link The link index.
+     * @return Travel time (ms).
+     */
+    public double linkTravelTime(int link) {
+        return costs.linkCost()[link];
+    }
+
+    public int[] getTerminalNodes() { return terminalNodes.clone(); }
+    public long getCacheHits() { return cacheHits.get(); }
+    public long getCacheMisses() { return cacheMisses.get(); }
+    public int getCachedRouteCount() { return costs.routes().size(); }
+
+    /**
+     * A* state, used by one search at a time. Arrays are sized to the network once and "cleared" by bumping a
+     * generation counter, so a search allocates nothing but the resulting route.
+     */
+    private static final class SearchState {
+        final double[] distance;
+        final int[] parentLink;
+        final int[] seen;
+        final int[] closed;
+        int generation;
+
+        // Binary min-heap of (priority, node) with lazy deletion
+        int[] heapNodes = new int[64];
+        double[] heapKeys = new double[64];
+        int heapSize;
+
+        SearchState(int nodeCount) {
+            distance = new double[nodeCount];
+            parentLink = new int[nodeCount];
+            seen = new int[nodeCount];
+            closed = new int[nodeCount];
+        }
+
+        int nextGeneration() {
+            heapSize = 0;
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                Arrays.fill(closed, 0);
+                generation = 1;
+            }
+            return generation;
+        }
+
+        void open(int node, double dist, int gen) {
+            distance[node] = dist;
+            seen[node] = gen;
+            parentLink[node] = -1;
+        }
+
+        void push(int node, double key) {
+            if (heapSize == heapNodes.length) {
+                heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+                heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+            }
+            int i = heapSize++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heapKeys[parent] <= key) break;
+                heapNodes[i] = heapNodes[parent];
+                heapKeys[i] = heapKeys[parent];
+                i = parent;
+            }
+            heapNodes[i] = node;
+            heapKeys[i] = key;
+        }
+
+        int pop() {
+            int top = heapNodes[0];
+            int lastNode = heapNodes[--heapSize];
+            double lastKey = heapKeys[heapSize];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) break;
+                if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) child++;
+                if (heapKeys[child] >= lastKey) break;
+                heapNodes[i] = heapNodes[child];
+                heapKeys[i] = heapKeys[child];
+                i = child;
+            }
+            heapNodes[i] = lastNode;
+            heapKeys[i] = lastKey;
+            return top;
+        }
+
+        int[] path(RoadNetwork network, int origin, int destination) {
+            int length = 0;
+            for (int node = destination; node != origin; node = network.linkFrom(parentLink[node])) {
+                length++;
+            }
+            int[] links = new int[length];
+            for (int node = destination; node != origin; node = network.linkFrom(parentLink[node])) {
+                links[--length] = parentLink[node];
+            }
+            return links;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.traffixpert.TraffiXpert.recording;
+
+import com.traffixpert.TraffiXpert.model.Vehicle;
+import com.traffixpert.TraffiXpert.model.VehicleType;
+
+/**
+ * Fixed-capacity columnar buffer of trajectory samples.
+ * Filled by the simulation thread (plain array stores, no allocation), then handed to the
+ * writer thread as a whole and returned to the recorder's pool once written.
+ * Positions and speeds are stored quantized as ints so the columns delta-encode well.
+ */
+final class TrajectoryChunk {
+
+    // --- Quantization of the stored columns ---
+    static final double POSITION_SCALE = 100.0; // 0.01 px
+    static final double SPEED_SCALE = 10_000.0; // 0.0001 px/ms
+
+    // --- State flags ---
+    static final int STATE_MOVING = 1;
+    static final int STATE_PASSED_STOP_LINE = 2;
+    static final int STATE_TURNED = 4;
+    static final int STATE_EMERGENCY = 8;
+
+    final long[] vehicleId;
+    final long[] time; // Simulated time (ms)
+    final int[] x;
+    final int[] y;
+    final int[] speed;
+    final byte[] state; // STATE_* flags
+    final byte[] road; // RoadDirection ordinal of the approach
+    int size;
+
+    TrajectoryChunk(int capacity) {
+        vehicleId = new long[capacity];
+        time = new long[capacity];
+        x = new int[capacity];
+        y = new int[capacity];
+        speed = new int[capacity];
+        state = new byte[capacity];
+        road = new byte[capacity];
+    }
+
+    boolean isFull() {
+        return size == vehicleId.length;
+    }
+
+    void append(Vehicle vehicle, long timeMillis) {
+        int i = size++;
+        vehicleId[i] = vehicle.getId();
+        time[i] = timeMillis;
+        x[i] = (int) Math.round(vehicle.getX() * POSITION_SCALE);
+        y[i] = (int) Math.round(vehicle.getY() * POSITION_SCALE);
+        speed[i] = (int) Math.round(vehicle.getSpeed() * SPEED_SCALE);
+        state[i] = (byte) stateOf(vehicle);
+        road[i] = (byte) vehicle.getRoad().getName().ordinal();
+    }
+
+    private static int stateOf(Vehicle vehicle) {
+        int flags = 0;
+        if (vehicle.isMoving()) flags |= STATE_MOVING;
+        if (vehicle.hasPassedStopLine()) flags |= STATE_PASSED_STOP_LINE;
+        if (vehicle.hasTurned()) flags |= STATE_TURNED;
+        if (vehicle.getType() == VehicleType.EMERGENCY) flags |= STATE_EMERGENCY;
+        return flags;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
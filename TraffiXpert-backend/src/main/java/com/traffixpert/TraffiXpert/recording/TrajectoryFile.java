@@ -0,0 +1,209 @@
+package com.traffixpert.TraffiXpert.recording;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Encoding of trajectory files.
+ *
+ * Columnar format (.txtr), a simple Parquet-like layout:
+ *   header: "TXTR" + format version byte
+ *   then one block per chunk: varint rowCount, then 7 columns in a fixed order
+ *   (vehicleId, time, x, y, speed, state, road), each as varint byteLength + bytes.
+ * Within a block rows are sorted by vehicle, then time, so every column is a sequence of small
+ * changes along one trajectory; each value is stored as the zig-zag varint of its difference to
+ * the previous row. x/y are in 0.01 px, speed in 0.0001 px/ms (see TrajectoryChunk).
+ * A column can be skipped by its byte length without decoding it.
+ *
+ * CSV format (.csv): header line, then one row per sample in recording order.
+ */
+public final class TrajectoryFile {
+
+    private static final byte[] MAGIC = {'T', 'X', 'T', 'R'};
+    private static final int VERSION = 1;
+    private static final int COLUMN_COUNT = 7;
+    static final String CSV_HEADER = "vehicle_id,t_ms,x,y,speed,state,road";
+
+    private TrajectoryFile() {}
+
+    /** Receives decoded rows. */
+    @FunctionalInterface
+    public interface RowVisitor {
+        void row(long vehicleId, long timeMillis, double x, double y, double speed, int state, int road);
+    }
+
+    // --- Columnar ---
+
+    static void writeHeader(OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+    }
+
+    /**
+     * Encodes one chunk as a block.
+     * @param chunk The samples.
+     * @param out Destination stream.
+     * @param buffer Scratch buffer, reused across calls by the writer thread.
+     */
+    static void writeBlock(TrajectoryChunk chunk, OutputStream out, VarintBuffer buffer) throws IOException {
+        int n = chunk.size;
+        int[] order = sortedByVehicle(chunk);
+
+        buffer.reset();
+        buffer.writeVarLong(n);
+        out.write(buffer.array(), 0, buffer.size());
+
+        writeColumn(out, buffer, order, n, i -> chunk.vehicleId[i]);
+        writeColumn(out, buffer, order, n, i -> chunk.time[i]);
+        writeColumn(out, buffer, order, n, i -> chunk.x[i]);
+        writeColumn(out, buffer, order, n, i -> chunk.y[i]);
+        writeColumn(out, buffer, order, n, i -> chunk.speed[i]);
+        writeColumn(out, buffer, order, n, i -> chunk.state[i]);
+        writeColumn(out, buffer, order, n, i -> chunk.road[i]);
+    }
+
+    /** Row order by vehicle id; stable, so each vehicle's samples stay in time order. */
+    private static int[] sortedByVehicle(TrajectoryChunk chunk) {
+        int n = chunk.size;
+        long[] keys = new long[n];
+        int indexBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, n - 1));
+        for (int i = 0; i < n; i++) {
+            keys[i] = (chunk.vehicleId[i] << indexBits) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[n];
+        long indexMask = (1L << indexBits) - 1;
+        for (int i = 0; i < n; i++) {
+            order[i] = (int) (keys[i] & indexMask);
+        }
+        return order;
+    }
+
+    private static void writeColumn(OutputStream out, VarintBuffer buffer, int[] order, int n,
+                                    IntToLongFunction column) throws IOException {
+        buffer.reset();
+        long previous = 0;
+        for (int k = 0; k < n; k++) {
+            long value = column.applyAsLong(order[k]);
+            buffer.writeVarLong(zigZag(value - previous));
+            previous = value;
+        }
+        VarintBuffer length = new VarintBuffer(5);
+        length.writeVarLong(buffer.size());
+        out.write(length.array(), 0, length.size());
+        out.write(buffer.array(), 0, buffer.size());
+    }
+
+    /**
+     * Decodes a columnar trajectory file.
+     * @param input The file contents.
+     * @param visitor Receives every row, block by block (sorted by vehicle within a block).
+     * @return Number of rows read.
+     * @throws IOException If the stream is not a trajectory file or is truncated mid-block.
+     */
+    public static long read(InputStream input, RowVisitor visitor) throws IOException {
+        InputStream in = new BufferedInputStream(input);
+        byte[] magic = in.readNBytes(MAGIC.length);
+        if (!Arrays.equals(magic, MAGIC) || in.read() != VERSION) {
+            throw new IOException("Not a trajectory file (version " + VERSION + ")");
+        }
+        long rows = 0;
+        while (true) {
+            int first = in.read();
+            if (first < 0) break; // Clean end of file
+            int n = (int) readVarLong(in, first);
+            long[][] columns = new long[COLUMN_COUNT][n];
+            for (int c = 0; c < COLUMN_COUNT; c++) {
+                readVarLong(in, in.read()); // Column byte length (only needed to skip columns)
+                long previous = 0;
+                for (int k = 0; k < n; k++) {
+                    previous += unZigZag(readVarLong(in, in.read()));
+                    columns[c][k] = previous;
+                }
+            }
+            for (int k = 0; k < n; k++) {
+                visitor.row(columns[0][k], columns[1][k],
+                        columns[2][k] / TrajectoryChunk.POSITION_SCALE,
+                        columns[3][k] / TrajectoryChunk.POSITION_SCALE,
+                        columns[4][k] / TrajectoryChunk.SPEED_SCALE,
+                        (int) columns[5][k], (int) columns[6][k]);
+            }
+            rows += n;
+        }
+        return rows;
+    }
+
+    // --- CSV ---
+
+    static void writeCsvRows(TrajectoryChunk chunk, Writer out) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        for (int i = 0; i < chunk.size; i++) {
+            line.setLength(0);
+            line.append(chunk.vehicleId[i]).append(',')
+                .append(chunk.time[i]).append(',')
+                .append(String.format(Locale.ROOT, "%.2f,%.2f,%.4f",
+                        chunk.x[i] / TrajectoryChunk.POSITION_SCALE,
+                        chunk.y[i] / TrajectoryChunk.POSITION_SCALE,
+                        chunk.speed[i] / TrajectoryChunk.SPEED_SCALE)).append(',')
+                .append(chunk.state[i]).append(',')
+                .append(chunk.road[i]).append('\n');
+            out.append(line);
+        }
+    }
+
+    // --- Varint helpers ---
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /** Reads an unsigned LEB128 varint whose first byte was already read. */
+    private static long readVarLong(InputStream in, int first) throws IOException {
+        long result = 0;
+        int shift = 0;
+        int b = first;
+        while (true) {
+            if (b < 0) throw new EOFException("Truncated trajectory block");
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+            shift += 7;
+            b = in.read();
+        }
+    }
+
+    /** Growable byte buffer for unsigned LEB128 varints. */
+    static final class VarintBuffer {
+        private byte[] bytes;
+        private int size;
+
+        VarintBuffer(int initialCapacity) {
+            this.bytes = new byte[initialCapacity];
+        }
+
+        void writeVarLong(long value) {
+            if (bytes.length - size < 10) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + 10));
+            }
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void reset() { size = 0; }
+        byte[] array() { return bytes; }
+        int size() { return size; }
+    }
+}
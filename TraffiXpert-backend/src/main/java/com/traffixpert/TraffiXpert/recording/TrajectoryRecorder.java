@@ -0,0 +1,340 @@
+package com.traffixpert.TraffiXpert.recording;
+
+import com.traffixpert.TraffiXpert.model.Vehicle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional capture of vehicle trajectories (id, time, x, y, speed, state) for offline analysis.
+ *
+ * The simulation thread samples every vehicle each sampleInterval into a columnar
+ * TrajectoryChunk (plain array stores). Full chunks go to a single background writer that sorts,
+ * delta + varint encodes and appends them to the session file (see TrajectoryFile), then returns
+ * them to a pool, so steady-state recording allocates nothing on the tick. The hand-off queue is
+ * bounded: if the disk can't keep up, whole chunks are dropped and counted instead of slowing
+ * the simulation down.
+ *
+ * Configured by traffixpert.recording.* properties; started and stopped via /api/recording.
+ */
+@Component
+public class TrajectoryRecorder {
+
+    public enum Format { COLUMNAR, CSV }
+
+    private static final int CHUNK_ROWS = 16_384; // ~440 KB per chunk
+    private static final int MAX_PENDING_CHUNKS = 8; // Hand-off queue to the writer
+    private static final DateTimeFormatter FILE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path directory;
+    private final Format defaultFormat;
+    private final boolean enabledAtStartup;
+    private volatile double sampleIntervalMillis;
+
+    // --- Writer thread (one at a time, tasks run in order) ---
+    private final ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(MAX_PENDING_CHUNKS), runnable -> {
+                Thread thread = new Thread(runnable, "trajectory-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final ConcurrentLinkedQueue<TrajectoryChunk> pool = new ConcurrentLinkedQueue<>();
+    private final TrajectoryFile.VarintBuffer encodeBuffer = new TrajectoryFile.VarintBuffer(64 * 1024); // Writer thread only
+
+    // --- Sessions: requested by controllers, switched over by the simulation thread ---
+    private volatile Session requested; // Null when recording is (being) stopped
+    private Session active; // Session the simulation thread is filling
+    private TrajectoryChunk current;
+    private double sampleTimer;
+
+    // --- Counters ---
+    private final AtomicLong samplesRecorded = new AtomicLong();
+    private final AtomicLong samplesDropped = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    /**
+     * @param directory Output directory for recording files (traffixpert.recording.directory).
+     * @param format Default file format, columnar or csv (traffixpert.recording.format).
+     * @param sampleIntervalMillis Simulated time between samples of a vehicle (traffixpert.recording.sample-interval-ms).
+     * @param enabled Start recording as soon as the application is up (traffixpert.recording.enabled).
+     */
+    @Autowired
+    public TrajectoryRecorder(@Value("${traffixpert.recording.directory:recordings}") String directory,
+                              @Value("${traffixpert.recording.format:columnar}") String format,
+                              @Value("${traffixpert.recording.sample-interval-ms:200}") double sampleIntervalMillis,
+                              @Value("${traffixpert.recording.enabled:false}") boolean enabled) {
+        this(Paths.get(directory), parseFormat(format), sampleIntervalMillis, enabled);
+    }
+
+    private TrajectoryRecorder(Path directory, Format format, double sampleIntervalMillis, boolean enabled) {
+        this.directory = directory;
+        this.defaultFormat = format;
+        this.sampleIntervalMillis = Math.max(1, sampleIntervalMillis);
+        this.enabledAtStartup = enabled;
+    }
+
+    /**
+     * A recorder for a hosted session (see SimulationService.createSession): same format, sample
+     * interval and startup setting as this one, with its own writer thread and files under
+     * sessions/&lt;id&gt; in this recorder's directory. Already started if recording is enabled
+     * at startup; the caller shuts it down with the session.
+     * @param sessionId The session id.
+     * @return The session's recorder.
+     */
+    public TrajectoryRecorder forSession(String sessionId) {
+        TrajectoryRecorder recorder = new TrajectoryRecorder(directory.resolve("sessions").resolve(sessionId),
+                defaultFormat, sampleIntervalMillis, enabledAtStartup);
+        recorder.startIfEnabled();
+        return recorder;
+    }
+
+    @PostConstruct
+    public void startIfEnabled() {
+        if (enabledAtStartup) {
+            start(defaultFormat);
+        }
+    }
+
+    /**
+     * Parses a format name.
+     * @throws IllegalArgumentException If unknown.
+     */
+    public static Format parseFormat(String name) {
+        try {
+            return Format.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown recording format '" + name + "' (columnar or csv)");
+        }
+    }
+
+    /**
+     * Starts a new recording file. Does nothing if already recording.
+     * Sampling begins with the next simulation tick.
+     * @param format File format, or null for the configured default.
+     * @return The file being written.
+     * @throws IllegalStateException If the output file can't be created.
+     */
+    public synchronized Path start(Format format) {
+        if (requested != null) return requested.path;
+        Format selected = format != null ? format : defaultFormat;
+        String extension = selected == Format.CSV ? ".csv" : ".txtr";
+        Path path = directory.resolve("trajectories-" + LocalDateTime.now().format(FILE_TIME_FORMAT) + extension);
+        try {
+            Files.createDirectories(directory);
+            OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), 256 * 1024);
+            Session opened = new Session(path, selected, out);
+            if (selected == Format.CSV) {
+                opened.csv.write(TrajectoryFile.CSV_HEADER);
+                opened.csv.write('\n');
+            } else {
+                TrajectoryFile.writeHeader(opened.countingOut);
+            }
+            this.requested = opened;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create recording file " + path + ": " + e.getMessage(), e);
+        }
+        System.out.println("Trajectory recording started: " + path.toAbsolutePath() + " (" + selected + ")");
+        return path;
+    }
+
+    /**
+     * Stops recording. The simulation thread hands over the last samples on its next tick and
+     * the writer then flushes and closes the file.
+     * @return The file that was being written, or null if not recording.
+     */
+    public synchronized Path stop() {
+        Session stopping = this.requested;
+        this.requested = null;
+        return stopping != null ? stopping.path : null;
+    }
+
+    /**
+     * Picks up start/stop requests and tells whether this tick should sample the vehicles.
+     * Simulation thread only.
+     * @param deltaTime Time step (ms).
+     */
+    public boolean shouldSample(double deltaTime) {
+        Session wanted = this.requested;
+        if (wanted != active) {
+            finishActive();
+            active = wanted;
+            sampleTimer = 0; // Sample right away
+        }
+        if (active == null) return false;
+        sampleTimer -= deltaTime;
+        if (sampleTimer > 0) return false;
+        sampleTimer += sampleIntervalMillis;
+        if (sampleTimer <= 0) sampleTimer = sampleIntervalMillis; // Don't burst after long pauses
+        return true;
+    }
+
+    /**
+     * Records one vehicle sample. Simulation thread only, after shouldSample returned true.
+     * @param vehicle The vehicle.
+     * @param timeMillis Simulated time (ms).
+     */
+    public void record(Vehicle vehicle, long timeMillis) {
+        if (active == null) return;
+        if (current == null) {
+            current = takeChunk();
+        }
+        current.append(vehicle, timeMillis);
+        samplesRecorded.incrementAndGet();
+        if (current.isFull()) {
+            TrajectoryChunk full = current;
+            current = null;
+            Session target = active;
+            try {
+                writer.execute(() -> writeChunk(target, full));
+            } catch (RejectedExecutionException e) {
+                // Writer is behind: drop this chunk rather than stall the tick
+                samplesDropped.addAndGet(full.size);
+                release(full);
+            }
+        }
+    }
+
+    /** Hands the partial chunk and the close of the active session to the writer. */
+    private void finishActive() {
+        if (active == null) return;
+        Session closing = active;
+        TrajectoryChunk last = current;
+        active = null;
+        current = null;
+        submitBlocking(() -> {
+            if (last != null) writeChunk(closing, last);
+            try {
+                closing.close();
+                System.out.println("Trajectory recording finished: " + closing.path.toAbsolutePath());
+            } catch (IOException e) {
+                System.err.println("Error closing recording " + closing.path + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private void writeChunk(Session target, TrajectoryChunk chunk) {
+        try {
+            if (chunk.size == 0) return;
+            if (target.format == Format.CSV) {
+                TrajectoryFile.writeCsvRows(chunk, target.csv);
+            } else {
+                TrajectoryFile.writeBlock(chunk, target.countingOut, encodeBuffer);
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing recording " + target.path + ": " + e.getMessage());
+        } finally {
+            release(chunk);
+        }
+    }
+
+    /** Queues a task that must not be dropped (end of a session), waiting for room if needed. */
+    private void submitBlocking(Runnable task) {
+        while (true) {
+            try {
+                writer.execute(task);
+                return;
+            } catch (RejectedExecutionException e) {
+                if (writer.isShutdown()) {
+                    task.run(); // Shutting down: finish on this thread
+                    return;
+                }
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    task.run();
+                    return;
+                }
+            }
+        }
+    }
+
+    private TrajectoryChunk takeChunk() {
+        TrajectoryChunk chunk = pool.poll();
+        return chunk != null ? chunk : new TrajectoryChunk(CHUNK_ROWS);
+    }
+
+    private void release(TrajectoryChunk chunk) {
+        chunk.clear();
+        if (pool.size() < MAX_PENDING_CHUNKS + 2) {
+            pool.offer(chunk);
+        }
+    }
+
+    /**
+     * Flushes and closes the current recording on shutdown.
+     * The simulation (which depends on this bean) is destroyed first, so its loop no longer
+     * touches the active session here.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        stop();
+        finishActive();
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("Trajectory writer did not finish in time.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // --- Status ---
+    public boolean isRecording() { return requested != null; }
+    public Path getCurrentFile() { Session s = requested; return s != null ? s.path : null; }
+    public Format getFormat() { Session s = requested; return s != null ? s.format : defaultFormat; }
+    public double getSampleIntervalMillis() { return sampleIntervalMillis; }
+    public void setSampleIntervalMillis(double millis) { this.sampleIntervalMillis = Math.max(1, millis); }
+    public long getSamplesRecorded() { return samplesRecorded.get(); }
+    public long getSamplesDropped() { return samplesDropped.get(); }
+    public long getBytesWritten() { return bytesWritten.get(); }
+    public int getPendingChunks() { return writer.getQueue().size(); }
+
+    /** An open recording file. */
+    private final class Session {
+        final Path path;
+        final Format format;
+        final OutputStream countingOut;
+        final Writer csv;
+
+        Session(Path path, Format format, OutputStream out) {
+            this.path = path;
+            this.format = format;
+            this.countingOut = new OutputStream() { // Counts bytes for the status endpoint
+                @Override public void write(int b) throws IOException { out.write(b); bytesWritten.incrementAndGet(); }
+                @Override public void write(byte[] b, int off, int len) throws IOException { out.write(b, off, len); bytesWritten.addAndGet(len); }
+                @Override public void flush() throws IOException { out.flush(); }
+                @Override public void close() throws IOException { out.close(); }
+            };
+            this.csv = format == Format.CSV
+                    ? new BufferedWriter(new OutputStreamWriter(countingOut, StandardCharsets.UTF_8), 64 * 1024)
+                    : null;
+        }
+
+        void close() throws IOException {
+            if (csv != null) csv.close(); else countingOut.close();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.traffixpert.TraffiXpert.scheduling;
+
+/**
+ * Fixed-timestep accumulator that turns measured wall-clock time into simulation steps.
+ *
+ * Every loop iteration adds the wall time since the previous one to an accumulator and runs as
+ * many whole steps as it holds; the remainder carries over, so no time is lost to rounding and
+ * simulated time tracks wall time exactly while the engine keeps up. A late iteration (GC pause,
+ * slow tick) is caught up with extra sub-steps, at most maxSubsteps per iteration. Time that is
+ * still owed after the cap (the lag) is handled by the overrun policy:
+ *
+ *   SKIP         drop it: the simulation stays real-time from here on but loses that time.
+ *   SLOW_MOTION  keep it and catch up over the next iterations; until then the simulation runs
+ *                slower than wall time.
+ *   DEGRADE      keep it and switch to coarser steps (DEGRADE_FACTOR x) until the lag is gone,
+ *                so each simulated second costs fewer steps and the lag drains quickly.
+ *
+ * Whatever the policy, lag above maxLagMillis (e.g. after the host was suspended) is dropped.
+ * Methods are synchronized: the simulation loop advances it, controllers read and configure it.
+ */
+public class FixedTimestepClock {
+
+    /** What to do with time still owed after the sub-step cap. */
+    public enum OverrunPolicy {
+        SKIP, SLOW_MOTION, DEGRADE;
+
+        /**
+         * Parses a policy name, case-insensitively ("slow-motion" is accepted too).
+         * @param name The name.
+         * @return The policy, or null if unknown.
+         */
+        public static OverrunPolicy parse(String name) {
+            if (name == null) return null;
+            String normalized = name.trim().toUpperCase().replace('-', '_');
+            for (OverrunPolicy policy : values()) {
+                if (policy.name().equals(normalized)) return policy;
+            }
+            return null;
+        }
+    }
+
+    public static final int DEGRADE_FACTOR = 2; // Step multiplier while degraded
+    private static final double TIME_SCALE_SMOOTHING = 0.1; // EWMA weight of the latest iteration
+
+    private OverrunPolicy policy;
+    private int maxSubsteps;
+    private long maxLagMillis;
+
+    // --- State ---
+    private double accumulator; // Wall time owed to the simulation (ms)
+    private boolean degraded;
+    private double stepMillis; // Step size chosen by the last advance()
+
+    // --- Metrics ---
+    private long iterations;
+    private long steps;
+    private long overruns; // Iterations that hit the sub-step cap
+    private double droppedMillis;
+    private double maxObservedLagMillis;
+    private double timeScale = 1.0; // Simulated / wall time, smoothed
+
+    /**
+     * @param policy Overrun policy.
+     * @param maxSubsteps Most steps run per loop iteration (>= 1).
+     * @param maxLagMillis Most wall time kept owed before the excess is dropped.
+     */
+    public FixedTimestepClock(OverrunPolicy policy, int maxSubsteps, long maxLagMillis) {
+        configure(policy, maxSubsteps, maxLagMillis);
+    }
+
+    /**
+     * Changes the overrun handling; takes effect from the next iteration.
+     * @throws IllegalArgumentException If policy is null, maxSubsteps < 1 or maxLagMillis < 0.
+     */
+    public synchronized void configure(OverrunPolicy policy, int maxSubsteps, long maxLagMillis) {
+        if (policy == null || maxSubsteps < 1 || maxLagMillis < 0) {
+            throw new IllegalArgumentException("Invalid clock settings: policy=" + policy
+                    + ", maxSubsteps=" + maxSubsteps + ", maxLagMillis=" + maxLagMillis);
+        }
+        this.policy = policy;
+        this.maxSubsteps = maxSubsteps;
+        this.maxLagMillis = maxLagMillis;
+        if (policy != OverrunPolicy.DEGRADE) degraded = false;
+    }
+
+    /** Forgets owed time, e.g. when the loop (re)starts after a pause. */
+    public synchronized void reset() {
+        accumulator = 0;
+        degraded = false;
+    }
+
+    /**
+     * Adds the wall time of one loop iteration and decides how many steps to run.
+     * The step size to use is getStepMillis() afterwards.
+     * @param wallMillis Wall time since the previous iteration.
+     * @param baseStepMillis Normal step size (the physics tick period).
+     * @return Number of steps to run now (may be 0 if the loop fired early).
+     */
+    public synchronized int advance(double wallMillis, double baseStepMillis) {
+        iterations++;
+        accumulator += Math.max(0, wallMillis);
+        if (accumulator > maxLagMillis + baseStepMillis) {
+            droppedMillis += accumulator - maxLagMillis - baseStepMillis;
+            accumulator = maxLagMillis + baseStepMillis;
+        }
+
+        stepMillis = degraded ? baseStepMillis * DEGRADE_FACTOR : baseStepMillis;
+        int due = (int) (accumulator / stepMillis + 1e-9);
+        int run = Math.min(due, maxSubsteps);
+        accumulator = Math.max(0, accumulator - run * stepMillis);
+
+        if (due > maxSubsteps) {
+            overruns++;
+            switch (policy) {
+                case SKIP -> {
+                    double owed = accumulator - accumulator % stepMillis; // Keep the sub-step remainder
+                    droppedMillis += owed;
+                    accumulator -= owed;
+                }
+                case DEGRADE -> degraded = true;
+                case SLOW_MOTION -> { } // Keep owing it
+            }
+        } else if (degraded && accumulator < baseStepMillis) {
+            degraded = false; // Caught up
+        }
+
+        steps += run;
+        maxObservedLagMillis = Math.max(maxObservedLagMillis, accumulator);
+        if (wallMillis > 0) {
+            timeScale += TIME_SCALE_SMOOTHING * (run * stepMillis / wallMillis - timeScale);
+        }
+        return run;
+    }
+
+    // --- Getters ---
+    public synchronized double getStepMillis() { return stepMillis; }
+    public synchronized OverrunPolicy getPolicy() { return policy; }
+    public synchronized int getMaxSubsteps() { return maxSubsteps; }
+    public synchronized long getMaxLagMillis() { return maxLagMillis; }
+    public synchronized double getLagMillis() { return accumulator; }
+    public synchronized double getMaxObservedLagMillis() { return maxObservedLagMillis; }
+    public synchronized boolean isDegraded() { return degraded; }
+    public synchronized long getIterations() { return iterations; }
+    public synchronized long getSteps() { return steps; }
+    public synchronized long getOverruns() { return overruns; }
+    public synchronized double getDroppedMillis() { return droppedMillis; }
+    public synchronized double getTimeScale() { return timeScale; }
+}
@@ -0,0 +1,97 @@
+package com.traffixpert.TraffiXpert.scheduling;
+
+import com.traffixpert.TraffiXpert.metrics.LogLinearHistogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleConsumer;
+
+/**
+ * One unit of periodic work with its own cadence and timing figures.
+ *
+ * SIMULATION stages run on the simulation thread inside a tick, when at least their period of
+ * simulated time has accumulated; the action receives that elapsed time. The TICK stage runs
+ * every tick and its period is the tick rate itself. BACKGROUND stages run
+ * on a thread of their own every period of wall-clock time and must only read thread-safe state.
+ * Every run is timed (microseconds); a run longer than the period counts as an overrun.
+ */
+public final class Stage {
+
+    /** Where a stage runs. */
+    public enum Placement { TICK, SIMULATION, BACKGROUND }
+
+    private final String name;
+    private final Placement placement;
+    private final long minPeriodMillis;
+    private final DoubleConsumer action;
+    private volatile long periodMillis;
+
+    // --- Simulation stages: time since the last run (simulation thread only) ---
+    private double accumulated;
+
+    // --- Metrics ---
+    private final LogLinearHistogram durations = new LogLinearHistogram(); // us
+    private final AtomicLong overruns = new AtomicLong();
+
+    Stage(String name, Placement placement, long periodMillis, long minPeriodMillis, DoubleConsumer action) {
+        this.name = name;
+        this.placement = placement;
+        this.minPeriodMillis = minPeriodMillis;
+        this.action = action;
+        setPeriodMillis(periodMillis);
+    }
+
+    /**
+     * Adds simulated time and tells whether the stage is due (simulation stages).
+     * @param deltaTime Simulated time since the previous tick (ms).
+     * @return True if the stage should run now.
+     */
+    boolean accumulate(double deltaTime) {
+        accumulated += deltaTime;
+        return placement == Placement.TICK || accumulated >= periodMillis - 1e-9;
+    }
+
+    /** Runs a simulation stage with the time accumulated since its last run. */
+    void runAccumulated() {
+        double elapsed = accumulated;
+        accumulated = 0;
+        run(elapsed);
+    }
+
+    /** Runs the action once, timed. */
+    void run(double elapsedMillis) {
+        long start = System.nanoTime();
+        action.accept(elapsedMillis);
+        long micros = (System.nanoTime() - start) / 1000;
+        durations.record(micros);
+        if (micros > periodMillis * 1000) {
+            overruns.incrementAndGet();
+        }
+    }
+
+    /**
+     * Changes the cadence. Takes effect from the next run (background stages are rescheduled by
+     * StageScheduler.setPeriod).
+     * @param periodMillis The new period.
+     * @throws IllegalArgumentException If below the stage's minimum.
+     */
+    void setPeriodMillis(long periodMillis) {
+        if (periodMillis < minPeriodMillis) {
+            throw new IllegalArgumentException("Period of stage '" + name + "' must be at least " + minPeriodMillis + " ms");
+        }
+        this.periodMillis = periodMillis;
+    }
+
+    public String getName() { return name; }
+    public Placement getPlacement() { return placement; }
+    public long getPeriodMillis() { return periodMillis; }
+    public long getMinPeriodMillis() { return minPeriodMillis; }
+    public long getRuns() { return durations.getTotalCount(); }
+    public long getOverruns() { return overruns.get(); }
+
+    /** @return Snapshot of the run durations (us). */
+    public LogLinearHistogram.Snapshot getDurations() {
+        LogLinearHistogram.Snapshot snapshot = new LogLinearHistogram.Snapshot();
+        durations.addTo(snapshot);
+        return snapshot;
+    }
+}
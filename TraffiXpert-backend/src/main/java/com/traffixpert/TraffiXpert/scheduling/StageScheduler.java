@@ -0,0 +1,155 @@
+package com.traffixpert.TraffiXpert.scheduling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Runs the simulation's work as stages with independent cadences.
+ *
+ * Simulation stages share the simulation thread: tick() is called once per simulation tick and
+ * runs, in registration order, every stage whose period has accumulated. The tick stage
+ * (physics) runs every tick and its period is the tick rate; slower ones (signal control) run
+ * every few ticks with the summed time. Background stages (stats, snapshots) each get a daemon thread of their own and
+ * run at a fixed wall-clock rate between start() and shutdown(), so they never delay a tick.
+ * Periods can be changed at runtime; every stage is timed (see Stage).
+ */
+public class StageScheduler {
+
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private final List<Stage> simulationStages = new ArrayList<>(); // Including the tick stage
+    private Stage tickStage;
+    private final Map<Stage, ScheduledExecutorService> executors = new LinkedHashMap<>();
+    private final Map<Stage, ScheduledFuture<?>> futures = new LinkedHashMap<>();
+    private boolean started;
+
+    /**
+     * Adds the stage that runs every tick; its period is the tick rate of the simulation loop.
+     * @param name Unique stage name.
+     * @param periodMillis Tick period.
+     * @param minPeriodMillis Smallest period it may be tuned to.
+     * @param action Receives the simulated time of the tick (ms).
+     * @return The stage.
+     */
+    public synchronized Stage addTickStage(String name, long periodMillis, long minPeriodMillis, DoubleConsumer action) {
+        if (tickStage != null) {
+            throw new IllegalStateException("Tick stage already set: '" + tickStage.getName() + "'");
+        }
+        tickStage = register(new Stage(name, Stage.Placement.TICK, periodMillis, minPeriodMillis, action));
+        simulationStages.add(tickStage);
+        return tickStage;
+    }
+
+    /**
+     * Adds a stage run on the simulation thread, after the ones added before it.
+     * @param name Unique stage name.
+     * @param periodMillis Simulated time between runs.
+     * @param minPeriodMillis Smallest period it may be tuned to.
+     * @param action Receives the simulated time since its previous run (ms).
+     * @return The stage.
+     */
+    public synchronized Stage addSimulationStage(String name, long periodMillis, long minPeriodMillis, DoubleConsumer action) {
+        Stage stage = register(new Stage(name, Stage.Placement.SIMULATION, periodMillis, minPeriodMillis, action));
+        simulationStages.add(stage);
+        return stage;
+    }
+
+    /**
+     * Adds a stage run on its own background thread.
+     * @param name Unique stage name (also names the thread).
+     * @param periodMillis Wall-clock time between runs.
+     * @param minPeriodMillis Smallest period it may be tuned to.
+     * @param action The work.
+     * @return The stage.
+     */
+    public synchronized Stage addBackgroundStage(String name, long periodMillis, long minPeriodMillis, Runnable action) {
+        Stage stage = register(new Stage(name, Stage.Placement.BACKGROUND, periodMillis, minPeriodMillis, elapsed -> action.run()));
+        executors.put(stage, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stage-" + name);
+            thread.setDaemon(true);
+            return thread;
+        }));
+        if (started) schedule(stage);
+        return stage;
+    }
+
+    private Stage register(Stage stage) {
+        if (stages.putIfAbsent(stage.getName(), stage) != null) {
+            throw new IllegalArgumentException("Duplicate stage '" + stage.getName() + "'");
+        }
+        return stage;
+    }
+
+    /**
+     * Runs the due simulation stages (simulation thread, once per tick).
+     * @param deltaTime Simulated time since the previous tick (ms).
+     */
+    public void tick(double deltaTime) {
+        for (Stage stage : simulationStages) {
+            if (stage.accumulate(deltaTime)) {
+                stage.runAccumulated();
+            }
+        }
+    }
+
+    /** Starts the background stages (idempotent). */
+    public synchronized void start() {
+        if (started) return;
+        started = true;
+        executors.keySet().forEach(this::schedule);
+    }
+
+    /** Stops the background threads for good. */
+    public synchronized void shutdown() {
+        started = false;
+        executors.values().forEach(ScheduledExecutorService::shutdownNow);
+    }
+
+    private void schedule(Stage stage) {
+        ScheduledFuture<?> previous = futures.remove(stage);
+        if (previous != null) previous.cancel(false);
+        Runnable task = () -> {
+            try {
+                stage.run(stage.getPeriodMillis());
+            } catch (RuntimeException e) {
+                // Keep the stage scheduled; a failing run is reported and retried next period
+                System.err.println("Stage '" + stage.getName() + "' failed: " + e.getMessage());
+            }
+        };
+        long period = stage.getPeriodMillis();
+        futures.put(stage, executors.get(stage).scheduleAtFixedRate(task, period, period, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Retunes a stage. Background stages are rescheduled right away, simulation stages apply the
+     * period from their next accumulation; a new tick period needs the caller to reschedule its loop.
+     * @param name The stage.
+     * @param periodMillis The new period.
+     * @return The stage.
+     * @throws IllegalArgumentException If the stage is unknown or the period is below its minimum.
+     */
+    public synchronized Stage setPeriod(String name, long periodMillis) {
+        Stage stage = stages.get(name);
+        if (stage == null) {
+            throw new IllegalArgumentException("Unknown stage '" + name + "'");
+        }
+        stage.setPeriodMillis(periodMillis);
+        if (started && stage.getPlacement() == Stage.Placement.BACKGROUND) {
+            schedule(stage);
+        }
+        return stage;
+    }
+
+    /** @return Period of the tick stage (ms). */
+    public long getTickPeriodMillis() { return tickStage.getPeriodMillis(); }
+    public synchronized boolean isStarted() { return started; }
+    public synchronized Stage getStage(String name) { return stages.get(name); }
+    public synchronized List<Stage> getStages() { return Collections.unmodifiableList(new ArrayList<>(stages.values())); }
+}
@@ -0,0 +1,60 @@
+package com.traffixpert.TraffiXpert.service;
+
+import com.traffixpert.TraffiXpert.dto.TrafficForecastDTO;
+import com.traffixpert.TraffiXpert.forecast.TrafficForecaster;
+import com.traffixpert.TraffiXpert.model.RoadDirection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves the short-term forecasts of the simulation's TrafficForecaster.
+ * Replaces the frontend's LLM-based prediction flow: the models are trained in-process on the
+ * simulated traffic, so forecasting works offline and a query only reads the published arrays.
+ */
+@Service
+public class ForecastService {
+
+    private final SimulationService simulationService;
+
+    @Autowired
+    public ForecastService(SimulationService simulationService) {
+        this.simulationService = simulationService;
+    }
+
+    /**
+     * Forecast for every approach up to a horizon.
+     * @param horizonMinutes How far ahead, BIN_MINUTES..MAX_HORIZON_MINUTES (rounded up to whole periods).
+     * @return The forecast.
+     * @throws IllegalArgumentException If the horizon is out of range.
+     */
+    public TrafficForecastDTO getForecast(int horizonMinutes) {
+        if (horizonMinutes < TrafficForecaster.BIN_MINUTES || horizonMinutes > TrafficForecaster.MAX_HORIZON_MINUTES) {
+            throw new IllegalArgumentException("Horizon must be between " + TrafficForecaster.BIN_MINUTES
+                    + " and " + TrafficForecaster.MAX_HORIZON_MINUTES + " minutes");
+        }
+        int steps = (horizonMinutes + TrafficForecaster.BIN_MINUTES - 1) / TrafficForecaster.BIN_MINUTES;
+        TrafficForecaster.Forecast forecast = simulationService.getTrafficForecaster().getForecast();
+        double perHour = 60.0 / TrafficForecaster.BIN_MINUTES;
+
+        List<TrafficForecastDTO.ApproachForecast> approaches = new ArrayList<>();
+        for (RoadDirection direction : RoadDirection.values()) {
+            int d = direction.ordinal();
+            List<TrafficForecastDTO.ForecastPoint> points = new ArrayList<>(steps);
+            for (int step = 1; step <= steps; step++) {
+                double vehicles = forecast.vehicles()[d][step - 1];
+                points.add(new TrafficForecastDTO.ForecastPoint(step * TrafficForecaster.BIN_MINUTES,
+                        vehicles, forecast.lower()[d][step - 1], forecast.upper()[d][step - 1],
+                        vehicles * perHour, forecast.waitSeconds()[d][step - 1],
+                        forecast.congestion(direction, step).name()));
+            }
+            approaches.add(new TrafficForecastDTO.ApproachForecast(direction.name(), points));
+        }
+        int minute = forecast.issuedMinuteOfDay();
+        String issuedAt = minute < 0 ? null : String.format("%02d:%02d", minute / 60, minute % 60);
+        return new TrafficForecastDTO(issuedAt, TrafficForecaster.BIN_MINUTES, forecast.binsObserved(),
+                forecast.isSeasonal(), approaches);
+    }
+}
@@ -0,0 +1,118 @@
+package com.traffixpert.TraffiXpert.service;
+
+import com.traffixpert.TraffiXpert.dto.DensityTileDTO;
+import com.traffixpert.TraffiXpert.dto.SimulationStateDTO;
+import com.traffixpert.TraffiXpert.dto.TrafficSignalDTO;
+import com.traffixpert.TraffiXpert.dto.VehicleDTO;
+import com.traffixpert.TraffiXpert.model.Bounds;
+import com.traffixpert.TraffiXpert.spatial.VehicleIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Builds live map state for a viewport from the simulation's spatial index.
+ *
+ * Zoomed in, the vehicles inside the viewport are listed; zoomed out (a wide viewport or too
+ * many vehicles in it) they are aggregated into density tiles. Both are bounded: at most
+ * MAX_VEHICLES vehicles and at most MAX_TILES_ACROSS^2 tiles, so the response size depends on
+ * the screen, not on the size of the fleet.
+ */
+@Service
+public class MapViewService {
+
+    /** Level of detail of a map response. */
+    public enum LevelOfDetail { AUTO, VEHICLES, DENSITY }
+
+    public static final int MAX_VEHICLES = 2000; // Hard cap on listed vehicles
+    private static final int AUTO_DENSITY_VEHICLES = 500; // AUTO switches to tiles above this many vehicles in view
+    private static final double AUTO_DENSITY_SPAN = 1600.0; // px; AUTO switches to tiles for wider views (4 canvases)
+    private static final int DEFAULT_TILES_ACROSS = 32;
+    private static final int MAX_TILES_ACROSS = 64;
+    private static final double STOPPED_SPEED = 0.005; // px/ms, as in Vehicle's wait time accounting
+
+    private final SimulationService simulationService;
+
+    @Autowired
+    public MapViewService(SimulationService simulationService) {
+        this.simulationService = simulationService;
+    }
+
+    /**
+     * Map state for a viewport.
+     * @param view The viewport, or null for the whole network.
+     * @param lod Requested level of detail.
+     * @param tileSize Requested tile edge length (px) for density tiles, or null for automatic.
+     * @return The state.
+     * @throws IllegalArgumentException If the viewport or tile size is invalid.
+     */
+    public SimulationStateDTO getState(Bounds view, LevelOfDetail lod, Double tileSize) {
+        return getState(simulationService, view, lod, tileSize);
+    }
+
+    /**
+     * Map state of a given simulation (e.g. a hosted session) for a viewport.
+     * @param simulation The simulation.
+     * @param view The viewport, or null for the whole network.
+     * @param lod Requested level of detail.
+     * @param tileSize Requested tile edge length (px) for density tiles, or null for automatic.
+     * @return The state.
+     * @throws IllegalArgumentException If the viewport or tile size is invalid.
+     */
+    public SimulationStateDTO getState(SimulationService simulation, Bounds view, LevelOfDetail lod, Double tileSize) {
+        VehicleIndex index = simulation.getVehicleIndex();
+        if (view == null) {
+            view = index.getBounds();
+        }
+        if (!(view.maxX() > view.minX() && view.maxY() > view.minY())) {
+            throw new IllegalArgumentException("Viewport must have a positive width and height");
+        }
+        if (tileSize != null && !(tileSize > 0)) {
+            throw new IllegalArgumentException("Tile size must be positive");
+        }
+
+        List<TrafficSignalDTO> signals = simulation.getSignals().stream()
+                .map(signal -> new TrafficSignalDTO(signal.getState()))
+                .toList();
+        int inView = index.countIn(view);
+        double span = Math.max(view.maxX() - view.minX(), view.maxY() - view.minY());
+
+        boolean density = lod == LevelOfDetail.DENSITY
+                || (lod == LevelOfDetail.AUTO && (inView > AUTO_DENSITY_VEHICLES || span > AUTO_DENSITY_SPAN));
+        if (!density) {
+            List<VehicleDTO> vehicles = index.vehiclesIn(view, MAX_VEHICLES).stream()
+                    .map(e -> new VehicleDTO(
+                            e.vehicle().getId(),
+                            e.x(),
+                            e.y(),
+                            e.vehicle().getWidth(),
+                            e.vehicle().getHeight(),
+                            e.angle(),
+                            e.vehicle().getColor(),
+                            e.vehicle().getType()))
+                    .toList();
+            return new SimulationStateDTO(signals, vehicles, LevelOfDetail.VEHICLES.name(), view, inView,
+                    vehicles.size() < inView, 0, List.of());
+        }
+
+        // Never more than MAX_TILES_ACROSS tiles along the longer side, whatever was requested
+        double size = Math.max(tileSize != null ? tileSize : span / DEFAULT_TILES_ACROSS, span / MAX_TILES_ACROSS);
+        List<DensityTileDTO> tiles = index.densityIn(view, size, STOPPED_SPEED).stream()
+                .map(t -> new DensityTileDTO(t.minX(), t.minY(), t.vehicles(), t.meanSpeed(), t.stopped()))
+                .toList();
+        return new SimulationStateDTO(signals, List.of(), LevelOfDetail.DENSITY.name(), view, inView,
+                false, size, tiles);
+    }
+
+    /**
+     * Parses a level of detail parameter.
+     * @param value "auto", "vehicles" or "density" (any case).
+     * @return The level.
+     * @throws IllegalArgumentException If unknown.
+     */
+    public static LevelOfDetail parseLevelOfDetail(String value) {
+        return LevelOfDetail.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
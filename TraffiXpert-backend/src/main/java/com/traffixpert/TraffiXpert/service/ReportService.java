@@ -2,76 +2,303 @@ package com.traffixpert.TraffiXpert.service;
 
 import com.traffixpert.TraffiXpert.dto.GenerateDailyReportInputDTO;
 import com.traffixpert.TraffiXpert.dto.GenerateDailyReportOutputDTO;
-import com.traffixpert.TraffiXpert.dto.ViolationSummaryDTO; // Import needed
+import com.traffixpert.TraffiXpert.dto.TrafficReportDTO;
+import com.traffixpert.TraffiXpert.history.HourAggregate;
+import com.traffixpert.TraffiXpert.history.TrafficHistory;
+import com.traffixpert.TraffiXpert.model.RoadDirection;
+import com.traffixpert.TraffiXpert.model.ViolationType;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList; // Import needed
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors; // Import needed
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Builds traffic reports from the server-side history (SimulationService.getTrafficHistory).
+ *
+ * A report merges the cached HourAggregates of its hours. Finished reports are cached per
+ * (day, hour range) together with the revision of every hour they were built from; a repeated
+ * request only compares those revisions and returns the cached report if none moved. Once a
+ * range lies in the past its report is therefore built once; a range including the hour in
+ * progress is rebuilt only after new data arrived, and then only that hour is re-aggregated.
+ * Text and ordering are deterministic: the same history always gives the same report.
+ */
 @Service
 public class ReportService {
 
+    private static final int MAX_PEAK_PERIODS = 3;
+    private static final int MAX_HOTSPOTS = 5;
+    private static final int MAX_RECOMMENDATIONS = 3;
+    private static final double HIGH_WAIT_SECONDS = 40.0;
+    private static final double SLOW_CLEARANCE_SECONDS = 60.0;
+    private static final int SIGNIFICANT_VIOLATIONS = 3;
+
+    private final SimulationService simulationService;
+    private final Map<ReportKey, CachedReport> reportCache = new ConcurrentHashMap<>();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    @Autowired
+    public ReportService(SimulationService simulationService) {
+        this.simulationService = simulationService;
+    }
+
     /**
-     * Generates a daily traffic report based on input statistics.
-     * Simulates AI response based on input values.
-     * TODO: Implement actual AI logic here later.
-     * @param input DTO containing daily stats (total vehicles, avg wait time, violations).
+     * Generates the daily report summary for the current simulated day.
+     * The figures come from the server-side history; the client-side totals in the input are no
+     * longer used and only kept for compatibility with existing clients.
+     * @param input Ignored (may be null).
      * @return DTO containing the report summary and recommendations.
      */
     public GenerateDailyReportOutputDTO generateReport(GenerateDailyReportInputDTO input) {
-        // --- Simulated Logic ---
-        System.out.println("AI Report Simulation: Received input - " + input);
+        TrafficReportDTO report = getReport(null, 0, TrafficHistory.HOURS_PER_DAY);
+        return new GenerateDailyReportOutputDTO(report.summary(), report.recommendations());
+    }
+
+    /**
+     * Returns the report for a range of hours of a simulated day.
+     * @param day Simulated day, or null for the current one.
+     * @param fromHour First hour of day (inclusive, 0-23).
+     * @param toHour End hour of day (exclusive, 1-24).
+     * @return The report (from the cache if the underlying hours didn't change).
+     * @throws IllegalArgumentException If the hours are invalid or the day isn't in the history.
+     */
+    public TrafficReportDTO getReport(Long day, int fromHour, int toHour) {
+        TrafficHistory history = simulationService.getTrafficHistory();
+        long currentDay = history.getCurrentDay();
+        long reportDay = day != null ? day : currentDay;
+        if (fromHour < 0 || toHour > TrafficHistory.HOURS_PER_DAY || fromHour >= toHour) {
+            throw new IllegalArgumentException("Invalid hour range " + fromHour + "-" + toHour);
+        }
+        if (reportDay > currentDay || reportDay < history.getOldestRetainedDay()) {
+            throw new IllegalArgumentException("Day " + reportDay + " is not in the history (days "
+                    + history.getOldestRetainedDay() + "-" + currentDay + ")");
+        }
 
-        // Build dynamic summary
-        StringBuilder summaryBuilder = new StringBuilder();
-        summaryBuilder.append(String.format("Daily Summary: %,d vehicles processed. ", input.totalVehicles()));
+        long firstHour = reportDay * TrafficHistory.HOURS_PER_DAY + fromHour;
+        int hourCount = toHour - fromHour;
+        long currentHour = history.getCurrentMinute() / TrafficHistory.MINUTES_PER_HOUR;
+        boolean complete = firstHour + hourCount - 1 < currentHour;
 
-        if (input.avgWaitTime() < 20.0) {
-            summaryBuilder.append(String.format("Average wait time was excellent at %.1fs. ", input.avgWaitTime()));
-        } else if (input.avgWaitTime() < 45.0) {
-            summaryBuilder.append(String.format("Average wait time was moderate at %.1fs. ", input.avgWaitTime()));
-        } else {
-            summaryBuilder.append(String.format("Average wait time was high at %.1fs, suggesting congestion. ", input.avgWaitTime()));
+        // Cheap validity check: compare the revision of every hour in the range
+        ReportKey key = new ReportKey(reportDay, fromHour, toHour);
+        long[] revisions = new long[hourCount];
+        for (int i = 0; i < hourCount; i++) {
+            revisions[i] = history.getHourRevision(firstHour + i);
+        }
+        CachedReport cached = reportCache.get(key);
+        if (cached != null && cached.complete == complete && Arrays.equals(cached.revisions, revisions)) {
+            cacheHits.incrementAndGet();
+            return cached.report;
         }
 
-        long totalViolations = input.violations().stream().mapToLong(ViolationSummaryDTO::count).sum();
-        if (totalViolations == 0) {
-            summaryBuilder.append("No violations were recorded.");
-        } else {
-            summaryBuilder.append(String.format("%d total violations recorded across %d types.", totalViolations, input.violations().size()));
+        cacheMisses.incrementAndGet();
+        HourAggregate[] hours = new HourAggregate[hourCount];
+        for (int i = 0; i < hourCount; i++) {
+            hours[i] = history.aggregateHour(firstHour + i);
+            revisions[i] = hours[i].getRevision(); // What the report is actually built from
         }
-        String summary = summaryBuilder.toString();
+        TrafficReportDTO report = buildReport(reportDay, fromHour, toHour, complete, hours);
+        long oldestDay = history.getOldestRetainedDay();
+        reportCache.keySet().removeIf(k -> k.day() < oldestDay);
+        reportCache.put(key, new CachedReport(revisions, complete, report));
+        return report;
+    }
 
+    public long getCacheHits() { return cacheHits.get(); }
+    public long getCacheMisses() { return cacheMisses.get(); }
 
-        // Build dynamic recommendations
-        List<String> recommendations = new ArrayList<>();
-        recommendations.add("Simulated Rec: Continue monitoring overall system performance.");
+    // --- Aggregation ---
+
+    private TrafficReportDTO buildReport(long day, int fromHour, int toHour, boolean complete, HourAggregate[] hours) {
+        RoadDirection[] directions = RoadDirection.values();
+        long[] vehicles = new long[directions.length];
+        double[] waitSum = new double[directions.length];
+        double[] travelSum = new double[directions.length];
+        long[][] violations = new long[ViolationType.values().length][directions.length];
+        List<TrafficReportDTO.HourlyVolume> hourlyVolumes = new ArrayList<>();
+        List<TrafficReportDTO.PeakPeriod> quarters = new ArrayList<>();
+        int clearanceCount = 0;
+        for (HourAggregate hour : hours) clearanceCount += hour.getClearanceCount();
+        float[] clearances = new float[clearanceCount];
+        int c = 0;
+
+        for (HourAggregate hour : hours) {
+            if (hour.getActiveMinutes() == 0) continue;
+            for (RoadDirection direction : directions) {
+                int d = direction.ordinal();
+                vehicles[d] += hour.getVehicles(direction);
+                waitSum[d] += hour.getWaitSum(direction);
+                travelSum[d] += hour.getTravelSum(direction);
+                for (ViolationType type : ViolationType.values()) {
+                    violations[type.ordinal()][d] += hour.getViolations(type, direction);
+                }
+            }
+            int hourVehicles = hour.getTotalVehicles();
+            hourlyVolumes.add(new TrafficReportDTO.HourlyVolume(
+                    formatTime(hour.getHourOfDay(), 0), hourVehicles,
+                    hourVehicles == 0 ? 0 : hour.getTotalWaitSum() / hourVehicles / 1000.0));
+            int quarterMinutes = TrafficHistory.MINUTES_PER_HOUR / HourAggregate.QUARTERS;
+            for (int q = 0; q < HourAggregate.QUARTERS; q++) {
+                int count = hour.getQuarterVehicles(q);
+                if (count == 0) continue;
+                quarters.add(new TrafficReportDTO.PeakPeriod(
+                        formatTime(hour.getHourOfDay(), q * quarterMinutes),
+                        formatTime(hour.getHourOfDay() + (q + 1) / HourAggregate.QUARTERS, ((q + 1) % HourAggregate.QUARTERS) * quarterMinutes),
+                        count, count * (double) HourAggregate.QUARTERS));
+            }
+            float[] hourClearances = hour.getClearances();
+            System.arraycopy(hourClearances, 0, clearances, c, hourClearances.length);
+            c += hourClearances.length;
+        }
+
+        // --- Totals ---
+        long totalVehicles = Arrays.stream(vehicles).sum();
+        double avgWait = totalVehicles == 0 ? 0 : Arrays.stream(waitSum).sum() / totalVehicles / 1000.0;
+        double avgTravel = totalVehicles == 0 ? 0 : Arrays.stream(travelSum).sum() / totalVehicles / 1000.0;
+
+        // --- Peak periods: busiest first, earlier first on ties (list is in time order, sort is stable) ---
+        List<TrafficReportDTO.PeakPeriod> peaks = quarters.stream()
+                .sorted(Comparator.comparingLong(TrafficReportDTO.PeakPeriod::vehicles).reversed())
+                .limit(MAX_PEAK_PERIODS)
+                .toList();
+
+        // --- Approaches: worst average wait first ---
+        List<TrafficReportDTO.ApproachStats> approaches = new ArrayList<>();
+        for (RoadDirection direction : directions) {
+            int d = direction.ordinal();
+            approaches.add(new TrafficReportDTO.ApproachStats(directionLabel(direction), vehicles[d],
+                    vehicles[d] == 0 ? 0 : waitSum[d] / vehicles[d] / 1000.0,
+                    vehicles[d] == 0 ? 0 : travelSum[d] / vehicles[d] / 1000.0));
+        }
+        approaches.sort(Comparator.comparingDouble(TrafficReportDTO.ApproachStats::avgWaitSeconds).reversed());
+
+        // --- Violation hot spots: approach + type with the most violations ---
+        List<TrafficReportDTO.ViolationHotspot> hotspots = new ArrayList<>();
+        long totalViolations = 0;
+        for (ViolationType type : ViolationType.values()) {
+            for (RoadDirection direction : directions) {
+                long count = violations[type.ordinal()][direction.ordinal()];
+                totalViolations += count;
+                if (count > 0) {
+                    hotspots.add(new TrafficReportDTO.ViolationHotspot(directionLabel(direction), type.getLabel(), count));
+                }
+            }
+        }
+        hotspots.sort(Comparator.comparingLong(TrafficReportDTO.ViolationHotspot::count).reversed());
+        List<TrafficReportDTO.ViolationHotspot> topHotspots = hotspots.stream().limit(MAX_HOTSPOTS).toList();
+
+        // --- Emergency clearance percentiles (nearest rank) ---
+        Arrays.sort(clearances);
+        TrafficReportDTO.ClearanceStats clearance = new TrafficReportDTO.ClearanceStats(clearances.length,
+                percentile(clearances, 0.50), percentile(clearances, 0.90), percentile(clearances, 0.99),
+                clearances.length == 0 ? 0 : clearances[clearances.length - 1]);
+
+        String summary = buildSummary(day, fromHour, toHour, totalVehicles, avgWait, peaks, approaches,
+                totalViolations, topHotspots, clearance);
+        List<String> recommendations = buildRecommendations(avgWait, peaks, approaches, topHotspots, clearance);
+
+        return new TrafficReportDTO(day, fromHour, toHour, complete, totalVehicles, avgWait, avgTravel,
+                hourlyVolumes, peaks, approaches, topHotspots, clearance, summary, recommendations);
+    }
+
+    private static double percentile(float[] sorted, double quantile) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    // --- Text ---
 
-        if (input.avgWaitTime() > 40.0) {
-            recommendations.add("Simulated Rec: Average wait time is high. Review signal timings during peak hours observed.");
+    private static String buildSummary(long day, int fromHour, int toHour, long totalVehicles, double avgWait,
+                                       List<TrafficReportDTO.PeakPeriod> peaks,
+                                       List<TrafficReportDTO.ApproachStats> approaches, long totalViolations,
+                                       List<TrafficReportDTO.ViolationHotspot> hotspots,
+                                       TrafficReportDTO.ClearanceStats clearance) {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("Day %d, %s-%s: %,d vehicles processed. ", day,
+                formatTime(fromHour, 0), formatTime(toHour, 0), totalVehicles));
+        if (totalVehicles == 0) {
+            return summary.append("No traffic has been recorded in this period yet.").toString();
         }
 
-        if (!input.violations().isEmpty()) {
-            // Find violation type with highest count
-             input.violations().stream()
-                 .max((v1, v2) -> Integer.compare(v1.count(), v2.count()))
-                 .ifPresent(maxViolation -> {
-                     if (maxViolation.count() > 3) { // Only recommend if count is significant
-                         recommendations.add(String.format("Simulated Rec: Focus enforcement or review signal phase for '%s' violations.", maxViolation.type()));
-                     }
-                 });
+        if (avgWait < 20.0) {
+            summary.append(String.format("Average wait time was excellent at %.1fs. ", avgWait));
+        } else if (avgWait < 45.0) {
+            summary.append(String.format("Average wait time was moderate at %.1fs. ", avgWait));
         } else {
-             recommendations.add("Simulated Rec: Violation rates are low, maintain current monitoring.");
+            summary.append(String.format("Average wait time was high at %.1fs, suggesting congestion. ", avgWait));
+        }
+
+        if (!peaks.isEmpty()) {
+            TrafficReportDTO.PeakPeriod peak = peaks.get(0);
+            summary.append(String.format("Peak period %s-%s (%.0f vehicles/h). ", peak.start(), peak.end(), peak.vehiclesPerHour()));
         }
+        TrafficReportDTO.ApproachStats worst = approaches.get(0);
+        summary.append(String.format("Longest waits on the %s approach (%.1fs on average). ", worst.direction(), worst.avgWaitSeconds()));
 
-        // Ensure we don't exceed 3 recommendations for brevity
-        List<String> finalRecommendations = recommendations.stream().limit(3).collect(Collectors.toList());
+        if (totalViolations == 0) {
+            summary.append("No violations were recorded.");
+        } else {
+            TrafficReportDTO.ViolationHotspot top = hotspots.get(0);
+            summary.append(String.format("%d violations recorded, most often %s on the %s approach (%d).",
+                    totalViolations, top.type(), top.direction(), top.count()));
+        }
+        if (clearance.count() > 0) {
+            summary.append(String.format(" %d emergency vehicle%s cleared the junction in %.1fs (median).",
+                    clearance.count(), clearance.count() == 1 ? "" : "s", clearance.p50()));
+        }
+        return summary.toString();
+    }
 
+    private static List<String> buildRecommendations(double avgWait, List<TrafficReportDTO.PeakPeriod> peaks,
+                                                     List<TrafficReportDTO.ApproachStats> approaches,
+                                                     List<TrafficReportDTO.ViolationHotspot> hotspots,
+                                                     TrafficReportDTO.ClearanceStats clearance) {
+        List<String> recommendations = new ArrayList<>();
+        TrafficReportDTO.ApproachStats worst = approaches.get(0);
+        if (worst.avgWaitSeconds() > HIGH_WAIT_SECONDS || (avgWait > 0 && worst.avgWaitSeconds() > 1.5 * avgWait)) {
+            String around = peaks.isEmpty() ? "" : " around " + peaks.get(0).start();
+            recommendations.add(String.format("Lengthen the green phase for the %s approach%s; its average wait is %.1fs against %.1fs overall.",
+                    worst.direction(), around, worst.avgWaitSeconds(), avgWait));
+        }
+        if (!hotspots.isEmpty() && hotspots.get(0).count() > SIGNIFICANT_VIOLATIONS) {
+            TrafficReportDTO.ViolationHotspot top = hotspots.get(0);
+            ViolationType type = ViolationType.fromLabel(top.type());
+            String action = switch (type != null ? type : ViolationType.RED_LIGHT) {
+                case RED_LIGHT -> "review the yellow and all-red intervals and add red-light enforcement";
+                case SPEEDING -> "add speed enforcement or traffic calming";
+                case ILLEGAL_TURN -> "extend the turn-lane markings and add advance lane signage so vehicles reach the right lane";
+                case ILLEGAL_LANE_CHANGE -> "extend the solid line before the stop line";
+                case STOP_SIGN -> "improve stop sign visibility";
+            };
+            recommendations.add(String.format("%s violations concentrate on the %s approach (%d): %s.",
+                    top.type(), top.direction(), top.count(), action));
+        }
+        if (clearance.count() > 0 && clearance.p90() > SLOW_CLEARANCE_SECONDS) {
+            recommendations.add(String.format("Emergency clearance is slow (p90 %.1fs): start signal preemption earlier.", clearance.p90()));
+        }
+        if (recommendations.isEmpty()) {
+            recommendations.add("Traffic is flowing within targets; continue monitoring overall system performance.");
+        }
+        return recommendations.stream().limit(MAX_RECOMMENDATIONS).toList();
+    }
 
-        System.out.println("AI Report Simulation: Generated output - Summary: " + summary + ", Recommendations: " + finalRecommendations);
+    private static String formatTime(int hour, int minute) {
+        return String.format("%02d:%02d", hour, minute);
+    }
 
-        return new GenerateDailyReportOutputDTO(summary, finalRecommendations);
-        // --- End Simulated Logic ---
+    private static String directionLabel(RoadDirection direction) {
+        String name = direction.name();
+        return name.charAt(0) + name.substring(1).toLowerCase() + "bound"; // Same as violation locations
     }
-}
\ No newline at end of file
+
+    private record ReportKey(long day, int fromHour, int toHour) {}
+
+    private record CachedReport(long[] revisions, boolean complete, TrafficReportDTO report) {}
+}
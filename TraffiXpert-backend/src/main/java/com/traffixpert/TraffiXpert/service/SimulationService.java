@@ -1,15 +1,42 @@
 /* krayven06/traffixpert/TraffiXpert-92907556fcb20d7c61fc29c88abf5001b4a08109/TraffiXpert-backend/src/main/java/com/traffixpert/TraffiXpert/service/SimulationService.java */
 package com.traffixpert.TraffiXpert.service; // Adjust package name if needed
 
+import com.traffixpert.TraffiXpert.demand.DemandConfig;
+import com.traffixpert.TraffiXpert.demand.DemandGenerator;
+import com.traffixpert.TraffiXpert.demand.DemandLoader;
+import com.traffixpert.TraffiXpert.demand.LoadMetrics;
+import com.traffixpert.TraffiXpert.emergency.EmergencyManager;
+import com.traffixpert.TraffiXpert.emergency.SignalPreemption;
+import com.traffixpert.TraffiXpert.forecast.TrafficForecaster;
+import com.traffixpert.TraffiXpert.history.TrafficHistory;
+import com.traffixpert.TraffiXpert.meso.MesoVehicle;
+import com.traffixpert.TraffiXpert.meso.MesoscopicModel;
+import com.traffixpert.TraffiXpert.metrics.TrafficMetrics;
 import com.traffixpert.TraffiXpert.model.*; // Import model classes
+import com.traffixpert.TraffiXpert.network.IntersectionLayout;
+import com.traffixpert.TraffiXpert.network.NetworkLoader;
+import com.traffixpert.TraffiXpert.network.RoadNetwork;
+import com.traffixpert.TraffiXpert.network.RoutePlanner;
+import com.traffixpert.TraffiXpert.recording.TrajectoryRecorder;
+import com.traffixpert.TraffiXpert.scheduling.FixedTimestepClock;
+import com.traffixpert.TraffiXpert.scheduling.Stage;
+import com.traffixpert.TraffiXpert.scheduling.StageScheduler;
+import com.traffixpert.TraffiXpert.spatial.VehicleIndex;
+import com.traffixpert.TraffiXpert.util.SequencedRingBuffer;
+import com.traffixpert.TraffiXpert.violation.ViolationEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service; // Import Spring Service annotation
 
 import jakarta.annotation.PostConstruct; // Import for PostConstruct
 import jakarta.annotation.PreDestroy; // Import for PreDestroy
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.time.Duration; // Import Duration
-import java.time.Instant; // Import Instant
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -17,38 +44,77 @@ import java.util.Map;
 import java.util.concurrent.*; // Import concurrent package
 import java.util.concurrent.atomic.AtomicInteger; // Import AtomicInteger
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors; // Import Collectors
 import java.util.Random; // Add Random import
 
 @Service // Mark this as a Spring Service component
 public class SimulationService {
 
     // --- State Variables ---
+    private final RoadNetwork network; // Loaded from the network file
+    private final RoutePlanner routePlanner; // Origin-destination routing over the network
+    private final DemandConfig demandConfig; // As loaded; shared with the sessions built from it
+    private final Map<VehicleType, DriverProfile> driverProfiles; // Immutable; shared with forks and sessions
+    private double recostTimer; // Time until link travel times are refreshed from live speeds (ms)
+    private final DemandGenerator demand; // Vehicle arrivals at the network entries
+    private final LoadMetrics loadMetrics = new LoadMetrics(); // Tick time and throughput
     private final List<TrafficSignal> signals;
     private final List<Road> roads;
+    private final MesoscopicModel mesoscopic; // Queue model for every link not simulated by a Road
+    private final int[] mesoEntryLinks; // Demand entries outside the microscopic area
     private boolean isAutoMode;
     private double autoModeTimer;
     private AutoModeState autoModeState; // Enum defined below
-    private boolean isEmergency;
-    private double emergencyTimer;
+    private final EmergencyManager emergencyManager = new EmergencyManager(); // All active emergencies
+    private boolean wasOverriding; // Signals were overridden in the previous tick
+    private SignalState[] manualSignalStates; // Signals to restore after preemption in manual mode
     private long lastTime; // Use long for System.nanoTime()
+    private double simulatedTime; // Simulated time since startup (ms), excludes pauses
+    private double physicsStepEnd; // End of the step the roads are moving through (ms), the time of their exits
+    private volatile long tickCount; // Completed updates, versions the vehicle index
+    private volatile VehicleIndex vehicleIndex; // Refreshed by the map-index stage while someone reads it
+    private volatile boolean vehicleIndexRequested;
+    private volatile Stats latestStats; // Published by the stats stage
+    private TrajectoryRecorder trajectoryRecorder; // Optional, injected by Spring
+    private String mesoscopicRoads = ""; // Approaches configured mesoscopic at startup (traffixpert.meso.roads)
 
     // --- Simulation Loop Control ---
     private volatile boolean isRunning = false; // volatile for thread safety
     private ScheduledExecutorService scheduler;
     private ScheduledFuture<?> simulationTaskFuture;
-    private static final long UPDATE_INTERVAL_MS = 50; // Approx 20 FPS
+    private volatile boolean hosted; // Loop driven by a SessionManager worker instead of the own scheduler
+    private static final long UPDATE_INTERVAL_MS = 50; // Default physics tick, approx 20 FPS
+
+    // --- Stages: physics every tick, signal control and analytics at their own cadences ---
+    public static final String STAGE_CONTROL = "control";
+    public static final String STAGE_PHYSICS = "physics";
+    public static final String STAGE_STATS = "stats";
+    public static final String STAGE_MAP_INDEX = "map-index";
+    private static final long CONTROL_PERIOD_MS = 100;
+    private static final long STATS_PERIOD_MS = 500;
+    private static final long MAP_INDEX_PERIOD_MS = 100;
+    private final StageScheduler stages = new StageScheduler();
+
+    // --- Loop clock: wall time -> fixed physics steps, with catch-up and overrun handling ---
+    private static final int MAX_SUBSTEPS = 5; // Catch up at most 5 steps per loop iteration
+    private static final long MAX_LAG_MS = 2000; // Owed time beyond this is dropped
+    private final FixedTimestepClock clock = new FixedTimestepClock(FixedTimestepClock.OverrunPolicy.SLOW_MOTION, MAX_SUBSTEPS, MAX_LAG_MS);
+    private static final double RECOST_INTERVAL_MS = 60000; // Route re-costing period
+    private static final double MIN_GREEN_AFTER_PREEMPTION = 5000; // Resumed green phases get at least this (ms)
 
     // --- Incident Tracking ---
     // This counter now only tracks emergency incidents triggered by triggerEmergency()
     private final AtomicInteger incidentCount = new AtomicInteger(0);
 
     // --- Data Logging ---
-    private final ConcurrentLinkedDeque<Violation> violations = new ConcurrentLinkedDeque<>();
-    // --- MODIFIED: Use Map for easy update of EmergencyEvent ---
-    private final ConcurrentHashMap<String, EmergencyEvent> emergencyLogMap = new ConcurrentHashMap<>();
-    private final ConcurrentLinkedDeque<String> emergencyLogOrder = new ConcurrentLinkedDeque<>(); // To maintain order & size limit
-    private final List<Double> emergencyResponseTimes = Collections.synchronizedList(new ArrayList<>());
+    // Bounded lock-free logs; the oldest entries are evicted once MAX_LOG_SIZE (rounded up to a power of two) is reached
+    private final SequencedRingBuffer<Violation> violations = new SequencedRingBuffer<>(MAX_LOG_SIZE);
+    private final SequencedRingBuffer<EmergencyEvent> emergencyLog = new SequencedRingBuffer<>(MAX_LOG_SIZE); // Events are updated in place on exit
+    // Wait, travel and clearance time distributions (fixed memory, per direction and window)
+    private final TrafficMetrics trafficMetrics = new TrafficMetrics();
+    // Per-minute history over the simulated day clock, for server-side reports
+    private final TrafficHistory trafficHistory = new TrafficHistory();
+    // Online short-term forecasting models, trained on the same exits
+    private final TrafficForecaster trafficForecaster = new TrafficForecaster();
     private long totalVehicleCount = 0; // Cumulative count of vehicles that have passed
 
     private static final int MAX_LOG_SIZE = 1000;
@@ -56,41 +122,99 @@ public class SimulationService {
     private static final AtomicLong emergencyIdCounter = new AtomicLong(0);
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
 
-    // --- NEW: Tracking current emergency vehicle ---
-    private volatile Long currentEmergencyVehicleId = null; // ID of the active emergency vehicle
-    private volatile Instant currentEmergencyStartTime = null; // Time it was spawned
+    private volatile Double lastCompletedClearance = null; // Clearance time of the last emergency that exited (s)
 
     // --- NEW: Emergency types and randomizer ---
     private static final String[] EMERGENCY_TYPES = {"Ambulance", "Firetruck", "Police Car"}; // Add types
     private final Random random = new Random(); // Add Random instance
 
-    // --- UPDATED: Define Violation Types and Fines in INR ---
-    // Make sure the order matches
-    private static final String[] VIOLATION_TYPES = {"Red Light", "Illegal Lane Change", "Speeding", "Stop Sign", "Illegal Turn"};
-    private static final String[] VIOLATION_FINES = {"₹1000", "₹1500", "₹2000", "₹500", "₹1500"}; // UPDATED Illegal Lane Change fine
+    // --- Violation rules, evaluated against vehicle state every tick (types and INR fines: ViolationType) ---
+    private final ViolationEngine violationEngine = new ViolationEngine((road, type) -> addViolation(road.getName().name(), type));
 
     // Enum for AutoModeState, mirroring TS logic
      private enum AutoModeState {
         N_GREEN, N_YELLOW, S_GREEN, S_YELLOW, E_GREEN, E_YELLOW, W_GREEN, W_YELLOW
     }
 
+    public static final String DEFAULT_NETWORK_FILE = "network/default-intersection.json";
+    public static final String DEFAULT_DEMAND_FILE = "demand/default-demand.json";
+
+    /**
+     * Constructor for SimulationService using the bundled four-way intersection and demand.
+     */
+    public SimulationService() {
+        this(new ClassPathResource(DEFAULT_NETWORK_FILE), new ClassPathResource(DEFAULT_DEMAND_FILE));
+    }
+
     /**
      * Constructor for SimulationService.
+     * Loads the road network and demand, and builds signals and roads for the focus intersection.
+     * @param networkFile Network file (traffixpert.network.file).
+     * @param demandFile Demand file (traffixpert.demand.file).
+     */
+    @Autowired
+    public SimulationService(@Value("${traffixpert.network.file:classpath:" + DEFAULT_NETWORK_FILE + "}") Resource networkFile,
+                             @Value("${traffixpert.demand.file:classpath:" + DEFAULT_DEMAND_FILE + "}") Resource demandFile) {
+        this(loadNetwork(networkFile), loadDemand(demandFile));
+    }
+
+    /**
+     * Constructor for SimulationService from an already loaded network and demand.
      * Initializes signals, roads, and default state.
+     * @param network The road network; its focus node must have four signalized approaches.
+     * @param demandConfig Demand profiles; OD node ids must exist in the network.
      */
-    public SimulationService() {
-        // Initialize signals (0:N, 1:S, 2:E, 3:W)
-        signals = new ArrayList<>(4);
-        for (int i = 0; i < 4; i++) {
+    public SimulationService(RoadNetwork network, DemandConfig demandConfig) {
+        this.network = network;
+        this.demandConfig = demandConfig;
+        this.driverProfiles = DriverProfile.DEFAULTS; // Before the roads, which read it
+        if (network.getFocusNode() < 0) {
+            throw new IllegalStateException("Network '" + network.getName() + "' has no signalized focus node");
+        }
+        this.routePlanner = new RoutePlanner(network); // Roads spawn routed vehicles, so create it first
+        this.recostTimer = RECOST_INTERVAL_MS;
+
+        // Initialize roads from the focus intersection, ordered by signal group (0:N, 1:S, 2:E, 3:W)
+        List<RoadGeometry> approaches = IntersectionLayout.approachesOf(network, network.getFocusNode());
+        if (approaches.size() != 4) {
+            throw new IllegalStateException("Focus intersection needs 4 signalized approaches, found " + approaches.size());
+        }
+        roads = new ArrayList<>(approaches.size());
+        for (RoadGeometry geometry : approaches) {
+            roads.add(new Road(this, geometry)); // Pass 'this' (the service instance)
+        }
+
+        // One signal per approach
+        signals = new ArrayList<>(roads.size());
+        for (int i = 0; i < roads.size(); i++) {
             signals.add(new TrafficSignal());
         }
+        // Links beyond the approaches run in the mesoscopic queue model; the approaches stay microscopic
+        this.mesoscopic = new MesoscopicModel(network, new MesoBoundary(), this::copyVehicle);
+        for (Road road : roads) {
+            this.mesoscopic.setMicroscopic(road.getLinkIndex(), true);
+        }
+
+        // Demand enters on the approach roads and, on larger networks, on the first link out of
+        // every other boundary node (one entry per origin node)
+        List<Integer> entries = new ArrayList<>();
+        List<Integer> origins = new ArrayList<>();
+        for (Road road : roads) {
+            entries.add(road.getLinkIndex());
+            origins.add(network.linkFrom(road.getLinkIndex()));
+        }
+        List<Integer> mesoEntries = new ArrayList<>();
+        for (int node : this.routePlanner.getTerminalNodes()) {
+            if (origins.contains(node) || network.outStart(node) == network.outEnd(node)) continue;
+            int link = network.outLink(network.outStart(node));
+            entries.add(link);
+            mesoEntries.add(link);
+        }
+        this.mesoEntryLinks = mesoEntries.stream().mapToInt(Integer::intValue).toArray();
+        this.demand = new DemandGenerator(network, entries.stream().mapToInt(Integer::intValue).toArray(), demandConfig);
 
-        // Initialize roads, passing 'this' (the service instance)
-        roads = new ArrayList<>(4);
-        roads.add(new Road(RoadDirection.NORTH, this));
-        roads.add(new Road(RoadDirection.SOUTH, this));
-        roads.add(new Road(RoadDirection.EAST, this));
-        roads.add(new Road(RoadDirection.WEST, this));
+        System.out.println("Loaded network '" + network.getName() + "': " + network.nodeCount() + " nodes, " + network.linkCount()
+                + " links (" + roads.size() + " microscopic approaches, " + mesoEntryLinks.length + " mesoscopic entries).");
 
         // Initial state setup
         this.isAutoMode = true;
@@ -98,8 +222,7 @@ public class SimulationService {
         this.autoModeState = AutoModeState.N_GREEN;
         this.signals.get(0).setState(SignalState.GREEN); // North signal starts GREEN
 
-        this.isEmergency = false;
-        this.emergencyTimer = 0;
+        registerStages();
 
         // Initialize scheduler but don't start the task yet
         this.scheduler = Executors.newSingleThreadScheduledExecutor();
@@ -108,6 +231,158 @@ public class SimulationService {
         // startSimulationLoop(); // Called via @PostConstruct now
     }
 
+    /**
+     * Constructor for a fork (see fork()): shares the network, demand configuration, route costs
+     * and the mesoscopic queues (copy-on-write) with the source, and copies the small, hot state:
+     * signals, control mode, the vehicles on the approach roads and the waiting arrivals.
+     * Metrics, history and logs start empty, so they describe the fork's own run.
+     * @param source The simulation to fork; its lock is held by the caller.
+     */
+    private SimulationService(SimulationService source) {
+        this.network = source.network;
+        this.demandConfig = source.demandConfig;
+        this.driverProfiles = source.driverProfiles;
+        this.routePlanner = source.routePlanner.fork();
+        this.recostTimer = source.recostTimer;
+        this.demand = source.demand.fork();
+        this.mesoEntryLinks = source.mesoEntryLinks;
+
+        List<RoadGeometry> approaches = IntersectionLayout.approachesOf(network, network.getFocusNode());
+        roads = new ArrayList<>(approaches.size());
+        signals = new ArrayList<>(approaches.size());
+        for (int i = 0; i < approaches.size(); i++) {
+            Road road = new Road(this, approaches.get(i));
+            road.copyStateFrom(source.roads.get(i));
+            roads.add(road);
+            TrafficSignal signal = new TrafficSignal();
+            signal.setState(source.signals.get(i).getState());
+            signal.setTimer(source.signals.get(i).getTimer());
+            signals.add(signal);
+        }
+        this.mesoscopic = source.mesoscopic.fork(new MesoBoundary(), this::copyVehicle);
+
+        this.isAutoMode = source.isAutoMode;
+        this.autoModeTimer = source.autoModeTimer;
+        this.autoModeState = source.autoModeState;
+        this.manualSignalStates = source.manualSignalStates != null ? source.manualSignalStates.clone() : null;
+        this.simulatedTime = source.simulatedTime;
+        this.violationEngine.setSpeedLimit(source.violationEngine.getSpeedLimit());
+
+        registerStages();
+        this.stages.setPeriod(STAGE_PHYSICS, source.stages.getStage(STAGE_PHYSICS).getPeriodMillis());
+        this.stages.setPeriod(STAGE_CONTROL, source.stages.getStage(STAGE_CONTROL).getPeriodMillis());
+        this.hosted = true; // Never runs a loop of its own; driven by runHeadless
+        this.lastTime = System.nanoTime();
+    }
+
+    /** Signal control first, so physics sees this tick's signal states; control runs every few ticks. */
+    private void registerStages() {
+        this.stages.addSimulationStage(STAGE_CONTROL, CONTROL_PERIOD_MS, 10, this::runControl);
+        this.stages.addTickStage(STAGE_PHYSICS, UPDATE_INTERVAL_MS, 10, this::runPhysics);
+        this.stages.addBackgroundStage(STAGE_STATS, STATS_PERIOD_MS, 50, () -> this.latestStats = computeStats());
+        this.stages.addBackgroundStage(STAGE_MAP_INDEX, MAP_INDEX_PERIOD_MS, 20, this::refreshVehicleIndex);
+    }
+
+    /**
+     * Forks the current state into an independent simulation for what-if runs: change the fork
+     * (switch to manual, trigger an emergency, another demand profile) and run it headless
+     * without touching this one. The fork costs the vehicles on the four approaches plus a few
+     * array copies; the network, route costs and mesoscopic queues are shared until changed.
+     * Random draws (arrivals, drivers, emergencies) come from the seed, so two forks with the
+     * same seed see the same traffic until their changes make them diverge.
+     * @param seed Seed for the fork's random draws.
+     * @return The fork, paused.
+     * @throws IllegalStateException While an emergency is in progress (its preemption isn't forked).
+     */
+    public synchronized SimulationService fork(long seed) {
+        if (this.wasOverriding || this.emergencyManager.hasActiveEmergencies()) {
+            throw new IllegalStateException("Cannot fork while an emergency is in progress");
+        }
+        SimulationService fork = new SimulationService(this);
+        fork.setSeed(seed);
+        return fork;
+    }
+
+    /**
+     * Restarts all random draws of this simulation from a seed.
+     * @param seed The seed.
+     */
+    public void setSeed(long seed) {
+        this.random.setSeed(seed);
+        this.demand.setSeed(this.random.nextLong());
+    }
+
+    /** Reads the network file, wrapping I/O errors so the constructor chain stays unchecked. */
+    private static RoadNetwork loadNetwork(Resource networkFile) {
+        try (InputStream input = networkFile.getInputStream()) {
+            return NetworkLoader.load(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load network file " + networkFile.getDescription(), e);
+        }
+    }
+
+    /** Reads the demand file, wrapping I/O errors like loadNetwork. */
+    private static DemandConfig loadDemand(Resource demandFile) {
+        try (InputStream input = demandFile.getInputStream()) {
+            return DemandLoader.load(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load demand file " + demandFile.getDescription(), e);
+        }
+    }
+
+    /**
+     * Attaches the trajectory recorder (vehicles are sampled while it is recording).
+     * @param trajectoryRecorder The recorder bean.
+     */
+    @Autowired(required = false)
+    public void setTrajectoryRecorder(TrajectoryRecorder trajectoryRecorder) {
+        this.trajectoryRecorder = trajectoryRecorder;
+    }
+
+    public TrajectoryRecorder getTrajectoryRecorder() { return trajectoryRecorder; }
+    /** @return Driver profile per vehicle type for this simulation (immutable, shared with its forks). */
+    public Map<VehicleType, DriverProfile> getDriverProfiles() { return driverProfiles; }
+
+    /**
+     * A new, independent simulation for a session (see SessionManager): same network, demand
+     * and driver profiles, configured through the same methods as this one was by Spring, with
+     * its current settings: stage cadences, loop clock, mesoscopic approaches, and trajectory
+     * recording into the session's own files (see TrajectoryRecorder.forSession).
+     * @param sessionId Session id, names the recording directory.
+     * @return The simulation, not started.
+     */
+    public SimulationService createSession(String sessionId) {
+        SimulationService session = new SimulationService(this.network, this.demandConfig);
+        session.configureStages(this.stages.getStage(STAGE_PHYSICS).getPeriodMillis(),
+                this.stages.getStage(STAGE_CONTROL).getPeriodMillis(),
+                this.stages.getStage(STAGE_STATS).getPeriodMillis(),
+                this.stages.getStage(STAGE_MAP_INDEX).getPeriodMillis());
+        session.configureClock(this.clock.getPolicy(), this.clock.getMaxSubsteps(), this.clock.getMaxLagMillis());
+        session.configureMesoscopic(this.mesoscopicRoads);
+        if (this.trajectoryRecorder != null) {
+            session.setTrajectoryRecorder(this.trajectoryRecorder.forSession(sessionId));
+        }
+        return session;
+    }
+
+    /**
+     * Sets the stage cadences from the configuration.
+     * @param physicsMillis Physics tick (traffixpert.scheduler.physics-period-ms).
+     * @param controlMillis Signal control (traffixpert.scheduler.control-period-ms).
+     * @param statsMillis Stats snapshot (traffixpert.scheduler.stats-period-ms).
+     * @param mapIndexMillis Live map index (traffixpert.scheduler.map-index-period-ms).
+     */
+    @Autowired
+    public void configureStages(@Value("${traffixpert.scheduler.physics-period-ms:" + UPDATE_INTERVAL_MS + "}") long physicsMillis,
+                                @Value("${traffixpert.scheduler.control-period-ms:" + CONTROL_PERIOD_MS + "}") long controlMillis,
+                                @Value("${traffixpert.scheduler.stats-period-ms:" + STATS_PERIOD_MS + "}") long statsMillis,
+                                @Value("${traffixpert.scheduler.map-index-period-ms:" + MAP_INDEX_PERIOD_MS + "}") long mapIndexMillis) {
+        setStagePeriod(STAGE_PHYSICS, physicsMillis);
+        setStagePeriod(STAGE_CONTROL, controlMillis);
+        setStagePeriod(STAGE_STATS, statsMillis);
+        setStagePeriod(STAGE_MAP_INDEX, mapIndexMillis);
+    }
+
     // --- Start simulation on bean initialization ---
     @PostConstruct
     public void initializeSimulation() {
@@ -123,35 +398,45 @@ public class SimulationService {
         if (!isRunning) return; // Don't update if paused
 
         long now = System.nanoTime();
-        // Calculate deltaTime in milliseconds
-        double deltaTime = (now - this.lastTime) / 1_000_000.0;
+        // Wall time since the previous iteration in milliseconds
+        double wallMillis = (now - this.lastTime) / 1_000_000.0;
         this.lastTime = now;
 
-        // Prevent excessively large deltaTime if simulation was paused for a long time
-        if (deltaTime > UPDATE_INTERVAL_MS * 5) { // e.g., if paused > 250ms
-             System.out.println("Large deltaTime detected, capping: " + deltaTime);
-             deltaTime = UPDATE_INTERVAL_MS; // Cap delta to avoid large jumps
+        // Fixed-size steps for the elapsed wall time; late iterations catch up (see FixedTimestepClock)
+        int steps = this.clock.advance(wallMillis, this.stages.getTickPeriodMillis());
+        double stepMillis = this.clock.getStepMillis();
+        for (int i = 0; i < steps; i++) {
+            step(stepMillis);
         }
+    }
 
+    /**
+     * Advances the simulation by one tick: runs the simulation-thread stages that are due.
+     * @param deltaTime Simulated time step (ms).
+     */
+    private void step(double deltaTime) {
+        long tickStart = System.nanoTime(); // For tick time metrics
+        this.stages.tick(deltaTime);
+        this.loadMetrics.recordTick(System.nanoTime() - tickStart);
+    }
 
-        // Handle emergency state
-        if (this.isEmergency) {
-            this.emergencyTimer -= deltaTime;
-            if (this.emergencyTimer <= 0) {
-                 System.out.println("Emergency timer expired.");
-                 // Check if emergency vehicle is still tracked (meaning it hasn't exited yet)
-                 if(this.currentEmergencyVehicleId != null) {
-                    System.out.println("Emergency ended by timer, but vehicle " + this.currentEmergencyVehicleId + " may still be present.");
-                    // Optionally force-record clearance time based on timer expiry here if needed
-                 }
-                this.isEmergency = false;
-                this.currentEmergencyVehicleId = null; // Clear tracked vehicle when timer ends anyway
-                this.currentEmergencyStartTime = null;
-                this.isAutoMode = true; // Resume auto mode after emergency
-                this.autoModeState = AutoModeState.N_YELLOW; // Transition gracefully
-                this.autoModeTimer = 2000; // Yellow light duration
-            }
-        } else if (this.isAutoMode) {
+    /**
+     * Control stage: emergency preemption, auto-mode phasing and route re-costing.
+     * @param deltaTime Simulated time since the previous control run (ms).
+     */
+    private void runControl(double deltaTime) {
+        // Handle emergency preemption (signals are only overridden close to a vehicle's arrival)
+        if (!this.wasOverriding && this.emergencyManager.hasActiveEmergencies()) {
+            // Snapshot before the manager may touch the signals
+            this.manualSignalStates = this.signals.stream().map(TrafficSignal::getState).toArray(SignalState[]::new);
+        }
+        boolean overriding = this.emergencyManager.update(deltaTime, this.signals,
+                signal -> this.isAutoMode && autoPhaseGreenSignal(this.autoModeState) == signal);
+        if (this.wasOverriding && !overriding) {
+            endPreemption();
+        }
+        this.wasOverriding = overriding;
+        if (this.isAutoMode && !overriding) {
             // Handle auto mode transitions
             this.autoModeTimer -= deltaTime;
             if (this.autoModeTimer <= 0) {
@@ -159,7 +444,29 @@ public class SimulationService {
             }
         }
 
+        // Refresh route costs from observed link speeds now and then
+        this.recostTimer -= deltaTime;
+        if (this.recostTimer <= 0) {
+            this.routePlanner.recost();
+            this.recostTimer = RECOST_INTERVAL_MS;
+        }
+    }
+
+    /**
+     * Physics stage (every tick): arrivals, vehicle movement, and the clocks that follow simulated time.
+     * @param deltaTime Simulated time step (ms).
+     */
+    private void runPhysics(double deltaTime) {
+        // Generate arrivals at the entries (time-of-day demand)
+        this.demand.advance(deltaTime);
+        this.trafficHistory.advance(this.demand.getHourOfDay());
+        this.trafficForecaster.advance(this.demand.getHourOfDay());
+        this.loadMetrics.advance(deltaTime);
+        this.trafficMetrics.advance(deltaTime);
+        advanceMesoscopic(deltaTime);
+
         // Update each road, passing the state of its corresponding signal
+        this.physicsStepEnd = this.simulatedTime + deltaTime;
         // Use try-catch for potential concurrent modification if lists change unexpectedly
         try {
             roads.get(0).update(deltaTime, signals.get(0).getState()); // North Road (Signal 0)
@@ -172,6 +479,323 @@ public class SimulationService {
              // Consider pausing simulation on error?
              // stopSimulationLoop();
         }
+        this.simulatedTime += deltaTime;
+        this.tickCount++;
+        sampleTrajectories(deltaTime);
+    }
+
+    /**
+     * Mesoscopic part of a physics step: arrivals on the mesoscopic entries (and on approaches
+     * handed to the queue model), then the queue model itself, which hands vehicles to the
+     * approach roads as they have room.
+     * @param deltaTime Simulated time step (ms).
+     */
+    private void advanceMesoscopic(double deltaTime) {
+        double now = this.simulatedTime + deltaTime;
+        for (int link : this.mesoEntryLinks) {
+            releaseIntoMesoscopic(link, now);
+        }
+        for (Road road : roads) {
+            if (road.isMesoscopic()) releaseIntoMesoscopic(road.getLinkIndex(), now);
+        }
+        this.mesoscopic.advance(deltaTime, now);
+    }
+
+    /** Moves waiting arrivals of an entry link onto it while it has room. */
+    private void releaseIntoMesoscopic(int link, double now) {
+        int destination;
+        while ((destination = this.demand.peekDestination(link)) >= 0 && this.mesoscopic.hasRoom(link)) {
+            this.demand.release(link);
+            int[] route = this.routePlanner.route(link, destination);
+            if (route.length == 0) continue; // Unreachable destination, nothing to simulate
+            this.mesoscopic.enter(new MesoVehicle(route, 0, null), now, network.linkLength(link), false);
+        }
+    }
+
+    /**
+     * Puts a vehicle that drove off the microscopic area on the rest of its route, if any:
+     * it continues in the queue model from where it left the canvas on its outgoing link.
+     */
+    private void continueMesoscopic(Vehicle vehicle) {
+        int[] route = vehicle.getRoute();
+        if (route.length < 2) return;
+        int link = route[1];
+        int from = network.linkFrom(link);
+        double driven = Math.hypot(vehicle.getX() - network.nodeX(from), vehicle.getY() - network.nodeY(from));
+        double remaining = network.linkLength(link) - driven;
+        if (route.length == 2 && remaining <= 0) return; // Already at the destination
+        // Forced: the vehicle has left the road and has nowhere else to be
+        this.mesoscopic.enter(new MesoVehicle(route, 1, null), this.simulatedTime, remaining, true);
+    }
+
+    /**
+     * Switches an approach between microscopic (vehicle by vehicle) and mesoscopic (queue) simulation.
+     * Vehicles convert on the spot: going mesoscopic, the vehicles before the stop line become
+     * queue entries with their remaining distance (those already crossing finish on the road);
+     * going microscopic, queue entries are placed back on the road, the waiting ones as a
+     * standing queue at the stop line, and any that don't fit enter from the start as it frees up.
+     * Signal control is unchanged: a mesoscopic approach discharges at saturation flow on green.
+     * @param direction The approach.
+     * @param isMesoscopic True to run it in the queue model.
+     */
+    public synchronized void setRoadMesoscopic(RoadDirection direction, boolean isMesoscopic) {
+        Road road = roads.stream().filter(r -> r.getName() == direction).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No approach " + direction));
+        if (road.isMesoscopic() == isMesoscopic) return;
+        int link = road.getLinkIndex();
+        double now = this.simulatedTime;
+        if (isMesoscopic) {
+            road.setMesoscopic(true);
+            this.mesoscopic.setMicroscopic(link, false);
+            for (Vehicle vehicle : road.removeApproaching()) {
+                int[] route = vehicle.getRoute();
+                MesoVehicle entry = new MesoVehicle(route.length > 0 ? route : new int[] { link }, 0, vehicle);
+                this.mesoscopic.enter(entry, now, network.linkLength(link) - vehicle.getPathPosition(), true);
+            }
+        } else {
+            this.mesoscopic.setMicroscopic(link, true);
+            road.setMesoscopic(false);
+            double speed = network.linkSpeedLimit(link);
+            double front = road.getStopLinePosition() - this.driverProfiles.get(VehicleType.NORMAL).minimumGap();
+            List<MesoVehicle> entries = this.mesoscopic.drain(link, now);
+            for (int i = 0; i < entries.size(); i++) {
+                MesoVehicle entry = entries.get(i);
+                double remaining = entry.remainingDistance(now, speed);
+                double position = Math.min(front, network.linkLength(link) - remaining);
+                if (!placeOnRoad(entry, road, position, remaining > 0 ? speed : 0)) {
+                    // No room left: the rest wait at the start of the road
+                    for (MesoVehicle rest : entries.subList(i, entries.size())) {
+                        this.mesoscopic.enter(rest, now, 0, true);
+                    }
+                    break;
+                }
+            }
+        }
+        System.out.println("Road " + direction + " now simulated " + (isMesoscopic ? "mesoscopically" : "microscopically") + ".");
+    }
+
+    /**
+     * Puts a queue entry on a road as a microscopic vehicle: its own vehicle if it came from that
+     * road (with the queued time added to its clocks), otherwise a new one for the rest of its route.
+     * @return False if the road has no room (see Road.admit).
+     */
+    private boolean placeOnRoad(MesoVehicle entry, Road road, double position, double speed) {
+        Vehicle own = entry.getVehicle();
+        boolean returning = own != null && own.getRoad() == road;
+        Vehicle vehicle = returning ? own : new Vehicle(road, VehicleType.NORMAL, entry.remainingRoute());
+        if (!road.admit(vehicle, position, speed)) return false;
+        if (returning) vehicle.addMesoscopicTime(entry.getTravelTime(), entry.getWaitTime());
+        return true;
+    }
+
+    /** Road simulating a link, or null. */
+    private Road roadOf(int link) {
+        for (Road road : roads) {
+            if (road.getLinkIndex() == link) return road;
+        }
+        return null;
+    }
+
+    /** Connects the queue model to the approach roads and their signals. */
+    private final class MesoBoundary implements MesoscopicModel.Boundary {
+        @Override
+        public boolean mayLeave(int link) {
+            Road road = roadOf(link);
+            return road == null || signals.get(roads.indexOf(road)).getState() != SignalState.RED;
+        }
+
+        @Override
+        public boolean canEnterMicroscopic(int link) {
+            Road road = roadOf(link);
+            return road != null && road.canAdmit();
+        }
+
+        @Override
+        public void enterMicroscopic(MesoVehicle entry, int link) {
+            Road road = roadOf(link);
+            if (!placeOnRoad(entry, road, 0, network.linkSpeedLimit(link))) {
+                System.err.println("No room on road " + road.getName() + " for a vehicle from the mesoscopic model, dropped.");
+            }
+        }
+
+        @Override
+        public void onLeave(MesoVehicle entry, int link, double timeOnLink, double delay) {
+            if (timeOnLink > 0) {
+                routePlanner.observeLinkSpeed(link, network.linkLength(link) / timeOnLink);
+            }
+            Road road = roadOf(link);
+            if (road != null && road.isMesoscopic()) {
+                // Crossed the intersection from a mesoscopic approach: same figures as a microscopic exit
+                Vehicle vehicle = entry.getVehicle();
+                double wait = delay + (vehicle != null ? vehicle.getTotalWaitTime() : 0);
+                double travel = timeOnLink + (vehicle != null ? vehicle.getTravelTime() : 0);
+                recordApproachExit(road.getName(), wait, travel);
+            }
+        }
+    }
+
+    /** Copy of a vehicle queued in the mesoscopic model, for this simulation's road of the same link. */
+    private Vehicle copyVehicle(Vehicle vehicle) {
+        return new Vehicle(vehicle, roadOf(vehicle.getRoad().getLinkIndex()));
+    }
+
+    /** Samples trajectories for offline analysis (cheap array stores; files are written in the background). */
+    private void sampleTrajectories(double deltaTime) {
+        if (this.trajectoryRecorder != null && this.trajectoryRecorder.shouldSample(deltaTime)) {
+            long time = Math.round(this.simulatedTime);
+            for (Road road : roads) {
+                road.forEachVehicle(v -> this.trajectoryRecorder.record(v, time));
+            }
+        }
+    }
+
+    // --- Headless runs (hybrid time-stepped / discrete-event) ---
+
+    /**
+     * Runs the simulation as fast as possible for a span of simulated time, e.g. to study a whole
+     * day offline. The real-time loop must be stopped.
+     *
+     * With fast-forward, whenever the intersection is idle (every vehicle at rest, nothing able to
+     * enter, no emergency) the run jumps straight to the next event instead of ticking through
+     * it: the next signal phase change, the next arrival (drawn from the Poisson demand), a lane
+     * change cooldown running out, a vehicle in the queue model able to leave its link, a route
+     * re-cost, or a forecast bin boundary of the day clock (so per-bin consumers still see every bin). Otherwise it steps in physics ticks,
+     * exactly as the real-time loop does.
+     * @param durationMillis Simulated time to run (ms).
+     * @param fastForward Whether idle periods are skipped.
+     * @return What the run did.
+     * @throws IllegalStateException If the real-time loop is running.
+     */
+    public synchronized HeadlessRun runHeadless(double durationMillis, boolean fastForward) {
+        if (isRunning) {
+            throw new IllegalStateException("Stop the simulation loop before a headless run");
+        }
+        long wallStart = System.nanoTime();
+        long tickPeriod = this.stages.getTickPeriodMillis();
+        double end = this.simulatedTime + durationMillis;
+        long steps = 0;
+        long jumps = 0;
+        double skipped = 0;
+        while (this.simulatedTime < end - 1e-9) {
+            double remaining = end - this.simulatedTime;
+            if (fastForward && isIdle()) {
+                double arrival = this.demand.sampleArrivalDelay();
+                double delay = Math.min(nextEventDelay(), remaining);
+                boolean arrives = arrival <= delay;
+                delay = Math.min(delay, arrival);
+                if (delay >= tickPeriod) { // Shorter gaps are cheaper to just tick through
+                    skipIdle(delay, arrives);
+                    jumps++;
+                    skipped += delay;
+                    continue;
+                }
+            }
+            step(Math.min(tickPeriod, remaining));
+            steps++;
+        }
+        this.lastTime = System.nanoTime(); // A later real-time start measures from now
+        return new HeadlessRun(durationMillis, steps, jumps, skipped, (System.nanoTime() - wallStart) / 1_000_000.0);
+    }
+
+    /** Whether nothing changes until the next scheduled event (see runHeadless). */
+    private boolean isIdle() {
+        if (this.emergencyManager.hasActiveEmergencies() || this.demand.isSaturating()) return false;
+        for (int link : this.mesoEntryLinks) {
+            if (this.demand.hasBacklog(link) && this.mesoscopic.hasRoom(link)) return false;
+        }
+        for (Road road : roads) {
+            if (!road.isIdle(this.demand.hasBacklog(road.getLinkIndex()))) return false;
+        }
+        return true;
+    }
+
+    /** Time until the next scheduled event other than an arrival (ms). */
+    private double nextEventDelay() {
+        double next = Math.min(this.recostTimer, this.demand.timeToClockBoundary(TrafficForecaster.BIN_MINUTES));
+        if (this.isAutoMode) {
+            next = Math.min(next, this.autoModeTimer);
+        }
+        for (Road road : roads) {
+            next = Math.min(next, road.nextLaneChangeDelay());
+        }
+        // Vehicles in the queue model move on their own schedule (0 if one can leave right now);
+        // gaps shorter than a tick aren't jumped, so any release within one ends the search
+        double horizon = this.simulatedTime + Math.min(next, this.stages.getTickPeriodMillis());
+        next = Math.min(next, this.mesoscopic.nextReleaseTime(this.simulatedTime, horizon) - this.simulatedTime);
+        return Math.max(0, next);
+    }
+
+    /**
+     * Jumps over an idle period: the same clocks and timers as step() advance, no microscopic
+     * vehicle moves, and the queue model releases what is due at the end of the jump.
+     * @param deltaTime Time skipped (ms).
+     * @param arrival Whether the jump ends with an arrival.
+     */
+    private void skipIdle(double deltaTime, boolean arrival) {
+        if (this.isAutoMode) {
+            this.autoModeTimer -= deltaTime;
+            if (this.autoModeTimer <= 1e-9) {
+                transitionAutoMode();
+            }
+        }
+        this.demand.skip(deltaTime, arrival);
+        this.trafficHistory.advance(this.demand.getHourOfDay());
+        this.trafficForecaster.advance(this.demand.getHourOfDay());
+        this.loadMetrics.advance(deltaTime);
+        this.trafficMetrics.advance(deltaTime);
+        this.recostTimer -= deltaTime;
+        if (this.recostTimer <= 1e-9) {
+            this.routePlanner.recost();
+            this.recostTimer = RECOST_INTERVAL_MS;
+        }
+        this.physicsStepEnd = this.simulatedTime + deltaTime;
+        for (Road road : roads) {
+            road.skipIdle(deltaTime);
+        }
+        this.mesoscopic.advance(deltaTime, this.physicsStepEnd); // After the roads, so vehicles handed over start fresh
+        this.simulatedTime += deltaTime;
+        this.tickCount++;
+        sampleTrajectories(deltaTime);
+    }
+
+    /**
+     * Restores normal phasing after a preemption.
+     * Auto mode resumes the interrupted phase: a green phase continues with its remaining time
+     * (at least MIN_GREEN_AFTER_PREEMPTION), a yellow phase moves on to the next green.
+     * Manual mode gets back the signal states from before the emergency.
+     */
+    private void endPreemption() {
+        System.out.println("Preemption finished, no emergency needs the signals. Resuming normal phasing.");
+        if (this.isAutoMode) {
+            int greenSignal = autoPhaseGreenSignal(this.autoModeState);
+            if (greenSignal < 0) {
+                transitionAutoMode(); // Interrupted during a yellow: go straight to the next green
+            } else {
+                for (int i = 0; i < signals.size(); i++) {
+                    signals.get(i).setState(i == greenSignal ? SignalState.GREEN : SignalState.RED);
+                }
+                this.autoModeTimer = Math.max(this.autoModeTimer, MIN_GREEN_AFTER_PREEMPTION);
+            }
+        } else if (this.manualSignalStates != null) {
+            for (int i = 0; i < signals.size(); i++) {
+                signals.get(i).setState(this.manualSignalStates[i]);
+            }
+        }
+        this.manualSignalStates = null;
+    }
+
+    /**
+     * Signal index that is green in an auto-mode phase.
+     * @return The signal index, or -1 for yellow phases.
+     */
+    private static int autoPhaseGreenSignal(AutoModeState state) {
+        switch (state) {
+            case N_GREEN: return 0;
+            case S_GREEN: return 1;
+            case E_GREEN: return 2;
+            case W_GREEN: return 3;
+            default: return -1;
+        }
     }
 
     /**
@@ -254,154 +878,170 @@ public class SimulationService {
 
     /**
      * Triggers an emergency sequence.
-     * Stores start time and vehicle ID.
+     * Spawns a routed emergency vehicle and registers its signal preemption; signals are only
+     * switched once the vehicle is close enough (see SignalPreemption). Several emergencies can
+     * be active at once, the EmergencyManager resolves conflicts by priority.
+     * Not synchronized with update(): the road and the manager are safe to use concurrently,
+     * so a trigger never waits for a simulation tick.
      */
     public void triggerEmergency() {
-        if (this.isEmergency) {
-             System.out.println("Emergency sequence already active.");
-             return;
+        // Spawn emergency vehicle, on a microscopic approach if there is one
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < this.roads.size(); i++) {
+            if (!this.roads.get(i).isMesoscopic()) candidates.add(i);
         }
+        int emergencyRoadIndex = candidates.isEmpty()
+                ? random.nextInt(this.roads.size())
+                : candidates.get(random.nextInt(candidates.size()));
+        spawnEmergency(emergencyRoadIndex);
+    }
 
-        this.isEmergency = true;
-        this.isAutoMode = false; // Disable auto mode
-        this.emergencyTimer = 15000; // Max duration / fallback timer
-        this.incidentCount.incrementAndGet(); // Increment incident count ONLY for emergencies
+    /**
+     * Triggers an emergency on a given approach (see triggerEmergency()).
+     * @param direction The approach the emergency vehicle enters on.
+     */
+    public void triggerEmergency(RoadDirection direction) {
+        for (int i = 0; i < this.roads.size(); i++) {
+            if (this.roads.get(i).getName() == direction) {
+                spawnEmergency(i);
+                return;
+            }
+        }
+    }
 
+    /** Spawns an emergency vehicle of a random type on an approach and registers its preemption. */
+    private void spawnEmergency(int emergencyRoadIndex) {
         // *** MODIFIED: Select random emergency type ***
         String selectedEmergencyType = EMERGENCY_TYPES[random.nextInt(EMERGENCY_TYPES.length)];
-
-        // Spawn emergency vehicle
-        int emergencyRoadIndex = ThreadLocalRandom.current().nextInt(this.roads.size());
         Road emergencyRoad = this.roads.get(emergencyRoadIndex);
 
         // *** Use the constructor that accepts the type ***
         Vehicle emergencyVehicle = new Vehicle(emergencyRoad, VehicleType.EMERGENCY, selectedEmergencyType);
 
-        emergencyRoad.addVehicleToFront(emergencyVehicle);
-
-        // Store emergency vehicle details
-        this.currentEmergencyVehicleId = emergencyVehicle.getId();
-        this.currentEmergencyStartTime = Instant.now();
-        System.out.println("Emergency Triggered. Type: " + selectedEmergencyType + ". Vehicle ID: " + this.currentEmergencyVehicleId + " on road " + emergencyRoad.getName() + " at " + this.currentEmergencyStartTime);
-
-        // Set signals to clear path (Green for entry and opposing for straight through)
-        for (int i = 0; i < this.signals.size(); i++) {
-            boolean isEmergencyRoad = i == emergencyRoadIndex;
-            boolean isOpposingRoad = (emergencyRoad.getName() == RoadDirection.NORTH && i == 1) || // North -> South
-                                     (emergencyRoad.getName() == RoadDirection.SOUTH && i == 0) || // South -> North
-                                     (emergencyRoad.getName() == RoadDirection.EAST && i == 3) ||  // East -> West
-                                     (emergencyRoad.getName() == RoadDirection.WEST && i == 2);   // West -> East
-
-            this.signals.get(i).setState((isEmergencyRoad || isOpposingRoad) ? SignalState.GREEN : SignalState.RED);
-        }
-
-        // Log initial event (clearance time TBD)
+        // Log the event first (clearance time TBD) so the preemption can carry it
         String eventId = "EV-" + emergencyIdCounter.getAndIncrement();
         EmergencyEvent event = new EmergencyEvent(
             eventId,
             LocalTime.now(),
             // *** MODIFIED: Use selected type in log ***
             selectedEmergencyType,
-            0.0 // Clearance time initially 0, will be updated
+            0.0 // Clearance time initially 0, set when this vehicle exits
         );
-        // Add to map and ordered list (logic remains the same)
-        emergencyLogMap.put(eventId, event);
-        emergencyLogOrder.addFirst(eventId);
-        // Trim logs if necessary
-        while (emergencyLogOrder.size() > MAX_LOG_SIZE) {
-            String oldestId = emergencyLogOrder.pollLast();
-            if (oldestId != null) {
-                emergencyLogMap.remove(oldestId);
-            }
+        SignalPreemption preemption = new SignalPreemption(emergencyVehicle, emergencyRoad, emergencyRoadIndex,
+                EmergencyManager.priorityOf(selectedEmergencyType), event, this.network, this.network.getFocusNode(),
+                this.simulatedTime);
+        // Register before the vehicle can move, so its exit always finds the preemption
+        this.emergencyManager.register(preemption);
+
+        if (!emergencyRoad.addVehicleToFront(emergencyVehicle)) {
+            this.emergencyManager.onVehicleExit(emergencyVehicle.getId()); // Road full, nothing triggered
+            return;
         }
-        // Don't add to response times yet
+        this.incidentCount.incrementAndGet(); // Increment incident count ONLY for emergencies
+        System.out.println("Emergency Triggered. Type: " + selectedEmergencyType + " (priority " + preemption.getPriority()
+                + "). Vehicle ID: " + emergencyVehicle.getId() + " on road " + emergencyRoad.getName()
+                + String.format(" at t=%.1fs", preemption.getStartTime() / 1000.0) + ". Active emergencies: " + this.emergencyManager.getActiveCount());
+
+        // Append to the log (evicts the oldest event when full); response time is added on exit
+        emergencyLog.append(event);
     }
 
 
     /**
      * Called by Road when a specific vehicle exits.
-     * Calculates the duration if it's the tracked emergency vehicle and updates the log/stats.
-     * @param vehicleId The ID of the vehicle that exited.
-     */
-     public synchronized void recordVehicleExit(long vehicleId) {
-         // Check if this is the currently tracked emergency vehicle
-         if (this.currentEmergencyVehicleId != null && vehicleId == this.currentEmergencyVehicleId) {
-             System.out.println("Tracked Emergency Vehicle exited: ID " + vehicleId);
-             if (this.currentEmergencyStartTime != null) {
-                 // Calculate duration
-                 Duration duration = Duration.between(this.currentEmergencyStartTime, Instant.now());
-                 double clearanceTimeSeconds = duration.toMillis() / 1000.0;
-                 System.out.printf("Actual Clearance Time: %.1fs%n", clearanceTimeSeconds);
-
-                 // Update the log entry (find the latest entry)
-                 String latestEventId = emergencyLogOrder.peekFirst();
-                 if (latestEventId != null) {
-                     EmergencyEvent event = emergencyLogMap.get(latestEventId);
-                     // Check if this log entry is indeed the one for the *current* emergency
-                     // (Simple check: is clearance time still 0?)
-                     if (event != null && event.getClearanceTime() == 0.0) {
-                         event.setClearanceTime(clearanceTimeSeconds); // Update the existing event
-                         System.out.println("Updated EmergencyEvent log ID " + latestEventId + " with clearance time.");
-                     } else if (event != null) {
-                        System.out.println("Warning: Latest emergency log entry already had clearance time set or was null for ID " + latestEventId);
-                     } else {
-                         System.err.println("Error: Could not find event in map for latest log ID " + latestEventId);
-                     }
-                 } else {
-                     System.err.println("Error: Emergency log order is empty, cannot update clearance time.");
-                 }
-
-                 // Add accurate time to response times
-                 emergencyResponseTimes.add(clearanceTimeSeconds);
+     * Records its wait and travel time; if it was an active emergency vehicle, also computes its
+     * clearance time and updates its own log entry/stats.
+     * @param vehicle The vehicle that exited.
+     */
+     public void recordVehicleExit(Vehicle vehicle) {
+         long vehicleId = vehicle.getId();
+         RoadDirection direction = vehicle.getRoad().getName();
+         recordApproachExit(direction, vehicle.getTotalWaitTime(), vehicle.getTravelTime());
+
+         SignalPreemption preemption = this.emergencyManager.onVehicleExit(vehicleId);
+         if (preemption != null) {
+             // Simulated time since this vehicle's own trigger (wall time would follow speed-up and lag)
+             double clearanceMillis = this.physicsStepEnd - preemption.getStartTime();
+             double clearanceTimeSeconds = clearanceMillis / 1000.0;
+             System.out.printf("Emergency Vehicle exited: ID %d (%s), clearance time %.1fs%n",
+                     vehicleId, preemption.getEvent().getType(), clearanceTimeSeconds);
+
+             // The event belongs to this vehicle, so concurrent emergencies never overwrite each other
+             preemption.getEvent().setClearanceTime(clearanceTimeSeconds);
+             this.trafficMetrics.record(TrafficMetrics.Metric.CLEARANCE, direction, clearanceMillis);
+             this.trafficHistory.recordClearance(clearanceTimeSeconds);
+             this.lastCompletedClearance = clearanceTimeSeconds;
+         }
+         continueMesoscopic(vehicle);
+     }
 
-                 // Clear tracking variables - IMPORTANT
-                 this.currentEmergencyVehicleId = null;
-                 this.currentEmergencyStartTime = null;
+    /**
+     * Records a vehicle that has crossed the intersection and left its approach.
+     * @param direction The approach.
+     * @param waitMillis Time it stood still.
+     * @param travelMillis Time since entering the approach.
+     */
+    private void recordApproachExit(RoadDirection direction, double waitMillis, double travelMillis) {
+        this.trafficMetrics.record(TrafficMetrics.Metric.WAIT, direction, waitMillis);
+        this.trafficMetrics.record(TrafficMetrics.Metric.TRAVEL, direction, travelMillis);
+        this.trafficHistory.recordExit(direction, waitMillis, travelMillis);
+        this.trafficForecaster.recordExit(direction, waitMillis);
+        // Increment total vehicle count for *any* vehicle exiting
+        incrementTotalVehicleCount(1);
+        this.loadMetrics.recordExit();
+    }
 
-                 // Optionally: End emergency state early if desired and reset signals/mode
-                 // this.isEmergency = false;
-                 // this.emergencyTimer = 0; // Reset timer too
-                 // this.isAutoMode = true; // Resume auto mode immediately
-                 // this.autoModeState = AutoModeState.N_YELLOW; // Or similar transition
-                 // this.autoModeTimer = 2000;
 
-             } else {
-                 System.err.println("Error: Emergency vehicle exited but start time was not recorded.");
-                 // Clear potentially stale ID anyway
-                 this.currentEmergencyVehicleId = null;
-             }
-         }
-         // Increment total vehicle count for *any* vehicle exiting
-         incrementTotalVehicleCount(1);
-     }
+    /**
+     * Plans the trip for a vehicle entering on a road.
+     * Picks a random boundary node other than the one the vehicle came from as destination.
+     * @param road The road the vehicle spawns on.
+     * @return The route as network link indices, starting with the road's link; empty if none.
+     */
+    public int[] planRoute(Road road) {
+        int link = road.getLinkIndex();
+        int origin = network.linkFrom(link);
+        int[] terminals = routePlanner.getTerminalNodes();
+        int candidates = 0;
+        for (int node : terminals) {
+            if (node != origin) candidates++;
+        }
+        if (candidates == 0) return new int[0];
+        int pick = random.nextInt(candidates);
+        for (int node : terminals) {
+            if (node != origin && pick-- == 0) {
+                return routePlanner.route(link, node);
+            }
+        }
+        return new int[0];
+    }
 
+    /**
+     * Plans the route from a road to a given destination.
+     * @param road The road the vehicle spawns on.
+     * @param destination Destination node index.
+     * @return The route as network link indices, starting with the road's link; empty if unreachable.
+     */
+    public int[] planRoute(Road road, int destination) {
+        return routePlanner.route(road.getLinkIndex(), destination);
+    }
 
     /**
-     * Adds a violation record to the log.
-     * MODIFIED: Randomly selects a violation type and corresponding INR fine.
+     * Adds a violation record to the log, with the INR fine for its type.
+     * Called by the ViolationEngine and for violations confirmed by camera feeds.
      * @param roadNameString The name of the road where the violation occurred.
+     * @param violationType The violation.
      */
-    public void addViolation(String roadNameString) {
+    public void addViolation(String roadNameString, ViolationType violationType) {
         String id = "V-" + violationIdCounter.getAndIncrement();
         LocalTime time = LocalTime.now();
         String location = roadNameString.substring(0, 1).toUpperCase() + roadNameString.substring(1).toLowerCase() + "bound";
-
-        // *** MODIFIED: Select random violation type and fine ***
-        int violationIndex = random.nextInt(VIOLATION_TYPES.length);
-        // Ensure index is within bounds of both arrays
-        if (violationIndex >= VIOLATION_FINES.length) {
-            System.err.println("Error: Violation index out of bounds for fines. Defaulting.");
-            violationIndex = 0; // Default to Red Light
-        }
-        String type = VIOLATION_TYPES[violationIndex];
-        String fine = VIOLATION_FINES[violationIndex];
-        // *** End Modification ***
+        String type = violationType.getLabel();
+        String fine = violationType.getFine();
 
         Violation violation = new Violation(id, time, location, type, fine);
-        violations.addFirst(violation);
-        if (violations.size() > MAX_LOG_SIZE) {
-            violations.pollLast();
-        }
+        violations.append(violation); // Constant time, evicts the oldest when full
+        trafficHistory.recordViolation(RoadDirection.valueOf(roadNameString), violationType);
     }
 
 
@@ -422,7 +1062,10 @@ public class SimulationService {
         if (!isRunning) {
             isRunning = true;
             lastTime = System.nanoTime(); // Reset timer when starting/resuming
-            simulationTaskFuture = scheduler.scheduleAtFixedRate(this::update, 0, UPDATE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            clock.reset(); // Time spent paused is not owed
+            if (hosted) return; // The host calls update() from its shared worker pool
+            simulationTaskFuture = scheduler.scheduleAtFixedRate(this::update, 0, this.stages.getTickPeriodMillis(), TimeUnit.MILLISECONDS);
+            this.stages.start(); // Background stages keep running while paused (headless runs change state too)
             System.out.println("Simulation loop started.");
         } else {
              System.out.println("Simulation loop already running.");
@@ -436,16 +1079,83 @@ public class SimulationService {
             if (simulationTaskFuture != null && !simulationTaskFuture.isCancelled()) {
                 simulationTaskFuture.cancel(false); // false = don't interrupt if running
             }
+            if (hosted) return;
             System.out.println("Simulation loop stopped.");
         } else {
              System.out.println("Simulation loop already stopped.");
         }
     }
 
+    /**
+     * Retunes a stage; a new physics period reschedules the running loop at the new tick rate.
+     * @param name Stage name (STAGE_*).
+     * @param periodMillis The new period.
+     * @return The stage.
+     * @throws IllegalArgumentException If the stage is unknown or the period below its minimum.
+     */
+    public synchronized Stage setStagePeriod(String name, long periodMillis) {
+        Stage stage = this.stages.setPeriod(name, periodMillis);
+        if (stage.getPlacement() == Stage.Placement.TICK && isRunning && !hosted) {
+            simulationTaskFuture.cancel(false);
+            simulationTaskFuture = scheduler.scheduleAtFixedRate(this::update, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
+        return stage;
+    }
+
+    public List<Stage> getStages() { return this.stages.getStages(); }
+
+    /**
+     * Hands the loop to a host (see SessionManager) before it is started: startSimulationLoop then
+     * only marks the simulation running, and the host calls update() at the physics period from
+     * its own threads. The stats and map-index stages don't run either; stats and the vehicle
+     * index are computed on read instead, so an idle hosted simulation costs no thread at all.
+     * @throws IllegalStateException If the loop is already running.
+     */
+    public synchronized void setHosted() {
+        if (isRunning) {
+            throw new IllegalStateException("Cannot hand over a running simulation loop");
+        }
+        this.hosted = true;
+    }
+
+    public boolean isHosted() { return hosted; }
+
+    /**
+     * Sets how the loop handles iterations it cannot catch up with.
+     * @param policy Overrun policy.
+     * @param maxSubsteps Most physics steps per loop iteration.
+     * @param maxLagMillis Most owed wall time kept before the excess is dropped.
+     * @throws IllegalArgumentException If a value is invalid.
+     */
+    @Autowired
+    public void configureClock(@Value("${traffixpert.clock.overrun-policy:SLOW_MOTION}") FixedTimestepClock.OverrunPolicy policy,
+                               @Value("${traffixpert.clock.max-substeps:" + MAX_SUBSTEPS + "}") int maxSubsteps,
+                               @Value("${traffixpert.clock.max-lag-ms:" + MAX_LAG_MS + "}") long maxLagMillis) {
+        this.clock.configure(policy, maxSubsteps, maxLagMillis);
+    }
+
+    public FixedTimestepClock getClock() { return this.clock; }
+
+    /**
+     * Selects the approaches simulated mesoscopically at startup.
+     * @param roadList Comma-separated approach names (traffixpert.meso.roads), e.g. "EAST,WEST".
+     * @throws IllegalArgumentException If a name isn't an approach.
+     */
+    @Autowired
+    public void configureMesoscopic(@Value("${traffixpert.meso.roads:}") String roadList) {
+        this.mesoscopicRoads = roadList;
+        for (String name : roadList.split(",")) {
+            if (!name.isBlank()) setRoadMesoscopic(RoadDirection.valueOf(name.trim().toUpperCase()), true);
+        }
+    }
+
+    public MesoscopicModel getMesoscopicModel() { return this.mesoscopic; }
+
     /** Cleans up the scheduler when the application shuts down. */
     @PreDestroy
     public void shutdownScheduler() {
         stopSimulationLoop();
+        this.stages.shutdown();
         if (scheduler != null && !scheduler.isShutdown()) {
             scheduler.shutdown();
             try {
@@ -468,24 +1178,90 @@ public class SimulationService {
     public boolean isSimulationRunning() { return isRunning; }
     public List<TrafficSignal> getSignals() { return Collections.unmodifiableList(signals); } // Return unmodifiable view
     public List<Road> getRoads() { return Collections.unmodifiableList(roads); } // Return unmodifiable view
+    public RoadNetwork getNetwork() { return network; }
+    public DemandConfig getDemandConfig() { return demandConfig; }
+    public Random getRandom() { return random; } // Seedable source for every random draw of this simulation
+    public RoutePlanner getRoutePlanner() { return routePlanner; }
+    public DemandGenerator getDemand() { return demand; }
+    public LoadMetrics getLoadMetrics() { return loadMetrics; }
+    public TrafficMetrics getTrafficMetrics() { return trafficMetrics; }
+    public long getTickBudgetMillis() { return this.stages.getTickPeriodMillis(); }
+    public synchronized double getSimulatedTime() { return simulatedTime; }
     public boolean isAutoMode() { return isAutoMode; }
-    public boolean isEmergency() { return isEmergency; }
-    public List<Violation> getViolations() { return new ArrayList<>(violations); } // Return copy
-
-     // --- getEmergencyLog now reads from map based on order ---
-     public List<EmergencyEvent> getEmergencyLog() {
-         // Create a list from the ordered IDs, fetching from the map
-         return emergencyLogOrder.stream()
-                 .map(emergencyLogMap::get)
-                 .filter(java.util.Objects::nonNull) // Filter out potential nulls if map/list get out of sync
-                 .collect(Collectors.toList()); // Collect into a new list
-     }
+    public boolean isEmergency() { return emergencyManager.hasActiveEmergencies(); }
+    public EmergencyManager getEmergencyManager() { return emergencyManager; }
+    public ViolationEngine getViolationEngine() { return violationEngine; }
+    public TrafficHistory getTrafficHistory() { return trafficHistory; }
+    public TrafficForecaster getTrafficForecaster() { return trafficForecaster; }
+
+    /**
+     * Spatial index of the vehicles, for viewport queries.
+     * While the background stages run, the map-index stage rebuilds it every period as long as
+     * someone keeps reading it, so readers never build it themselves and the simulation pays
+     * nothing while nobody is watching. An index older than two periods (the first read after a
+     * quiet spell) or any read while the stages are stopped builds it in the caller; racing
+     * callers build equivalent indexes and the last one is kept.
+     * @return The index.
+     */
+    public VehicleIndex getVehicleIndex() {
+        this.vehicleIndexRequested = true;
+        long tick = this.tickCount;
+        VehicleIndex index = this.vehicleIndex;
+        boolean fresh = index != null && (this.stages.isStarted()
+                ? (tick - index.getTick()) * this.stages.getTickPeriodMillis() <= 2 * this.stages.getStage(STAGE_MAP_INDEX).getPeriodMillis()
+                : index.getTick() == tick);
+        if (!fresh) {
+            index = VehicleIndex.build(roads, network.getBounds(), tick);
+            this.vehicleIndex = index;
+        }
+        return index;
+    }
+
+    /** Map-index stage: rebuilds the index if it was read since the last build. */
+    private void refreshVehicleIndex() {
+        if (!this.vehicleIndexRequested) return;
+        this.vehicleIndexRequested = false;
+        long tick = this.tickCount;
+        VehicleIndex index = this.vehicleIndex;
+        if (index == null || index.getTick() != tick) {
+            this.vehicleIndex = VehicleIndex.build(roads, network.getBounds(), tick);
+        }
+    }
+    public List<Violation> getViolations() { return violations.values(); } // Newest first, copy
+
+    /**
+     * Violations logged after a sequence number, for clients polling incrementally.
+     * @param since Last sequence the client has seen (0 for all retained).
+     * @return The entries with their sequence numbers, newest first.
+     */
+    public List<SequencedRingBuffer.Entry<Violation>> getViolationsSince(long since) { return violations.readSince(since); }
+
+    public List<EmergencyEvent> getEmergencyLog() { return emergencyLog.values(); } // Newest first, copy
+
+    /**
+     * Emergency events logged after a sequence number.
+     * Events already returned can still change (clearance time is set on exit), so clients
+     * wanting updates should re-read from the oldest event that was still in progress.
+     * @param since Last sequence the client has seen (0 for all retained).
+     * @return The entries with their sequence numbers, newest first.
+     */
+    public List<SequencedRingBuffer.Entry<EmergencyEvent>> getEmergencyLogSince(long since) { return emergencyLog.readSince(since); }
 
     /**
-     * Calculates and returns the current simulation statistics.
+     * Returns the current simulation statistics, as last published by the stats stage
+     * (computed in the caller until the first snapshot exists).
      * @return A Stats object containing current metrics.
      */
     public Stats getStats() {
+        Stats stats = this.latestStats;
+        return stats != null ? stats : computeStats();
+    }
+
+    /**
+     * Calculates the current simulation statistics (stats stage).
+     * @return A Stats object containing current metrics.
+     */
+    private Stats computeStats() {
         double totalWaitTime = 0;
         int waitingVehiclesCount = 0;
         int currentNorth = 0, currentSouth = 0, currentEast = 0, currentWest = 0;
@@ -494,7 +1270,7 @@ public class SimulationService {
         // Iterate safely over roads (assuming roads list doesn't change)
         for (Road road : roads) {
              List<Vehicle> currentRoadVehicles = road.getVehicles(); // Gets a safe copy now
-             int roadVehicleCount = currentRoadVehicles.size();
+             int roadVehicleCount = currentRoadVehicles.size() + this.mesoscopic.vehiclesOn(road.getLinkIndex());
              currentTotalOnRoad += roadVehicleCount;
 
              // Assign counts based on road name
@@ -516,26 +1292,12 @@ public class SimulationService {
 
         double avgWaitTimeSeconds = (waitingVehiclesCount > 0) ? (totalWaitTime / waitingVehiclesCount) / 1000.0 : 0;
 
-        double avgEmergencyResponse = 0;
-        synchronized (emergencyResponseTimes) {
-             if (!emergencyResponseTimes.isEmpty()) {
-                avgEmergencyResponse = emergencyResponseTimes.stream()
-                                            .mapToDouble(Double::doubleValue)
-                                            .average()
-                                            .orElse(0.0);
-             }
-        }
+        // All-time mean of completed clearances, from the (fixed-size) clearance histogram
+        double avgEmergencyResponse = this.trafficMetrics
+                .snapshot(TrafficMetrics.Metric.CLEARANCE, null, TrafficMetrics.Window.ALL).getMean() / 1000.0;
 
-        // Get last *recorded* (accurate) clearance time from the log map
-        Double lastEmergencyClearance = null;
-        String lastEventId = emergencyLogOrder.peekFirst(); // Get the ID of the most recent event
-        if (lastEventId != null) {
-            EmergencyEvent lastEvent = emergencyLogMap.get(lastEventId);
-            // Only report if it has a non-zero (updated) clearance time
-            if (lastEvent != null && lastEvent.getClearanceTime() > 0.0) {
-                 lastEmergencyClearance = lastEvent.getClearanceTime();
-            }
-        }
+        // Last *completed* clearance (the newest log entry may still be in progress)
+        Double lastEmergencyClearance = this.lastCompletedClearance;
 
 
         // totalVehicles should represent vehicles *processed*, not current count
@@ -554,6 +1316,15 @@ public class SimulationService {
                 lastEmergencyClearance);
     }
 
+    // Outcome of a headless run
+    public record HeadlessRun(
+        double simulatedMillis, // Simulated time covered
+        long steps, // Regular physics ticks
+        long jumps, // Idle periods skipped
+        double skippedMillis, // Simulated time covered by jumps
+        double wallMillis // Real time the run took
+    ) {}
+
      // Inner record for Stats
      public record Stats(
         long totalVehicles, // Total vehicles that have passed *through* simulation
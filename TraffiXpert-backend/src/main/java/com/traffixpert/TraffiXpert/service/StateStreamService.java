@@ -0,0 +1,103 @@
+package com.traffixpert.TraffiXpert.service;
+
+import com.traffixpert.TraffiXpert.model.Bounds;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes live map state to dashboards as server-sent events.
+ *
+ * Each stream is a plain blocking loop (build state, send, sleep) on its own task of the
+ * application task executor. With spring.threads.virtual.enabled that executor starts a virtual
+ * thread per task, so an idle stream costs a parked virtual thread (a few KB) instead of a
+ * platform thread, and the number of dashboards is limited by connections, not threads.
+ * A stream ends when the client disconnects (the next send fails) or after STREAM_TIMEOUT_MS,
+ * after which EventSource clients reconnect on their own.
+ */
+@Service
+public class StateStreamService {
+
+    public static final long MIN_INTERVAL_MS = 50; // One simulation tick
+    private static final long STREAM_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    private final MapViewService mapViewService;
+    private final AsyncTaskExecutor taskExecutor;
+
+    // --- Metrics ---
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final AtomicInteger peakStreams = new AtomicInteger();
+    private final AtomicLong eventsSent = new AtomicLong();
+
+    /**
+     * @param mapViewService Builds the state per viewport.
+     * @param taskExecutor Spring Boot's application task executor (virtual threads when enabled).
+     */
+    @Autowired
+    public StateStreamService(MapViewService mapViewService,
+                              @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor) {
+        this.mapViewService = mapViewService;
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Opens a stream of "state" events for a viewport.
+     * @param view The viewport, or null for the whole network.
+     * @param lod Level of detail.
+     * @param tileSize Density tile size, or null for automatic.
+     * @param intervalMillis Time between events (at least MIN_INTERVAL_MS).
+     * @return The emitter to return from the controller.
+     * @throws IllegalArgumentException If the parameters are invalid (checked before the stream opens).
+     */
+    public SseEmitter open(Bounds view, MapViewService.LevelOfDetail lod, Double tileSize, long intervalMillis) {
+        if (intervalMillis < MIN_INTERVAL_MS) {
+            throw new IllegalArgumentException("Interval must be at least " + MIN_INTERVAL_MS + " ms");
+        }
+        mapViewService.getState(view, lod, tileSize); // Validates the viewport up front, while a 400 is still possible
+
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        Stream stream = new Stream();
+        emitter.onCompletion(stream::close);
+        emitter.onTimeout(stream::close);
+        emitter.onError(e -> stream.close());
+
+        taskExecutor.execute(() -> {
+            int active = activeStreams.incrementAndGet();
+            peakStreams.accumulateAndGet(active, Math::max);
+            try {
+                while (stream.open) {
+                    emitter.send(SseEmitter.event().name("state").data(mapViewService.getState(view, lod, tileSize)));
+                    eventsSent.incrementAndGet();
+                    Thread.sleep(intervalMillis);
+                }
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // Client went away (or the emitter already completed): nothing left to send to
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                emitter.complete();
+            } finally {
+                activeStreams.decrementAndGet();
+            }
+        });
+        return emitter;
+    }
+
+    // --- Stats ---
+    public int getActiveStreams() { return activeStreams.get(); }
+    public int getPeakStreams() { return peakStreams.get(); }
+    public long getEventsSent() { return eventsSent.get(); }
+
+    /** Open flag of one stream, cleared by the emitter callbacks. */
+    private static final class Stream {
+        private volatile boolean open = true;
+
+        void close() { open = false; }
+    }
+}
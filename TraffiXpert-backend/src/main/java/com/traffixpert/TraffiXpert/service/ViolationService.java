@@ -1,49 +1,70 @@
 package com.traffixpert.TraffiXpert.service;
 
+import com.traffixpert.TraffiXpert.detection.DetectionPipeline;
+import com.traffixpert.TraffiXpert.detection.DetectionResult;
+import com.traffixpert.TraffiXpert.detection.ImagePreprocessor;
+import com.traffixpert.TraffiXpert.detection.UploadBufferPool;
 import com.traffixpert.TraffiXpert.dto.DetectViolationInputDTO;
 import com.traffixpert.TraffiXpert.dto.DetectViolationOutputDTO;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import java.util.Random;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 public class ViolationService {
 
-    private final Random random = new Random(); // Keep random for confidence variation
+    private final DetectionPipeline detectionPipeline;
+    private final UploadBufferPool uploadBufferPool;
+
+    @Autowired
+    public ViolationService(DetectionPipeline detectionPipeline, UploadBufferPool uploadBufferPool) {
+        this.detectionPipeline = detectionPipeline;
+        this.uploadBufferPool = uploadBufferPool;
+    }
 
     /**
-     * Placeholder method to simulate AI violation detection from an image Data URL.
-     * Simulates based on image data length for testing purposes.
-     * TODO: Implement actual AI image analysis logic here.
+     * Detects traffic violations in an image Data URL using the local detection pipeline.
+     * The base64 payload is decoded as a stream (no copies of the payload) and batched with
+     * concurrent requests for inference.
      * @param input DTO containing the image Data URL.
      * @return DTO indicating if a violation was detected.
+     * @throws IllegalArgumentException If the data URL or the image is invalid.
+     * @throws RejectedExecutionException If the pipeline is overloaded.
      */
     public DetectViolationOutputDTO detectViolationFromImage(DetectViolationInputDTO input) {
-        // --- Placeholder Logic ---
-        System.out.println("AI Simulation: Received image data URL (length): " + (input.imageUrl() != null ? input.imageUrl().length() : 0));
-
-        boolean hasViolation = false;
-        String violationType = null;
-        // Start with lower confidence for non-violations
-        double confidence = 0.3 + random.nextDouble() * 0.2; // e.g., 0.3 to 0.5
-
-        // Simulate: Detect violation if image data is "large" (arbitrary threshold)
-        if (input.imageUrl() != null && input.imageUrl().length() > 500000) { // Example threshold: 500,000 characters
-            hasViolation = true;
-            // Alternate violation type based on length parity for variety
-            violationType = (input.imageUrl().length() % 2 == 0) ? "Red Light" : "Speeding";
-            // Higher confidence for detected violations
-            confidence = 0.75 + random.nextDouble() * 0.2; // e.g., 0.75 to 0.95
-        }
+        return toOutput(detectionPipeline.detect(ImagePreprocessor.openDataUrl(input.imageUrl())));
+    }
 
-        // Ensure confidence doesn't exceed 1.0
-        confidence = Math.min(confidence, 1.0);
+    /**
+     * Detects traffic violations in a raw (binary) image upload.
+     * The body is streamed into a pooled direct buffer and decoded from there; the buffer is
+     * given back as soon as the image is decoded, before the request waits for inference.
+     * @param body The image bytes (PNG, JPEG, ...).
+     * @param contentLength Declared size in bytes, or -1 if unknown.
+     * @return DTO indicating if a violation was detected.
+     * @throws UploadBufferPool.TooLargeException If the image exceeds the upload limit.
+     * @throws IllegalArgumentException If the image is invalid.
+     * @throws RejectedExecutionException If no upload buffer is free or the pipeline is overloaded.
+     * @throws IOException If reading the upload fails.
+     */
+    public DetectViolationOutputDTO detectViolationFromStream(InputStream body, long contentLength) throws IOException {
+        DetectionPipeline.Prepared prepared;
+        try (UploadBufferPool.Upload upload = uploadBufferPool.receive(body, contentLength)) {
+            prepared = detectionPipeline.prepare(upload.open());
+        }
+        return toOutput(detectionPipeline.detect(prepared));
+    }
 
-        System.out.printf("AI Simulation Result: hasViolation=%b, type=%s, confidence=%.2f%n",
-                          hasViolation, violationType, confidence);
+    private DetectViolationOutputDTO toOutput(DetectionResult result) {
+        System.out.printf("AI Detection Result: hasViolation=%b, type=%s, confidence=%.2f%n",
+                          result.hasViolation(), result.violationType(), result.confidence());
 
-        return new DetectViolationOutputDTO(hasViolation, violationType, confidence);
-        // --- End Placeholder Logic ---
+        return new DetectViolationOutputDTO(result.hasViolation(), result.violationType(), result.confidence());
     }
 
-    // Add other violation-related methods if needed (e.g., getting violations from DB)
-}
\ No newline at end of file
+    public DetectionPipeline getDetectionPipeline() { return detectionPipeline; }
+    public UploadBufferPool getUploadBufferPool() { return uploadBufferPool; }
+}
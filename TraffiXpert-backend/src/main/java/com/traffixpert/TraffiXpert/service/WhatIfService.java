@@ -0,0 +1,196 @@
+package com.traffixpert.TraffiXpert.service;
+
+import com.traffixpert.TraffiXpert.demand.DemandProfile;
+import com.traffixpert.TraffiXpert.dto.WhatIfDTO;
+import com.traffixpert.TraffiXpert.metrics.LogLinearHistogram;
+import com.traffixpert.TraffiXpert.metrics.TrafficMetrics;
+import com.traffixpert.TraffiXpert.model.Road;
+import com.traffixpert.TraffiXpert.model.RoadDirection;
+import com.traffixpert.TraffiXpert.model.SignalState;
+import com.traffixpert.TraffiXpert.model.ViolationType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * What-if analysis on the live simulation: "what if I switch to manual now", "what if an
+ * emergency comes in from the north".
+ *
+ * The live state is forked (SimulationService.fork, copy-on-write for everything network-sized)
+ * into a baseline branch, which is forked again into the scenario branch before the action is
+ * applied to it. Both get the same random seed, so they see the same arrivals and drivers and
+ * any difference comes from the action. The branches run headless in parallel and the live run
+ * is never paused or changed.
+ *
+ * Baselines run on a small dedicated pool with a bounded queue (traffixpert.what-if.*), the
+ * scenario on the request's thread. A request that finds the pool and its queue full is
+ * rejected, so at most threads + queue-capacity comparisons run or wait at once.
+ */
+@Service
+public class WhatIfService {
+
+    public static final double MAX_MINUTES = 60; // Simulated time per branch, keeps a request bounded
+
+    /** Change applied to the scenario branch. */
+    public enum Action {
+        TOGGLE_MODE, ALL_RED, EMERGENCY, PROFILE;
+
+        /**
+         * Parses an action name, case-insensitively ("toggle-mode" is accepted too).
+         * @param name The name.
+         * @return The action, or null if unknown.
+         */
+        public static Action parse(String name) {
+            if (name == null) return null;
+            String normalized = name.trim().toUpperCase().replace('-', '_');
+            for (Action action : values()) {
+                if (action.name().equals(normalized)) return action;
+            }
+            return null;
+        }
+
+        public String label() { return name().toLowerCase().replace('_', '-'); }
+    }
+
+    private final SimulationService simulationService;
+    private final Random seeds = new Random();
+    private final ThreadPoolExecutor baselines; // Runs the baseline branches
+
+    /**
+     * @param simulationService The live simulation.
+     * @param threads Baselines run at once, 0 for one per core (traffixpert.what-if.threads).
+     * @param queueCapacity Baselines waiting for a thread; beyond that requests are rejected (traffixpert.what-if.queue-capacity).
+     */
+    @Autowired
+    public WhatIfService(SimulationService simulationService,
+                         @Value("${traffixpert.what-if.threads:0}") int threads,
+                         @Value("${traffixpert.what-if.queue-capacity:2}") int queueCapacity) {
+        if (threads < 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException("Invalid what-if settings: threads=" + threads + ", queue-capacity=" + queueCapacity);
+        }
+        this.simulationService = simulationService;
+        AtomicInteger threadCount = new AtomicInteger();
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        // Capacity 0: hand off to an idle thread or reject
+        this.baselines = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "what-if-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }); // Default AbortPolicy: RejectedExecutionException when full
+    }
+
+    /**
+     * Forks the live simulation, applies an action to one branch and runs both ahead.
+     * @param action The change.
+     * @param target EMERGENCY: approach (NORTH..WEST, null for a random one); PROFILE: profile name.
+     * @param minutes Simulated minutes to run, (0, MAX_MINUTES].
+     * @param seed Seed for both branches, or null for a random one.
+     * @return Both branches and their difference.
+     * @throws IllegalArgumentException For an invalid duration, approach or profile.
+     * @throws IllegalStateException While an emergency is in progress in the live run.
+     * @throws RejectedExecutionException If too many comparisons are already running or waiting.
+     */
+    public WhatIfDTO compare(Action action, String target, double minutes, Long seed) {
+        if (!(minutes > 0 && minutes <= MAX_MINUTES)) {
+            throw new IllegalArgumentException("Minutes must be in (0, " + MAX_MINUTES + "]");
+        }
+        RoadDirection road = null;
+        if (action == Action.EMERGENCY && target != null) {
+            road = RoadDirection.valueOf(target.trim().toUpperCase()); // IllegalArgumentException if unknown
+        }
+        if (action == Action.PROFILE && (target == null || simulationService.getDemand().getProfiles().stream()
+                .map(DemandProfile::name).noneMatch(target::equals))) {
+            throw new IllegalArgumentException("Unknown demand profile: " + target);
+        }
+
+        long start = System.nanoTime();
+        long runSeed = seed != null ? seed : seeds.nextLong();
+        SimulationService baseline = simulationService.fork(runSeed);
+        double forkMicros = (System.nanoTime() - start) / 1000.0;
+        SimulationService scenario = baseline.fork(runSeed); // Before either runs, so both start identical
+
+        switch (action) {
+            case TOGGLE_MODE -> scenario.toggleAutoMode();
+            case ALL_RED -> scenario.setAllSignals(SignalState.RED);
+            case EMERGENCY -> {
+                if (road != null) scenario.triggerEmergency(road);
+                else scenario.triggerEmergency();
+            }
+            case PROFILE -> scenario.getDemand().setProfile(target);
+        }
+
+        double millis = minutes * 60_000.0;
+        CompletableFuture<WhatIfDTO.Branch> baselineRun = CompletableFuture.supplyAsync(() -> run(baseline, millis), baselines);
+        WhatIfDTO.Branch scenarioResult = run(scenario, millis);
+        WhatIfDTO.Branch baselineResult = baselineRun.join();
+
+        return new WhatIfDTO(action.label(), action == Action.EMERGENCY || action == Action.PROFILE ? target : null,
+                minutes, runSeed, forkMicros, (System.nanoTime() - start) / 1_000_000.0,
+                baselineResult, scenarioResult, delta(baselineResult, scenarioResult));
+    }
+
+    /** Stops the baseline pool when the application shuts down. */
+    @PreDestroy
+    public void shutdown() {
+        baselines.shutdownNow();
+    }
+
+    /** Runs a branch headless (fast-forwarding idle periods) and sums it up. */
+    private static WhatIfDTO.Branch run(SimulationService branch, double millis) {
+        SimulationService.HeadlessRun run = branch.runHeadless(millis, true);
+        TrafficMetrics metrics = branch.getTrafficMetrics();
+        LogLinearHistogram.Snapshot wait = metrics.snapshot(TrafficMetrics.Metric.WAIT, null, TrafficMetrics.Window.ALL);
+        LogLinearHistogram.Snapshot travel = metrics.snapshot(TrafficMetrics.Metric.TRAVEL, null, TrafficMetrics.Window.ALL);
+        long cleared = metrics.snapshot(TrafficMetrics.Metric.CLEARANCE, null, TrafficMetrics.Window.ALL).getTotalCount();
+
+        int onNetwork = branch.getMesoscopicModel().getVehicleCount();
+        for (Road road : branch.getRoads()) {
+            onNetwork += road.getVehicles().size();
+        }
+        int queued = branch.getDemand().getBacklogByEntry().values().stream().mapToInt(Integer::intValue).sum();
+        long violations = 0;
+        for (ViolationType type : ViolationType.values()) {
+            violations += branch.getViolationEngine().getCount(type);
+        }
+        long served = branch.getStats().totalVehicles();
+        return new WhatIfDTO.Branch(
+                served,
+                served / (run.simulatedMillis() / 3_600_000.0),
+                wait.getMean() / 1000.0,
+                wait.valueAt(0.95) / 1000.0,
+                travel.getMean() / 1000.0,
+                onNetwork,
+                queued,
+                violations,
+                cleared);
+    }
+
+    /** scenario - baseline for every figure. */
+    private static Map<String, Double> delta(WhatIfDTO.Branch baseline, WhatIfDTO.Branch scenario) {
+        Map<String, Double> delta = new LinkedHashMap<>();
+        delta.put("vehiclesServed", (double) (scenario.vehiclesServed() - baseline.vehiclesServed()));
+        delta.put("throughputPerHour", scenario.throughputPerHour() - baseline.throughputPerHour());
+        delta.put("meanWait", scenario.meanWait() - baseline.meanWait());
+        delta.put("p95Wait", scenario.p95Wait() - baseline.p95Wait());
+        delta.put("meanTravel", scenario.meanTravel() - baseline.meanTravel());
+        delta.put("vehiclesOnNetwork", (double) (scenario.vehiclesOnNetwork() - baseline.vehiclesOnNetwork()));
+        delta.put("queuedArrivals", (double) (scenario.queuedArrivals() - baseline.queuedArrivals()));
+        delta.put("violations", (double) (scenario.violations() - baseline.violations()));
+        delta.put("emergenciesCleared", (double) (scenario.emergenciesCleared() - baseline.emergenciesCleared()));
+        return delta;
+    }
+}
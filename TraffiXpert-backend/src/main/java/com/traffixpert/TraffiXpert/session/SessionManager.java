@@ -0,0 +1,249 @@
+package com.traffixpert.TraffiXpert.session;
+
+import com.traffixpert.TraffiXpert.recording.TrajectoryRecorder;
+import com.traffixpert.TraffiXpert.service.SimulationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts isolated simulation sessions next to the application's default simulation, so analysts
+ * and what-if experiments don't share (and disturb) one intersection.
+ *
+ * Every session is its own SimulationService on the shared, read-only network and demand
+ * configuration, configured like the default simulation (stage cadences, loop clock, mesoscopic
+ * approaches, trajectory recording into its own files; see SimulationService.createSession). Sessions don't get threads of their own: one ticker thread starts a round every
+ * tick period and hands one tick per running session to a fixed worker pool, starting each
+ * round at the next session in turn. A session never has more than one tick queued, so the queue
+ * is at most one round long and a heavy session only slows itself down (its loop clock then
+ * catches up or drops time by its overrun policy) instead of starving the others.
+ *
+ * Once a second the ticker also evicts sessions nobody has called for idle-timeout and checks
+ * each session's estimated heap against its cap: over the cap, the session's demand backlog is
+ * dropped first, and if that isn't enough the session is paused until it is resumed.
+ *
+ * Tuned by traffixpert.sessions.* properties; sessions are managed via /api/sessions.
+ */
+@Service
+public class SessionManager {
+
+    private static final long HOUSEKEEPING_PERIOD_MS = 1000;
+
+    private final SimulationService defaultSimulation; // Sessions are built from (and configured like) it
+    private final Map<String, SimulationSession> sessions = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService ticker;
+    private final int maxSessions;
+    private final long tickMillis;
+    private final long idleTimeoutMillis;
+    private final long maxSessionBytes;
+
+    // --- Counters ---
+    private final AtomicLong rounds = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong capPauses = new AtomicLong();
+    private int nextFirst; // Session that goes first in the next round (ticker thread only)
+
+    /**
+     * @param defaultSimulation The application's simulation; sessions reuse its network, demand and settings.
+     * @param maxSessions Most sessions hosted at once (traffixpert.sessions.max).
+     * @param workerCount Threads ticking sessions, 0 for one per core (traffixpert.sessions.workers).
+     * @param tickMillis Time between scheduling rounds (traffixpert.sessions.tick-ms).
+     * @param idleTimeoutMinutes Sessions not called for this long are evicted (traffixpert.sessions.idle-timeout-minutes).
+     * @param maxSessionMegabytes Estimated heap cap per session (traffixpert.sessions.max-memory-mb).
+     */
+    @Autowired
+    public SessionManager(SimulationService defaultSimulation,
+                          @Value("${traffixpert.sessions.max:32}") int maxSessions,
+                          @Value("${traffixpert.sessions.workers:0}") int workerCount,
+                          @Value("${traffixpert.sessions.tick-ms:50}") long tickMillis,
+                          @Value("${traffixpert.sessions.idle-timeout-minutes:30}") long idleTimeoutMinutes,
+                          @Value("${traffixpert.sessions.max-memory-mb:64}") long maxSessionMegabytes) {
+        if (maxSessions < 0 || tickMillis < 1 || idleTimeoutMinutes < 1 || maxSessionMegabytes < 1) {
+            throw new IllegalArgumentException("Invalid session settings: max=" + maxSessions + ", tick-ms=" + tickMillis
+                    + ", idle-timeout-minutes=" + idleTimeoutMinutes + ", max-memory-mb=" + maxSessionMegabytes);
+        }
+        this.defaultSimulation = defaultSimulation;
+        this.maxSessions = maxSessions;
+        this.tickMillis = tickMillis;
+        this.idleTimeoutMillis = TimeUnit.MINUTES.toMillis(idleTimeoutMinutes);
+        this.maxSessionBytes = maxSessionMegabytes * 1024 * 1024;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        int poolSize = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        // Unbounded queue, but it never holds more than one tick per session (see claimTick)
+        this.workers = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "session-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker.scheduleAtFixedRate(this::scheduleRound, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        this.ticker.scheduleAtFixedRate(this::housekeeping, HOUSEKEEPING_PERIOD_MS, HOUSEKEEPING_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates and starts a session.
+     * @return The new session.
+     * @throws IllegalStateException If the server already hosts the maximum number of sessions.
+     */
+    public SimulationSession create() {
+        SimulationService simulation;
+        synchronized (this) { // Count and insert together, so concurrent creates can't overshoot
+            if (sessions.size() >= maxSessions) {
+                throw new IllegalStateException("Session limit reached (" + maxSessions + ")");
+            }
+            String id = UUID.randomUUID().toString();
+            simulation = defaultSimulation.createSession(id);
+            simulation.setHosted();
+            SimulationSession session = new SimulationSession(id, simulation);
+            sessions.put(session.getId(), session);
+            created.incrementAndGet();
+            simulation.startSimulationLoop();
+            System.out.println("Session " + session.getId() + " created (" + sessions.size() + " active).");
+            return session;
+        }
+    }
+
+    /**
+     * Looks up a session for an API call and marks it as used.
+     * @param id Session id.
+     * @return The session, or null if there is none (or it was evicted).
+     */
+    public SimulationSession get(String id) {
+        SimulationSession session = sessions.get(id);
+        if (session != null) session.touch();
+        return session;
+    }
+
+    /**
+     * Stops and removes a session.
+     * @return False if no such session.
+     */
+    public boolean delete(String id) {
+        SimulationSession session = sessions.remove(id);
+        if (session == null) return false;
+        close(session);
+        System.out.println("Session " + id + " deleted.");
+        return true;
+    }
+
+    /**
+     * Resumes a session's loop, also after the manager paused it at its memory cap (it is paused
+     * again at the next check if it is still over).
+     * @param session The session.
+     */
+    public void start(SimulationSession session) {
+        session.setPausedReason(null);
+        session.getSimulation().startSimulationLoop();
+    }
+
+    /** @return All sessions, oldest first. */
+    public List<SimulationSession> getSessions() {
+        List<SimulationSession> list = new ArrayList<>(sessions.values());
+        list.sort(Comparator.comparingLong(SimulationSession::getCreatedAt));
+        return list;
+    }
+
+    /** One scheduling round: a tick for every running session, starting with the next one in turn. */
+    private void scheduleRound() {
+        try {
+            List<SimulationSession> list = getSessions();
+            rounds.incrementAndGet();
+            if (list.isEmpty()) return;
+            int first = nextFirst % list.size();
+            nextFirst = first + 1;
+            for (int i = 0; i < list.size(); i++) {
+                SimulationSession session = list.get((first + i) % list.size());
+                if (session.getSimulation().isSimulationRunning() && session.claimTick()) {
+                    workers.execute(session::runTick);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Session scheduling round failed: " + e.getMessage()); // Keep the ticker alive
+        }
+    }
+
+    /** Evicts idle sessions and enforces the memory cap. */
+    private void housekeeping() {
+        try {
+            long now = System.currentTimeMillis();
+            for (SimulationSession session : getSessions()) {
+                if (now - session.getLastAccess() > idleTimeoutMillis) {
+                    if (sessions.remove(session.getId(), session)) {
+                        close(session);
+                        evicted.incrementAndGet();
+                        System.out.println("Session " + session.getId() + " evicted after "
+                                + (now - session.getLastAccess()) / 1000 + " s idle.");
+                    }
+                    continue;
+                }
+                if (session.estimateBytes() <= maxSessionBytes) continue;
+                SimulationService simulation = session.getSimulation();
+                simulation.getDemand().clearBacklog(); // Cheapest to give up: vehicles not yet on the network
+                if (session.estimateBytes() > maxSessionBytes && simulation.isSimulationRunning()) {
+                    simulation.stopSimulationLoop();
+                    session.setPausedReason("Memory cap of " + maxSessionBytes / (1024 * 1024) + " MB reached");
+                    capPauses.incrementAndGet();
+                    System.out.println("Session " + session.getId() + " paused at its memory cap ("
+                            + session.getEstimatedBytes() / 1024 + " KB estimated).");
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Session housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    private static void close(SimulationSession session) {
+        session.getSimulation().shutdownScheduler();
+        TrajectoryRecorder recorder = session.getSimulation().getTrajectoryRecorder();
+        if (recorder != null) {
+            recorder.shutdown(); // The session's own recorder (flushes its file)
+        }
+    }
+
+    /** Stops the ticker, the workers and every session when the application shuts down. */
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        workers.shutdownNow();
+        for (SimulationSession session : getSessions()) {
+            sessions.remove(session.getId());
+            close(session);
+        }
+    }
+
+    // --- Getters ---
+    public int getSessionCount() { return sessions.size(); }
+    public int getMaxSessions() { return maxSessions; }
+    public int getWorkerCount() { return workers.getMaximumPoolSize(); }
+    public int getQueuedTicks() { return workers.getQueue().size(); }
+    public long getTickMillis() { return tickMillis; }
+    public long getIdleTimeoutMillis() { return idleTimeoutMillis; }
+    public long getMaxSessionBytes() { return maxSessionBytes; }
+    public long getRounds() { return rounds.get(); }
+    public long getCreated() { return created.get(); }
+    public long getEvicted() { return evicted.get(); }
+    public long getCapPauses() { return capPauses.get(); }
+}
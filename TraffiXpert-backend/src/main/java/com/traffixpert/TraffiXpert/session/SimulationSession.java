@@ -0,0 +1,117 @@
+package com.traffixpert.TraffiXpert.session;
+
+import com.traffixpert.TraffiXpert.model.Road;
+import com.traffixpert.TraffiXpert.service.SimulationService;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One isolated simulation hosted by the SessionManager: its own SimulationService (signals, roads,
+ * demand, metrics, logs) on the shared network, plus the bookkeeping the manager needs to schedule
+ * it fairly, evict it when nobody uses it and keep it under its memory cap.
+ */
+public class SimulationSession {
+
+    // --- Heap estimate for the memory cap (bytes) ---
+    // The fixed part of a session grows with the network; the rest grows with the traffic in it.
+    // Measured on the bundled intersection and a 15k-link grid (heap after GC), rounded up.
+    static final long BASE_BYTES = 1_500_000; // Signals, roads, histograms, history rings, full event logs
+    static final long LINK_BYTES = 220; // Queue and routing costs per network link
+    static final long VEHICLE_BYTES = 400; // Vehicle on a road, with its route and lane slot
+    static final long MESO_VEHICLE_BYTES = 300; // Vehicle in the queue model, with its route
+    static final long QUEUED_ARRIVAL_BYTES = 8; // Waiting arrival in a demand point queue (grown ring buffer)
+    static final long CACHED_ROUTE_BYTES = 200; // Route cache entry (key, array, map node)
+
+    private final String id;
+    private final SimulationService simulation;
+    private final long createdAt; // Wall clock (ms)
+    private volatile long lastAccess; // Wall clock (ms) of the last API call
+
+    // --- Scheduling ---
+    private final AtomicBoolean queued = new AtomicBoolean(); // A tick is queued or running on a worker
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong lateRounds = new AtomicLong(); // Rounds skipped because the previous tick hadn't run yet
+    private final AtomicLong busyNanos = new AtomicLong(); // Worker time spent on this session
+
+    // --- Memory cap ---
+    private volatile long estimatedBytes;
+    private volatile String pausedReason; // Why the manager paused it, or null
+
+    /**
+     * @param id Session id (used in the API path).
+     * @param simulation The session's simulation; already handed to the manager (setHosted).
+     */
+    SimulationSession(String id, SimulationService simulation) {
+        this.id = id;
+        this.simulation = simulation;
+        this.createdAt = System.currentTimeMillis();
+        this.lastAccess = this.createdAt;
+    }
+
+    /** Marks the session as used now (it won't be evicted for another idle timeout). */
+    public void touch() {
+        this.lastAccess = System.currentTimeMillis();
+    }
+
+    /**
+     * Claims the next tick for a worker. At most one tick per session is ever queued, so a slow
+     * session cannot fill the worker queue and delay the others; it just runs fewer rounds and
+     * its clock catches up (or drops time) by its overrun policy.
+     * @return False if the previous tick hasn't run yet (counted as a late round).
+     */
+    boolean claimTick() {
+        if (queued.compareAndSet(false, true)) return true;
+        lateRounds.incrementAndGet();
+        return false;
+    }
+
+    /** Runs one loop iteration on a worker thread (after claimTick). */
+    void runTick() {
+        long start = System.nanoTime();
+        try {
+            simulation.update();
+        } finally {
+            busyNanos.addAndGet(System.nanoTime() - start);
+            ticks.incrementAndGet();
+            queued.set(false);
+        }
+    }
+
+    /**
+     * Estimates the heap the session holds, from the counts of the things that grow with load.
+     * @return Bytes (also kept for getEstimatedBytes).
+     */
+    long estimateBytes() {
+        long vehicles = 0;
+        for (Road road : simulation.getRoads()) {
+            vehicles += road.getVehicles().size();
+        }
+        long queuedArrivals = 0;
+        for (Map.Entry<String, Integer> entry : simulation.getDemand().getBacklogByEntry().entrySet()) {
+            queuedArrivals += entry.getValue();
+        }
+        long bytes = BASE_BYTES
+                + LINK_BYTES * simulation.getNetwork().linkCount()
+                + VEHICLE_BYTES * vehicles
+                + MESO_VEHICLE_BYTES * simulation.getMesoscopicModel().getVehicleCount()
+                + QUEUED_ARRIVAL_BYTES * queuedArrivals
+                + CACHED_ROUTE_BYTES * simulation.getRoutePlanner().getCachedRouteCount();
+        this.estimatedBytes = bytes;
+        return bytes;
+    }
+
+    void setPausedReason(String pausedReason) { this.pausedReason = pausedReason; }
+
+    // --- Getters ---
+    public String getId() { return id; }
+    public SimulationService getSimulation() { return simulation; }
+    public long getCreatedAt() { return createdAt; }
+    public long getLastAccess() { return lastAccess; }
+    public long getTicks() { return ticks.get(); }
+    public long getLateRounds() { return lateRounds.get(); }
+    public long getBusyNanos() { return busyNanos.get(); }
+    public long getEstimatedBytes() { return estimatedBytes; }
+    public String getPausedReason() { return pausedReason; }
+}
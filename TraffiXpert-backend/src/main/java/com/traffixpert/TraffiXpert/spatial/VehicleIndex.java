@@ -0,0 +1,180 @@
+package com.traffixpert.TraffiXpert.spatial;
+
+import com.traffixpert.TraffiXpert.model.Bounds;
+import com.traffixpert.TraffiXpert.model.Road;
+import com.traffixpert.TraffiXpert.model.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable uniform-grid index of vehicle positions at one simulation tick.
+ *
+ * The network bounds are cut into square cells of CELL_SIZE px. Building counts vehicles per
+ * cell and lays the snapshots out cell by cell (a counting sort: two passes, no per-cell lists),
+ * so a cell's vehicles are one contiguous run of the entries array. A viewport query only
+ * visits the cells overlapping it; its cost follows the vehicles in view, not the fleet.
+ * Positions are copied when the index is built, so readers see one consistent frame while the
+ * simulation moves on.
+ */
+public final class VehicleIndex {
+
+    public static final double CELL_SIZE = 50.0; // px, a few car lengths
+
+    private final long tick;
+    private final Bounds bounds;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStart; // Entries of cell c are [cellStart[c], cellStart[c + 1])
+    private final Entry[] entries;
+
+    /** Position of a vehicle at the tick of the index (the Vehicle keeps moving). */
+    public record Entry(Vehicle vehicle, double x, double y, double angle, double speed) {}
+
+    /** Aggregated vehicles of one square tile of a density view. */
+    public record Tile(int column, int row, double minX, double minY, int vehicles, double meanSpeed, int stopped) {}
+
+    private VehicleIndex(long tick, Bounds bounds, int columns, int rows, int[] cellStart, Entry[] entries) {
+        this.tick = tick;
+        this.bounds = bounds;
+        this.columns = columns;
+        this.rows = rows;
+        this.cellStart = cellStart;
+        this.entries = entries;
+    }
+
+    /**
+     * Snapshots and indexes the vehicles of all roads.
+     * @param roads The roads.
+     * @param bounds Area to index; vehicles outside are clamped into the edge cells.
+     * @param tick Simulation tick the snapshot belongs to.
+     * @return The index.
+     */
+    public static VehicleIndex build(List<Road> roads, Bounds bounds, long tick) {
+        List<Entry> snapshot = new ArrayList<>();
+        for (Road road : roads) {
+            road.forEachVehicle(v -> snapshot.add(new Entry(v, v.getX(), v.getY(), v.getAngle(), v.getSpeed())));
+        }
+        int columns = Math.max(1, (int) Math.ceil((bounds.maxX() - bounds.minX()) / CELL_SIZE));
+        int rows = Math.max(1, (int) Math.ceil((bounds.maxY() - bounds.minY()) / CELL_SIZE));
+
+        int[] cells = new int[snapshot.size()];
+        int[] cellStart = new int[columns * rows + 1];
+        for (int i = 0; i < cells.length; i++) {
+            Entry e = snapshot.get(i);
+            cells[i] = cellOf(clamp(column(bounds, e.x()), columns), clamp(row(bounds, e.y()), rows), columns);
+            cellStart[cells[i] + 1]++;
+        }
+        for (int c = 0; c < columns * rows; c++) {
+            cellStart[c + 1] += cellStart[c]; // Counts -> start offsets
+        }
+        int[] next = Arrays.copyOf(cellStart, cellStart.length - 1);
+        Entry[] entries = new Entry[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            entries[next[cells[i]]++] = snapshot.get(i);
+        }
+        return new VehicleIndex(tick, bounds, columns, rows, cellStart, entries);
+    }
+
+    // --- Queries ---
+
+    /**
+     * Vehicles whose position lies inside a viewport.
+     * @param view The viewport.
+     * @param limit Maximum number returned.
+     * @return The vehicles, grouped by cell.
+     */
+    public List<Entry> vehiclesIn(Bounds view, int limit) {
+        if (isOutside(view)) return Collections.emptyList();
+        List<Entry> result = new ArrayList<>();
+        int c0 = clamp(column(bounds, view.minX()), columns), c1 = clamp(column(bounds, view.maxX()), columns);
+        int r0 = clamp(row(bounds, view.minY()), rows), r1 = clamp(row(bounds, view.maxY()), rows);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = cellOf(c, r, columns);
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    if (view.contains(entries[i].x(), entries[i].y())) {
+                        if (result.size() == limit) return result;
+                        result.add(entries[i]);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Number of vehicles inside a viewport. Cells entirely inside it are counted without
+     * looking at their vehicles.
+     * @param view The viewport.
+     * @return The count.
+     */
+    public int countIn(Bounds view) {
+        if (isOutside(view)) return 0;
+        int count = 0;
+        int c0 = clamp(column(bounds, view.minX()), columns), c1 = clamp(column(bounds, view.maxX()), columns);
+        int r0 = clamp(row(bounds, view.minY()), rows), r1 = clamp(row(bounds, view.maxY()), rows);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = cellOf(c, r, columns);
+                boolean inner = c > c0 && c < c1 && r > r0 && r < r1; // Not an edge cell: fully covered
+                if (inner) {
+                    count += cellStart[cell + 1] - cellStart[cell];
+                    continue;
+                }
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    if (view.contains(entries[i].x(), entries[i].y())) count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Vehicles inside a viewport aggregated into square tiles anchored at the viewport's corner.
+     * @param view The viewport.
+     * @param tileSize Tile edge length (px).
+     * @param stoppedSpeed Speed (px/ms) below which a vehicle counts as stopped.
+     * @return The non-empty tiles, row by row.
+     */
+    public List<Tile> densityIn(Bounds view, double tileSize, double stoppedSpeed) {
+        int tileColumns = Math.max(1, (int) Math.ceil((view.maxX() - view.minX()) / tileSize));
+        int tileRows = Math.max(1, (int) Math.ceil((view.maxY() - view.minY()) / tileSize));
+        int[] counts = new int[tileColumns * tileRows];
+        int[] stopped = new int[counts.length];
+        double[] speedSums = new double[counts.length];
+        for (Entry e : vehiclesIn(view, Integer.MAX_VALUE)) {
+            int tc = Math.min(tileColumns - 1, (int) ((e.x() - view.minX()) / tileSize));
+            int tr = Math.min(tileRows - 1, (int) ((e.y() - view.minY()) / tileSize));
+            int t = tr * tileColumns + tc;
+            counts[t]++;
+            speedSums[t] += e.speed();
+            if (e.speed() < stoppedSpeed) stopped[t]++;
+        }
+        List<Tile> tiles = new ArrayList<>();
+        for (int t = 0; t < counts.length; t++) {
+            if (counts[t] == 0) continue;
+            int tc = t % tileColumns, tr = t / tileColumns;
+            tiles.add(new Tile(tc, tr, view.minX() + tc * tileSize, view.minY() + tr * tileSize,
+                    counts[t], speedSums[t] / counts[t], stopped[t]));
+        }
+        return tiles;
+    }
+
+    private boolean isOutside(Bounds view) {
+        // Clamped edge cells may hold vehicles just outside the bounds, so only reject views off the grid entirely
+        return view.maxX() < bounds.minX() - CELL_SIZE || view.minX() > bounds.maxX() + CELL_SIZE
+                || view.maxY() < bounds.minY() - CELL_SIZE || view.minY() > bounds.maxY() + CELL_SIZE;
+    }
+
+    private static int column(Bounds bounds, double x) { return (int) Math.floor((x - bounds.minX()) / CELL_SIZE); }
+    private static int row(Bounds bounds, double y) { return (int) Math.floor((y - bounds.minY()) / CELL_SIZE); }
+    private static int clamp(int value, int count) { return Math.max(0, Math.min(count - 1, value)); }
+    private static int cellOf(int column, int row, int columns) { return row * columns + column; }
+
+    public long getTick() { return tick; }
+    public Bounds getBounds() { return bounds; }
+    public int size() { return entries.length; }
+}
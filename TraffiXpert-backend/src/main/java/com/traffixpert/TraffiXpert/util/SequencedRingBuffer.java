@@ -0,0 +1,111 @@
+package com.traffixpert.TraffiXpert.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-capacity, lock-free log that keeps the most recent entries.
+ * Every append gets a monotonically increasing sequence number (starting at 1); once the buffer
+ * is full, each append overwrites the oldest entry. Appending, evicting and reading the entries
+ * newer than a sequence are all constant time per entry, with no locks and no size() scans.
+ *
+ * Writers claim a sequence with one atomic increment and then publish the entry into its slot,
+ * unless a writer a full lap ahead already has (a late writer must not bring back an evicted entry).
+ * Each slot stores the sequence together with the value, so a reader recognizes slots that were
+ * already overwritten by a newer lap (or not yet published) and skips them instead of returning
+ * a wrong entry. Reads are therefore weakly consistent, like the concurrent collections they replace.
+ * @param <T> Entry type.
+ */
+public class SequencedRingBuffer<T> {
+
+    /** An entry together with the sequence number it was appended with. */
+    public record Entry<T>(long sequence, T value) {}
+
+    private final AtomicReferenceArray<Entry<T>> slots;
+    private final int mask; // capacity - 1, capacity is a power of two
+    private final AtomicLong lastSequence = new AtomicLong(0); // Sequence of the newest claimed entry
+
+    /**
+     * Creates an empty buffer.
+     * @param capacity Maximum number of retained entries; rounded up to a power of two.
+     * @throws IllegalArgumentException If capacity is not positive.
+     */
+    public SequencedRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30, got " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Appends an entry, evicting the oldest one if the buffer is full.
+     * @param value The entry (not null).
+     * @return The sequence number assigned to it.
+     */
+    public long append(T value) {
+        if (value == null) throw new NullPointerException("value");
+        long sequence = lastSequence.incrementAndGet();
+        int index = (int) (sequence & mask);
+        Entry<T> entry = new Entry<>(sequence, value);
+        while (true) {
+            Entry<T> current = slots.get(index);
+            if (current != null && current.sequence() > sequence) break; // Evicted before it was published
+            if (slots.compareAndSet(index, current, entry)) break;
+        }
+        return sequence;
+    }
+
+    /**
+     * Entries appended after a given sequence number, newest first.
+     * If the caller fell behind by more than the capacity, the evicted entries are simply missing;
+     * compare the oldest returned sequence with since + 1 to detect the gap.
+     * @param since Last sequence the caller has seen (0 for everything retained).
+     * @param limit Maximum number of entries to return (the newest ones win).
+     * @return The entries, newest first.
+     */
+    public List<Entry<T>> readSince(long since, int limit) {
+        long newest = lastSequence.get();
+        long oldest = Math.max(Math.max(since, 0) + 1, newest - slots.length() + 1);
+        List<Entry<T>> result = new ArrayList<>((int) Math.max(0, Math.min(limit, newest - oldest + 1)));
+        for (long sequence = newest; sequence >= oldest && result.size() < limit; sequence--) {
+            Entry<T> entry = slots.get((int) (sequence & mask));
+            // Skip slots overwritten by a newer lap or whose writer hasn't published yet
+            if (entry != null && entry.sequence() == sequence) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /** All retained entries, newest first. */
+    public List<Entry<T>> readSince(long since) {
+        return readSince(since, Integer.MAX_VALUE);
+    }
+
+    /** All retained values, newest first. */
+    public List<T> values() {
+        List<Entry<T>> entries = readSince(0);
+        List<T> values = new ArrayList<>(entries.size());
+        for (Entry<T> entry : entries) values.add(entry.value());
+        return values;
+    }
+
+    /** The newest value, or null if nothing was appended yet. */
+    public T newest() {
+        long sequence = lastSequence.get();
+        if (sequence == 0) return null;
+        Entry<T> entry = slots.get((int) (sequence & mask));
+        return entry != null && entry.sequence() == sequence ? entry.value() : null;
+    }
+
+    // --- Getters ---
+    public int getCapacity() { return slots.length(); }
+    /** Sequence of the newest entry (0 if empty); also the total number of appends. */
+    public long getLastSequence() { return lastSequence.get(); }
+    public int size() { return (int) Math.min(lastSequence.get(), slots.length()); }
+}
@@ -0,0 +1,102 @@
+package com.traffixpert.TraffiXpert.violation;
+
+import com.traffixpert.TraffiXpert.model.Lane;
+import com.traffixpert.TraffiXpert.model.Road;
+import com.traffixpert.TraffiXpert.model.SignalState;
+import com.traffixpert.TraffiXpert.model.Vehicle;
+import com.traffixpert.TraffiXpert.model.VehicleType;
+import com.traffixpert.TraffiXpert.model.ViolationType;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+
+/**
+ * Decides traffic violations from what vehicles actually do, evaluated every tick.
+ *
+ * Rules (emergency vehicles are exempt):
+ * - RED_LIGHT: the front of the vehicle crosses the stop line while its signal is red.
+ * - ILLEGAL_TURN: the vehicle crosses the stop line in a lane whose markings don't allow its turn
+ *   (e.g. it changed out of the turn lane). Vehicles the simulator placed outside a turn lane on
+ *   entry (no room in one) are exempt: the lane wasn't their choice.
+ * - SPEEDING: faster than the speed limit (plus tolerance) for at least SPEEDING_MIN_DURATION,
+ *   so brief overshoots while accelerating don't count.
+ * Each vehicle is reported at most once per type.
+ *
+ * evaluate() is called by Road right after a vehicle moves, under the road lock. It is O(1) per
+ * vehicle and only touches the vehicle's own fields, so the pass costs a small constant on top
+ * of the car-following update; crossing events are detected by comparing the stop line flag
+ * before and after the move instead of searching for them.
+ */
+public class ViolationEngine {
+
+    // Normal drivers want 0.05 - 0.07 px/ms (see DriverProfile); speeding drivers exceed that
+    public static final double DEFAULT_SPEED_LIMIT = 0.07; // px/ms
+    private static final double SPEEDING_TOLERANCE = 0.1; // 10% over the limit before it counts
+    private static final double SPEEDING_MIN_DURATION = 1000.0; // ms
+
+    private final BiConsumer<Road, ViolationType> sink;
+    private volatile double speedLimit = DEFAULT_SPEED_LIMIT;
+    private final AtomicLongArray counts = new AtomicLongArray(ViolationType.values().length);
+
+    /**
+     * @param sink Receives each violation (road where it happened, type), e.g. to log it.
+     */
+    public ViolationEngine(BiConsumer<Road, ViolationType> sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Applies the rules to a vehicle that has just been moved.
+     * @param road The road the vehicle is on.
+     * @param vehicle The vehicle.
+     * @param signal The signal state the vehicle moved under.
+     * @param wasPastStopLine Whether the vehicle had passed the stop line before this move.
+     * @param deltaTime Length of the step (ms).
+     */
+    public void evaluate(Road road, Vehicle vehicle, SignalState signal, boolean wasPastStopLine, double deltaTime) {
+        if (vehicle.getType() == VehicleType.EMERGENCY) return;
+
+        // --- Stop line crossing (once per vehicle) ---
+        if (!wasPastStopLine && vehicle.hasPassedStopLine()) {
+            if (signal == SignalState.RED) {
+                report(road, vehicle, ViolationType.RED_LIGHT);
+            }
+            Lane lane = vehicle.getLane();
+            if (lane != null && !lane.allows(vehicle.getTurn()) && !vehicle.isPlacedOutsideTurnLane()) {
+                report(road, vehicle, ViolationType.ILLEGAL_TURN);
+            }
+        }
+
+        // --- Sustained speeding ---
+        if (vehicle.getSpeed() > speedLimit * (1 + SPEEDING_TOLERANCE)) {
+            if (vehicle.addOverSpeedTime(deltaTime) >= SPEEDING_MIN_DURATION) {
+                report(road, vehicle, ViolationType.SPEEDING);
+            }
+        } else {
+            vehicle.resetOverSpeedTime();
+        }
+    }
+
+    private void report(Road road, Vehicle vehicle, ViolationType type) {
+        if (!vehicle.markViolation(type)) return; // Already reported for this vehicle
+        counts.incrementAndGet(type.ordinal());
+        sink.accept(road, type);
+    }
+
+    /** @return Violations detected by the rules since startup, for a type. */
+    public long getCount(ViolationType type) { return counts.get(type.ordinal()); }
+
+    public double getSpeedLimit() { return speedLimit; }
+
+    /**
+     * Changes the speed limit (applies from the next tick).
+     * @param speedLimit Limit in px/ms.
+     * @throws IllegalArgumentException If not positive.
+     */
+    public void setSpeedLimit(double speedLimit) {
+        if (!(speedLimit > 0)) {
+            throw new IllegalArgumentException("Speed limit must be positive");
+        }
+        this.speedLimit = speedLimit;
+    }
+}
@@ -0,0 +1,145 @@
+package com.traffixpert.TraffiXpert.distributed;
+
+import com.traffixpert.TraffiXpert.distributed.PartitionProtocol.Done;
+import com.traffixpert.TraffiXpert.distributed.PartitionProtocol.Handover;
+import com.traffixpert.TraffiXpert.distributed.PartitionProtocol.Ready;
+import com.traffixpert.TraffiXpert.distributed.PartitionProtocol.Setup;
+import com.traffixpert.TraffiXpert.distributed.PartitionProtocol.Window;
+import com.traffixpert.TraffiXpert.distributed.PartitionProtocol.WorkerCounters;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionProtocolTest {
+
+	/** Writes one or more messages to a stream. */
+	@FunctionalInterface
+	private interface Writer {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	@Test
+	void varintsRoundTripWithMinimalLength() throws IOException {
+		int[] values = {0, 1, 127, 128, 16_383, 16_384, 15_127, Integer.MAX_VALUE, -1};
+		int[] lengths = {1, 1, 1, 2, 2, 3, 2, 5, 5};
+		for (int i = 0; i < values.length; i++) {
+			int value = values[i];
+			byte[] bytes = bytes(out -> PartitionProtocol.writeVarInt(out, value));
+			assertEquals(lengths[i], bytes.length, "length of " + value);
+			assertEquals(value, PartitionProtocol.readVarInt(in(bytes)));
+		}
+	}
+
+	@Test
+	void rejectsMalformedVarint() {
+		byte[] endless = {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01};
+		assertThrows(IOException.class, () -> PartitionProtocol.readVarInt(in(endless)));
+	}
+
+	@Test
+	void setupRoundTrips() throws IOException {
+		Setup setup = new Setup(3, 8, "file:/data/grid.json", "classpath:demand/default-demand.json", "stress", 50.0, -7L);
+		assertEquals(setup, PartitionProtocol.readSetup(in(bytes(out -> PartitionProtocol.writeSetup(out, setup)))));
+
+		Setup noProfile = new Setup(0, 1, "n", "d", null, 12.5, 0);
+		assertEquals(noProfile, PartitionProtocol.readSetup(in(bytes(out -> PartitionProtocol.writeSetup(out, noProfile)))));
+	}
+
+	@Test
+	void setupFromAnotherProtocolIsRejected() throws IOException {
+		byte[] bytes = bytes(out -> PartitionProtocol.writeSetup(out, new Setup(0, 1, "n", "d", null, 50, 1)));
+		bytes[1] = 'X'; // Magic
+		assertThrows(IOException.class, () -> PartitionProtocol.readSetup(in(bytes)));
+		assertThrows(IOException.class, () -> PartitionProtocol.readReady(in(bytes))); // Wrong message type
+	}
+
+	@Test
+	void readyRoundTrips() throws IOException {
+		Ready ready = PartitionProtocol.readReady(in(bytes(out ->
+				PartitionProtocol.writeReady(out, 7_564, 12, new int[] {5, 300, 15_000}, new int[] {0, 4, 200}))));
+		assertEquals(7_564, ready.links());
+		assertEquals(12, ready.entries());
+		assertArrayEquals(new int[] {5, 300, 15_000}, ready.roomLinks());
+		assertArrayEquals(new int[] {0, 4, 200}, ready.room());
+	}
+
+	@Test
+	void windowRoundTripsHandoversAndClampsNegativeRoom() throws IOException {
+		List<Handover> handovers = List.of(
+				new Handover(new int[] {1_200, 1_201, 14_999}, 61_234.5, 90_000.25, 12_000.0),
+				new Handover(new int[] {7}, 61_300.0, 0, 0));
+		byte[] bytes = bytes(out -> PartitionProtocol.writeWindow(out, 62_000.0, handovers,
+				new int[] {3, 9}, new int[] {-2, 5})); // Room can be overdrawn by forced arrivals
+
+		DataInputStream in = in(bytes);
+		assertEquals(PartitionProtocol.WINDOW, in.readUnsignedByte());
+		Window window = PartitionProtocol.readWindowBody(in);
+		assertEquals(62_000.0, window.end());
+		assertHandovers(handovers, window.handovers());
+		assertArrayEquals(new int[] {3, 9}, window.roomLinks());
+		assertArrayEquals(new int[] {0, 5}, window.room());
+		assertEquals(-1, in.read()); // Nothing left over
+	}
+
+	@Test
+	void doneRoundTripsCounters() throws IOException {
+		WorkerCounters counters = new WorkerCounters(812, 3_000_000_000L, 2_999_000_000L, 3_100_000_000L, 41,
+				77, 9_876_543_210L);
+		List<Handover> handovers = List.of(new Handover(new int[] {42, 43}, 1.5, 2.5, 3.5));
+		Done done = PartitionProtocol.readDone(in(bytes(out ->
+				PartitionProtocol.writeDone(out, handovers, new int[] {42}, new int[] {6}, counters))));
+
+		assertHandovers(handovers, done.handovers());
+		assertArrayEquals(new int[] {42}, done.roomLinks());
+		assertArrayEquals(new int[] {6}, done.room());
+		assertEquals(counters, done.counters());
+	}
+
+	@Test
+	void emptyMessagesAndStopByeRoundTrip() throws IOException {
+		Done done = PartitionProtocol.readDone(in(bytes(out -> PartitionProtocol.writeDone(out, List.of(),
+				new int[0], new int[0], new WorkerCounters(0, 0, 0, 0, 0, 0, 0)))));
+		assertTrue(done.handovers().isEmpty());
+		assertEquals(0, done.roomLinks().length);
+
+		DataInputStream in = in(bytes(out -> {
+			PartitionProtocol.writeStop(out);
+			PartitionProtocol.writeBye(out, 123_456_789L);
+		}));
+		assertEquals(PartitionProtocol.STOP, in.readUnsignedByte());
+		assertEquals(123_456_789L, PartitionProtocol.readBye(in));
+	}
+
+	private static void assertHandovers(List<Handover> expected, List<Handover> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertArrayEquals(expected.get(i).route(), actual.get(i).route());
+			assertEquals(expected.get(i).link(), actual.get(i).link());
+			assertEquals(expected.get(i).entryTime(), actual.get(i).entryTime());
+			assertEquals(expected.get(i).travelTime(), actual.get(i).travelTime());
+			assertEquals(expected.get(i).waitTime(), actual.get(i).waitTime());
+		}
+	}
+
+	private static byte[] bytes(Writer writer) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		writer.write(out);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static DataInputStream in(byte[] bytes) {
+		return new DataInputStream(new ByteArrayInputStream(bytes));
+	}
+}
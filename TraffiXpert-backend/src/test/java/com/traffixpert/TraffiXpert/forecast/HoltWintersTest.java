@@ -0,0 +1,106 @@
+package com.traffixpert.TraffiXpert.forecast;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HoltWintersTest {
+
+	private static final double[] PATTERN = {12, -4, 0, -8, 6, -6}; // Seasonal offsets, sum 0
+
+	@Test
+	void constantSeriesForecastsItselfWithoutError() {
+		HoltWinters model = new HoltWinters(1, 0.5, 0.2, 0, 0.9);
+		assertEquals(0, model.getStandardError());
+		for (int t = 0; t < 50; t++) {
+			model.observe(42, t);
+		}
+		assertEquals(42, model.forecast(1, 0), 1e-9);
+		assertEquals(42, model.forecast(100, 0), 1e-9);
+		assertEquals(0, model.getStandardError(), 1e-9);
+		assertEquals(50, model.getObservations());
+	}
+
+	@Test
+	void undampedTrendExtrapolatesALine() {
+		HoltWinters model = new HoltWinters(1, 0.5, 0.3, 0, 1.0);
+		for (int t = 0; t < 300; t++) {
+			model.observe(10 + 2.0 * t, t);
+		}
+		assertEquals(2.0, model.getTrend(), 1e-6);
+		for (int h = 1; h <= 10; h++) {
+			assertEquals(10 + 2.0 * (299 + h), model.forecast(h, 0), 1e-6);
+		}
+	}
+
+	@Test
+	void dampedTrendAddsGeometricSumAndLevelsOff() {
+		double phi = 0.8;
+		HoltWinters model = new HoltWinters(1, 0.5, 0.3, 0, phi);
+		for (int t = 0; t < 300; t++) {
+			model.observe(10 + 2.0 * t, t);
+		}
+		double sum = 0;
+		for (int h = 1; h <= 20; h++) {
+			sum += Math.pow(phi, h);
+			assertEquals(model.getLevel() + sum * model.getTrend(), model.forecast(h, 0), 1e-9, "h=" + h);
+		}
+		// phi / (1 - phi) = 4 trend steps at most, however far ahead
+		assertTrue(model.forecast(1000, 0) < model.getLevel() + 4 * model.getTrend() + 1e-9);
+	}
+
+	@Test
+	void learnsSeasonalOffsetsPerSlot() {
+		HoltWinters model = new HoltWinters(PATTERN.length, 0.2, 0.05, 0.3, 0.98);
+		for (int t = 0; t < PATTERN.length * 300; t++) {
+			model.observe(100 + PATTERN[t % PATTERN.length], t);
+		}
+		int next = PATTERN.length * 300; // Slot of the first forecast step
+		for (int h = 1; h <= 2 * PATTERN.length; h++) {
+			int slot = next + h - 1;
+			assertEquals(100 + PATTERN[slot % PATTERN.length], model.forecast(h, slot), 0.01, "h=" + h);
+		}
+		assertEquals(0, model.getStandardError(), 0.01);
+	}
+
+	@Test
+	void followsTrendAndSeasonTogether() {
+		HoltWinters model = new HoltWinters(PATTERN.length, 0.3, 0.1, 0.3, 1.0);
+		int n = PATTERN.length * 400;
+		for (int t = 0; t < n; t++) {
+			model.observe(50 + 0.5 * t + PATTERN[t % PATTERN.length], t);
+		}
+		for (int h = 1; h <= PATTERN.length; h++) {
+			int t = n - 1 + h;
+			assertEquals(50 + 0.5 * t + PATTERN[t % PATTERN.length], model.forecast(h, t), 0.05, "h=" + h);
+		}
+	}
+
+	@Test
+	void slotsWrapAroundThePeriod() {
+		HoltWinters model = new HoltWinters(4, 0.3, 0.1, 0.5, 0.9);
+		for (int t = 0; t < 400; t++) {
+			model.observe(t % 4 == 1 ? 20 : 10, t);
+		}
+		assertEquals(model.forecast(2, 1), model.forecast(2, 5));
+		assertEquals(model.forecast(2, 1), model.forecast(2, -3));
+		assertTrue(model.forecast(1, 1) > model.forecast(1, 2) + 5);
+	}
+
+	@Test
+	void standardErrorTracksNoise() {
+		HoltWinters model = new HoltWinters(1, 0.05, 0.01, 0, 0.9);
+		Random random = new Random(1);
+		model.observe(100, 0);
+		assertEquals(0, model.getStandardError()); // One observation: nothing predicted yet
+		for (int t = 1; t < 5000; t++) {
+			model.observe(100 + 2.0 * random.nextGaussian(), t);
+		}
+		double error = model.getStandardError();
+		assertTrue(error > 1.0 && error < 3.5, "standard error " + error + " for noise of sd 2");
+		assertEquals(100, model.forecast(1, 0), 1.5);
+	}
+}
@@ -0,0 +1,114 @@
+package com.traffixpert.TraffiXpert.loadtest;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator for the live map stream: how many dashboards can one backend serve at once?
+ *
+ * Opens /api/simulation/stream connections in steps and, after each step, checks how many of
+ * them are healthy (received an event during the last measurement window, i.e. are really being
+ * served rather than just accepted). Stops at the first step where fewer than 95% are healthy,
+ * or at the maximum, and prints the largest healthy step. Not a unit test (no assertions, needs
+ * a running backend); run it from the backend directory against a started application:
+ *
+ *   java src/test/java/com/traffixpert/TraffiXpert/loadtest/DashboardLoad.java [baseUrl] [max] [step] [holdSeconds]
+ *
+ * Defaults: http://localhost:8080, 4000 connections, steps of 250, 5 s per step. Raise the open
+ * file limit (ulimit -n) on both sides for large runs. Client connections are read on virtual
+ * threads, so the client itself is not the bottleneck.
+ */
+public class DashboardLoad {
+
+    private static final long INTERVAL_MS = 200; // Requested time between events
+    private static final double HEALTHY_FRACTION = 0.95;
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int max = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+        int step = args.length > 2 ? Integer.parseInt(args[2]) : 250;
+        long holdMillis = (args.length > 3 ? Long.parseLong(args[3]) : 5) * 1000;
+
+        URI uri = URI.create(baseUrl + "/api/simulation/stream?minX=0&minY=0&maxX=400&maxY=400&lod=vehicles&interval=" + INTERVAL_MS);
+        ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient client = HttpClient.newBuilder().executor(readers).connectTimeout(Duration.ofSeconds(10)).build();
+        List<Connection> connections = new ArrayList<>();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong events = new AtomicLong();
+        int sustained = 0;
+
+        System.out.printf("%8s %8s %8s %8s %10s%n", "open", "healthy", "failed", "events/s", "worst gap");
+        while (connections.size() < max) {
+            int target = Math.min(max, connections.size() + step);
+            while (connections.size() < target) {
+                Connection connection = new Connection();
+                connections.add(connection);
+                readers.execute(() -> connection.read(client, uri, events, failed));
+            }
+            Thread.sleep(holdMillis / 2); // Let the new streams connect and settle
+            long windowStart = System.nanoTime();
+            long eventsBefore = events.get();
+            Thread.sleep(holdMillis / 2);
+            long windowNanos = System.nanoTime() - windowStart;
+
+            int healthy = 0;
+            long worstGapMillis = 0;
+            for (Connection c : connections) {
+                long last = c.lastEventNanos;
+                if (last >= windowStart) healthy++;
+                if (c.open) worstGapMillis = Math.max(worstGapMillis, (System.nanoTime() - (last == 0 ? c.startNanos : last)) / 1_000_000);
+            }
+            double rate = (events.get() - eventsBefore) * 1e9 / windowNanos;
+            System.out.printf("%8d %8d %8d %8.0f %8d ms%n", connections.size(), healthy, failed.get(), rate, worstGapMillis);
+            if (healthy < HEALTHY_FRACTION * connections.size()) break;
+            sustained = connections.size();
+        }
+        System.out.println("Sustained " + sustained + " concurrent dashboard streams (at " + (1000 / INTERVAL_MS) + " events/s each)");
+        readers.shutdownNow();
+        System.exit(0);
+    }
+
+    /** One dashboard connection; the time of its latest event is read by the main thread. */
+    private static final class Connection {
+        final long startNanos = System.nanoTime();
+        volatile long lastEventNanos;
+        volatile boolean open = true;
+
+        void read(HttpClient client, URI uri, AtomicLong events, AtomicInteger failed) {
+            try {
+                HttpRequest request = HttpRequest.newBuilder(uri).header("Accept", "text/event-stream").GET().build();
+                HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                if (response.statusCode() != 200) {
+                    failed.incrementAndGet();
+                    return;
+                }
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.startsWith("event:")) {
+                            lastEventNanos = System.nanoTime();
+                            events.incrementAndGet();
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                failed.incrementAndGet();
+            } finally {
+                open = false;
+            }
+        }
+    }
+}
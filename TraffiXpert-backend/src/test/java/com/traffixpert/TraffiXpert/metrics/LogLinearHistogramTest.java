@@ -0,0 +1,125 @@
+package com.traffixpert.TraffiXpert.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogLinearHistogramTest {
+
+	@Test
+	void smallValuesHaveExactBuckets() {
+		for (int value = 0; value < 32; value++) {
+			assertEquals(value, LogLinearHistogram.bucketIndex(value));
+			assertEquals(value, LogLinearHistogram.bucketLowerBound(value));
+			assertEquals(1, LogLinearHistogram.bucketWidth(value));
+		}
+	}
+
+	@Test
+	void bucketsTileTheTrackableRangeWithBoundedWidth() {
+		int last = LogLinearHistogram.BUCKET_COUNT - 1;
+		for (int i = 0; i < last; i++) {
+			long lower = LogLinearHistogram.bucketLowerBound(i);
+			long width = LogLinearHistogram.bucketWidth(i);
+			assertEquals(LogLinearHistogram.bucketLowerBound(i + 1), lower + width, "gap after bucket " + i);
+			assertEquals(i, LogLinearHistogram.bucketIndex(lower));
+			assertEquals(i, LogLinearHistogram.bucketIndex(lower + width - 1));
+			assertTrue(width == 1 || width * 32 <= lower, "bucket " + i + " wider than 1/32 of its values");
+		}
+		assertEquals(last, LogLinearHistogram.bucketIndex(LogLinearHistogram.MAX_TRACKABLE));
+		assertEquals(LogLinearHistogram.MAX_TRACKABLE,
+				LogLinearHistogram.bucketLowerBound(last) + LogLinearHistogram.bucketWidth(last) - 1);
+	}
+
+	@Test
+	void powersOfTwoStartNewBuckets() {
+		// 32..63 are exact (width 1), 64..127 in buckets of 2, 128..255 of 4
+		assertEquals(32, LogLinearHistogram.bucketIndex(32));
+		assertEquals(63, LogLinearHistogram.bucketIndex(63));
+		assertEquals(64, LogLinearHistogram.bucketIndex(64));
+		assertEquals(64, LogLinearHistogram.bucketIndex(65));
+		assertEquals(65, LogLinearHistogram.bucketIndex(66));
+		assertEquals(96, LogLinearHistogram.bucketIndex(128));
+		assertEquals(4, LogLinearHistogram.bucketWidth(LogLinearHistogram.bucketIndex(200)));
+	}
+
+	@Test
+	void percentilesOfExactValues() {
+		LogLinearHistogram histogram = new LogLinearHistogram();
+		for (int value = 1; value <= 20; value++) {
+			histogram.record(value);
+		}
+		LogLinearHistogram.Snapshot snapshot = snapshot(histogram);
+
+		assertEquals(10, snapshot.valueAt(0.5));
+		assertEquals(19, snapshot.valueAt(0.95));
+		assertEquals(20, snapshot.valueAt(1.0));
+		assertEquals(1, snapshot.valueAt(0.0)); // Rank at least 1
+		assertEquals(10.5, snapshot.getMean(), 1e-9);
+	}
+
+	@Test
+	void percentilesOfLargeValuesAreWithinRelativeError() {
+		LogLinearHistogram histogram = new LogLinearHistogram();
+		long[] values = new long[100_000];
+		Random random = new Random(42);
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (long) Math.exp(random.nextDouble() * 16); // 1 .. ~9e6, spread over many powers of two
+			histogram.record(values[i]);
+		}
+		Arrays.sort(values);
+		LogLinearHistogram.Snapshot snapshot = snapshot(histogram);
+
+		for (double quantile : new double[] {0.1, 0.5, 0.9, 0.99, 0.999}) {
+			long exact = values[(int) Math.ceil(quantile * values.length) - 1];
+			double reported = snapshot.valueAt(quantile);
+			assertEquals(exact, reported, Math.max(1, exact / 32.0), "p" + quantile * 100);
+		}
+		assertEquals(values[values.length - 1], snapshot.getMax());
+		assertEquals(values[values.length - 1], snapshot.valueAt(1.0), values[values.length - 1] / 32.0);
+	}
+
+	@Test
+	void clampsOutOfRangeValuesButKeepsExactMaxAndMean() {
+		LogLinearHistogram histogram = new LogLinearHistogram();
+		histogram.record(-5); // Counts as 0
+		histogram.record(LogLinearHistogram.MAX_TRACKABLE * 4);
+		LogLinearHistogram.Snapshot snapshot = snapshot(histogram);
+
+		assertEquals(2, snapshot.getTotalCount());
+		assertEquals(0, snapshot.valueAt(0.5));
+		assertEquals(LogLinearHistogram.MAX_TRACKABLE * 4, snapshot.getMax());
+		assertEquals(LogLinearHistogram.MAX_TRACKABLE * 2.0, snapshot.getMean(), 1e-3);
+		assertTrue(snapshot.valueAt(1.0) <= LogLinearHistogram.MAX_TRACKABLE); // Last bucket's midpoint
+	}
+
+	@Test
+	void snapshotsMergeHistogramsAndResetClears() {
+		LogLinearHistogram first = new LogLinearHistogram();
+		LogLinearHistogram second = new LogLinearHistogram();
+		for (int i = 0; i < 10; i++) first.record(5);
+		for (int i = 0; i < 30; i++) second.record(1000);
+		LogLinearHistogram.Snapshot merged = new LogLinearHistogram.Snapshot();
+		first.addTo(merged);
+		second.addTo(merged);
+
+		assertEquals(40, merged.getTotalCount());
+		assertEquals(5, merged.valueAt(0.25));
+		assertEquals(1000, merged.valueAt(0.26), 1000 / 32.0);
+		assertEquals(1000, merged.getMax());
+
+		first.reset();
+		assertEquals(0, first.getTotalCount());
+		assertEquals(0, snapshot(first).valueAt(0.5));
+	}
+
+	private static LogLinearHistogram.Snapshot snapshot(LogLinearHistogram histogram) {
+		LogLinearHistogram.Snapshot snapshot = new LogLinearHistogram.Snapshot();
+		histogram.addTo(snapshot);
+		return snapshot;
+	}
+}
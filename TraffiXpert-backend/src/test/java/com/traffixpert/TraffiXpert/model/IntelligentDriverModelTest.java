@@ -0,0 +1,80 @@
+package com.traffixpert.TraffiXpert.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntelligentDriverModelTest {
+
+	private static final double EPSILON = 1e-12;
+	private static final DriverProfile PROFILE = new DriverProfile(0.06, 0.0, 600.0, 8.0, 0.00008, 0.00015);
+
+	@Test
+	void freeRoadAcceleratesFromRestAtMaximumAndStopsAtDesiredSpeed() {
+		double inf = Double.POSITIVE_INFINITY;
+		assertEquals(PROFILE.maxAcceleration(), IntelligentDriverModel.acceleration(0, inf, 0, PROFILE, 0.06), EPSILON);
+		assertEquals(0, IntelligentDriverModel.acceleration(0.06, inf, 0, PROFILE, 0.06), EPSILON);
+		// Half the desired speed: a * (1 - 0.5^4)
+		assertEquals(PROFILE.maxAcceleration() * (1 - 0.0625), IntelligentDriverModel.acceleration(0.03, inf, 0, PROFILE, 0.06), EPSILON);
+		assertTrue(IntelligentDriverModel.acceleration(0.08, inf, 0, PROFILE, 0.06) < 0); // Above v0: slows down
+	}
+
+	@Test
+	void matchesHandComputedInteractionTerm() {
+		double v = 0.04, gap = 30, dv = 0.01;
+		// s* = s0 + v T + v dv / (2 sqrt(a b))
+		double desiredGap = 8.0 + v * 600.0 + v * dv / (2 * Math.sqrt(0.00008 * 0.00015));
+		double expected = 0.00008 * (1 - Math.pow(v / 0.06, 4) - Math.pow(desiredGap / gap, 2));
+		assertEquals(expected, IntelligentDriverModel.acceleration(v, gap, dv, PROFILE, 0.06), EPSILON);
+	}
+
+	@Test
+	void followsAtEquilibriumGapWithOnlyTheSpeedTermLeft() {
+		double v = 0.03;
+		double equilibrium = PROFILE.minimumGap() + v * PROFILE.timeHeadway(); // s* with dv = 0
+		double ratio = v / 0.06;
+		assertEquals(-PROFILE.maxAcceleration() * ratio * ratio * ratio * ratio,
+				IntelligentDriverModel.acceleration(v, equilibrium, 0, PROFILE, 0.06), EPSILON);
+	}
+
+	@Test
+	void openingGapDoesNotShrinkDesiredGapBelowMinimum() {
+		// Leader pulling away fast: the dynamic term is negative and clamped, leaving s* = s0
+		double dv = -1.0;
+		double expected = 0.00008 * (1 - Math.pow(0.01 / 0.06, 4) - Math.pow(8.0 / 20.0, 2));
+		assertEquals(expected, IntelligentDriverModel.acceleration(0.01, 20, dv, PROFILE, 0.06), EPSILON);
+	}
+
+	@Test
+	void zeroGapBrakesHardButStaysFinite() {
+		double acceleration = IntelligentDriverModel.acceleration(0.05, 0, 0, PROFILE, 0.06);
+		assertTrue(Double.isFinite(acceleration));
+		assertTrue(acceleration < -PROFILE.comfortableDeceleration());
+	}
+
+	@Test
+	void laneKernelMatchesSingleVehicleFormula() {
+		int n = 5;
+		double[] speed = {0, 0.02, 0.04, 0.06, 0.05};
+		double[] gap = {Double.POSITIVE_INFINITY, 15, 40, 100, 0};
+		double[] approachRate = {0, 0.005, -0.01, 0.02, 0.05};
+		double[] desiredSpeed = {0.06, 0.055, 0.065, 0.06, 0.07};
+		double[] timeHeadway = new double[n], minimumGap = new double[n], maxAcceleration = new double[n],
+				comfortableDeceleration = new double[n], out = new double[n];
+		for (int i = 0; i < n; i++) {
+			timeHeadway[i] = PROFILE.timeHeadway();
+			minimumGap[i] = PROFILE.minimumGap();
+			maxAcceleration[i] = PROFILE.maxAcceleration();
+			comfortableDeceleration[i] = PROFILE.comfortableDeceleration();
+		}
+
+		IntelligentDriverModel.computeAccelerations(n, speed, gap, approachRate, desiredSpeed, timeHeadway,
+				minimumGap, maxAcceleration, comfortableDeceleration, out);
+
+		for (int i = 0; i < n; i++) {
+			assertEquals(IntelligentDriverModel.acceleration(speed[i], gap[i], approachRate[i], PROFILE, desiredSpeed[i]),
+					out[i], EPSILON, "vehicle " + i);
+		}
+	}
+}
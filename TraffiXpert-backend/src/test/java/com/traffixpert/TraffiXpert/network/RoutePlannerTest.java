@@ -0,0 +1,136 @@
+package com.traffixpert.TraffiXpert.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoutePlannerTest {
+
+	private static final int SIZE = 6; // 6 x 6 grid of nodes
+	private static final double SPACING = 100;
+
+	@Test
+	void routesAreOptimalAtFreeFlow() throws IOException {
+		RoadNetwork network = grid(new Random(7));
+		assertAllRoutesOptimal(network, new RoutePlanner(network));
+	}
+
+	@Test
+	void routesStayOptimalAfterRecost() throws IOException {
+		RoadNetwork network = grid(new Random(11));
+		RoutePlanner planner = new RoutePlanner(network);
+		Random random = new Random(3);
+		for (int round = 0; round < 3; round++) {
+			for (int link = 0; link < network.linkCount(); link++) {
+				if (random.nextInt(3) == 0) {
+					planner.observeLinkSpeed(link, network.linkSpeedLimit(link) * (0.05 + random.nextDouble()));
+				}
+			}
+			planner.recost();
+			assertAllRoutesOptimal(network, planner);
+		}
+	}
+
+	@Test
+	void routeStartsOnCurrentLinkAndIsConnected() throws IOException {
+		RoadNetwork network = grid(new Random(5));
+		RoutePlanner planner = new RoutePlanner(network);
+		int destination = network.nodeIndex("n5_5");
+		int[] route = planner.route(network.linkIndex("n0_0-n0_1"), destination);
+
+		assertEquals(network.linkIndex("n0_0-n0_1"), route[0]);
+		for (int i = 1; i < route.length; i++) {
+			assertEquals(network.linkTo(route[i - 1]), network.linkFrom(route[i]));
+		}
+		assertEquals(destination, network.linkTo(route[route.length - 1]));
+		assertTrue(route == planner.route(route[0], destination)); // Second request is a cache hit
+		assertEquals(1, planner.getCacheHits());
+	}
+
+	/** Compares every route (from every link to every node) with Dijkstra's cost. */
+	private static void assertAllRoutesOptimal(RoadNetwork network, RoutePlanner planner) {
+		for (int link = 0; link < network.linkCount(); link++) {
+			double[] best = dijkstra(network, planner, network.linkTo(link), network.linkFrom(link));
+			for (int destination = 0; destination < network.nodeCount(); destination++) {
+				int[] route = planner.route(link, destination);
+				if (Double.isInfinite(best[destination])) {
+					assertEquals(0, route.length);
+					continue;
+				}
+				double cost = 0;
+				for (int i = 1; i < route.length; i++) {
+					cost += planner.linkTravelTime(route[i]);
+				}
+				assertEquals(best[destination], cost, 1e-6,
+						"route " + network.linkId(link) + " to " + network.nodeId(destination));
+			}
+		}
+	}
+
+	/** Plain Dijkstra with the planner's rule that the first link may not lead back to avoidNode. */
+	private static double[] dijkstra(RoadNetwork network, RoutePlanner planner, int origin, int avoidNode) {
+		double[] distance = new double[network.nodeCount()];
+		boolean[] done = new boolean[network.nodeCount()];
+		Arrays.fill(distance, Double.POSITIVE_INFINITY);
+		distance[origin] = 0;
+		PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+		queue.add(new double[] {0, origin});
+		while (!queue.isEmpty()) {
+			int node = (int) queue.poll()[1];
+			if (done[node]) continue;
+			done[node] = true;
+			for (int i = network.outStart(node); i < network.outEnd(node); i++) {
+				int link = network.outLink(i);
+				int next = network.linkTo(link);
+				if (node == origin && next == avoidNode) continue;
+				double candidate = distance[node] + planner.linkTravelTime(link);
+				if (candidate < distance[next]) {
+					distance[next] = candidate;
+					queue.add(new double[] {candidate, next});
+				}
+			}
+		}
+		return distance;
+	}
+
+	/**
+	 * Grid with links in both directions, random speed limits, some links declared shorter than
+	 * their nodes are apart (the heuristic must stay admissible) and some one-way streets.
+	 */
+	private static RoadNetwork grid(Random random) throws IOException {
+		StringBuilder nodes = new StringBuilder();
+		StringBuilder links = new StringBuilder();
+		for (int row = 0; row < SIZE; row++) {
+			for (int column = 0; column < SIZE; column++) {
+				if (nodes.length() > 0) nodes.append(',');
+				nodes.append(String.format("{\"id\":\"n%d_%d\",\"x\":%s,\"y\":%s}", row, column,
+						column * SPACING + random.nextInt(20), row * SPACING + random.nextInt(20)));
+				if (column + 1 < SIZE) addLinks(links, random, "n" + row + "_" + column, "n" + row + "_" + (column + 1));
+				if (row + 1 < SIZE) addLinks(links, random, "n" + row + "_" + column, "n" + (row + 1) + "_" + column);
+			}
+		}
+		String json = "{\"name\":\"grid\",\"nodes\":[" + nodes + "],\"links\":[" + links + "]}";
+		return NetworkLoader.load(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static void addLinks(StringBuilder links, Random random, String a, String b) {
+		boolean oneWay = random.nextInt(6) == 0;
+		addLink(links, random, a, b);
+		if (!oneWay) addLink(links, random, b, a);
+	}
+
+	private static void addLink(StringBuilder links, Random random, String from, String to) {
+		if (links.length() > 0) links.append(',');
+		String length = random.nextInt(5) == 0 ? ",\"length\":" + (20 + random.nextInt(60)) : "";
+		links.append(String.format("{\"id\":\"%s-%s\",\"from\":\"%s\",\"to\":\"%s\",\"speedLimit\":%s%s}",
+				from, to, from, to, 0.02 + random.nextInt(6) * 0.01, length));
+	}
+}
@@ -0,0 +1,111 @@
+package com.traffixpert.TraffiXpert.recording;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TrajectoryFileTest {
+
+	/** One decoded (or expected) row, in stored units. */
+	private record Row(long vehicleId, long time, long x, long y, long speed, int state, int road) {}
+
+	@Test
+	void varintsUseSevenBitGroups() {
+		assertArrayEquals(new byte[] {0}, encode(0));
+		assertArrayEquals(new byte[] {0x7F}, encode(127));
+		assertArrayEquals(new byte[] {(byte) 0x80, 0x01}, encode(128));
+		assertArrayEquals(new byte[] {(byte) 0xAC, 0x02}, encode(300));
+		assertEquals(10, encode(-1L).length); // All 64 bits set
+	}
+
+	@Test
+	void blocksRoundTripRowsSortedByVehicle() throws IOException {
+		Random random = new Random(9);
+		List<Row> expected = new ArrayList<>();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TrajectoryFile.VarintBuffer buffer = new TrajectoryFile.VarintBuffer(16); // Small: must grow
+		TrajectoryFile.writeHeader(out);
+
+		for (int block = 0; block < 3; block++) {
+			TrajectoryChunk chunk = new TrajectoryChunk(500);
+			List<Row> rows = new ArrayList<>();
+			for (int step = 0; step < 50; step++) {
+				for (int v = 0; v < 10; v++) {
+					// Ids far apart and out of order, negative positions, large jumps in every column
+					long id = v % 2 == 0 ? 1_000_000_000_000L + v * 7919 : v;
+					Row row = new Row(id, block * 100_000L + step * 200L, random.nextInt(200_000) - 100_000,
+							-random.nextInt(1_000_000), random.nextInt(1_001), random.nextInt(16), random.nextInt(4));
+					add(chunk, row);
+					rows.add(row);
+				}
+			}
+			TrajectoryFile.writeBlock(chunk, out, buffer);
+			rows.sort(Comparator.comparingLong(Row::vehicleId)); // Stable: time order kept per vehicle
+			expected.addAll(rows);
+		}
+
+		List<Row> decoded = new ArrayList<>();
+		long count = TrajectoryFile.read(new ByteArrayInputStream(out.toByteArray()), (id, t, x, y, speed, state, road) ->
+				decoded.add(new Row(id, t, Math.round(x * TrajectoryChunk.POSITION_SCALE),
+						Math.round(y * TrajectoryChunk.POSITION_SCALE), Math.round(speed * TrajectoryChunk.SPEED_SCALE),
+						state, road)));
+
+		assertEquals(expected.size(), count);
+		assertEquals(expected, decoded);
+	}
+
+	@Test
+	void emptyFileHasNoRowsAndEmptyChunkRoundTrips() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TrajectoryFile.writeHeader(out);
+		assertEquals(0, TrajectoryFile.read(new ByteArrayInputStream(out.toByteArray()), (id, t, x, y, s, st, r) -> {}));
+
+		TrajectoryFile.writeBlock(new TrajectoryChunk(4), out, new TrajectoryFile.VarintBuffer(8));
+		assertEquals(0, TrajectoryFile.read(new ByteArrayInputStream(out.toByteArray()), (id, t, x, y, s, st, r) -> {}));
+	}
+
+	@Test
+	void rejectsForeignAndTruncatedFiles() throws IOException {
+		assertThrows(IOException.class, () -> TrajectoryFile.read(
+				new ByteArrayInputStream("vehicle_id,t_ms".getBytes()), (id, t, x, y, s, st, r) -> {}));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TrajectoryFile.writeHeader(out);
+		TrajectoryChunk chunk = new TrajectoryChunk(10);
+		for (int i = 0; i < 10; i++) add(chunk, new Row(i, i * 1000L, 100_000, 200_000, 600, 1, 2));
+		TrajectoryFile.writeBlock(chunk, out, new TrajectoryFile.VarintBuffer(64));
+		byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() - 3);
+
+		assertThrows(EOFException.class, () -> TrajectoryFile.read(new ByteArrayInputStream(truncated),
+				(id, t, x, y, s, st, r) -> {}));
+	}
+
+	private static void add(TrajectoryChunk chunk, Row row) {
+		int i = chunk.size++;
+		chunk.vehicleId[i] = row.vehicleId();
+		chunk.time[i] = row.time();
+		chunk.x[i] = (int) row.x();
+		chunk.y[i] = (int) row.y();
+		chunk.speed[i] = (int) row.speed();
+		chunk.state[i] = (byte) row.state();
+		chunk.road[i] = (byte) row.road();
+	}
+
+	private static byte[] encode(long value) {
+		TrajectoryFile.VarintBuffer buffer = new TrajectoryFile.VarintBuffer(1);
+		buffer.writeVarLong(value);
+		return Arrays.copyOf(buffer.array(), buffer.size());
+	}
+}
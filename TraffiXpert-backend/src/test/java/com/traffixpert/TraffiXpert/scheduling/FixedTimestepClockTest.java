@@ -0,0 +1,121 @@
+package com.traffixpert.TraffiXpert.scheduling;
+
+import com.traffixpert.TraffiXpert.scheduling.FixedTimestepClock.OverrunPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FixedTimestepClockTest {
+
+	private static final double STEP = 10;
+	private static final double EPSILON = 1e-9;
+
+	@Test
+	void carriesRemainderSoSimulatedTimeTracksWallTime() {
+		FixedTimestepClock clock = new FixedTimestepClock(OverrunPolicy.SKIP, 4, 1000);
+		assertEquals(1, clock.advance(10, STEP));
+		assertEquals(2, clock.advance(25, STEP));
+		assertEquals(5, clock.getLagMillis(), EPSILON);
+		assertEquals(0, clock.advance(3, STEP)); // Fired early: nothing due yet
+		assertEquals(1, clock.advance(2, STEP));
+		assertEquals(0, clock.getLagMillis(), EPSILON);
+
+		Random random = new Random(4);
+		double wall = 40, simulated = 40;
+		for (int i = 0; i < 10_000; i++) {
+			double elapsed = 5 + random.nextDouble() * 20; // Jitter around the step, never over the cap
+			wall += elapsed;
+			simulated += clock.advance(elapsed, STEP) * clock.getStepMillis();
+		}
+		assertEquals(wall, simulated + clock.getLagMillis(), 1e-6);
+		assertEquals(0, clock.getOverruns());
+		assertEquals(0, clock.getDroppedMillis());
+	}
+
+	@Test
+	void skipDropsWholeStepsOwedAfterTheCap() {
+		FixedTimestepClock clock = new FixedTimestepClock(OverrunPolicy.SKIP, 4, 1000);
+		assertEquals(4, clock.advance(105, STEP));
+		assertEquals(60, clock.getDroppedMillis(), EPSILON);
+		assertEquals(5, clock.getLagMillis(), EPSILON); // Sub-step remainder kept
+		assertEquals(1, clock.getOverruns());
+		assertEquals(1, clock.advance(5, STEP));
+		assertEquals(1, clock.advance(10, STEP)); // Back to real time
+	}
+
+	@Test
+	void slowMotionCatchesUpOverLaterIterations() {
+		FixedTimestepClock clock = new FixedTimestepClock(OverrunPolicy.SLOW_MOTION, 4, 1000);
+		assertEquals(4, clock.advance(100, STEP));
+		assertEquals(60, clock.getLagMillis(), EPSILON);
+		assertEquals(4, clock.advance(10, STEP));
+		assertEquals(30, clock.getLagMillis(), EPSILON);
+		assertEquals(4, clock.advance(10, STEP)); // 40 owed: exactly the cap, no overrun
+		assertEquals(0, clock.getLagMillis(), EPSILON);
+
+		assertEquals(2, clock.getOverruns());
+		assertEquals(0, clock.getDroppedMillis());
+		assertEquals(12, clock.getSteps()); // 120 ms of wall time, all simulated
+		assertEquals(60, clock.getMaxObservedLagMillis(), EPSILON);
+	}
+
+	@Test
+	void degradeUsesCoarserStepsUntilCaughtUp() {
+		FixedTimestepClock clock = new FixedTimestepClock(OverrunPolicy.DEGRADE, 4, 1000);
+		assertEquals(4, clock.advance(100, STEP));
+		assertTrue(clock.isDegraded());
+		assertEquals(STEP, clock.getStepMillis());
+
+		assertEquals(3, clock.advance(10, STEP)); // 70 owed in steps of 20
+		assertEquals(STEP * FixedTimestepClock.DEGRADE_FACTOR, clock.getStepMillis());
+		assertEquals(10, clock.getLagMillis(), EPSILON);
+		assertTrue(clock.isDegraded()); // A whole base step still owed
+
+		assertEquals(1, clock.advance(10, STEP));
+		assertEquals(0, clock.getLagMillis(), EPSILON);
+		assertFalse(clock.isDegraded());
+		assertEquals(1, clock.advance(10, STEP));
+		assertEquals(STEP, clock.getStepMillis());
+		assertEquals(0, clock.getDroppedMillis()); // 130 ms wall = 40 + 60 + 20 + 10 simulated
+	}
+
+	@Test
+	void lagAboveTheLimitIsDroppedWhateverThePolicy() {
+		for (OverrunPolicy policy : OverrunPolicy.values()) {
+			FixedTimestepClock clock = new FixedTimestepClock(policy, 4, 100);
+			assertEquals(4, clock.advance(1000, STEP), policy.name());
+			assertTrue(clock.getDroppedMillis() >= 890 - EPSILON, policy.name());
+			assertTrue(clock.getLagMillis() <= 100, policy.name());
+		}
+	}
+
+	@Test
+	void resetAndReconfigureClearOwedTimeAndDegradation() {
+		FixedTimestepClock clock = new FixedTimestepClock(OverrunPolicy.DEGRADE, 2, 1000);
+		clock.advance(100, STEP);
+		assertTrue(clock.isDegraded());
+		clock.configure(OverrunPolicy.SLOW_MOTION, 2, 1000);
+		assertFalse(clock.isDegraded());
+		assertTrue(clock.getLagMillis() > 0);
+		clock.reset();
+		assertEquals(0, clock.getLagMillis());
+
+		assertThrows(IllegalArgumentException.class, () -> clock.configure(null, 2, 1000));
+		assertThrows(IllegalArgumentException.class, () -> clock.configure(OverrunPolicy.SKIP, 0, 1000));
+		assertThrows(IllegalArgumentException.class, () -> clock.configure(OverrunPolicy.SKIP, 2, -1));
+	}
+
+	@Test
+	void parsesPolicyNames() {
+		assertEquals(OverrunPolicy.SLOW_MOTION, OverrunPolicy.parse(" slow-motion "));
+		assertEquals(OverrunPolicy.DEGRADE, OverrunPolicy.parse("Degrade"));
+		assertNull(OverrunPolicy.parse("pause"));
+		assertNull(OverrunPolicy.parse(null));
+	}
+}
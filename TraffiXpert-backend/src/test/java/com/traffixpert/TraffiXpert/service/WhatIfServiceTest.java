@@ -0,0 +1,113 @@
+package com.traffixpert.TraffiXpert.service;
+
+import com.traffixpert.TraffiXpert.dto.WhatIfDTO;
+import com.traffixpert.TraffiXpert.model.Road;
+import com.traffixpert.TraffiXpert.model.SignalState;
+import com.traffixpert.TraffiXpert.model.TrafficSignal;
+import com.traffixpert.TraffiXpert.model.Vehicle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WhatIfServiceTest {
+
+	private final List<SimulationService> simulations = new ArrayList<>();
+	private SimulationService live;
+
+	@BeforeEach
+	void warmUp() {
+		live = track(new SimulationService());
+		live.configureMesoscopic("NORTH"); // Queued vehicles must be copied, not shared, by forks
+		live.setSeed(1);
+		live.runHeadless(120_000, true);
+	}
+
+	@AfterEach
+	void shutdown() {
+		simulations.forEach(SimulationService::shutdownScheduler);
+	}
+
+	@Test
+	void forkRunsWithoutChangingTheSourceOrTheOtherWay() {
+		String before = fingerprint(live);
+		long served = live.getStats().totalVehicles();
+		long released = live.getDemand().getReleased();
+		SimulationService fork = track(live.fork(7));
+		assertEquals(before, fingerprint(fork)); // Starts in the same state (its counters start at zero)
+
+		fork.toggleAutoMode();
+		fork.setAllSignals(SignalState.RED);
+		fork.runHeadless(300_000, true);
+		assertEquals(before, fingerprint(live));
+		assertEquals(served, live.getStats().totalVehicles());
+		assertEquals(released, live.getDemand().getReleased());
+
+		String forkState = fingerprint(fork);
+		live.runHeadless(60_000, true);
+		assertNotEquals(before, fingerprint(live));
+		assertEquals(forkState, fingerprint(fork));
+	}
+
+	@Test
+	void forksWithTheSameSeedStayIdentical() {
+		SimulationService first = track(live.fork(42));
+		SimulationService second = track(first.fork(42));
+		first.runHeadless(300_000, true);
+		second.runHeadless(300_000, true);
+
+		assertEquals(fingerprint(first), fingerprint(second));
+		assertEquals(first.getStats().totalVehicles(), second.getStats().totalVehicles());
+		assertEquals(first.getDemand().getReleased(), second.getDemand().getReleased());
+		assertEquals(first.getMesoscopicModel().getEntered(), second.getMesoscopicModel().getEntered());
+	}
+
+	@Test
+	void compareLeavesTheLiveRunUntouchedAndRepeatsWithItsSeed() {
+		WhatIfService whatIf = new WhatIfService(live, 1, 1);
+		try {
+			String before = fingerprint(live);
+			WhatIfDTO result = whatIf.compare(WhatIfService.Action.TOGGLE_MODE, null, 5, 99L);
+			assertEquals(before, fingerprint(live));
+			assertTrue(result.baseline().vehiclesServed() > 0);
+
+			WhatIfDTO again = whatIf.compare(WhatIfService.Action.TOGGLE_MODE, null, 5, 99L);
+			assertEquals(result.baseline(), again.baseline());
+			assertEquals(result.scenario(), again.scenario());
+		} finally {
+			whatIf.shutdown();
+		}
+	}
+
+	private SimulationService track(SimulationService simulation) {
+		simulations.add(simulation);
+		return simulation;
+	}
+
+	/** State a branch could leak into another: time, vehicles, queues, signals, demand backlog. */
+	private static String fingerprint(SimulationService simulation) {
+		StringBuilder state = new StringBuilder();
+		state.append(String.format(Locale.ROOT, "t=%.3f auto=%s queued=%d backlog=%s%n",
+				simulation.getSimulatedTime(), simulation.isAutoMode(),
+				simulation.getMesoscopicModel().getVehicleCount(), simulation.getDemand().getBacklogByEntry()));
+		for (Road road : simulation.getRoads()) {
+			state.append(road.getName()).append(':');
+			for (Vehicle vehicle : road.getVehicles()) {
+				// Not the id: ids come from a global counter, so two branches number new vehicles differently
+				state.append(String.format(Locale.ROOT, " (%.4f,%.4f,%.6f)", vehicle.getX(), vehicle.getY(), vehicle.getSpeed()));
+			}
+			state.append('\n');
+		}
+		for (TrafficSignal signal : simulation.getSignals()) {
+			state.append(signal.getState()).append(String.format(Locale.ROOT, " %.3f%n", signal.getTimer()));
+		}
+		return state.toString();
+	}
+}
@@ -0,0 +1,55 @@
+package com.traffixpert.TraffiXpert.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SequencedRingBufferTest {
+
+	@Test
+	void evictsOldestAndReadsSinceSequence() {
+		SequencedRingBuffer<String> buffer = new SequencedRingBuffer<>(3); // Rounded up to 4
+		assertNull(buffer.newest());
+		for (int i = 1; i <= 6; i++) {
+			assertEquals(i, buffer.append("e" + i));
+		}
+
+		assertEquals(4, buffer.size());
+		assertEquals(List.of("e6", "e5", "e4", "e3"), buffer.values());
+		assertEquals("e6", buffer.newest());
+
+		List<SequencedRingBuffer.Entry<String>> newer = buffer.readSince(4);
+		assertEquals(2, newer.size());
+		assertEquals(6, newer.get(0).sequence());
+		assertEquals(5, newer.get(1).sequence());
+		assertTrue(buffer.readSince(6).isEmpty());
+		assertEquals(1, buffer.readSince(0, 1).size());
+	}
+
+	@Test
+	void concurrentAppendsGetUniqueSequences() throws InterruptedException {
+		SequencedRingBuffer<Integer> buffer = new SequencedRingBuffer<>(1024);
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		for (int t = 0; t < 4; t++) {
+			pool.submit(() -> {
+				for (int i = 0; i < 10_000; i++) buffer.append(i);
+			});
+		}
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertEquals(40_000, buffer.getLastSequence());
+		List<SequencedRingBuffer.Entry<Integer>> retained = buffer.readSince(0);
+		assertEquals(1024, retained.size());
+		assertEquals(40_000, retained.get(0).sequence());
+		assertEquals(40_000 - 1023, retained.get(retained.size() - 1).sequence());
+	}
+
+}
@@ -31,6 +31,9 @@ interface SimulationStateDTO {
 }
 // --- End Type Definitions ---
 
+const MAP_SIZE = 400; // Canvas size (px), the region fetched from the backend
+const VIEW_MARGIN = 20; // Largest vehicle half-length (px)
+
 // --- Helper Components (TrafficLight, Car - mostly same, Car now takes interpolated props) ---
 const LightColorMap: Record<SignalState, "green" | "yellow" | "red"> = {
   GREEN: "green",
@@ -140,7 +143,9 @@ export function LiveTrafficMap() {
   useEffect(() => {
     const fetchData = async () => {
       try {
-        const response = await fetch('http://localhost:8080/api/simulation/state');
+        // Only the visible region (plus a margin for vehicles half inside it)
+        const response = await fetch(`http://localhost:8080/api/simulation/state?minX=${-VIEW_MARGIN}&minY=${-VIEW_MARGIN}`
+          + `&maxX=${MAP_SIZE + VIEW_MARGIN}&maxY=${MAP_SIZE + VIEW_MARGIN}&lod=vehicles`);
         if (!response.ok) {
            setError(`Failed to fetch state: ${response.status}`);
            return;